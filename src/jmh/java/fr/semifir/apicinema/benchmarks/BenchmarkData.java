@@ -0,0 +1,42 @@
+package fr.semifir.apicinema.benchmarks;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Jeu de données réaliste pour les benchmarks :
+ * 10 salles par cinéma, des séances réparties sur les salles et un film par séance
+ */
+public final class BenchmarkData {
+
+    public final List<Cinema> cinemas = new ArrayList<>();
+    public final List<Salle> salles = new ArrayList<>();
+    public final List<Seance> seances = new ArrayList<>();
+    public final List<Film> films = new ArrayList<>();
+
+    public BenchmarkData(int nbrSeances) {
+        int nbrSalles = Math.max(1, nbrSeances / 20);
+        int nbrCinemas = Math.max(1, nbrSalles / 10);
+        for (int i = 0; i < nbrCinemas; i++) {
+            this.cinemas.add(new Cinema(new ObjectId().toHexString(), "Cinema " + i));
+        }
+        for (int i = 0; i < nbrSalles; i++) {
+            Cinema cinema = this.cinemas.get(i % nbrCinemas);
+            this.salles.add(new Salle(new ObjectId().toHexString(), i % 10 + 1, 80 + i % 5 * 40, cinema));
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nbrSeances; i++) {
+            Salle salle = this.salles.get(i % nbrSalles);
+            Seance seance = new Seance(new ObjectId().toHexString(), new Date(start + i * 900_000L), salle);
+            this.seances.add(seance);
+            this.films.add(new Film(new ObjectId().toHexString(), "Film " + i % 300, 90F + i % 60, seance));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package fr.semifir.apicinema.benchmarks;
+
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Remplaçant en mémoire des repositories Mongo pour les benchmarks :
+ * implémente par proxy les méthodes utilisées par les services, sur une map triée par id
+ */
+public final class InMemoryRepository<T> implements InvocationHandler {
+
+    private final ConcurrentSkipListMap<String, T> documents = new ConcurrentSkipListMap<>();
+    private final Function<T, String> id;
+
+    private InMemoryRepository(Function<T, String> id) {
+        this.id = id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R, T> R create(Class<R> repositoryInterface, Function<T, String> id, List<T> documents) {
+        InMemoryRepository<T> handler = new InMemoryRepository<>(id);
+        documents.forEach(document -> handler.documents.put(id.apply(document), document));
+        return (R) Proxy.newProxyInstance(
+                repositoryInterface.getClassLoader(),
+                new Class<?>[]{repositoryInterface},
+                handler
+        );
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "findAll":
+            case "findAllResolved":
+                return new ArrayList<>(this.documents.values());
+            case "findById":
+                return Optional.ofNullable(this.documents.get((String) args[0]));
+            case "findAllByOrderByIdAsc":
+                return limit(this.documents.values(), ((Pageable) args[0]).getPageSize());
+            case "findByIdGreaterThanOrderByIdAsc":
+                return limit(this.documents.tailMap((String) args[0], false).values(), ((Pageable) args[1]).getPageSize());
+            case "findPageResolved":
+                return limit(args[0] == null
+                        ? this.documents.values()
+                        : this.documents.tailMap((String) args[0], false).values(), (int) args[1]);
+            case "forEachResolved":
+                this.documents.values().forEach((Consumer<T>) args[1]);
+                return null;
+            case "save":
+                T document = (T) args[0];
+                this.documents.put(this.id.apply(document), document);
+                return document;
+            case "bulkSave":
+                ((List<T>) args[0]).forEach(d -> this.documents.put(this.id.apply(d), d));
+                return Collections.emptyMap();
+            case "delete":
+                this.documents.remove(this.id.apply((T) args[0]));
+                return null;
+            case "deleteCascade":
+                return this.documents.remove((String) args[0]) == null
+                        ? Collections.emptyMap()
+                        : Collections.singletonMap("documents", 1L);
+            case "count":
+                return (long) this.documents.size();
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryRepository" + this.documents.keySet();
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private List<T> limit(Iterable<T> values, int size) {
+        List<T> page = new ArrayList<>(size);
+        for (T value : values) {
+            if (page.size() == size) {
+                break;
+            }
+            page.add(value);
+        }
+        return page;
+    }
+}
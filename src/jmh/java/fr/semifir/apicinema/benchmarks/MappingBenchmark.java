@@ -0,0 +1,78 @@
+package fr.semifir.apicinema.benchmarks;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.mappers.CinemaMapper;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.mappers.ModelMapperDtoMapper;
+import fr.semifir.apicinema.mappers.SeanceMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le mapping entité -> DTO écrit à la main et le repli ModelMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Cinema cinema;
+    private Seance seance;
+
+    private DtoMapper<Cinema, CinemaDTO> explicitCinema;
+    private DtoMapper<Seance, SeanceDTO> explicitSeance;
+    private DtoMapper<Cinema, CinemaDTO> modelMapperCinema;
+    private DtoMapper<Seance, SeanceDTO> modelMapperSeance;
+
+    @Setup
+    public void setup() {
+        this.cinema = new Cinema("61c30a5e2f1b4a3d9c8e7f01", "Kinepolis");
+        Salle salle = new Salle("61c30a5e2f1b4a3d9c8e7f02", 4, 90, this.cinema);
+        this.seance = new Seance("61c30a5e2f1b4a3d9c8e7f03", new Date(), salle);
+
+        ModelMapper modelMapper = new ModelMapper();
+        this.explicitCinema = new CinemaMapper();
+        this.explicitSeance = new SeanceMapper();
+        this.modelMapperCinema = new ModelMapperDtoMapper<>(modelMapper, CinemaDTO.class);
+        this.modelMapperSeance = new ModelMapperDtoMapper<>(modelMapper, SeanceDTO.class);
+    }
+
+    @Benchmark
+    public CinemaDTO cinemaExplicit() {
+        return this.explicitCinema.map(this.cinema);
+    }
+
+    @Benchmark
+    public CinemaDTO cinemaModelMapper() {
+        return this.modelMapperCinema.map(this.cinema);
+    }
+
+    @Benchmark
+    public SeanceDTO seanceExplicit() {
+        return this.explicitSeance.map(this.seance);
+    }
+
+    @Benchmark
+    public SeanceDTO seanceModelMapper() {
+        return this.modelMapperSeance.map(this.seance);
+    }
+}
@@ -0,0 +1,97 @@
+package fr.semifir.apicinema.benchmarks;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.mappers.CinemaMapper;
+import fr.semifir.apicinema.metrics.ServiceTimingPostProcessor;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.services.CinemaService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Surcoût du chronométrage des services sur l'appel le plus court (findByID en mémoire) :
+ * service nu, service instrumenté avec un registre simple, puis avec le registre Prometheus
+ * et son histogramme
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private CinemaService plain;
+    private CinemaService simple;
+    private CinemaService prometheus;
+    private String cinemaId;
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = new BenchmarkData(1000);
+        this.cinemaId = data.cinemas.get(0).getId();
+        this.plain = this.service(data);
+        this.simple = this.timed(this.service(data), new SimpleMeterRegistry());
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        });
+        this.prometheus = this.timed(this.service(data), registry);
+    }
+
+    @Benchmark
+    public Optional<CinemaDTO> plain() {
+        return this.plain.findByID(this.cinemaId);
+    }
+
+    @Benchmark
+    public Optional<CinemaDTO> timedSimple() {
+        return this.simple.findByID(this.cinemaId);
+    }
+
+    @Benchmark
+    public Optional<CinemaDTO> timedPrometheusHistogram() {
+        return this.prometheus.findByID(this.cinemaId);
+    }
+
+    private CinemaService service(BenchmarkData data) {
+        return new CinemaService(
+                InMemoryRepository.create(CinemaRepository.class, Cinema::getId, data.cinemas),
+                new CinemaMapper(),
+                50,
+                1000
+        );
+    }
+
+    private CinemaService timed(CinemaService service, MeterRegistry registry) {
+        ServiceTimingPostProcessor postProcessor = new ServiceTimingPostProcessor(List.of(CinemaService.class), () -> registry);
+        postProcessor.setBeanClassLoader(CinemaService.class.getClassLoader());
+        return (CinemaService) postProcessor.postProcessAfterInitialization(service, "cinemaService");
+    }
+}
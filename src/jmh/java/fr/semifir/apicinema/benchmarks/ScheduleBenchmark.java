@@ -0,0 +1,140 @@
+package fr.semifir.apicinema.benchmarks;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import fr.semifir.apicinema.dtos.seance.ShowingDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.repositories.SeanceRepositoryCustomImpl;
+import fr.semifir.apicinema.services.SeanceSchedule;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Séances des 3 prochaines heures" : index en mémoire (SeanceSchedule) contre la même requête Mongo,
+ * brute (projection date + salle) et via SeanceRepositoryCustomImpl.search (DBRef résolues).
+ * Sans mongoUri, un Mongo en mémoire est démarré dans la JVM : il ne mesure que le coût du driver
+ * et de la sérialisation, un vrai Mongo (-p mongoUri=mongodb://...) donne le coût réseau en plus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBenchmark {
+
+    private static final String DATABASE = "apicinema-benchmark";
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(3);
+    private static final int LIMIT = 50;
+    private static final int SEED_BATCH = 5000;
+
+    @Param({""})
+    public String mongoUri;
+
+    @Param({"10000", "100000"})
+    public int nbrSeances;
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate template;
+    private SeanceSchedule schedule;
+    private SeanceRepositoryCustomImpl repository;
+
+    private String cinemaId;
+    private Date from;
+    private Date to;
+
+    @Setup
+    public void setup() {
+        String uri = this.mongoUri;
+        if (uri.isEmpty()) {
+            this.server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = this.server.bind();
+            uri = "mongodb://localhost:" + address.getPort();
+        }
+        this.client = MongoClients.create(uri);
+        this.template = new MongoTemplate(this.client, DATABASE);
+        this.template.getDb().drop();
+        // Index de l'application (date, salle + date)
+        new MongoPersistentEntityIndexResolver(this.template.getConverter().getMappingContext())
+                .resolveIndexFor(Seance.class)
+                .forEach(this.template.indexOps(Seance.class)::ensureIndex);
+        BenchmarkData data = new BenchmarkData(this.nbrSeances);
+        this.template.insert(data.cinemas, Cinema.class);
+        this.template.insert(data.salles, Salle.class);
+        for (int i = 0; i < data.seances.size(); i += SEED_BATCH) {
+            this.template.insert(data.seances.subList(i, Math.min(i + SEED_BATCH, data.seances.size())), Seance.class);
+        }
+        this.cinemaId = data.cinemas.get(0).getId();
+        // Milieu de la période des séances
+        this.from = data.seances.get(data.seances.size() / 2).getDate();
+        this.to = new Date(this.from.getTime() + WINDOW);
+
+        this.schedule = new SeanceSchedule(this.template, 10000, LIMIT);
+        this.schedule.load();
+        System.out.printf("%nIndex : %d séances en %d ms, environ %d Ko%n",
+                this.schedule.getSize(), this.schedule.getLoadMillis(), this.schedule.getFootprintBytes() / 1024);
+        this.repository = new SeanceRepositoryCustomImpl(this.template);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.schedule.close();
+        this.template.getDb().drop();
+        this.client.close();
+        if (this.server != null) {
+            this.server.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public List<ShowingDTO> scheduleAllCinemas() {
+        return this.schedule.find(null, null, this.from, this.to, LIMIT);
+    }
+
+    @Benchmark
+    public List<ShowingDTO> scheduleOneCinema() {
+        return this.schedule.find(this.cinemaId, null, this.from, this.to, LIMIT);
+    }
+
+    @Benchmark
+    public List<Document> mongoAllCinemas() {
+        return this.template.getCollection(this.template.getCollectionName(Seance.class))
+                .find(Filters.and(Filters.gte("date", this.from), Filters.lt("date", this.to)))
+                .projection(Projections.include("date", "salle"))
+                .sort(Sorts.ascending("date"))
+                .limit(LIMIT)
+                .into(new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<Seance> repositoryOneCinema() {
+        return this.repository.search(this.cinemaId, null, this.from, this.to, null, LIMIT);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.semifir.apicinema.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.mappers.SeanceMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation Jackson des graphes SeanceDTO -> Salle -> Cinema,
+ * avec un ObjectMapper configuré comme celui de Spring Boot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int nbrSeances;
+
+    private ObjectWriter listWriter;
+    private List<SeanceDTO> seanceDTOS;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        this.listWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, SeanceDTO.class)
+        );
+        SeanceMapper mapper = new SeanceMapper();
+        this.seanceDTOS = new ArrayList<>();
+        new BenchmarkData(this.nbrSeances).seances.forEach(seance -> this.seanceDTOS.add(mapper.map(seance)));
+    }
+
+    @Benchmark
+    public byte[] seanceList() throws JsonProcessingException {
+        return this.listWriter.writeValueAsBytes(this.seanceDTOS);
+    }
+}
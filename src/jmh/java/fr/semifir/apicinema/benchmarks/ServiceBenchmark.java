@@ -0,0 +1,145 @@
+package fr.semifir.apicinema.benchmarks;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.mappers.CinemaMapper;
+import fr.semifir.apicinema.mappers.FilmMapper;
+import fr.semifir.apicinema.mappers.SalleMapper;
+import fr.semifir.apicinema.mappers.SeanceMapper;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.repositories.FilmRepository;
+import fr.semifir.apicinema.repositories.SalleRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.CinemaService;
+import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.SalleService;
+import fr.semifir.apicinema.services.SeanceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût des services (lecture en mémoire + mapping) sans Mongo :
+ * les repositories sont remplacés par InMemoryRepository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int BULK_CHUNK_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    public int nbrSeances;
+
+    private CinemaService cinemaService;
+    private SalleService salleService;
+    private FilmService filmService;
+    private SeanceService seanceService;
+
+    private String cinemaId;
+    private String salleId;
+    private String filmId;
+    private String seanceId;
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = new BenchmarkData(this.nbrSeances);
+        this.cinemaService = new CinemaService(
+                InMemoryRepository.create(CinemaRepository.class, Cinema::getId, data.cinemas),
+                new CinemaMapper(),
+                PAGE_SIZE,
+                BULK_CHUNK_SIZE
+        );
+        this.salleService = new SalleService(
+                InMemoryRepository.create(SalleRepository.class, Salle::getId, data.salles),
+                new SalleMapper(),
+                PAGE_SIZE,
+                BULK_CHUNK_SIZE
+        );
+        this.filmService = new FilmService(
+                InMemoryRepository.create(FilmRepository.class, Film::getId, data.films),
+                new FilmMapper(),
+                PAGE_SIZE,
+                BULK_CHUNK_SIZE
+        );
+        this.seanceService = new SeanceService(
+                InMemoryRepository.create(SeanceRepository.class, Seance::getId, data.seances),
+                new SeanceMapper(),
+                PAGE_SIZE,
+                BULK_CHUNK_SIZE
+        );
+        this.cinemaId = data.cinemas.get(data.cinemas.size() / 2).getId();
+        this.salleId = data.salles.get(data.salles.size() / 2).getId();
+        this.filmId = data.films.get(data.films.size() / 2).getId();
+        this.seanceId = data.seances.get(data.seances.size() / 2).getId();
+    }
+
+    @Benchmark
+    public List<CinemaDTO> cinemaFindAll() {
+        return this.cinemaService.findAll();
+    }
+
+    @Benchmark
+    public Optional<CinemaDTO> cinemaFindByID() {
+        return this.cinemaService.findByID(this.cinemaId);
+    }
+
+    @Benchmark
+    public List<SalleDTO> salleFindAll() {
+        return this.salleService.findAll();
+    }
+
+    @Benchmark
+    public Optional<SalleDTO> salleFindByID() {
+        return this.salleService.findByID(this.salleId);
+    }
+
+    @Benchmark
+    public List<FilmDTO> filmFindAll() {
+        return this.filmService.findAll();
+    }
+
+    @Benchmark
+    public Optional<FilmDTO> filmFindByID() {
+        return this.filmService.findByID(this.filmId);
+    }
+
+    @Benchmark
+    public List<SeanceDTO> seanceFindAll() {
+        return this.seanceService.findAll();
+    }
+
+    @Benchmark
+    public PageDTO<SeanceDTO> seanceFindPage() {
+        return this.seanceService.findPage(this.seanceId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Optional<SeanceDTO> seanceFindByID() {
+        return this.seanceService.findByID(this.seanceId);
+    }
+}
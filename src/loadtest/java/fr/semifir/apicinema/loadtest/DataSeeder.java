@@ -0,0 +1,188 @@
+package fr.semifir.apicinema.loadtest;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Remplit Mongo directement avec le driver, par lots, dans le format écrit par Spring Data
+ * (ObjectId, DBRef, _class) : des millions de séances s'insèrent en quelques minutes, sans passer par l'API.
+ * Les séances de chaque salle s'enchaînent sur cinq créneaux par jour à partir d'aujourd'hui.
+ * Un échantillon des ids de chaque collection est gardé pour générer le trafic
+ */
+final class DataSeeder {
+
+    static final String CINEMAS = "cinema";
+    static final String SALLES = "salle";
+    static final String SEANCES = "seance";
+    static final String FILMS = "film";
+
+    static final int SEANCES_PER_DAY = 5;
+
+    private static final int BATCH = 5_000;
+    private static final long[] SLOTS = {
+            Duration.ofHours(14).toMillis(),
+            Duration.ofMinutes(16 * 60 + 30).toMillis(),
+            Duration.ofHours(19).toMillis(),
+            Duration.ofMinutes(21 * 60 + 30).toMillis(),
+            Duration.ofHours(23).toMillis()
+    };
+
+    private final MongoDatabase database;
+    private final LoadTestOptions options;
+
+    DataSeeder(MongoDatabase database, LoadTestOptions options) {
+        this.database = database;
+        this.options = options;
+    }
+
+    /**
+     * @return premier jour des séances (minuit UTC)
+     */
+    static Instant firstDay() {
+        return Instant.now().truncatedTo(ChronoUnit.DAYS);
+    }
+
+    /**
+     * Je vide les quatre collections puis je les remplis
+     * @return les échantillons d'ids
+     */
+    SeededData seed() {
+        for (String collection : List.of(CINEMAS, SALLES, SEANCES, FILMS, "programmes", "reservation")) {
+            this.database.getCollection(collection).drop();
+        }
+        SeededData data = new SeededData(this.options.poolSize, this.options.randomSeed);
+        long firstDay = firstDay().toEpochMilli();
+        Date now = new Date();
+        Batch cinemas = new Batch(CINEMAS);
+        Batch salles = new Batch(SALLES);
+        Batch seances = new Batch(SEANCES);
+        Batch films = new Batch(FILMS);
+        long filmNumber = 0;
+        for (int c = 0; c < this.options.cinemas; c++) {
+            ObjectId cinemaId = new ObjectId();
+            cinemas.add(new Document("_id", cinemaId)
+                    .append("nom", "Cinéma " + c)
+                    .append("lastModified", now)
+                    .append("_class", "fr.semifir.apicinema.entities.Cinema"));
+            data.cinemas.offer(cinemaId.toHexString(), null);
+            for (int s = 0; s < this.options.sallesPerCinema; s++) {
+                ObjectId salleId = new ObjectId();
+                salles.add(new Document("_id", salleId)
+                        .append("numDeSalle", s + 1)
+                        .append("nbrPlace", 80 + (c + s) % 5 * 40)
+                        .append("cinema", new DBRef(CINEMAS, cinemaId))
+                        .append("lastModified", now)
+                        .append("_class", "fr.semifir.apicinema.entities.Salle"));
+                data.salles.offer(salleId.toHexString(), cinemaId.toHexString());
+                for (int n = 0; n < this.options.seancesPerSalle; n++) {
+                    ObjectId seanceId = new ObjectId();
+                    long date = firstDay + Duration.ofDays(n / SEANCES_PER_DAY).toMillis() + SLOTS[n % SEANCES_PER_DAY];
+                    seances.add(new Document("_id", seanceId)
+                            .append("date", new Date(date))
+                            .append("salle", new DBRef(SALLES, salleId))
+                            .append("lastModified", now)
+                            .append("_class", "fr.semifir.apicinema.entities.Seance"));
+                    data.seances.offer(seanceId.toHexString(), salleId.toHexString());
+                    for (int f = 0; f < this.options.filmsPerSeance; f++) {
+                        ObjectId filmId = new ObjectId();
+                        films.add(new Document("_id", filmId)
+                                .append("nom", "Film " + filmNumber++ % 400)
+                                .append("duree", 80f + filmNumber % 90)
+                                .append("seance", new DBRef(SEANCES, seanceId))
+                                .append("lastModified", now)
+                                .append("_class", "fr.semifir.apicinema.entities.Film"));
+                        data.films.offer(filmId.toHexString(), seanceId.toHexString());
+                    }
+                }
+            }
+        }
+        for (Batch batch : List.of(cinemas, salles, seances, films)) {
+            batch.flush();
+        }
+        this.createIndexes();
+        data.days = (this.options.seancesPerSalle + SEANCES_PER_DAY - 1) / SEANCES_PER_DAY;
+        return data;
+    }
+
+    /**
+     * Je reprends les données déjà en base (--no-seed) : seul l'échantillon d'ids est construit
+     * @return les échantillons d'ids
+     */
+    SeededData sample() {
+        SeededData data = new SeededData(this.options.poolSize, this.options.randomSeed);
+        this.sample(CINEMAS, null, data.cinemas);
+        this.sample(SALLES, "cinema", data.salles);
+        this.sample(SEANCES, "salle", data.seances);
+        this.sample(FILMS, "seance", data.films);
+        Document last = this.database.getCollection(SEANCES).find()
+                .sort(new Document("date", -1)).limit(1).first();
+        long lastDay = last == null ? 0 : last.getDate("date").toInstant().truncatedTo(ChronoUnit.DAYS).toEpochMilli();
+        data.days = (int) Math.max(1, Duration.ofMillis(lastDay - firstDay().toEpochMilli()).toDays() + 1);
+        return data;
+    }
+
+    private void sample(String collection, String parent, IdPool pool) {
+        MongoCollection<Document> documents = this.database.getCollection(collection);
+        for (Document document : documents.find().projection(Projections.include("_id", parent == null ? "_id" : parent))) {
+            DBRef reference = parent == null ? null : (DBRef) document.get(parent);
+            pool.offer(
+                    document.getObjectId("_id").toHexString(),
+                    reference == null ? null : reference.getId().toString()
+            );
+        }
+    }
+
+    /**
+     * Mêmes index que ceux déclarés sur les entités, créés ici pour ne pas mesurer leur construction
+     * (l'application les crée en tâche de fond au démarrage)
+     */
+    private void createIndexes() {
+        this.database.getCollection(SALLES).createIndex(Indexes.ascending("cinema.$id"), new IndexOptions().name("cinema"));
+        this.database.getCollection(SEANCES).createIndex(
+                Indexes.ascending("salle.$id", "date"), new IndexOptions().name("salle_date")
+        );
+        this.database.getCollection(SEANCES).createIndex(Indexes.ascending("date"), new IndexOptions().name("date"));
+        this.database.getCollection(FILMS).createIndex(Indexes.ascending("seance.$id"), new IndexOptions().name("seance"));
+    }
+
+    /**
+     * Documents en attente d'insertion dans une collection, envoyés par lots non ordonnés
+     */
+    private final class Batch {
+
+        private final MongoCollection<Document> collection;
+        private final List<Document> documents = new ArrayList<>(BATCH);
+
+        Batch(String collection) {
+            this.collection = DataSeeder.this.database.getCollection(collection);
+        }
+
+        void add(Document document) {
+            this.documents.add(document);
+            if (this.documents.size() == BATCH) {
+                this.flush();
+            }
+        }
+
+        void flush() {
+            if (!this.documents.isEmpty()) {
+                this.collection.insertMany(this.documents, new InsertManyOptions().ordered(false));
+                this.documents.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package fr.semifir.apicinema.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Échantillon uniforme (reservoir sampling) des ids d'une collection, borné en taille pour ne pas
+ * garder des millions d'ids en mémoire. Chaque id peut porter celui de son parent
+ * (le cinéma d'une salle, la salle d'une séance), nécessaire pour réécrire le document
+ */
+final class IdPool {
+
+    private final String[] ids;
+    private final String[] parents;
+    private final SplittableRandom random;
+    private int size;
+    private long seen;
+
+    IdPool(int capacity, long seed) {
+        this.ids = new String[capacity];
+        this.parents = new String[capacity];
+        this.random = new SplittableRandom(seed);
+    }
+
+    void offer(String id, String parent) {
+        this.seen++;
+        int slot = this.size < this.ids.length ? this.size++ : (int) this.random.nextLong(this.seen);
+        if (slot < this.ids.length) {
+            this.ids[slot] = id;
+            this.parents[slot] = parent;
+        }
+    }
+
+    /**
+     * Je tire un index : avec la probabilité hotShare parmi la part hotIds de l'échantillon,
+     * sinon parmi tout l'échantillon
+     * @return index de l'id tiré
+     */
+    int pick(SplittableRandom random, double hotIds, double hotShare) {
+        if (this.size == 0) {
+            throw new IllegalStateException("Aucun id dans l'échantillon");
+        }
+        if (hotShare > 0 && random.nextDouble() < hotShare) {
+            return random.nextInt(Math.max(1, (int) (this.size * hotIds)));
+        }
+        return random.nextInt(this.size);
+    }
+
+    String id(int index) {
+        return this.ids[index];
+    }
+
+    String parent(int index) {
+        return this.parents[index];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    long seen() {
+        return this.seen;
+    }
+}
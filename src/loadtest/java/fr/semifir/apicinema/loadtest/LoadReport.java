@@ -0,0 +1,74 @@
+package fr.semifir.apicinema.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Débit et percentiles de latence par opération et pour l'ensemble du trafic
+ */
+final class LoadReport {
+
+    private static final String TOTAL = "total";
+
+    private final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    private final double seconds;
+
+    LoadReport(Map<Operation, OperationStats> stats, Duration duration) {
+        this.seconds = duration.toMillis() / 1000.0;
+        OperationStats total = new OperationStats();
+        stats.forEach((operation, operationStats) -> {
+            this.stats.put(operation.name, operationStats);
+            total.add(operationStats);
+        });
+        this.stats.put(TOTAL, total);
+    }
+
+    void print(PrintStream output) {
+        output.printf(Locale.ROOT, "%-15s %9s %9s %9s %9s %9s %9s %9s %7s%n",
+                "opération", "requêtes", "req/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms", "erreurs");
+        this.stats.forEach((name, stats) -> {
+            Histogram latencies = stats.latencies;
+            output.printf(Locale.ROOT, "%-15s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                    name,
+                    stats.count(),
+                    stats.count() / this.seconds,
+                    millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()),
+                    stats.errors);
+        });
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        this.stats.forEach((name, stats) -> {
+            Histogram latencies = stats.latencies;
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("requests", stats.count());
+            operation.put("throughput", stats.count() / this.seconds);
+            operation.put("errors", stats.errors);
+            operation.put("statuses", stats.statuses);
+            operation.put("meanMs", latencies.getMean() / 1000.0);
+            operation.put("p50Ms", millis(latencies.getValueAtPercentile(50)));
+            operation.put("p90Ms", millis(latencies.getValueAtPercentile(90)));
+            operation.put("p99Ms", millis(latencies.getValueAtPercentile(99)));
+            operation.put("p999Ms", millis(latencies.getValueAtPercentile(99.9)));
+            operation.put("maxMs", millis(latencies.getMaxValue()));
+            operations.put(name, operation);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("operations", operations);
+        return result;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
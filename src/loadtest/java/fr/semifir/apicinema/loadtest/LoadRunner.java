@@ -0,0 +1,122 @@
+package fr.semifir.apicinema.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rejoue le profil avec un nombre fixe de workers, pendant l'échauffement puis la mesure.
+ * Sans débit visé, chaque worker enchaîne ses requêtes (boucle fermée) et la latence part de l'envoi.
+ * Avec --rate, chaque worker suit un calendrier fixe et la latence part de l'heure prévue d'envoi :
+ * une requête retardée par la précédente compte son attente, sans quoi un serveur saturé
+ * paraîtrait plus rapide qu'il n'est (coordinated omission)
+ */
+final class LoadRunner {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final URI base;
+    private final SeededData data;
+    private final TrafficProfile profile;
+    private final LoadTestOptions options;
+
+    LoadRunner(HttpClient client, URI base, SeededData data, TrafficProfile profile, LoadTestOptions options) {
+        this.client = client;
+        this.base = base;
+        this.data = data;
+        this.profile = profile;
+        this.options = options;
+    }
+
+    /**
+     * @return les statistiques de la phase de mesure, par opération
+     */
+    Map<Operation, OperationStats> run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + this.options.warmup.toNanos();
+        long end = measureFrom + this.options.duration.toNanos();
+        Worker[] workers = new Worker[this.options.threads];
+        Thread[] threads = new Thread[this.options.threads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i, start, measureFrom, end);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (int i = 0; i < workers.length; i++) {
+            threads[i].join();
+            workers[i].stats.forEach((operation, workerStats) ->
+                    stats.computeIfAbsent(operation, key -> new OperationStats()).add(workerStats));
+        }
+        return stats;
+    }
+
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final long start;
+        private final long measureFrom;
+        private final long end;
+        private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+        Worker(int index, long start, long measureFrom, long end) {
+            this.index = index;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            Operation.Context context = new Operation.Context(
+                    base, data, profile, new SplittableRandom(options.randomSeed * 31 + this.index)
+            );
+            // Intervalle entre deux envois de ce worker, les workers étant décalés entre eux
+            long interval = options.rate > 0 ? 1_000_000_000L * options.threads / options.rate : 0;
+            long next = this.start + interval * this.index / options.threads;
+            while (!Thread.currentThread().isInterrupted()) {
+                long intended;
+                if (interval > 0) {
+                    intended = next;
+                    next += interval;
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                }
+                if (intended >= this.end) {
+                    return;
+                }
+                Operation operation = profile.next(context.random);
+                int status = this.send(operation, context);
+                if (intended >= this.measureFrom) {
+                    this.stats.computeIfAbsent(operation, key -> new OperationStats())
+                            .record(System.nanoTime() - intended, status);
+                }
+            }
+        }
+
+        private int send(Operation operation, Operation.Context context) {
+            try {
+                return client.send(
+                        operation.request(context).timeout(REQUEST_TIMEOUT).build(),
+                        HttpResponse.BodyHandlers.discarding()
+                ).statusCode();
+            } catch (IOException e) {
+                return OperationStats.NO_RESPONSE;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return OperationStats.NO_RESPONSE;
+            }
+        }
+    }
+}
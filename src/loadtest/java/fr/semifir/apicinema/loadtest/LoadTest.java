@@ -0,0 +1,150 @@
+package fr.semifir.apicinema.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import fr.semifir.apicinema.ApiCinemaApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Test de charge de l'API : remplit Mongo (celui donné par --mongo-uri, sinon un Mongo en mémoire),
+ * démarre l'application dans ce processus (ou vise --target), rejoue un profil de trafic mêlant
+ * lectures et écritures sur les contrôleurs, puis affiche débit et p50/p99/p999 par opération.
+ * Le résultat complet est écrit en JSON dans target/loadtest-result.json.
+ * <pre>
+ * mvn -P loadtest verify -Dloadtest.args="--volume=large --mongo-uri=mongodb://localhost:27017/loadtest --profile=release"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String DATABASE = "cinemas";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            run(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        // Des threads non démons des clients Mongo de l'application survivent à sa fermeture
+        System.exit(status);
+    }
+
+    private static void run(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        TrafficProfile profile = TrafficProfile.load(options.profile);
+        MongoServer server = null;
+        String mongoUri = options.mongoUri;
+        if (mongoUri == null) {
+            server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind();
+            mongoUri = "mongodb://localhost:" + address.getPort() + "/" + DATABASE;
+        }
+        ConnectionString connection = new ConnectionString(mongoUri);
+        String database = connection.getDatabase() == null ? DATABASE : connection.getDatabase();
+        ConfigurableApplicationContext application = null;
+        try (MongoClient mongo = MongoClients.create(connection)) {
+            long seedStart = System.nanoTime();
+            DataSeeder seeder = new DataSeeder(mongo.getDatabase(database), options);
+            SeededData data = options.seed ? seeder.seed() : seeder.sample();
+            Duration seeding = Duration.ofNanos(System.nanoTime() - seedStart);
+            System.out.printf(Locale.ROOT, "%s %d cinémas, %d salles, %d séances, %d films en %ds%n",
+                    options.seed ? "Données créées :" : "Données existantes :",
+                    data.cinemas.seen(), data.salles.seen(), data.seances.seen(), data.films.seen(), seeding.toSeconds());
+
+            URI base;
+            if (options.target == null) {
+                application = start(connection, database, options);
+                base = URI.create("http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+            } else {
+                base = URI.create(options.target);
+            }
+            System.out.printf(Locale.ROOT, "Profil %s (%s) sur %s : %d workers, %s, %ds d'échauffement, %ds de mesure%n",
+                    profile.name, profile.description, base, options.threads,
+                    options.rate > 0 ? options.rate + " req/s visées" : "boucle fermée",
+                    options.warmup.toSeconds(), options.duration.toSeconds());
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            Map<Operation, OperationStats> stats = new LoadRunner(client, base, data, profile, options).run();
+            LoadReport report = new LoadReport(stats, options.duration);
+            report.print(System.out);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("options", options.describe());
+            result.put("profile", profile.describe());
+            result.put("seedingSeconds", seeding.toSeconds());
+            result.put("environment", environment(application));
+            result.putAll(report.toMap());
+            if (options.output.getParent() != null) {
+                Files.createDirectories(options.output.getParent());
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(options.output.toFile(), result);
+            System.out.println("Résultat écrit dans " + options.output);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (server != null) {
+                server.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Je démarre l'application sur un port libre, branchée sur le Mongo rempli
+     */
+    private static ConfigurableApplicationContext start(ConnectionString connection, String database, LoadTestOptions options) {
+        // Le redémarrage à chaud de devtools n'a pas de sens ici
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        String[] host = connection.getHosts().get(0).split(":");
+        // En arguments de ligne de commande, qui l'emportent sur application.properties
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.data.mongodb.host", host[0]);
+        properties.put("spring.data.mongodb.port", host.length > 1 ? host[1] : "27017");
+        properties.put("spring.data.mongodb.database", database);
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(options.applicationProperties);
+        return new SpringApplicationBuilder(ApiCinemaApplication.class)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    private static Map<String, Object> environment(ConfigurableApplicationContext application) {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        if (application != null) {
+            Environment properties = application.getEnvironment();
+            environment.put("tomcatThreads", properties.getProperty("server.tomcat.threads.max"));
+            environment.put("responseCacheEnabled", properties.getProperty("apicinema.response-cache.enabled"));
+            environment.put("tracingEnabled", properties.getProperty("apicinema.tracing.enabled"));
+        }
+        return environment;
+    }
+}
@@ -0,0 +1,162 @@
+package fr.semifir.apicinema.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options du test de charge, passées en --clé=valeur.
+ * Les options inconnues qui contiennent un point (--apicinema.write-behind.enabled=true, --server.tomcat.threads.max=400)
+ * sont transmises à l'application démarrée, pour comparer deux configurations sur le même trafic
+ */
+final class LoadTestOptions {
+
+    /**
+     * Volumes prédéfinis : cinémas, salles par cinéma, séances par salle, films par séance
+     */
+    private static final Map<String, int[]> VOLUMES = Map.of(
+            "small", new int[]{100, 10, 20, 1},
+            "medium", new int[]{1_000, 10, 20, 1},
+            "large", new int[]{5_000, 10, 40, 1}
+    );
+
+    // Mongo existant (mongodb://...), sinon un Mongo en mémoire est démarré
+    String mongoUri;
+    // Application déjà démarrée (http://hote:port), sinon elle est démarrée dans ce processus
+    String target;
+    boolean seed = true;
+    int cinemas;
+    int sallesPerCinema;
+    int seancesPerSalle;
+    int filmsPerSeance;
+    String volume = "small";
+    String profile = "weekday";
+    int threads = 32;
+    // Requêtes par seconde visées, 0 pour enchaîner les requêtes sans attente (boucle fermée)
+    int rate = 0;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    long randomSeed = 42;
+    // Ids gardés par collection pour générer le trafic
+    int poolSize = 100_000;
+    Path output = Path.of("target", "loadtest-result.json");
+    final Map<String, String> applicationProperties = new LinkedHashMap<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Option invalide : " + arg);
+            }
+            int equals = arg.indexOf('=');
+            values.put(
+                    equals < 0 ? arg.substring(2) : arg.substring(2, equals),
+                    equals < 0 ? "true" : arg.substring(equals + 1)
+            );
+        }
+        options.volume = values.getOrDefault("volume", options.volume);
+        int[] volume = VOLUMES.get(options.volume);
+        if (volume == null) {
+            throw new IllegalArgumentException("Volume inconnu : " + options.volume + " (small, medium, large)");
+        }
+        options.cinemas = volume[0];
+        options.sallesPerCinema = volume[1];
+        options.seancesPerSalle = volume[2];
+        options.filmsPerSeance = volume[3];
+        values.forEach((key, value) -> options.set(key, value));
+        return options;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "volume":
+                break;
+            case "mongo-uri":
+                this.mongoUri = value;
+                break;
+            case "target":
+                this.target = value;
+                break;
+            case "no-seed":
+                this.seed = !Boolean.parseBoolean(value);
+                break;
+            case "cinemas":
+                this.cinemas = Integer.parseInt(value);
+                break;
+            case "salles-per-cinema":
+                this.sallesPerCinema = Integer.parseInt(value);
+                break;
+            case "seances-per-salle":
+                this.seancesPerSalle = Integer.parseInt(value);
+                break;
+            case "films-per-seance":
+                this.filmsPerSeance = Integer.parseInt(value);
+                break;
+            case "profile":
+                this.profile = value;
+                break;
+            case "threads":
+                this.threads = Integer.parseInt(value);
+                break;
+            case "rate":
+                this.rate = Integer.parseInt(value);
+                break;
+            case "warmup":
+                this.warmup = duration(value);
+                break;
+            case "duration":
+                this.duration = duration(value);
+                break;
+            case "seed":
+                this.randomSeed = Long.parseLong(value);
+                break;
+            case "pool-size":
+                this.poolSize = Integer.parseInt(value);
+                break;
+            case "output":
+                this.output = Path.of(value);
+                break;
+            default:
+                if (!key.contains(".")) {
+                    throw new IllegalArgumentException("Option inconnue : --" + key);
+                }
+                this.applicationProperties.put(key, value);
+        }
+    }
+
+    /**
+     * @param value "90s", "5m" ou un nombre de secondes
+     */
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("mongo", this.mongoUri == null ? "in-memory" : this.mongoUri);
+        description.put("target", this.target == null ? "in-process" : this.target);
+        description.put("cinemas", this.cinemas);
+        description.put("sallesPerCinema", this.sallesPerCinema);
+        description.put("seancesPerSalle", this.seancesPerSalle);
+        description.put("filmsPerSeance", this.filmsPerSeance);
+        description.put("profile", this.profile);
+        description.put("threads", this.threads);
+        description.put("rate", this.rate);
+        description.put("warmupSeconds", this.warmup.toSeconds());
+        description.put("durationSeconds", this.duration.toSeconds());
+        description.put("seed", this.randomSeed);
+        description.put("applicationProperties", this.applicationProperties);
+        return description;
+    }
+}
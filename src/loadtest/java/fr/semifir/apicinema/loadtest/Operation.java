@@ -0,0 +1,166 @@
+package fr.semifir.apicinema.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Requêtes rejouées sur les contrôleurs, désignées dans les profils par leur nom (seance-get, film-create...).
+ * Les ids sont tirés dans les échantillons selon la concentration du profil
+ */
+enum Operation {
+
+    CINEMA_PAGE("cinema-page") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/cinemas/page?size=50&after=" + context.pick(context.data.cinemas));
+        }
+    },
+    CINEMA_GET("cinema-get") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/cinemas/" + context.pick(context.data.cinemas));
+        }
+    },
+    PROGRAMME_GET("programme-get") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/cinemas/" + context.pick(context.data.cinemas) + "/programme");
+        }
+    },
+    SALLE_PAGE("salle-page") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/salles/page?size=50&after=" + context.pick(context.data.salles));
+        }
+    },
+    SALLE_GET("salle-get") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/salles/" + context.pick(context.data.salles));
+        }
+    },
+    SALLE_UPDATE("salle-update") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            int salle = context.data.salles.pick(context.random, context.profile.hotIds, context.profile.hotShare);
+            return send(context, "PUT", "/salles", String.format(
+                    "{\"id\":\"%s\",\"numDeSalle\":%d,\"nbrPlace\":%d,\"cinema\":{\"id\":\"%s\"}}",
+                    context.data.salles.id(salle),
+                    1 + context.random.nextInt(10),
+                    80 + context.random.nextInt(5) * 40,
+                    context.data.salles.parent(salle)
+            ));
+        }
+    },
+    SEANCE_PAGE("seance-page") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/seances/page?size=50&after=" + context.pick(context.data.seances));
+        }
+    },
+    SEANCE_GET("seance-get") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/seances/" + context.pick(context.data.seances));
+        }
+    },
+    SEANCE_SEARCH("seance-search") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            Instant day = DataSeeder.firstDay().plus(Duration.ofDays(context.random.nextInt(context.data.days)));
+            return get(context, "/seances/search?salle=" + context.pick(context.data.salles)
+                    + "&from=" + ISO.format(day) + "&to=" + ISO.format(day.plus(Duration.ofDays(1))));
+        }
+    },
+    SEANCE_CREATE("seance-create") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            long date = DataSeeder.firstDay().toEpochMilli()
+                    + context.random.nextLong(Duration.ofDays(context.data.days).toMillis());
+            return send(context, "POST", "/seances", String.format(
+                    "{\"date\":%d,\"salle\":{\"id\":\"%s\"}}", date, context.pick(context.data.salles)
+            ));
+        }
+    },
+    FILM_PAGE("film-page") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/films/page?size=50&after=" + context.pick(context.data.films));
+        }
+    },
+    FILM_GET("film-get") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return get(context, "/films/" + context.pick(context.data.films));
+        }
+    },
+    FILM_CREATE("film-create") {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return send(context, "POST", "/films", String.format(
+                    Locale.ROOT,
+                    "{\"nom\":\"Film %d\",\"duree\":%d,\"seance\":{\"id\":\"%s\"}}",
+                    context.random.nextInt(400), 80 + context.random.nextInt(90), context.pick(context.data.seances)
+            ));
+        }
+    };
+
+    // Format ISO attendu par @DateTimeFormat(iso = DATE_TIME)
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+            .withZone(ZoneOffset.UTC);
+
+    final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    abstract HttpRequest.Builder request(Context context);
+
+    static Operation named(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Opération inconnue : " + name);
+    }
+
+    private static HttpRequest.Builder get(Context context, String path) {
+        return HttpRequest.newBuilder(context.base.resolve(path)).GET();
+    }
+
+    private static HttpRequest.Builder send(Context context, String method, String path, String json) {
+        return HttpRequest.newBuilder(context.base.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    /**
+     * État d'un worker : adresse de l'application, ids en base, profil et générateur aléatoire
+     */
+    static final class Context {
+
+        final URI base;
+        final SeededData data;
+        final TrafficProfile profile;
+        final SplittableRandom random;
+
+        Context(URI base, SeededData data, TrafficProfile profile, SplittableRandom random) {
+            this.base = base;
+            this.data = data;
+            this.profile = profile;
+            this.random = random;
+        }
+
+        String pick(IdPool pool) {
+            return pool.id(pool.pick(this.random, this.profile.hotIds, this.profile.hotShare));
+        }
+    }
+}
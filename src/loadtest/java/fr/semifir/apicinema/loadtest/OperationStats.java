@@ -0,0 +1,39 @@
+package fr.semifir.apicinema.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latences (HdrHistogram, en microsecondes) et statuts HTTP d'une opération.
+ * Chaque worker a les siennes, fusionnées à la fin : l'enregistrement n'est jamais partagé entre threads
+ */
+final class OperationStats {
+
+    // Statut enregistré quand la requête n'a pas obtenu de réponse
+    static final int NO_RESPONSE = 0;
+
+    final Histogram latencies = new Histogram(3);
+    final Map<Integer, Long> statuses = new TreeMap<>();
+    long errors;
+
+    void record(long latencyNanos, int status) {
+        this.statuses.merge(status, 1L, Long::sum);
+        if (status == NO_RESPONSE || status >= 500) {
+            this.errors++;
+            return;
+        }
+        this.latencies.recordValue(Math.max(1, latencyNanos / 1_000));
+    }
+
+    void add(OperationStats other) {
+        this.latencies.add(other.latencies);
+        other.statuses.forEach((status, count) -> this.statuses.merge(status, count, Long::sum));
+        this.errors += other.errors;
+    }
+
+    long count() {
+        return this.latencies.getTotalCount() + this.errors;
+    }
+}
@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.loadtest;
+
+/**
+ * Échantillons des ids en base, et nombre de jours couverts par les séances
+ */
+final class SeededData {
+
+    final IdPool cinemas;
+    final IdPool salles;
+    final IdPool seances;
+    final IdPool films;
+    int days = 1;
+
+    SeededData(int poolSize, long seed) {
+        this.cinemas = new IdPool(poolSize, seed);
+        this.salles = new IdPool(poolSize, seed + 1);
+        this.seances = new IdPool(poolSize, seed + 2);
+        this.films = new IdPool(poolSize, seed + 3);
+    }
+}
@@ -0,0 +1,105 @@
+package fr.semifir.apicinema.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * Répartition du trafic entre les opérations, lue dans un fichier properties :
+ * weight.&lt;opération&gt; (poids relatifs), hot-ids et hot-share (la part hot-share des requêtes porte
+ * sur la part hot-ids des documents). Les profils fournis sont dans src/loadtest/resources/profiles,
+ * --profile accepte aussi le chemin d'un fichier, par exemple des proportions relevées en production
+ */
+final class TrafficProfile {
+
+    private static final String WEIGHT = "weight.";
+
+    final String name;
+    final String description;
+    final double hotIds;
+    final double hotShare;
+    private final Operation[] operations;
+    private final int[] cumulated;
+
+    private TrafficProfile(String name, Properties properties) {
+        this.name = name;
+        this.description = properties.getProperty("description", "");
+        this.hotIds = Double.parseDouble(properties.getProperty("hot-ids", "1"));
+        this.hotShare = Double.parseDouble(properties.getProperty("hot-share", "0"));
+        List<Operation> operations = new ArrayList<>();
+        List<Integer> cumulated = new ArrayList<>();
+        int total = 0;
+        // Ordre fixe, pour qu'une même graine rejoue le même trafic
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.startsWith(WEIGHT)) {
+                int weight = Integer.parseInt(properties.getProperty(key).trim());
+                if (weight > 0) {
+                    total += weight;
+                    operations.add(Operation.named(key.substring(WEIGHT.length())));
+                    cumulated.add(total);
+                }
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Le profil " + name + " ne donne aucun poids");
+        }
+        this.operations = operations.toArray(new Operation[0]);
+        this.cumulated = cumulated.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param name nom d'un profil fourni (weekday, release, backoffice) ou chemin d'un fichier
+     */
+    static TrafficProfile load(String name) throws IOException {
+        Properties properties = new Properties();
+        Path file = Path.of(name);
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            return new TrafficProfile(file.getFileName().toString(), properties);
+        }
+        try (InputStream input = TrafficProfile.class.getResourceAsStream("/profiles/" + name + ".properties")) {
+            if (input == null) {
+                throw new IllegalArgumentException("Profil inconnu : " + name);
+            }
+            properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+        return new TrafficProfile(name, properties);
+    }
+
+    Operation next(SplittableRandom random) {
+        int draw = random.nextInt(this.cumulated[this.cumulated.length - 1]);
+        for (int i = 0; i < this.cumulated.length; i++) {
+            if (draw < this.cumulated[i]) {
+                return this.operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", this.name);
+        description.put("description", this.description);
+        description.put("hotIds", this.hotIds);
+        description.put("hotShare", this.hotShare);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (int i = 0; i < this.operations.length; i++) {
+            weights.put(this.operations[i].name, this.cumulated[i] - (i == 0 ? 0 : this.cumulated[i - 1]));
+        }
+        description.put("weights", weights);
+        return description;
+    }
+}
@@ -0,0 +1,58 @@
+package fr.semifir.apicinema.configurations;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.semifir.apicinema.events.CacheInvalidationListener;
+import fr.semifir.apicinema.events.VersionedCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Caches en mémoire (Caffeine) des findByID, un cache par entité borné en taille et en durée.
+ * Les findByID sont en @Cacheable(sync = true) : le chargement passe par VersionedCache,
+ * qui refuse une lecture commencée avant une écriture.
+ * Les statistiques (hit / miss / eviction) sont publiées dans les métriques cache.*
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfiguration {
+
+    public static final String CINEMAS = "cinemas";
+    public static final String SALLES = "salles";
+    public static final String FILMS = "films";
+    public static final String SEANCES = "seances";
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                cache(CINEMAS, properties.getCinemas()),
+                cache(SALLES, properties.getSalles()),
+                cache(FILMS, properties.getFilms()),
+                cache(SEANCES, properties.getSeances())
+        ));
+        return cacheManager;
+    }
+
+    /**
+     * Les services publient un EntityChangeEvent à chaque écriture, c'est lui qui vide les caches
+     */
+    @Bean
+    public CacheInvalidationListener cacheInvalidationListener(CacheManager cacheManager) {
+        return new CacheInvalidationListener(cacheManager);
+    }
+
+    private static VersionedCache cache(String name, CacheProperties.Spec spec) {
+        return new VersionedCache(name, Caffeine.newBuilder()
+                .maximumSize(spec.getMaxSize())
+                .expireAfterWrite(spec.getTtl())
+                .recordStats()
+                .build());
+    }
+}
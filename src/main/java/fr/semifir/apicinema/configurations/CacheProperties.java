@@ -0,0 +1,25 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration des caches par entité : apicinema.cache.<entité>.max-size / ttl
+ */
+@Data
+@ConfigurationProperties("apicinema.cache")
+public class CacheProperties {
+
+    private Spec cinemas = new Spec();
+    private Spec salles = new Spec();
+    private Spec films = new Spec();
+    private Spec seances = new Spec();
+
+    @Data
+    public static class Spec {
+        private long maxSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+}
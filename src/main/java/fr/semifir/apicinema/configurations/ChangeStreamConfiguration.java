@@ -0,0 +1,77 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Reservation;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.ChangeFeedRelay;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.events.MongoChangeStream;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+
+/**
+ * Invalidation entre nœuds, activée par apicinema.change-stream.enabled=true : les écritures
+ * des autres instances, lues dans le change stream Mongo, sont republiées en EntityChangeEvent locaux
+ * (PlacesChangeEvent pour les réservations).
+ * Métriques apicinema.change-stream.* (événements reçus, reprises après erreur)
+ */
+@Configuration
+@EnableConfigurationProperties(ChangeStreamProperties.class)
+@ConditionalOnProperty(name = "apicinema.change-stream.enabled", havingValue = "true")
+public class ChangeStreamConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public MongoChangeStream changeStream(MongoTemplate template, ChangeStreamProperties properties, MeterRegistry registry) {
+        MongoChangeStream changeStream = new MongoChangeStream(
+                template.getDb(),
+                Map.of(
+                        template.getCollectionName(Cinema.class), EntityChangeEvent.CINEMAS,
+                        template.getCollectionName(Salle.class), EntityChangeEvent.SALLES,
+                        template.getCollectionName(Seance.class), EntityChangeEvent.SEANCES,
+                        template.getCollectionName(Film.class), EntityChangeEvent.FILMS,
+                        template.getCollectionName(Reservation.class), EntityChangeEvent.RESERVATIONS
+                ),
+                properties.getTokenCollection(),
+                nodeId(properties),
+                properties.getMaxAwaitTime().toMillis(),
+                properties.getRetryDelay().toMillis(),
+                properties.getTokenSaveInterval().toNanos()
+        );
+        FunctionCounter.builder("apicinema.change-stream.events", changeStream, MongoChangeStream::getEvents)
+                .description("Écritures reçues du change stream")
+                .register(registry);
+        FunctionCounter.builder("apicinema.change-stream.restarts", changeStream, MongoChangeStream::getRestarts)
+                .description("Réouvertures du change stream après une erreur")
+                .register(registry);
+        return changeStream;
+    }
+
+    @Bean
+    public ChangeFeedRelay changeFeedRelay(MongoChangeStream changeStream, ApplicationEventPublisher publisher) {
+        return new ChangeFeedRelay(changeStream, publisher);
+    }
+
+    private static String nodeId(ChangeStreamProperties properties) {
+        if (StringUtils.hasText(properties.getNodeId())) {
+            return properties.getNodeId();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Nom de la machine introuvable, renseigner apicinema.change-stream.node-id", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Invalidation par le change stream Mongo : apicinema.change-stream.*
+ */
+@Data
+@ConfigurationProperties("apicinema.change-stream")
+public class ChangeStreamProperties {
+
+    /**
+     * Active la lecture du change stream, Mongo doit être un replica set ou un cluster shardé
+     */
+    private boolean enabled = false;
+
+    /**
+     * Id du nœud, clé de son jeton de reprise ; le nom de la machine à défaut.
+     * Doit être stable d'un redémarrage à l'autre et propre à chaque instance
+     */
+    private String nodeId;
+
+    /**
+     * Collection des jetons de reprise
+     */
+    private String tokenCollection = "changeStreamTokens";
+
+    /**
+     * Délai minimal entre deux enregistrements du jeton de reprise
+     */
+    private Duration tokenSaveInterval = Duration.ofSeconds(1);
+
+    /**
+     * Attente maximale d'une écriture par le serveur avant de rendre la main au thread de lecture
+     */
+    private Duration maxAwaitTime = Duration.ofSeconds(1);
+
+    /**
+     * Attente avant de rouvrir le change stream après une erreur
+     */
+    private Duration retryDelay = Duration.ofSeconds(1);
+}
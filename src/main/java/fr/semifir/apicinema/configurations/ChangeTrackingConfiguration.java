@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.events.CollectionVersions;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+
+/**
+ * Suivi des modifications : date de dernière écriture sur chaque document (@LastModifiedDate)
+ * et version par collection pour les GET conditionnels (ETag / Last-Modified, 304)
+ */
+@Configuration
+@EnableMongoAuditing
+public class ChangeTrackingConfiguration {
+
+    @Bean
+    public CollectionVersions collectionVersions() {
+        return new CollectionVersions();
+    }
+}
@@ -1,8 +1,13 @@
 package fr.semifir.apicinema.configurations;
 
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.CinemaRepository;
 import fr.semifir.apicinema.services.CinemaService;
-import org.modelmapper.ModelMapper;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,7 +15,16 @@ import org.springframework.context.annotation.Configuration;
 public class CinemaConfiguration {
 
     @Bean
-    public CinemaService cinemaService(CinemaRepository repository, ModelMapper mapper) {
-        return new CinemaService(repository, mapper);
+    public CinemaService cinemaService(
+            CinemaRepository repository,
+            DtoMapper<Cinema, CinemaDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int maxPageSize,
+            @Value("${apicinema.bulk.chunk-size}") int bulkChunkSize,
+            ObjectProvider<WriteBehindQueue<Cinema>> writeBehind
+    ) {
+        CinemaService service = new CinemaService(repository, mapper, maxPageSize, bulkChunkSize);
+        // File d'écriture différée, seulement avec apicinema.write-behind.enabled
+        writeBehind.ifAvailable(service::setWriteBehind);
+        return service;
     }
 }
@@ -0,0 +1,37 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.services.SalleConflicts;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Refus des séances qui se chevauchent dans une salle, branché sur SeanceService et FilmService.
+ * Métriques apicinema.conflicts.* (écritures refusées, salles chargées)
+ */
+@Configuration
+@EnableConfigurationProperties(ConflictProperties.class)
+@ConditionalOnProperty(name = "apicinema.conflicts.enabled", havingValue = "true")
+public class ConflictConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SalleConflicts salleConflicts(MongoTemplate template, ConflictProperties properties, MeterRegistry registry) {
+        SalleConflicts conflicts = new SalleConflicts(
+                template,
+                properties.getDefaultDuration().toMillis(),
+                properties.getCleaningTime().toMillis()
+        );
+        FunctionCounter.builder("apicinema.conflicts.rejected", conflicts, SalleConflicts::getRejected)
+                .description("Séances et films refusés, chevauchement dans une salle")
+                .register(registry);
+        Gauge.builder("apicinema.conflicts.salles", conflicts, SalleConflicts::getSalles)
+                .description("Salles dont les créneaux sont en mémoire")
+                .register(registry);
+        return conflicts;
+    }
+}
@@ -0,0 +1,29 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Contrôle des séances qui se chevauchent dans une salle : apicinema.conflicts.*
+ */
+@Data
+@ConfigurationProperties("apicinema.conflicts")
+public class ConflictProperties {
+
+    /**
+     * Refuse les séances et les films qui font se chevaucher deux séances d'une salle, désactivé par défaut
+     */
+    private boolean enabled = false;
+
+    /**
+     * Durée d'une séance qui n'a pas encore de film ; à 0, seule la même heure dans la même salle est refusée
+     */
+    private Duration defaultDuration = Duration.ZERO;
+
+    /**
+     * Temps de nettoyage de la salle ajouté après chaque séance
+     */
+    private Duration cleaningTime = Duration.ZERO;
+}
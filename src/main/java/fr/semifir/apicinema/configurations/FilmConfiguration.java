@@ -1,10 +1,16 @@
 package fr.semifir.apicinema.configurations;
 
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.FilmRepository;
 import fr.semifir.apicinema.repositories.SeanceRepository;
 import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.SalleConflicts;
 import fr.semifir.apicinema.services.SeanceService;
-import org.modelmapper.ModelMapper;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,7 +18,19 @@ import org.springframework.context.annotation.Configuration;
 public class FilmConfiguration {
 
     @Bean
-    public FilmService filmService(FilmRepository repository, ModelMapper mapper) {
-        return new FilmService(repository, mapper);
+    public FilmService filmService(
+            FilmRepository repository,
+            DtoMapper<Film, FilmDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int maxPageSize,
+            @Value("${apicinema.bulk.chunk-size}") int bulkChunkSize,
+            ObjectProvider<WriteBehindQueue<Film>> writeBehind,
+            ObjectProvider<SalleConflicts> conflicts
+    ) {
+        FilmService service = new FilmService(repository, mapper, maxPageSize, bulkChunkSize);
+        // File d'écriture différée, seulement avec apicinema.write-behind.enabled
+        writeBehind.ifAvailable(service::setWriteBehind);
+        // Contrôle des chevauchements dans les salles, sauf avec apicinema.conflicts.enabled=false
+        conflicts.ifAvailable(service::setConflicts);
+        return service;
     }
 }
@@ -0,0 +1,58 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.mappers.CinemaMapper;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.mappers.FilmMapper;
+import fr.semifir.apicinema.mappers.ModelMapperDtoMapper;
+import fr.semifir.apicinema.mappers.SalleMapper;
+import fr.semifir.apicinema.mappers.SeanceMapper;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Mappers entité -> DTO utilisés par les services.
+ * Par défaut on utilise les mappers écrits à la main, ModelMapper reste
+ * disponible avec apicinema.mapping.strategy=modelmapper
+ */
+@Configuration
+public class MapperConfiguration {
+
+    private static final String MODEL_MAPPER = "modelmapper";
+
+    @Value("${apicinema.mapping.strategy}")
+    private String strategy;
+
+    @Bean
+    public DtoMapper<Cinema, CinemaDTO> cinemaMapper(ModelMapper mapper) {
+        return useModelMapper() ? new ModelMapperDtoMapper<>(mapper, CinemaDTO.class) : new CinemaMapper();
+    }
+
+    @Bean
+    public DtoMapper<Salle, SalleDTO> salleMapper(ModelMapper mapper) {
+        return useModelMapper() ? new ModelMapperDtoMapper<>(mapper, SalleDTO.class) : new SalleMapper();
+    }
+
+    @Bean
+    public DtoMapper<Film, FilmDTO> filmMapper(ModelMapper mapper) {
+        return useModelMapper() ? new ModelMapperDtoMapper<>(mapper, FilmDTO.class) : new FilmMapper();
+    }
+
+    @Bean
+    public DtoMapper<Seance, SeanceDTO> seanceMapper(ModelMapper mapper) {
+        return useModelMapper() ? new ModelMapperDtoMapper<>(mapper, SeanceDTO.class) : new SeanceMapper();
+    }
+
+    private boolean useModelMapper() {
+        return MODEL_MAPPER.equalsIgnoreCase(this.strategy);
+    }
+}
@@ -0,0 +1,37 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.metrics.RepositoryDocumentsPostProcessor;
+import fr.semifir.apicinema.metrics.ServiceTimingPostProcessor;
+import fr.semifir.apicinema.services.CinemaService;
+import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.SalleService;
+import fr.semifir.apicinema.services.SeanceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Métriques applicatives, publiées avec celles de Spring Boot sur /actuator/prometheus :
+ * durée de chaque méthode des services et nombre de documents renvoyés par les repositories.
+ * Les post-processors sont statiques et ne résolvent le MeterRegistry qu'au premier appel,
+ * pour ne pas le créer avant les autres beans.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public static ServiceTimingPostProcessor serviceTimingPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new ServiceTimingPostProcessor(
+                List.of(CinemaService.class, SalleService.class, FilmService.class, SeanceService.class),
+                registry::getObject
+        );
+    }
+
+    @Bean
+    public static RepositoryDocumentsPostProcessor repositoryDocumentsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new RepositoryDocumentsPostProcessor(registry::getObject);
+    }
+}
@@ -0,0 +1,49 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Crée au démarrage les index déclarés sur les entités (@CompoundIndex).
+ * La création se fait en tâche de fond pour ne pas bloquer le démarrage si Mongo est indisponible.
+ */
+@Configuration
+public class MongoIndexConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoIndexConfiguration.class);
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(Salle.class, Seance.class, Film.class);
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> mongoIndexCreator(
+            MongoTemplate template,
+            MongoMappingContext mappingContext
+    ) {
+        return event -> CompletableFuture.runAsync(() -> {
+            IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+            for (Class<?> entity : INDEXED_ENTITIES) {
+                try {
+                    IndexOperations indexOperations = template.indexOps(entity);
+                    resolver.resolveIndexFor(entity).forEach(indexOperations::ensureIndex);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Impossible de créer les index de {}", entity.getSimpleName(), e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.SalleConflicts;
+import fr.semifir.apicinema.services.SchedulePlanner;
+import fr.semifir.apicinema.services.SeanceService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planification automatique des séances, sur les créneaux de SalleConflicts : activée avec apicinema.conflicts.
+ * Métriques apicinema.planning.* (plannings calculés, séances créées, durée du dernier calcul)
+ */
+@Configuration
+@EnableConfigurationProperties({PlanningProperties.class, ConflictProperties.class})
+@ConditionalOnProperty(name = "apicinema.conflicts.enabled", havingValue = "true")
+public class PlanningConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SchedulePlanner schedulePlanner(
+            MongoTemplate template,
+            SalleConflicts conflicts,
+            FilmService filmService,
+            SeanceService seanceService,
+            PlanningProperties properties,
+            ConflictProperties conflictProperties,
+            MeterRegistry registry
+    ) {
+        SchedulePlanner planner = new SchedulePlanner(
+                template,
+                conflicts,
+                filmService,
+                seanceService,
+                ZoneId.of(properties.getZone()),
+                properties.getGrid().toMillis(),
+                conflictProperties.getCleaningTime().toMillis(),
+                properties.getRepeatDecay(),
+                properties.getIterations(),
+                properties.getBudget(),
+                properties.getMaxBudget(),
+                properties.getParallelism()
+        );
+        FunctionCounter.builder("apicinema.planning.plans", planner, SchedulePlanner::getPlans)
+                .description("Plannings calculés")
+                .register(registry);
+        FunctionCounter.builder("apicinema.planning.created", planner, SchedulePlanner::getCreated)
+                .description("Séances créées par /planning/apply")
+                .register(registry);
+        TimeGauge.builder("apicinema.planning.last", planner, TimeUnit.MILLISECONDS, SchedulePlanner::getLastMillis)
+                .description("Durée du dernier calcul de planning")
+                .register(registry);
+        return planner;
+    }
+}
@@ -0,0 +1,50 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Planification automatique des séances d'un cinéma (/cinemas/{id}/planning) : apicinema.planning.*
+ */
+@Data
+@ConfigurationProperties("apicinema.planning")
+public class PlanningProperties {
+
+    /**
+     * Fuseau des horaires d'ouverture et de l'affluence selon l'heure
+     */
+    private String zone = "Europe/Paris";
+
+    /**
+     * Pas des heures de début proposées
+     */
+    private Duration grid = Duration.ofMinutes(5);
+
+    /**
+     * Part de la demande attirée par la deuxième séance d'un film dans la même salle le même jour,
+     * au carré pour la troisième, etc.
+     */
+    private double repeatDecay = 0.5;
+
+    /**
+     * Constructions essayées au plus pour chaque salle et chaque jour
+     */
+    private int iterations = 500;
+
+    /**
+     * Temps de calcul quand la demande n'en donne pas
+     */
+    private Duration budget = Duration.ofSeconds(2);
+
+    /**
+     * Temps de calcul maximum accepté dans une demande
+     */
+    private Duration maxBudget = Duration.ofSeconds(10);
+
+    /**
+     * Threads du ForkJoinPool qui résout les salles en parallèle, 0 pour un par processeur
+     */
+    private int parallelism = 0;
+}
@@ -0,0 +1,51 @@
+package fr.semifir.apicinema.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.repositories.FilmRepository;
+import fr.semifir.apicinema.repositories.SalleRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.ProgrammeService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.time.ZoneId;
+
+/**
+ * Métrique apicinema.programme.programmes (programmes en mémoire)
+ */
+@Configuration
+@EnableConfigurationProperties(ProgrammeProperties.class)
+public class ProgrammeConfiguration {
+
+    @Bean
+    public ProgrammeService programmeService(
+            CinemaRepository cinemaRepository,
+            SalleRepository salleRepository,
+            SeanceRepository seanceRepository,
+            FilmRepository filmRepository,
+            ObjectMapper objectMapper,
+            MongoOperations template,
+            ProgrammeProperties properties,
+            MeterRegistry registry
+    ) {
+        ProgrammeService service = new ProgrammeService(
+                cinemaRepository,
+                salleRepository,
+                seanceRepository,
+                filmRepository,
+                objectMapper,
+                properties.isPersist() ? template : null
+        );
+        service.setWindow(ZoneId.of(properties.getZone()), properties.getDays());
+        service.setLimits(properties.getMaxProgrammes(), properties.getIdle());
+        Gauge.builder("apicinema.programme.programmes", service, ProgrammeService::getProgrammes)
+                .description("Programmes en mémoire")
+                .register(registry);
+        return service;
+    }
+}
@@ -0,0 +1,39 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Programmes des cinémas matérialisés par ProgrammeService : apicinema.programme.*
+ */
+@Data
+@ConfigurationProperties("apicinema.programme")
+public class ProgrammeProperties {
+
+    /**
+     * Copie les programmes dans la collection "programmes"
+     */
+    private boolean persist = false;
+
+    /**
+     * Jours couverts par un programme, aujourd'hui compris
+     */
+    private int days = 7;
+
+    /**
+     * Fuseau qui découpe les jours
+     */
+    private String zone = "Europe/Paris";
+
+    /**
+     * Programmes gardés en mémoire, les moins récemment lus sont oubliés au-delà
+     */
+    private long maxProgrammes = 1000;
+
+    /**
+     * Un programme qui n'a pas été lu depuis cette durée est oublié
+     */
+    private Duration idle = Duration.ofHours(1);
+}
@@ -0,0 +1,126 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.handlers.CinemaHandler;
+import fr.semifir.apicinema.handlers.FilmHandler;
+import fr.semifir.apicinema.handlers.ResourceHandler;
+import fr.semifir.apicinema.handlers.SalleHandler;
+import fr.semifir.apicinema.handlers.SeanceHandler;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.repositories.reactive.ReactiveCinemaRepository;
+import fr.semifir.apicinema.repositories.reactive.ReactiveFilmRepository;
+import fr.semifir.apicinema.repositories.reactive.ReactiveSalleRepository;
+import fr.semifir.apicinema.repositories.reactive.ReactiveSeanceRepository;
+import fr.semifir.apicinema.services.reactive.ReactiveCinemaService;
+import fr.semifir.apicinema.services.reactive.ReactiveFilmService;
+import fr.semifir.apicinema.services.reactive.ReactiveSalleService;
+import fr.semifir.apicinema.services.reactive.ReactiveSeanceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Variante réactive de l'API (profil "reactive") : repositories ReactiveMongoRepository,
+ * services renvoyant Flux / Mono et handlers WebFlux à la place des contrôleurs MVC.
+ * Les listes sont lues au fil de la consommation du client (backpressure jusqu'au curseur Mongo),
+ * avec peu de threads pour beaucoup de requêtes en cours.
+ */
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoAuditing
+public class ReactiveConfiguration {
+
+    /**
+     * Tomcat reste sur le classpath pour le mode MVC : on impose Netty pour servir
+     * beaucoup de connexions avec quelques threads d'event loop
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ReactiveCinemaService reactiveCinemaService(
+            ReactiveCinemaRepository repository,
+            DtoMapper<Cinema, CinemaDTO> mapper
+    ) {
+        return new ReactiveCinemaService(repository, mapper);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> cinemaRoutes(ReactiveCinemaService service) {
+        return routes("/cinemas", new CinemaHandler(service));
+    }
+
+    @Bean
+    public ReactiveSalleService reactiveSalleService(
+            ReactiveSalleRepository repository,
+            DtoMapper<Salle, SalleDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int batchSize
+    ) {
+        return new ReactiveSalleService(repository, mapper, batchSize);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> salleRoutes(ReactiveSalleService service) {
+        return routes("/salles", new SalleHandler(service));
+    }
+
+    @Bean
+    public ReactiveSeanceService reactiveSeanceService(
+            ReactiveSeanceRepository repository,
+            DtoMapper<Seance, SeanceDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int batchSize
+    ) {
+        return new ReactiveSeanceService(repository, mapper, batchSize);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> seanceRoutes(ReactiveSeanceService service) {
+        return routes("/seances", new SeanceHandler(service));
+    }
+
+    @Bean
+    public ReactiveFilmService reactiveFilmService(
+            ReactiveFilmRepository repository,
+            DtoMapper<Film, FilmDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int batchSize
+    ) {
+        return new ReactiveFilmService(repository, mapper, batchSize);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> filmRoutes(ReactiveFilmService service) {
+        return routes("/films", new FilmHandler(service));
+    }
+
+    /**
+     * Mêmes routes que les contrôleurs MVC : GET (JSON ou NDJSON), GET {id}, POST, PUT, DELETE
+     */
+    private static RouterFunction<ServerResponse> routes(String path, ResourceHandler handler) {
+        return RouterFunctions.route()
+                .path(path, builder -> builder
+                        .GET("", RequestPredicates.accept(MediaType.APPLICATION_JSON), handler::findAll)
+                        .GET("", RequestPredicates.accept(MediaType.APPLICATION_NDJSON), handler::streamAll)
+                        .GET("/{id}", handler::findById)
+                        .POST("", handler::save)
+                        .PUT("", handler::save)
+                        .DELETE("", handler::delete))
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.repositories.ReservationRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.ReservationService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métrique apicinema.reservation.seat-maps (plans des places en mémoire)
+ */
+@Configuration
+@EnableConfigurationProperties(ReservationProperties.class)
+public class ReservationConfiguration {
+
+    @Bean
+    public ReservationService reservationService(
+            ReservationRepository repository,
+            SeanceRepository seanceRepository,
+            ReservationProperties properties,
+            MeterRegistry registry
+    ) {
+        ReservationService service = new ReservationService(repository, seanceRepository);
+        service.setSeatMapLimits(properties.getMaxSeatMaps(), properties.getSeatMapIdle(), properties.getSeatMapRefresh());
+        service.setHoldTtl(properties.getHoldTtl());
+        Gauge.builder("apicinema.reservation.seat-maps", service, ReservationService::getSeatMaps)
+                .description("Plans des places en mémoire")
+                .register(registry);
+        return service;
+    }
+}
@@ -0,0 +1,35 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Blocages des places et plans gardés en mémoire par ReservationService : apicinema.reservation.*
+ */
+@Data
+@ConfigurationProperties("apicinema.reservation")
+public class ReservationProperties {
+
+    /**
+     * Plans des places gardés en mémoire, les moins récemment utilisés sont oubliés au-delà
+     */
+    private long maxSeatMaps = 10000;
+
+    /**
+     * Un plan qui n'a pas servi depuis cette durée est oublié (séances passées)
+     */
+    private Duration seatMapIdle = Duration.ofHours(1);
+
+    /**
+     * Un plan est relu en base quand il a été chargé depuis plus longtemps, au prochain accès :
+     * borne le retard sur les places bloquées ou libérées par les autres nœuds sans change stream
+     */
+    private Duration seatMapRefresh = Duration.ofSeconds(10);
+
+    /**
+     * Durée d'un blocage ni confirmé ni libéré : il ne peut plus être confirmé et la place est de nouveau libre
+     */
+    private Duration holdTtl = Duration.ofMinutes(15);
+}
@@ -0,0 +1,53 @@
+package fr.semifir.apicinema.configurations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.filters.CachedResponse;
+import fr.semifir.apicinema.filters.ResponseCacheFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache des réponses JSON sérialisées des GET de liste et par id, activé par apicinema.response-cache.enabled.
+ * Les entrées sont validées par la version de leur collection : une écriture les rend obsolètes
+ * sans avoir à les retrouver, et la borne en octets finit par les évincer.
+ * Les statistiques sont publiées dans les métriques cache.* (cache=responses)
+ */
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "apicinema.response-cache.enabled", havingValue = "true")
+public class ResponseCacheConfiguration {
+
+    @Bean
+    public Cache<String, CachedResponse> responseCache(ResponseCacheProperties properties, MeterRegistry registry) {
+        Cache<String, CachedResponse> cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse response) -> response.weight())
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, "responses");
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(
+            Cache<String, CachedResponse> responseCache,
+            CollectionVersions versions,
+            ResponseCacheProperties properties
+    ) {
+        ResponseCacheFilter filter = new ResponseCacheFilter(
+                responseCache,
+                versions,
+                Math.toIntExact(properties.getMaxEntrySize().toBytes()),
+                properties.isGzip()
+        );
+        return new FilterRegistrationBean<>(filter);
+    }
+}
@@ -0,0 +1,33 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Cache des réponses JSON déjà sérialisées : apicinema.response-cache.*
+ */
+@Data
+@ConfigurationProperties("apicinema.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Active le cache des réponses des GET de liste et par id (désactivé par défaut)
+     */
+    private boolean enabled = false;
+
+    /**
+     * Taille totale des réponses gardées (corps brut et compressé)
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Les réponses plus grosses ne sont pas gardées
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+
+    /**
+     * Garde aussi une copie gzip, servie aux clients qui l'acceptent
+     */
+    private boolean gzip = true;
+}
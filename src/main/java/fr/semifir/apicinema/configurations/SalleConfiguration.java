@@ -1,10 +1,15 @@
 package fr.semifir.apicinema.configurations;
 
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.CinemaRepository;
 import fr.semifir.apicinema.repositories.SalleRepository;
 import fr.semifir.apicinema.services.CinemaService;
 import fr.semifir.apicinema.services.SalleService;
-import org.modelmapper.ModelMapper;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,7 +17,16 @@ import org.springframework.context.annotation.Configuration;
 public class SalleConfiguration {
 
     @Bean
-    public SalleService salleService(SalleRepository repository, ModelMapper mapper) {
-        return new SalleService(repository, mapper);
+    public SalleService salleService(
+            SalleRepository repository,
+            DtoMapper<Salle, SalleDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int maxPageSize,
+            @Value("${apicinema.bulk.chunk-size}") int bulkChunkSize,
+            ObjectProvider<WriteBehindQueue<Salle>> writeBehind
+    ) {
+        SalleService service = new SalleService(repository, mapper, maxPageSize, bulkChunkSize);
+        // File d'écriture différée, seulement avec apicinema.write-behind.enabled
+        writeBehind.ifAvailable(service::setWriteBehind);
+        return service;
     }
 }
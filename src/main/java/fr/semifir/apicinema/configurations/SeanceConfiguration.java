@@ -1,8 +1,14 @@
 package fr.semifir.apicinema.configurations;
 
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.SalleConflicts;
 import fr.semifir.apicinema.services.SeanceService;
-import org.modelmapper.ModelMapper;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,7 +16,19 @@ import org.springframework.context.annotation.Configuration;
 public class SeanceConfiguration {
 
     @Bean
-    public SeanceService seanceService(SeanceRepository repository, ModelMapper mapper) {
-        return new SeanceService(repository, mapper);
+    public SeanceService seanceService(
+            SeanceRepository repository,
+            DtoMapper<Seance, SeanceDTO> mapper,
+            @Value("${apicinema.pagination.max-size}") int maxPageSize,
+            @Value("${apicinema.bulk.chunk-size}") int bulkChunkSize,
+            ObjectProvider<WriteBehindQueue<Seance>> writeBehind,
+            ObjectProvider<SalleConflicts> conflicts
+    ) {
+        SeanceService service = new SeanceService(repository, mapper, maxPageSize, bulkChunkSize);
+        // File d'écriture différée, seulement avec apicinema.write-behind.enabled
+        writeBehind.ifAvailable(service::setWriteBehind);
+        // Contrôle des chevauchements dans les salles, sauf avec apicinema.conflicts.enabled=false
+        conflicts.ifAvailable(service::setConflicts);
+        return service;
     }
 }
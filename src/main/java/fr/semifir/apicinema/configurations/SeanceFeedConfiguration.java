@@ -0,0 +1,57 @@
+package fr.semifir.apicinema.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.services.ReservationService;
+import fr.semifir.apicinema.services.SeanceFeed;
+import fr.semifir.apicinema.services.SeanceService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Flux des changements de séances et de places pour les bornes et l'application mobile.
+ * Métriques apicinema.seance-feed.* (abonnés, long-polls en attente, événements, abonnés décrochés)
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(SeanceFeedProperties.class)
+public class SeanceFeedConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SeanceFeed seanceFeed(
+            SeanceService seanceService,
+            ReservationService reservationService,
+            ObjectMapper objectMapper,
+            SeanceFeedProperties properties,
+            MeterRegistry registry
+    ) {
+        SeanceFeed feed = new SeanceFeed(
+                seanceService,
+                reservationService,
+                objectMapper,
+                properties.getBufferSize(),
+                properties.getHistorySize(),
+                properties.getMaxSubscribers(),
+                properties.getSenderThreads(),
+                properties.getFlushInterval().toMillis(),
+                properties.getHeartbeat().toMillis()
+        );
+        Gauge.builder("apicinema.seance-feed.subscribers", feed, SeanceFeed::getSubscribers)
+                .description("Abonnés SSE connectés")
+                .register(registry);
+        Gauge.builder("apicinema.seance-feed.waiting", feed, SeanceFeed::getWaiters)
+                .description("Long-polls en attente d'un événement")
+                .register(registry);
+        FunctionCounter.builder("apicinema.seance-feed.published", feed, SeanceFeed::getPublished)
+                .description("Événements publiés")
+                .register(registry);
+        FunctionCounter.builder("apicinema.seance-feed.dropped", feed, SeanceFeed::getDropped)
+                .description("Abonnés décrochés, tampon plein")
+                .register(registry);
+        return feed;
+    }
+}
@@ -0,0 +1,55 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Flux des changements de séances (GET /seances/events) : apicinema.seance-feed.*
+ */
+@Data
+@ConfigurationProperties("apicinema.seance-feed")
+public class SeanceFeedProperties {
+
+    /**
+     * Événements en attente d'envoi par abonné ; un abonné qui prend plus de retard est décroché
+     */
+    private int bufferSize = 256;
+
+    /**
+     * Derniers événements gardés pour les clients qui reprennent avec Last-Event-ID ou after
+     */
+    private int historySize = 4096;
+
+    /**
+     * Abonnés SSE simultanés au-delà desquels l'API répond 503
+     */
+    private int maxSubscribers = 10000;
+
+    /**
+     * Threads qui écrivent sur les connexions des abonnés, sans bloquer sur un client lent
+     */
+    private int senderThreads = 4;
+
+    /**
+     * Regroupement des écritures avant publication : une séance modifiée plusieurs fois n'est envoyée qu'une fois
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Intervalle des commentaires SSE qui gardent les connexions ouvertes ; un abonné dont la connexion
+     * n'accepte aucune écriture pendant cette durée est décroché
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    /**
+     * Durée d'une connexion SSE, le client se reconnecte ensuite avec Last-Event-ID
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Attente maximale d'un long-poll sans événement
+     */
+    private Duration pollTimeout = Duration.ofSeconds(25);
+}
@@ -0,0 +1,45 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.services.SeanceSchedule;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index en mémoire des séances par date, chargé au démarrage puis tenu à jour par les EntityChangeEvent.
+ * Métriques apicinema.schedule.* (séances indexées, mémoire estimée, durée du dernier chargement)
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(SeanceScheduleProperties.class)
+public class SeanceScheduleConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SeanceSchedule seanceSchedule(
+            MongoTemplate template,
+            SeanceScheduleProperties properties,
+            @Value("${apicinema.pagination.max-size}") int maxResults,
+            MeterRegistry registry
+    ) {
+        SeanceSchedule schedule = new SeanceSchedule(template, properties.getCompactionThreshold(), maxResults);
+        Gauge.builder("apicinema.schedule.seances", schedule, SeanceSchedule::getSize)
+                .description("Séances dans l'index en mémoire")
+                .register(registry);
+        Gauge.builder("apicinema.schedule.memory", schedule, SeanceSchedule::getFootprintBytes)
+                .description("Mémoire estimée de l'index des séances")
+                .baseUnit("bytes")
+                .register(registry);
+        TimeGauge.builder("apicinema.schedule.load", schedule, TimeUnit.MILLISECONDS, SeanceSchedule::getLoadMillis)
+                .description("Durée du dernier chargement complet de l'index")
+                .register(registry);
+        return schedule;
+    }
+}
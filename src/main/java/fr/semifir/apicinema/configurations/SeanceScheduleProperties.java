@@ -0,0 +1,17 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Index en mémoire des séances par date (GET /seances/upcoming) : apicinema.schedule.*
+ */
+@Data
+@ConfigurationProperties("apicinema.schedule")
+public class SeanceScheduleProperties {
+
+    /**
+     * Séances écrites ou supprimées depuis le chargement au-delà desquelles les tableaux triés sont reconstruits
+     */
+    private int compactionThreshold = 10000;
+}
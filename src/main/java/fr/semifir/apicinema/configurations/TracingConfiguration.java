@@ -0,0 +1,119 @@
+package fr.semifir.apicinema.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.services.CinemaService;
+import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.ProgrammeService;
+import fr.semifir.apicinema.services.ReservationService;
+import fr.semifir.apicinema.services.SalleService;
+import fr.semifir.apicinema.services.SeanceService;
+import fr.semifir.apicinema.tracing.RepositorySpanPostProcessor;
+import fr.semifir.apicinema.tracing.Span;
+import fr.semifir.apicinema.tracing.SpanPostProcessor;
+import fr.semifir.apicinema.tracing.TraceFileExporter;
+import fr.semifir.apicinema.tracing.TracingCommandListener;
+import fr.semifir.apicinema.tracing.TracingFilter;
+import fr.semifir.apicinema.tracing.TracingHandlerInterceptor;
+import fr.semifir.apicinema.tracing.TracingJackson2HttpMessageConverter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Traces des requêtes HTTP, activées par apicinema.tracing.enabled : un span par appel de contrôleur,
+ * service, repository, mapper et par sérialisation Jackson, et les requêtes Mongo de chacun.
+ * Le résumé est renvoyé aux requêtes de debug et les traces sont exportées dans apicinema.tracing.file
+ */
+@Configuration
+@EnableConfigurationProperties(TracingProperties.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "apicinema.tracing.enabled", havingValue = "true")
+public class TracingConfiguration {
+
+    @Bean
+    public static SpanPostProcessor serviceSpanPostProcessor() {
+        List<Class<?>> services = List.of(
+                CinemaService.class, SalleService.class, FilmService.class, SeanceService.class,
+                ProgrammeService.class, ReservationService.class
+        );
+        return new SpanPostProcessor(Span.SERVICE, services::contains);
+    }
+
+    @Bean
+    public static SpanPostProcessor mapperSpanPostProcessor() {
+        return new SpanPostProcessor(Span.MAPPING, DtoMapper.class::isAssignableFrom);
+    }
+
+    @Bean
+    public static RepositorySpanPostProcessor repositorySpanPostProcessor() {
+        return new RepositorySpanPostProcessor();
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer tracingMongoClient() {
+        return settings -> settings.addCommandListener(new TracingCommandListener());
+    }
+
+    /**
+     * Remplace le convertisseur JSON de Spring Boot, avec le même ObjectMapper
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TracingJackson2HttpMessageConverter(objectMapper);
+    }
+
+    @Bean
+    public WebMvcConfigurer tracingInterceptor() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new TracingHandlerInterceptor());
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty("apicinema.tracing.file")
+    public TraceFileExporter traceFileExporter(TracingProperties properties, ObjectMapper objectMapper, MeterRegistry registry)
+            throws IOException {
+        TraceFileExporter exporter = new TraceFileExporter(properties.getFile(), objectMapper, properties.getQueueCapacity());
+        FunctionCounter.builder("apicinema.tracing.dropped", exporter, TraceFileExporter::getDropped)
+                .description("Traces abandonnées, file d'export pleine")
+                .register(registry);
+        return exporter;
+    }
+
+    /**
+     * Placé avant le cache des réponses, pour que la trace couvre aussi les réponses qu'il sert
+     */
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(
+            TracingProperties properties,
+            ObjectProvider<TraceFileExporter> exporter
+    ) {
+        TracingFilter filter = new TracingFilter(
+                exporter.getIfAvailable(),
+                properties.getSampleRate(),
+                properties.getSlowThreshold().toNanos(),
+                properties.isDebugHeader()
+        );
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,45 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Traces des requêtes HTTP : apicinema.tracing.*
+ */
+@Data
+@ConfigurationProperties("apicinema.tracing")
+public class TracingProperties {
+
+    /**
+     * Trace les requêtes (spans et requêtes Mongo), désactivé par défaut
+     */
+    private boolean enabled = false;
+
+    /**
+     * Fichier où les traces sont exportées, une par ligne ; sans fichier rien n'est exporté
+     */
+    private Path file;
+
+    /**
+     * Part des requêtes exportées, entre 0 et 1
+     */
+    private double sampleRate = 0;
+
+    /**
+     * Les requêtes plus longues sont toujours exportées
+     */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    /**
+     * Renvoie le résumé de la trace dans X-Trace aux requêtes qui portent X-Debug-Trace
+     */
+    private boolean debugHeader = true;
+
+    /**
+     * Traces en attente d'écriture au-delà desquelles elles sont abandonnées
+     */
+    private int queueCapacity = 1000;
+}
@@ -0,0 +1,109 @@
+package fr.semifir.apicinema.configurations;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.repositories.BulkSaveRepository;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.repositories.FilmRepository;
+import fr.semifir.apicinema.repositories.SalleRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Écriture différée, activée par apicinema.write-behind.enabled=true : une file par collection,
+ * branchée sur le service de l'entité (XxxConfiguration). Les save() concurrents sont regroupés
+ * en bulk writes ; chaque appel attend toujours l'acquittement de Mongo avant de répondre.
+ * Métriques apicinema.write-behind.* par collection (file, lots, écrits, échecs, refus)
+ */
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+@ConditionalOnProperty(name = "apicinema.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfiguration {
+
+    /**
+     * Suite des écritures acquittées (événements, mapping), partagée par les files ;
+     * arrêtée après elles, les dernières suites s'exécutent encore
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService writeBehindCallbacks(WriteBehindProperties properties) {
+        return Executors.newFixedThreadPool(properties.getCallbackThreads(), new CustomizableThreadFactory("write-behind-callback-"));
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindQueue<Cinema> cinemaWriteBehind(CinemaRepository repository, WriteBehindProperties properties, ExecutorService writeBehindCallbacks, MeterRegistry registry) {
+        return queue(EntityChangeEvent.CINEMAS, repository, Cinema::getId, properties, writeBehindCallbacks, registry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindQueue<Salle> salleWriteBehind(SalleRepository repository, WriteBehindProperties properties, ExecutorService writeBehindCallbacks, MeterRegistry registry) {
+        return queue(EntityChangeEvent.SALLES, repository, Salle::getId, properties, writeBehindCallbacks, registry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindQueue<Film> filmWriteBehind(FilmRepository repository, WriteBehindProperties properties, ExecutorService writeBehindCallbacks, MeterRegistry registry) {
+        return queue(EntityChangeEvent.FILMS, repository, Film::getId, properties, writeBehindCallbacks, registry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindQueue<Seance> seanceWriteBehind(SeanceRepository repository, WriteBehindProperties properties, ExecutorService writeBehindCallbacks, MeterRegistry registry) {
+        return queue(EntityChangeEvent.SEANCES, repository, Seance::getId, properties, writeBehindCallbacks, registry);
+    }
+
+    private static <E> WriteBehindQueue<E> queue(
+            String collection,
+            BulkSaveRepository<E> repository,
+            Function<E, String> id,
+            WriteBehindProperties properties,
+            Executor callbacks,
+            MeterRegistry registry
+    ) {
+        WriteBehindQueue<E> queue = new WriteBehindQueue<>(
+                collection,
+                repository::bulkSave,
+                id,
+                properties.getQueueCapacity(),
+                properties.getBatchSize(),
+                properties.getFlushInterval().toNanos(),
+                properties.getOfferTimeout().toNanos(),
+                callbacks,
+                properties.getAwaitTimeout().toNanos()
+        );
+        Gauge.builder("apicinema.write-behind.pending", queue, WriteBehindQueue::getPending)
+                .description("Éléments en attente d'écriture")
+                .tag("collection", collection)
+                .register(registry);
+        FunctionCounter.builder("apicinema.write-behind.batches", queue, WriteBehindQueue::getBatches)
+                .description("Bulk writes effectués")
+                .tag("collection", collection)
+                .register(registry);
+        FunctionCounter.builder("apicinema.write-behind.written", queue, WriteBehindQueue::getWritten)
+                .description("Éléments écrits")
+                .tag("collection", collection)
+                .register(registry);
+        FunctionCounter.builder("apicinema.write-behind.failed", queue, WriteBehindQueue::getFailed)
+                .description("Éléments en erreur")
+                .tag("collection", collection)
+                .register(registry);
+        FunctionCounter.builder("apicinema.write-behind.rejected", queue, WriteBehindQueue::getRejected)
+                .description("Éléments refusés, file pleine")
+                .tag("collection", collection)
+                .register(registry);
+        return queue;
+    }
+}
@@ -0,0 +1,49 @@
+package fr.semifir.apicinema.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Écriture différée des save() des services : apicinema.write-behind.*
+ */
+@Data
+@ConfigurationProperties("apicinema.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Active les files d'écriture différée, une par collection
+     */
+    private boolean enabled = false;
+
+    /**
+     * Éléments en attente d'écriture au-delà desquels save() attend une place
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Nombre maximal d'éléments écrits en un bulk write
+     */
+    private int batchSize = 500;
+
+    /**
+     * Délai maximal entre la mise en file d'un élément et l'écriture de son lot
+     */
+    private Duration flushInterval = Duration.ofMillis(5);
+
+    /**
+     * Attente d'une place dans la file pleine, avant de répondre 503
+     */
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Attente maximale de l'acquittement par save(), avant de répondre 504
+     */
+    private Duration awaitTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Threads qui publient les événements des écritures acquittées, hors du thread d'écriture
+     */
+    private int callbackThreads = 2;
+}
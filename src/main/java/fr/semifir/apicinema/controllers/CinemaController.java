@@ -1,30 +1,104 @@
 package fr.semifir.apicinema.controllers;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.cinema.CinemaSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
 import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.CinemaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("cinemas")
 public class CinemaController {
 
     @Autowired
     CinemaService service;
 
+    // Versions des collections : ETag / Last-Modified des GET, 304 sans lire Mongo
+    @Autowired
+    CollectionVersions versions;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping
-    public List<CinemaDTO> findAll() {
+    public List<CinemaDTO> findAll(WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.CINEMAS)) {
+            return null;
+        }
         return this.service.findAll();
     }
 
+    @GetMapping("page")
+    public PageDTO<CinemaDTO> findPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.CINEMAS)) {
+            return null;
+        }
+        return this.service.findPage(after, size);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<CinemaSlimDTO>> findAllSlim(@RequestParam String fields, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.CINEMAS)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findAllSlim(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "page", params = "fields")
+    public ResponseEntity<PageDTO<CinemaSlimDTO>> findPageSlim(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            @RequestParam String fields,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.CINEMAS)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findPageSlim(after, size, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("{id}")
-    public ResponseEntity<CinemaDTO> findById(@PathVariable String id) {
+    public ResponseEntity<CinemaDTO> findById(@PathVariable String id, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.CINEMAS)) {
+            return null;
+        }
         Optional<CinemaDTO> cinemaDTO = null;
         try {
             cinemaDTO = this.service.findByID(id);
@@ -35,13 +109,42 @@ public class CinemaController {
     }
 
     @PostMapping
-    public CinemaDTO save(@RequestBody Cinema cinema) {
-        return this.service.save(cinema);
+    public ResponseEntity<CinemaDTO> save(@RequestBody Cinema cinema) {
+        try {
+            return ResponseEntity.ok(this.service.save(cinema));
+        } catch (RejectedExecutionException e) {
+            // File d'écriture différée pleine : le client réessaie plus tard
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            // Écriture différée non acquittée à temps : elle peut encore avoir eu lieu
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkResultDTO> saveAll(@RequestBody List<Cinema> cinemas) {
+        List<BulkResultDTO> results = new ArrayList<>();
+        this.service.saveAll(cinemas.iterator(), results::add);
+        return results;
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (MappingIterator<Cinema> cinemas = NdjsonReader.read(request, this.objectMapper, Cinema.class)) {
+            NdjsonWriter.write(response, this.objectMapper, BulkResultDTO.class,
+                    results -> this.service.saveAll(cinemas, results));
+        }
     }
 
     @PutMapping
-    public CinemaDTO update(@RequestBody Cinema cinema) {
-        return this.service.save(cinema);
+    public ResponseEntity<CinemaDTO> update(@RequestBody Cinema cinema) {
+        try {
+            return ResponseEntity.ok(this.service.save(cinema));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
     }
 
     @DeleteMapping
@@ -49,4 +152,13 @@ public class CinemaController {
         this.service.delete(cinema);
         return ResponseEntity.ok(true);
     }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<Map<String, Long>> deleteById(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(this.service.deleteById(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
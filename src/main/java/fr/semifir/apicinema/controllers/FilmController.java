@@ -1,30 +1,113 @@
 package fr.semifir.apicinema.controllers;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.film.FilmSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
 import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.FilmService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("films")
 public class FilmController {
 
     @Autowired
     FilmService service;
 
+    // Versions des collections : ETag / Last-Modified des GET, 304 sans lire Mongo
+    @Autowired
+    CollectionVersions versions;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping
-    public List<FilmDTO> findAll() {
+    public List<FilmDTO> findAll(WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
         return this.service.findAll();
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamAll(WebRequest request, HttpServletResponse response) throws IOException {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return;
+        }
+        NdjsonWriter.write(response, this.objectMapper, FilmDTO.class, this.service::streamAll);
+    }
+
+    @GetMapping("page")
+    public PageDTO<FilmDTO> findPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
+        return this.service.findPage(after, size);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<FilmSlimDTO>> findAllSlim(@RequestParam String fields, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findAllSlim(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "page", params = "fields")
+    public ResponseEntity<PageDTO<FilmSlimDTO>> findPageSlim(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            @RequestParam String fields,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findPageSlim(after, size, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("{id}")
-    public ResponseEntity<FilmDTO> findById(@PathVariable String id) {
+    public ResponseEntity<FilmDTO> findById(@PathVariable String id, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
         Optional<FilmDTO> FilmDTO = null;
         try {
             FilmDTO = this.service.findByID(id);
@@ -35,13 +118,46 @@ public class FilmController {
     }
 
     @PostMapping
-    public FilmDTO save(@RequestBody Film film) {
-        return this.service.save(film);
+    public ResponseEntity<FilmDTO> save(@RequestBody Film film) {
+        try {
+            return ResponseEntity.ok(this.service.save(film));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            // File d'écriture différée pleine : le client réessaie plus tard
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            // Écriture différée non acquittée à temps : elle peut encore avoir eu lieu
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkResultDTO> saveAll(@RequestBody List<Film> films) {
+        List<BulkResultDTO> results = new ArrayList<>();
+        this.service.saveAll(films.iterator(), results::add);
+        return results;
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (MappingIterator<Film> films = NdjsonReader.read(request, this.objectMapper, Film.class)) {
+            NdjsonWriter.write(response, this.objectMapper, BulkResultDTO.class,
+                    results -> this.service.saveAll(films, results));
+        }
     }
 
     @PutMapping
-    public FilmDTO update(@RequestBody Film film) {
-        return this.service.save(film);
+    public ResponseEntity<FilmDTO> update(@RequestBody Film film) {
+        try {
+            return ResponseEntity.ok(this.service.save(film));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
     }
 
     @DeleteMapping
@@ -49,4 +165,13 @@ public class FilmController {
         this.service.delete(film);
         return ResponseEntity.ok(true);
     }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<Map<String, Long>> deleteById(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(this.service.deleteById(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
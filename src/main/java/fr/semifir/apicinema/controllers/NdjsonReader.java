@@ -0,0 +1,31 @@
+package fr.semifir.apicinema.controllers;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Lit un corps de requête NDJSON élément par élément, sans le charger entièrement en mémoire
+ */
+final class NdjsonReader {
+
+    private NdjsonReader() {
+    }
+
+    /**
+     * @param request requête HTTP dont on lit le corps
+     * @param objectMapper mapper Jackson de l'application
+     * @param type type des éléments lus
+     * @return un itérateur paresseux sur les éléments
+     * @throws IOException
+     */
+    static <T> MappingIterator<T> read(
+            HttpServletRequest request,
+            ObjectMapper objectMapper,
+            Class<T> type
+    ) throws IOException {
+        return objectMapper.readerFor(type).readValues(request.getInputStream());
+    }
+}
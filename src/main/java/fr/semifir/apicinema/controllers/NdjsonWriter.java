@@ -0,0 +1,52 @@
+package fr.semifir.apicinema.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Écrit des DTOs au format NDJSON (un document JSON par ligne) directement
+ * dans la réponse, au fur et à mesure qu'ils sont produits
+ */
+final class NdjsonWriter {
+
+    private NdjsonWriter() {
+    }
+
+    /**
+     * @param response réponse HTTP dans laquelle on écrit
+     * @param objectMapper mapper Jackson de l'application
+     * @param type type des éléments écrits
+     * @param source parcourt les éléments et les passe un par un au consumer reçu
+     * @throws IOException
+     */
+    static <T> void write(
+            HttpServletResponse response,
+            ObjectMapper objectMapper,
+            Class<T> type,
+            Consumer<Consumer<T>> source
+    ) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(type);
+        OutputStream output = response.getOutputStream();
+        try {
+            source.accept(dto -> {
+                try {
+                    output.write(writer.writeValueAsBytes(dto));
+                    output.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+    }
+}
@@ -0,0 +1,48 @@
+package fr.semifir.apicinema.controllers;
+
+import fr.semifir.apicinema.dtos.planning.PlanningDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningRequestDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningResultDTO;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.SchedulePlanner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Planning automatique d'un cinéma : POST /planning calcule sans rien écrire,
+ * POST /planning/apply écrit le planning reçu (celui calculé, éventuellement retouché)
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "apicinema.conflicts.enabled", havingValue = "true")
+@RequestMapping("cinemas/{id}/planning")
+public class PlanningController {
+
+    @Autowired
+    SchedulePlanner planner;
+
+    @PostMapping
+    public ResponseEntity<PlanningDTO> plan(@PathVariable String id, @RequestBody PlanningRequestDTO request) {
+        try {
+            return ResponseEntity.ok(this.planner.plan(id, request));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("apply")
+    public ResponseEntity<PlanningResultDTO> apply(@PathVariable String id, @RequestBody PlanningDTO planning) {
+        try {
+            return ResponseEntity.ok(this.planner.apply(id, planning));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
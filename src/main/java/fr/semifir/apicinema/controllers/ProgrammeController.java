@@ -0,0 +1,45 @@
+package fr.semifir.apicinema.controllers;
+
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.ProgrammeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("cinemas/{id}/programme")
+public class ProgrammeController {
+
+    @Autowired
+    ProgrammeService service;
+
+    @Autowired
+    CollectionVersions versions;
+
+    /**
+     * Le programme est renvoyé tel quel, déjà sérialisé.
+     * Il embarque les quatre collections : la version des films change avec chacune d'elles.
+     */
+    @GetMapping
+    public ResponseEntity<byte[]> findProgramme(@PathVariable String id, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.FILMS)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(this.service.findProgramme(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package fr.semifir.apicinema.controllers;
+
+import fr.semifir.apicinema.dtos.reservation.PlacesDTO;
+import fr.semifir.apicinema.dtos.reservation.ReservationDTO;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.ReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("seances/{id}/places")
+public class ReservationController {
+
+    @Autowired
+    ReservationService service;
+
+    @GetMapping
+    public ResponseEntity<PlacesDTO> findPlaces(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(this.service.findPlaces(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("hold")
+    public ResponseEntity<ReservationDTO> hold(@PathVariable String id, @RequestBody ReservationDTO reservation) {
+        try {
+            return ResponseEntity.ok(this.service.hold(id, reservation.getPlaces()));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("confirm")
+    public ResponseEntity<ReservationDTO> confirm(@PathVariable String id, @RequestBody ReservationDTO reservation) {
+        try {
+            return ResponseEntity.ok(this.service.confirm(id, reservation));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("release")
+    public ResponseEntity<Boolean> release(@PathVariable String id, @RequestBody ReservationDTO reservation) {
+        try {
+            this.service.release(id, reservation);
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(true);
+    }
+}
@@ -1,30 +1,104 @@
 package fr.semifir.apicinema.controllers;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.salle.SalleSlimDTO;
 import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
 import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.SalleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("salles")
 public class SalleController {
 
     @Autowired
     SalleService service;
 
+    // Versions des collections : ETag / Last-Modified des GET, 304 sans lire Mongo
+    @Autowired
+    CollectionVersions versions;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping
-    public List<SalleDTO> findAll() {
+    public List<SalleDTO> findAll(WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SALLES)) {
+            return null;
+        }
         return this.service.findAll();
     }
 
+    @GetMapping("page")
+    public PageDTO<SalleDTO> findPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SALLES)) {
+            return null;
+        }
+        return this.service.findPage(after, size);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<SalleSlimDTO>> findAllSlim(@RequestParam String fields, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SALLES)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findAllSlim(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "page", params = "fields")
+    public ResponseEntity<PageDTO<SalleSlimDTO>> findPageSlim(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            @RequestParam String fields,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SALLES)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findPageSlim(after, size, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("{id}")
-    public ResponseEntity<SalleDTO> findById(@PathVariable String id) {
+    public ResponseEntity<SalleDTO> findById(@PathVariable String id, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SALLES)) {
+            return null;
+        }
         Optional<SalleDTO> SalleDTO = null;
         try {
             SalleDTO = this.service.findByID(id);
@@ -35,13 +109,42 @@ public class SalleController {
     }
 
     @PostMapping
-    public SalleDTO save(@RequestBody Salle salle) {
-        return this.service.save(salle);
+    public ResponseEntity<SalleDTO> save(@RequestBody Salle salle) {
+        try {
+            return ResponseEntity.ok(this.service.save(salle));
+        } catch (RejectedExecutionException e) {
+            // File d'écriture différée pleine : le client réessaie plus tard
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            // Écriture différée non acquittée à temps : elle peut encore avoir eu lieu
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkResultDTO> saveAll(@RequestBody List<Salle> salles) {
+        List<BulkResultDTO> results = new ArrayList<>();
+        this.service.saveAll(salles.iterator(), results::add);
+        return results;
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (MappingIterator<Salle> salles = NdjsonReader.read(request, this.objectMapper, Salle.class)) {
+            NdjsonWriter.write(response, this.objectMapper, BulkResultDTO.class,
+                    results -> this.service.saveAll(salles, results));
+        }
     }
 
     @PutMapping
-    public SalleDTO update(@RequestBody Salle salle) {
-        return this.service.save(salle);
+    public ResponseEntity<SalleDTO> update(@RequestBody Salle salle) {
+        try {
+            return ResponseEntity.ok(this.service.save(salle));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
     }
 
     @DeleteMapping
@@ -49,4 +152,13 @@ public class SalleController {
         this.service.delete(salle);
         return ResponseEntity.ok(true);
     }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<Map<String, Long>> deleteById(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(this.service.deleteById(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
@@ -1,32 +1,136 @@
 package fr.semifir.apicinema.controllers;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.dtos.seance.SeanceDTO;
-import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceSlimDTO;
 import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
 import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.SalleService;
 import fr.semifir.apicinema.services.SeanceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("seances")
 public class SeanceController {
 
     @Autowired
     SeanceService service;
 
+    // Versions des collections : ETag / Last-Modified des GET, 304 sans lire Mongo
+    @Autowired
+    CollectionVersions versions;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping
-    public List<SeanceDTO> findAll() {
+    public List<SeanceDTO> findAll(WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
         return this.service.findAll();
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamAll(WebRequest request, HttpServletResponse response) throws IOException {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return;
+        }
+        NdjsonWriter.write(response, this.objectMapper, SeanceDTO.class, this.service::streamAll);
+    }
+
+    @GetMapping("page")
+    public PageDTO<SeanceDTO> findPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
+        return this.service.findPage(after, size);
+    }
+
+    @GetMapping("search")
+    public ResponseEntity<PageDTO<SeanceDTO>> search(
+            @RequestParam(required = false) String cinema,
+            @RequestParam(required = false) String salle,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.search(cinema, salle, from, to, after, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<SeanceSlimDTO>> findAllSlim(@RequestParam String fields, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findAllSlim(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "page", params = "fields")
+    public ResponseEntity<PageDTO<SeanceSlimDTO>> findPageSlim(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size,
+            @RequestParam String fields,
+            WebRequest request
+    ) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(this.service.findPageSlim(after, size, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("{id}")
-    public ResponseEntity<SeanceDTO> findById(@PathVariable String id) {
+    public ResponseEntity<SeanceDTO> findById(@PathVariable String id, WebRequest request) {
+        if (this.versions.checkNotModified(request, EntityChangeEvent.SEANCES)) {
+            return null;
+        }
         Optional<SeanceDTO> SeanceDTO = null;
         try {
             SeanceDTO = this.service.findByID(id);
@@ -37,13 +141,46 @@ public class SeanceController {
     }
 
     @PostMapping
-    public SeanceDTO save(@RequestBody Seance seance) {
-        return this.service.save(seance);
+    public ResponseEntity<SeanceDTO> save(@RequestBody Seance seance) {
+        try {
+            return ResponseEntity.ok(this.service.save(seance));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            // File d'écriture différée pleine : le client réessaie plus tard
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            // Écriture différée non acquittée à temps : elle peut encore avoir eu lieu
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkResultDTO> saveAll(@RequestBody List<Seance> seances) {
+        List<BulkResultDTO> results = new ArrayList<>();
+        this.service.saveAll(seances.iterator(), results::add);
+        return results;
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (MappingIterator<Seance> seances = NdjsonReader.read(request, this.objectMapper, Seance.class)) {
+            NdjsonWriter.write(response, this.objectMapper, BulkResultDTO.class,
+                    results -> this.service.saveAll(seances, results));
+        }
     }
 
     @PutMapping
-    public SeanceDTO update(@RequestBody Seance seance) {
-        return this.service.save(seance);
+    public ResponseEntity<SeanceDTO> update(@RequestBody Seance seance) {
+        try {
+            return ResponseEntity.ok(this.service.save(seance));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
     }
 
     @DeleteMapping
@@ -51,4 +188,13 @@ public class SeanceController {
         this.service.delete(seance);
         return ResponseEntity.ok(true);
     }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<Map<String, Long>> deleteById(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(this.service.deleteById(id));
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package fr.semifir.apicinema.controllers;
+
+import fr.semifir.apicinema.configurations.SeanceFeedProperties;
+import fr.semifir.apicinema.dtos.seance.SeanceEventDTO;
+import fr.semifir.apicinema.services.SeanceFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Changements des séances et des places, à la place du polling de GET /seances :
+ * en SSE, ou en long-poll pour les clients qui ne gardent pas de connexion ouverte
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("seances/events")
+public class SeanceFeedController {
+
+    @Autowired
+    SeanceFeed feed;
+
+    @Autowired
+    SeanceFeedProperties properties;
+
+    /**
+     * Flux SSE, écrit en mode asynchrone non bloquant par SseSink
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void subscribe(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        SseSink sink = new SseSink();
+        SeanceFeed.Subscriber subscriber;
+        try {
+            subscriber = this.feed.subscribe(lastEventId, sink);
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            return;
+        }
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(this.properties.getTimeout().toMillis());
+        sink.start(async, subscriber);
+    }
+
+    /**
+     * Long-poll : répond dès qu'un événement suit after, ou une liste vide après poll-timeout
+     * @param after id du dernier événement reçu ; sans after, attend le prochain
+     * @return
+     */
+    @GetMapping("poll")
+    public DeferredResult<ResponseEntity<List<SeanceEventDTO>>> poll(@RequestParam(required = false) String after) {
+        DeferredResult<ResponseEntity<List<SeanceEventDTO>>> result = new DeferredResult<>(
+                this.properties.getPollTimeout().toMillis(),
+                noStore(List.of())
+        );
+        CompletableFuture<List<SeanceEventDTO>> events = this.feed.poll(after);
+        // Retire l'attente du flux quand le client n'attend plus
+        result.onTimeout(() -> events.complete(List.of()));
+        result.onError(error -> events.complete(List.of()));
+        events.thenAccept(list -> result.setResult(noStore(list)));
+        return result;
+    }
+
+    private static ResponseEntity<List<SeanceEventDTO>> noStore(List<SeanceEventDTO> events) {
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(events);
+    }
+
+    /**
+     * Envoie les événements déjà sérialisés, sans repasser par Jackson pour chaque abonné.
+     * Écritures non bloquantes (WriteListener) : quand le client ne lit plus, ready() est faux
+     * et le conteneur rappelle onWritePossible() une fois la connexion de nouveau prête
+     */
+    private static class SseSink implements SeanceFeed.Sink, WriteListener, AsyncListener {
+
+        private volatile AsyncContext async;
+        private volatile ServletOutputStream output;
+        private SeanceFeed.Subscriber subscriber;
+
+        /**
+         * Appelé après l'abonnement : jusque-là ready() est faux et les événements attendent dans le tampon
+         */
+        void start(AsyncContext async, SeanceFeed.Subscriber subscriber) throws IOException {
+            this.subscriber = subscriber;
+            this.async = async;
+            async.addListener(this);
+            ServletOutputStream output = async.getResponse().getOutputStream();
+            output.setWriteListener(this);
+            this.output = output;
+            // Un onWritePossible() arrivé avant l'affectation de output a trouvé ready() faux
+            subscriber.resume();
+        }
+
+        @Override
+        public boolean ready() {
+            ServletOutputStream output = this.output;
+            return output != null && output.isReady();
+        }
+
+        @Override
+        public void send(List<SeanceEventDTO> events) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (SeanceEventDTO event : events) {
+                text.append("id:").append(event.getId()).append('\n')
+                        .append("event:").append(event.getType()).append('\n')
+                        .append("data:").append(event.getData().replace("\n", "\ndata:")).append("\n\n");
+            }
+            this.write(text.toString());
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            this.write(":\n\n");
+        }
+
+        /**
+         * Une seule écriture, que le conteneur garde si la connexion ne la prend pas toute ;
+         * vidée tout de suite si elle reste prête, sinon le conteneur termine l'envoi
+         */
+        private void write(String text) throws IOException {
+            this.output.write(text.getBytes(StandardCharsets.UTF_8));
+            if (this.output.isReady()) {
+                this.output.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            AsyncContext async = this.async;
+            if (async == null) {
+                return;
+            }
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Connexion déjà terminée
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            this.subscriber.resume();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.subscriber.cancel();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            this.subscriber.cancel();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Le client se reconnecte avec Last-Event-ID
+            this.subscriber.cancel();
+            this.close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            this.subscriber.cancel();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.semifir.apicinema.controllers;
+
+import fr.semifir.apicinema.dtos.seance.ShowingDTO;
+import fr.semifir.apicinema.exceptions.ScheduleLoadingException;
+import fr.semifir.apicinema.services.SeanceSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prochaines séances, lues dans l'index en mémoire sans requête Mongo.
+ * L'index suit les écritures avec quelques ms de retard, et la réponse dépend de l'heure : jamais mise en cache.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("seances/upcoming")
+public class SeanceScheduleController {
+
+    private static final long DEFAULT_WINDOW = TimeUnit.HOURS.toMillis(3);
+
+    @Autowired
+    SeanceSchedule schedule;
+
+    /**
+     * @param cinema id du cinéma, tous par défaut
+     * @param salle id de la salle, toutes par défaut
+     * @param from maintenant par défaut
+     * @param to from + 3 h par défaut
+     * @param size
+     * @return séances de [from, to[ triées par date ; 503 pendant le chargement de l'index
+     */
+    @GetMapping
+    public ResponseEntity<List<ShowingDTO>> findUpcoming(
+            @RequestParam(required = false) String cinema,
+            @RequestParam(required = false) String salle,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(defaultValue = "${apicinema.pagination.default-size}") int size
+    ) {
+        Date start = from != null ? from : new Date();
+        Date end = to != null ? to : new Date(start.getTime() + DEFAULT_WINDOW);
+        if (!end.after(start)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(this.schedule.find(cinema, salle, start, end, size));
+        } catch (ScheduleLoadingException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+    }
+}
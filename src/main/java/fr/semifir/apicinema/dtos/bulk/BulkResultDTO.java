@@ -0,0 +1,19 @@
+package fr.semifir.apicinema.dtos.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkResultDTO {
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+
+    // Position de l'élément dans le tableau ou le flux reçu
+    private long index;
+    private String id;
+    private String status;
+    private String error;
+}
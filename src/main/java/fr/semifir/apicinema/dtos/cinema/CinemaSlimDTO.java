@@ -0,0 +1,18 @@
+package fr.semifir.apicinema.dtos.cinema;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vue allégée d'un cinéma, réduite aux champs demandés
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CinemaSlimDTO {
+    private String id;
+    private String nom;
+}
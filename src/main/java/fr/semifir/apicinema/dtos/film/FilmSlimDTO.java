@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.dtos.film;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vue allégée d'un film : la séance est remplacée par son id, les champs non demandés sont omis
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FilmSlimDTO {
+    private String id;
+    private String nom;
+    private Float duree;
+    private String seanceId;
+}
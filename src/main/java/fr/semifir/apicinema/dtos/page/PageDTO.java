@@ -0,0 +1,16 @@
+package fr.semifir.apicinema.dtos.page;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageDTO<T> {
+    private List<T> content;
+    // Curseur à renvoyer dans "after" pour la page suivante, null si c'est la dernière
+    private String next;
+}
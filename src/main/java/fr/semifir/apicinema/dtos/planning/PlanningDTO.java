@@ -0,0 +1,27 @@
+package fr.semifir.apicinema.dtos.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Planning proposé pour un cinéma, à renvoyer tel quel (ou modifié) à /planning/apply
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanningDTO {
+    private String cinemaId;
+    private Date debut;
+    private Date fin;
+    private List<PlanningSeanceDTO> seances;
+    private double spectateurs;
+    // Constructions essayées, toutes salles et tous jours confondus
+    private long iterations;
+    private long millis;
+    // Faux si le temps de calcul a été épuisé avant apicinema.planning.iterations pour une salle et un jour
+    private boolean complet;
+}
@@ -0,0 +1,19 @@
+package fr.semifir.apicinema.dtos.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Film candidat au planning
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanningFilmDTO {
+    private String nom;
+    // En minutes, comme Film.duree
+    private Float duree;
+    // Spectateurs attendus sur la période dans tout le cinéma, si les places ne manquaient pas
+    private double demande;
+}
@@ -0,0 +1,28 @@
+package fr.semifir.apicinema.dtos.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Demande de planning d'un cinéma : jours, horaires d'ouverture et films candidats
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanningRequestDTO {
+    // Premier jour planifié
+    private LocalDate debut;
+    private int jours = 7;
+    private LocalTime ouverture = LocalTime.of(10, 0);
+    // Les films se terminent au plus tard à la fermeture, le même jour
+    private LocalTime fermeture = LocalTime.of(23, 30);
+    private List<PlanningFilmDTO> films;
+    // Temps de calcul, apicinema.planning.budget si absent
+    private Duration budget;
+}
@@ -0,0 +1,19 @@
+package fr.semifir.apicinema.dtos.planning;
+
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Écriture d'un planning : un résultat par séance et un par film, à la position de la séance dans le planning
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanningResultDTO {
+    private List<BulkResultDTO> seances;
+    private List<BulkResultDTO> films;
+}
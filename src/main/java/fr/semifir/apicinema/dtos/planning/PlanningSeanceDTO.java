@@ -0,0 +1,23 @@
+package fr.semifir.apicinema.dtos.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Séance proposée : une salle, une date et le film projeté
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanningSeanceDTO {
+    private Date date;
+    private String salleId;
+    private int numDeSalle;
+    private String nom;
+    private Float duree;
+    // Spectateurs attendus, au plus les places de la salle
+    private double spectateurs;
+}
@@ -0,0 +1,16 @@
+package fr.semifir.apicinema.dtos.programme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgrammeDTO {
+    private String cinemaId;
+    private String nom;
+    private List<ProgrammeSeanceDTO> seances;
+}
@@ -0,0 +1,14 @@
+package fr.semifir.apicinema.dtos.programme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgrammeFilmDTO {
+    private String id;
+    private String nom;
+    private Float duree;
+}
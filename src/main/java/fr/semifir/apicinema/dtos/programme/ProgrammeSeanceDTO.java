@@ -0,0 +1,19 @@
+package fr.semifir.apicinema.dtos.programme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgrammeSeanceDTO {
+    private String id;
+    private Date date;
+    private String salleId;
+    private int numDeSalle;
+    private List<ProgrammeFilmDTO> films;
+}
@@ -0,0 +1,16 @@
+package fr.semifir.apicinema.dtos.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlacesDTO {
+    private String seanceId;
+    private int nbrPlace;
+    private int disponibles;
+    private int bloquees;
+    private int vendues;
+}
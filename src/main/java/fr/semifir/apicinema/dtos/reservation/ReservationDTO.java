@@ -0,0 +1,16 @@
+package fr.semifir.apicinema.dtos.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationDTO {
+    // Jeton renvoyé par le blocage, à fournir pour confirmer ou libérer les places
+    private String token;
+    private List<Integer> places;
+}
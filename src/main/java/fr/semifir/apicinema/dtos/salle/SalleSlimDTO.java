@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.dtos.salle;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vue allégée d'une salle : le cinéma n'est plus embarqué, seul son id est renvoyé
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalleSlimDTO {
+    private String id;
+    private Integer numDeSalle;
+    private Integer nbrPlace;
+    private String cinemaId;
+}
@@ -0,0 +1,23 @@
+package fr.semifir.apicinema.dtos.seance;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeanceEventDTO {
+    // Identifiant du démarrage du nœud et numéro croissant, à renvoyer dans Last-Event-ID ou after pour reprendre
+    private String id;
+    // seance, places ou reset
+    private String type;
+    // JSON déjà sérialisé, une fois pour tous les abonnés
+    @JsonRawValue
+    private String data;
+    // Numéro de l'événement sur ce nœud
+    @JsonIgnore
+    private long sequence;
+}
@@ -0,0 +1,21 @@
+package fr.semifir.apicinema.dtos.seance;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Vue allégée d'une séance : la salle (et son cinéma) est remplacée par son id
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeanceSlimDTO {
+    private String id;
+    private Date date;
+    private String salleId;
+}
@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.dtos.seance;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Séance lue dans l'index en mémoire (SeanceSchedule) : ids de la salle et du cinéma, sans les documents
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShowingDTO {
+    private String id;
+    private Date date;
+    private String salleId;
+    private String cinemaId;
+}
@@ -4,8 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Date;
+
 @Document
 @Data
 @AllArgsConstructor
@@ -14,4 +17,11 @@ public class Cinema {
     @Id
     private String id;
     private String nom;
+    // Posée par l'audit Mongo à chaque save
+    @LastModifiedDate
+    private Date lastModified;
+
+    public Cinema(String id, String nom) {
+        this(id, nom, null);
+    }
 }
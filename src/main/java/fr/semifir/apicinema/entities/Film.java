@@ -5,12 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
 
 @Document
+@CompoundIndex(name = "seance", def = "{'seance.$id': 1}")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -21,4 +24,11 @@ public class Film {
     private Float duree;
     @DBRef
     private Seance seance;
+    // Posée par l'audit Mongo à chaque save
+    @LastModifiedDate
+    private Date lastModified;
+
+    public Film(String id, String nom, Float duree, Seance seance) {
+        this(id, nom, duree, seance, null);
+    }
 }
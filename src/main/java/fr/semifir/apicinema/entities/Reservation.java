@@ -0,0 +1,29 @@
+package fr.semifir.apicinema.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * État des places d'une séance (id = id de la séance)
+ */
+@Document
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Reservation {
+    @Id
+    private String id;
+    private int nbrPlace;
+    // numéro de place -> jeton de la réservation qui la bloque
+    private Map<String, String> held;
+    // numéro de place -> date du blocage, il expire après apicinema.reservation.hold-ttl
+    private Map<String, Date> heldAt;
+    private List<Integer> sold;
+}
@@ -4,10 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Date;
+
 @Document
+@CompoundIndex(name = "cinema", def = "{'cinema.$id': 1}")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,4 +23,11 @@ public class Salle {
     private int nbrPlace;
     @DBRef
     private Cinema cinema;
+    // Posée par l'audit Mongo à chaque save
+    @LastModifiedDate
+    private Date lastModified;
+
+    public Salle(String id, int numDeSalle, int nbrPlace, Cinema cinema) {
+        this(id, numDeSalle, nbrPlace, cinema, null);
+    }
 }
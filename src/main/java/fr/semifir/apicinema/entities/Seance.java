@@ -5,12 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
 
 @Document
+@CompoundIndexes({
+        // Recherche des séances d'une ou plusieurs salles sur une plage de dates
+        @CompoundIndex(name = "salle_date", def = "{'salle.$id': 1, 'date': 1}"),
+        @CompoundIndex(name = "date", def = "{'date': 1}")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -20,4 +28,11 @@ public class Seance {
     private Date date;
     @DBRef
     private Salle salle;
+    // Posée par l'audit Mongo à chaque save
+    @LastModifiedDate
+    private Date lastModified;
+
+    public Seance(String id, Date date, Salle salle) {
+        this(id, date, salle, null);
+    }
 }
@@ -0,0 +1,40 @@
+package fr.semifir.apicinema.events;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Vide les caches findByID touchés par une écriture : l'entrée du document modifié,
+ * et entièrement les caches dont les DTOs l'embarquent.
+ * Passe avant CollectionVersions, pour qu'une nouvelle version ne serve jamais un DTO périmé.
+ */
+public class CacheInvalidationListener {
+
+    private final CacheManager cacheManager;
+
+    public CacheInvalidationListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onChange(EntityChangeEvent event) {
+        Cache cache = this.cacheManager.getCache(event.getCollection());
+        if (cache != null) {
+            if (event.getId() == null) {
+                cache.clear();
+            } else {
+                cache.evict(event.getId());
+            }
+        }
+        for (String dependent : event.dependents()) {
+            Cache dependentCache = this.cacheManager.getCache(dependent);
+            if (dependentCache != null) {
+                dependentCache.clear();
+            }
+        }
+    }
+}
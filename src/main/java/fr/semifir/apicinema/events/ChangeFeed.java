@@ -0,0 +1,22 @@
+package fr.semifir.apicinema.events;
+
+import java.util.function.Consumer;
+
+/**
+ * Source des écritures faites par tous les nœuds sur les collections :
+ * le change stream Mongo (MongoChangeStream), ou un bus en mémoire dans les tests (InMemoryChangeFeed)
+ */
+public interface ChangeFeed extends AutoCloseable {
+
+    /**
+     * Commence à lire les écritures
+     * @param listener reçoit un EntityChangeEvent par écriture, id null quand toute la collection est touchée
+     */
+    void start(Consumer<EntityChangeEvent> listener);
+
+    /**
+     * Arrête la lecture, sans exception
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,49 @@
+package fr.semifir.apicinema.events;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Republie les écritures du ChangeFeed comme des EntityChangeEvent locaux : les caches findByID,
+ * le cache des réponses (CollectionVersions), les programmes et les plans des places sont invalidés
+ * par les mêmes listeners que pour une écriture faite par ce nœud. Les réservations (id = id de la
+ * séance) sont republiées en PlacesChangeEvent, comme celles de ReservationService.
+ * Démarré avec le contexte, une fois les listeners en place.
+ */
+public class ChangeFeedRelay implements SmartLifecycle {
+
+    private final ChangeFeed feed;
+    private final ApplicationEventPublisher publisher;
+    private volatile boolean running;
+
+    public ChangeFeedRelay(ChangeFeed feed, ApplicationEventPublisher publisher) {
+        this.feed = feed;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void start() {
+        this.feed.start(this::publish);
+        this.running = true;
+    }
+
+    private void publish(EntityChangeEvent event) {
+        if (!EntityChangeEvent.RESERVATIONS.equals(event.getCollection())) {
+            this.publisher.publishEvent(event);
+        } else if (event.getId() != null) {
+            // Sans id (collection supprimée) : la suppression des séances envoie déjà un reset
+            this.publisher.publishEvent(new PlacesChangeEvent(event.getId(), true));
+        }
+    }
+
+    @Override
+    public void stop() {
+        this.feed.close();
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+}
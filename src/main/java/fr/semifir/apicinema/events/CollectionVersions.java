@@ -0,0 +1,77 @@
+package fr.semifir.apicinema.events;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteur de modifications par collection, incrémenté à chaque EntityChangeEvent.
+ * Sert d'ETag / Last-Modified aux GET : tant que le compteur ne bouge pas,
+ * on répond 304 sans lire Mongo ni sérialiser.
+ * Les compteurs sont propres au nœud : l'ETag contient un identifiant de démarrage
+ * pour ne jamais valider un ETag émis par un autre nœud ou une exécution précédente.
+ */
+public class CollectionVersions {
+
+    private final String node = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onChange(EntityChangeEvent event) {
+        long now = System.currentTimeMillis();
+        this.version(event.getCollection()).changed(now);
+        event.dependents().forEach(dependent -> this.version(dependent).changed(now));
+    }
+
+    /**
+     * @param collection
+     * @return ETag faible de l'état courant de la collection
+     */
+    public String etag(String collection) {
+        return "W/\"" + this.node + "-" + this.version(collection).counter.get() + "\"";
+    }
+
+    /**
+     * @param collection
+     * @return date de la dernière modification connue, le démarrage du nœud à défaut
+     */
+    public long lastModified(String collection) {
+        return this.version(collection).lastModified;
+    }
+
+    /**
+     * Vérifie If-None-Match / If-Modified-Since et pose ETag / Last-Modified sur la réponse
+     * @param request
+     * @param collection
+     * @return true si le client est à jour : la réponse est déjà un 304, il ne reste rien à écrire
+     */
+    public boolean checkNotModified(WebRequest request, String collection) {
+        return request.checkNotModified(this.etag(collection), this.lastModified(collection));
+    }
+
+    private Version version(String collection) {
+        return this.versions.computeIfAbsent(collection, name -> new Version(this.startedAt));
+    }
+
+    private static class Version {
+        private final AtomicLong counter = new AtomicLong();
+        private volatile long lastModified;
+
+        Version(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        void changed(long now) {
+            this.lastModified = now;
+            this.counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fr.semifir.apicinema.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publié par les services après chaque écriture en base (save, saveAll, delete)
+ */
+@Data
+@AllArgsConstructor
+public class EntityChangeEvent {
+
+    public static final String CINEMAS = "cinemas";
+    public static final String SALLES = "salles";
+    public static final String SEANCES = "seances";
+    public static final String FILMS = "films";
+    // Seulement dans le ChangeFeed : republié en PlacesChangeEvent par ChangeFeedRelay
+    public static final String RESERVATIONS = "reservations";
+
+    // Les DTOs embarquent les entités référencées : une salle contient son cinéma, etc.
+    private static final Map<String, List<String>> DEPENDENTS = Map.of(
+            CINEMAS, List.of(SALLES, SEANCES, FILMS),
+            SALLES, List.of(SEANCES, FILMS),
+            SEANCES, List.of(FILMS),
+            FILMS, List.of()
+    );
+
+    /**
+     * Collection modifiée
+     */
+    private String collection;
+
+    /**
+     * Id du document modifié, null pour une écriture en masse
+     */
+    private String id;
+
+    /**
+     * Collections dont les DTOs embarquent des documents de la collection modifiée
+     * @return
+     */
+    public List<String> dependents() {
+        return DEPENDENTS.getOrDefault(this.collection, List.of());
+    }
+}
@@ -0,0 +1,33 @@
+package fr.semifir.apicinema.events;
+
+import java.util.function.Consumer;
+
+/**
+ * ChangeFeed sans Mongo : publish() simule une écriture faite par un autre nœud.
+ * Remplace le change stream dans les tests et sur un Mongo sans replica set.
+ */
+public class InMemoryChangeFeed implements ChangeFeed {
+
+    private volatile Consumer<EntityChangeEvent> listener;
+
+    @Override
+    public void start(Consumer<EntityChangeEvent> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Transmet l'événement au listener, dans le thread appelant ; ignoré avant start() ou après close()
+     * @param event
+     */
+    public void publish(EntityChangeEvent event) {
+        Consumer<EntityChangeEvent> current = this.listener;
+        if (current != null) {
+            current.accept(event);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.listener = null;
+    }
+}
@@ -0,0 +1,299 @@
+package fr.semifir.apicinema.events;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * ChangeFeed lu dans le change stream Mongo de la base (replica set ou cluster shardé requis).
+ * Le jeton de reprise est enregistré par nœud dans la collection des jetons, au plus toutes les
+ * tokenSaveInterval : après un redémarrage ou une coupure, la lecture reprend au dernier jeton enregistré
+ * et rejoue au pire quelques écritures déjà traitées, ce qui ne fait qu'invalider une deuxième fois.
+ * Quand le jeton n'est plus dans l'oplog, toutes les collections sont invalidées puis la lecture repart de maintenant.
+ */
+public class MongoChangeStream implements ChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoChangeStream.class);
+
+    // Attente maximale entre deux réouvertures, en multiples de retryDelay
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    // ChangeStreamFatalError, ChangeStreamHistoryLost : le jeton ne permet plus de reprendre
+    private static final Set<Integer> HISTORY_LOST = Set.of(280, 286);
+
+    private static final String ID = "_id";
+    private static final String TOKEN = "token";
+
+    private final MongoDatabase database;
+    private final Map<String, String> collections;
+    private final MongoCollection<BsonDocument> tokens;
+    private final String node;
+    private final long maxAwaitMillis;
+    private final long retryDelayMillis;
+    private final long tokenSaveIntervalNanos;
+    private volatile boolean closed;
+    private Thread reader;
+
+    // Propres au thread de lecture
+    private BsonDocument token;
+    private BsonDocument savedToken;
+    private long savedAt;
+    private int failures;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+
+    /**
+     * @param database base surveillée, qui contient aussi la collection des jetons
+     * @param collections nom Mongo des collections surveillées -> collection des EntityChangeEvent
+     * @param tokenCollection collection des jetons de reprise, un document par nœud
+     * @param node id du nœud, stable d'un redémarrage à l'autre
+     */
+    public MongoChangeStream(
+            MongoDatabase database,
+            Map<String, String> collections,
+            String tokenCollection,
+            String node,
+            long maxAwaitMillis,
+            long retryDelayMillis,
+            long tokenSaveIntervalNanos
+    ) {
+        this.database = database;
+        this.collections = collections;
+        this.tokens = database.getCollection(tokenCollection, BsonDocument.class);
+        this.node = node;
+        this.maxAwaitMillis = maxAwaitMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        this.tokenSaveIntervalNanos = tokenSaveIntervalNanos;
+    }
+
+    @Override
+    public synchronized void start(Consumer<EntityChangeEvent> listener) {
+        if (this.reader != null) {
+            return;
+        }
+        this.reader = new Thread(() -> this.run(listener), "change-stream-" + this.node);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Arrête la lecture et enregistre le dernier jeton traité
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        Thread current;
+        synchronized (this) {
+            current = this.reader;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join(this.maxAwaitMillis + 1000);
+            if (current.isAlive()) {
+                // En attente avant une réouverture
+                current.interrupt();
+                current.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getEvents() {
+        return this.events.sum();
+    }
+
+    public long getRestarts() {
+        return this.restarts.sum();
+    }
+
+    /**
+     * Événements à publier pour une écriture du change stream
+     * @param change
+     * @param collections nom Mongo des collections surveillées -> collection des EntityChangeEvent
+     * @return vide pour une collection non surveillée ; id null quand toute la collection est touchée
+     */
+    public static List<EntityChangeEvent> toEvents(ChangeStreamDocument<?> change, Map<String, String> collections) {
+        List<EntityChangeEvent> events = new ArrayList<>();
+        OperationType type = change.getOperationType();
+        if (type == OperationType.INVALIDATE || type == OperationType.DROP_DATABASE) {
+            collections.values().forEach(collection -> events.add(new EntityChangeEvent(collection, null)));
+            return events;
+        }
+        String collection = change.getNamespace() == null ? null : collections.get(change.getNamespace().getCollectionName());
+        if (collection == null) {
+            return events;
+        }
+        String id = null;
+        if (type == OperationType.INSERT || type == OperationType.UPDATE
+                || type == OperationType.REPLACE || type == OperationType.DELETE) {
+            id = id(change.getDocumentKey());
+        }
+        events.add(new EntityChangeEvent(collection, id));
+        return events;
+    }
+
+    private static String id(BsonDocument documentKey) {
+        BsonValue id = documentKey == null ? null : documentKey.get(ID);
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+
+    private void run(Consumer<EntityChangeEvent> listener) {
+        this.token = this.loadToken();
+        this.savedToken = this.token;
+        while (!this.closed) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = this.open()) {
+                this.failures = 0;
+                while (!this.closed) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        this.publish(change, listener);
+                    }
+                    // Avance aussi sans écriture, pour ne pas relire l'oplog depuis le dernier événement
+                    BsonDocument resumeToken = cursor.getResumeToken();
+                    if (resumeToken != null) {
+                        this.token = resumeToken;
+                    }
+                    this.saveToken(false);
+                    if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                        break;
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (HISTORY_LOST.contains(e.getErrorCode())) {
+                    LOGGER.warn("Jeton de reprise du change stream perdu, invalidation de toutes les collections", e);
+                    this.token = null;
+                    this.publishAll(listener);
+                }
+                this.retry(e);
+            } catch (MongoException e) {
+                this.retry(e);
+            }
+        }
+        // Interruption de close() : le dernier jeton est tout de même enregistré
+        Thread.interrupted();
+        this.saveToken(true);
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.or(
+                        Filters.in("ns.coll", new ArrayList<>(this.collections.keySet())),
+                        Filters.in("operationType", "dropDatabase", "invalidate")
+                )),
+                // Sans fullDocument : seuls l'id et le type d'écriture servent à invalider
+                Aggregates.project(Projections.include("operationType", "ns", "documentKey"))
+        );
+        ChangeStreamIterable<Document> stream = this.database.watch(pipeline).maxAwaitTime(this.maxAwaitMillis, TimeUnit.MILLISECONDS);
+        // startAfter, contrairement à resumeAfter, accepte le jeton d'un événement invalidate
+        return (this.token == null ? stream : stream.startAfter(this.token)).cursor();
+    }
+
+    private void publish(ChangeStreamDocument<Document> change, Consumer<EntityChangeEvent> listener) {
+        for (EntityChangeEvent event : toEvents(change, this.collections)) {
+            this.events.increment();
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                // Rejouer l'événement n'y changerait rien, on passe au suivant
+                LOGGER.warn("Échec de l'invalidation pour {}", event, e);
+            }
+        }
+    }
+
+    private void publishAll(Consumer<EntityChangeEvent> listener) {
+        this.collections.values().forEach(collection -> {
+            try {
+                listener.accept(new EntityChangeEvent(collection, null));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Échec de l'invalidation de {}", collection, e);
+            }
+        });
+    }
+
+    private void retry(MongoException e) {
+        if (this.closed) {
+            return;
+        }
+        this.restarts.increment();
+        // Un Mongo sans change stream (standalone) échoue à chaque ouverture : l'attente double jusqu'à 64 retryDelay
+        long delay = this.retryDelayMillis << Math.min(this.failures++, MAX_BACKOFF_SHIFT);
+        LOGGER.warn("Change stream interrompu, reprise dans {} ms", delay, e);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            this.closed = true;
+        }
+    }
+
+    private BsonDocument loadToken() {
+        try {
+            BsonDocument saved = this.tokens.find(Filters.eq(ID, this.node)).first();
+            return saved == null || !saved.isDocument(TOKEN) ? null : saved.getDocument(TOKEN);
+        } catch (MongoException e) {
+            LOGGER.warn("Lecture du jeton de reprise impossible, lecture depuis maintenant", e);
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre le jeton s'il a changé, au plus toutes les tokenSaveInterval sauf si force
+     */
+    private void saveToken(boolean force) {
+        if (this.token == null || this.token.equals(this.savedToken)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!force && this.savedToken != null && now - this.savedAt < this.tokenSaveIntervalNanos) {
+            return;
+        }
+        try {
+            this.tokens.replaceOne(
+                    Filters.eq(ID, this.node),
+                    new BsonDocument(ID, new BsonString(this.node))
+                            .append(TOKEN, this.token)
+                            .append("savedAt", new BsonDateTime(System.currentTimeMillis())),
+                    new ReplaceOptions().upsert(true)
+            );
+            this.savedToken = this.token;
+            this.savedAt = now;
+        } catch (MongoException e) {
+            LOGGER.warn("Enregistrement du jeton de reprise impossible", e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package fr.semifir.apicinema.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Publié par ReservationService quand des places d'une séance sont bloquées, vendues ou libérées,
+ * et par ChangeFeedRelay pour les écritures de tous les nœuds
+ */
+@Data
+@AllArgsConstructor
+public class PlacesChangeEvent {
+
+    private String seanceId;
+
+    /**
+     * Lu dans le ChangeFeed : l'écriture peut venir d'un autre nœud
+     */
+    private boolean fromChangeFeed;
+
+    public PlacesChangeEvent(String seanceId) {
+        this(seanceId, false);
+    }
+}
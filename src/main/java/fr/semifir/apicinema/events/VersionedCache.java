@@ -0,0 +1,110 @@
+package fr.semifir.apicinema.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache findByID qui ne garde jamais un document lu avant une écriture :
+ * chaque chargement est estampillé avec la version du cache lue avant la lecture Mongo,
+ * et n'est pas gardé si une invalidation (CacheInvalidationListener) est passée entre-temps.
+ * Sans cela, une lecture commencée avant un save remettait l'ancien DTO juste après l'évincement,
+ * jusqu'à la fin du ttl, et le cache des réponses le servait sous le nouvel ETag.
+ * Les lectures Mongo se font hors des verrous de Caffeine ; deux lectures simultanées d'un même id
+ * vont toutes les deux en base.
+ */
+public class VersionedCache extends CaffeineCache {
+
+    // Incrémentée avant chaque invalidation
+    private final AtomicLong version = new AtomicLong();
+    // Version du dernier clear : les entrées plus anciennes sont ignorées
+    private volatile long clearedAt;
+
+    public VersionedCache(String name, Cache<Object, Object> cache) {
+        super(name, cache);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object stored = this.lookup(key);
+        if (stored != null) {
+            return (T) this.fromStoreValue(stored);
+        }
+        long stamp = this.version.get();
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        this.put(key, value, stamp);
+        return value;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Stamped stamped = (Stamped) this.getNativeCache().getIfPresent(key);
+        return stamped != null && stamped.stamp >= this.clearedAt ? stamped.value : null;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        this.put(key, value, this.version.get());
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Stamped stamped = new Stamped(this.version.get(), this.toStoreValue(value));
+        Stamped existing = (Stamped) this.getNativeCache().asMap().merge(key, stamped,
+                (current, loaded) -> ((Stamped) current).stamp >= this.clearedAt ? current : loaded);
+        return existing == stamped ? null : this.toValueWrapper(existing.value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        this.version.incrementAndGet();
+        this.getNativeCache().invalidate(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        this.version.incrementAndGet();
+        return this.getNativeCache().asMap().remove(key) != null;
+    }
+
+    @Override
+    public void clear() {
+        this.clearedAt = this.version.incrementAndGet();
+        this.getNativeCache().invalidateAll();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean notEmpty = !this.getNativeCache().asMap().isEmpty();
+        this.clear();
+        return notEmpty;
+    }
+
+    /**
+     * Garde la valeur seulement si aucune invalidation n'a eu lieu depuis stamp.
+     * La vérification et l'écriture se font sous le verrou de la clé, que prend aussi evict :
+     * une invalidation passe soit avant (la valeur est refusée), soit après (elle la retire)
+     */
+    private void put(Object key, Object value, long stamp) {
+        Stamped stamped = new Stamped(stamp, this.toStoreValue(value));
+        this.getNativeCache().asMap().compute(key, (k, current) -> this.version.get() == stamp ? stamped : current);
+    }
+
+    private static class Stamped {
+        private final long stamp;
+        private final Object value;
+
+        Stamped(long stamp, Object value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package fr.semifir.apicinema.exceptions;
+
+public class ScheduleLoadingException extends RuntimeException{
+    public ScheduleLoadingException() {
+    }
+
+    public ScheduleLoadingException(String message) {
+        super(message);
+    }
+}
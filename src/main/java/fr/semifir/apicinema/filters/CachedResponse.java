@@ -0,0 +1,21 @@
+package fr.semifir.apicinema.filters;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Réponse JSON gardée telle qu'elle a été écrite, avec l'ETag de la collection au moment de la lecture
+ */
+@Getter
+@AllArgsConstructor
+public class CachedResponse {
+    private final String etag;
+    private final String contentType;
+    private final byte[] body;
+    // null si la compression est désactivée
+    private final byte[] gzip;
+
+    public int weight() {
+        return this.body.length + (this.gzip == null ? 0 : this.gzip.length);
+    }
+}
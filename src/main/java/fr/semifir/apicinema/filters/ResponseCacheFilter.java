@@ -0,0 +1,167 @@
+package fr.semifir.apicinema.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sert les GET de liste et par id des quatre ressources depuis les octets JSON déjà écrits
+ * par une requête précédente, sans repasser par Mongo, le mapping ni Jackson.
+ * Une entrée n'est servie que si l'ETag de sa collection n'a pas changé depuis sa lecture :
+ * toute écriture d'un service la rend obsolète.
+ * La clé contient l'en-tête Accept, pour ne pas servir du JSON à un client qui demande du NDJSON.
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final List<String> COLLECTIONS = List.of(
+            EntityChangeEvent.CINEMAS,
+            EntityChangeEvent.SALLES,
+            EntityChangeEvent.SEANCES,
+            EntityChangeEvent.FILMS
+    );
+
+    private final Cache<String, CachedResponse> cache;
+    private final CollectionVersions versions;
+    private final int maxEntrySize;
+    private final boolean gzip;
+
+    public ResponseCacheFilter(Cache<String, CachedResponse> cache, CollectionVersions versions, int maxEntrySize, boolean gzip) {
+        this.cache = cache;
+        this.versions = versions;
+        this.maxEntrySize = maxEntrySize;
+        this.gzip = gzip;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String collection = this.collection(request);
+        if (collection == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = key(request);
+        // Lu avant le traitement : une écriture pendant la requête rend l'entrée obsolète d'emblée
+        String etag = this.versions.etag(collection);
+        CachedResponse cached = this.cache.getIfPresent(key);
+        if (cached != null && cached.getEtag().equals(etag)) {
+            if (!this.versions.checkNotModified(new ServletWebRequest(request, response), collection)) {
+                this.write(cached, request, response);
+            }
+            return;
+        }
+        TeeResponseWrapper tee = new TeeResponseWrapper(response, this.maxEntrySize);
+        chain.doFilter(request, tee);
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    store(key, etag, tee);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            this.store(key, etag, tee);
+        }
+    }
+
+    /**
+     * Collection d'un GET /{collection}, /{collection}/page, /{collection}/search ou /{collection}/{id},
+     * null pour toute autre requête
+     */
+    private String collection(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        // Un flux SSE ne se termine pas : rien à garder
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            return null;
+        }
+        String[] segments = request.getRequestURI().substring(request.getContextPath().length()).split("/");
+        if (segments.length < 2 || segments.length > 3 || !segments[0].isEmpty()) {
+            return null;
+        }
+        return COLLECTIONS.contains(segments[1]) ? segments[1] : null;
+    }
+
+    private static String key(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getHeader(HttpHeaders.ACCEPT) + " " + request.getRequestURI() + (query == null ? "" : "?" + query);
+    }
+
+    private void store(String key, String etag, TeeResponseWrapper response) {
+        if (response.getStatus() != HttpStatus.OK.value() || response.getContentType() == null) {
+            return;
+        }
+        if (!MediaType.parseMediaType(response.getContentType()).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            return;
+        }
+        // Réponse qui dépend d'autre chose que la collection (l'heure pour /seances/upcoming)
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.contains("no-store")) {
+            return;
+        }
+        byte[] body = response.body();
+        if (body != null) {
+            this.cache.put(key, new CachedResponse(etag, response.getContentType(), body, this.gzip ? gzip(body) : null));
+        }
+    }
+
+    /**
+     * Écrit le corps gardé tel quel, compressé si le client l'accepte
+     */
+    private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = cached.getBody();
+        if (cached.getGzip() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.getGzip();
+            }
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.getContentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,113 @@
+package fr.semifir.apicinema.filters;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Écrit le corps directement dans la réponse et en garde une copie, jusqu'à limit octets.
+ * La réponse n'est pas retardée, ce qui fonctionne aussi quand elle se termine en asynchrone.
+ */
+class TeeResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    private final int limit;
+    private ServletOutputStream output;
+    // Passe à false si la copie est incomplète : corps trop gros ou écrit par getWriter
+    private boolean complete = true;
+
+    TeeResponseWrapper(HttpServletResponse response, int limit) {
+        super(response);
+        this.limit = limit;
+    }
+
+    /**
+     * @return le corps écrit, null si la copie est incomplète
+     */
+    byte[] body() {
+        return this.complete ? this.copy.toByteArray() : null;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (this.output == null) {
+            this.output = new TeeOutputStream(super.getOutputStream());
+        }
+        return this.output;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        this.complete = false;
+        return super.getWriter();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.copy.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        this.copy.reset();
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        if (!this.complete) {
+            return;
+        }
+        if (this.copy.size() + length > this.limit) {
+            this.complete = false;
+            this.copy.reset();
+            return;
+        }
+        this.copy.write(bytes, offset, length);
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.delegate.write(b);
+            capture(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            this.delegate.write(bytes, offset, length);
+            capture(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return this.delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            this.delegate.setWriteListener(listener);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package fr.semifir.apicinema.handlers;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.services.reactive.ReactiveCinemaService;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+public class CinemaHandler implements ResourceHandler {
+
+    ReactiveCinemaService service;
+
+    public CinemaHandler(ReactiveCinemaService service) {
+        this.service = service;
+    }
+
+    @Override
+    public Mono<ServerResponse> findAll(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(this.service.findAll(), CinemaDTO.class);
+    }
+
+    /**
+     * Un document JSON par ligne, écrit dès qu'il est lu : le débit suit celui du client
+     */
+    @Override
+    public Mono<ServerResponse> streamAll(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(this.service.findAll(), CinemaDTO.class);
+    }
+
+    @Override
+    public Mono<ServerResponse> findById(ServerRequest request) {
+        return this.service.findByID(request.pathVariable("id"))
+                .flatMap(dto -> ServerResponse.ok().bodyValue(dto))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    @Override
+    public Mono<ServerResponse> save(ServerRequest request) {
+        return request.bodyToMono(Cinema.class)
+                .flatMap(this.service::save)
+                .flatMap(dto -> ServerResponse.ok().bodyValue(dto));
+    }
+
+    @Override
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return request.bodyToMono(Cinema.class)
+                .flatMap(this.service::delete)
+                .then(ServerResponse.ok().bodyValue(true));
+    }
+}
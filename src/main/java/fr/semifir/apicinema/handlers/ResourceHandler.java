@@ -0,0 +1,21 @@
+package fr.semifir.apicinema.handlers;
+
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Handlers WebFlux d'une ressource, mêmes opérations que les contrôleurs MVC
+ */
+public interface ResourceHandler {
+
+    Mono<ServerResponse> findAll(ServerRequest request);
+
+    Mono<ServerResponse> streamAll(ServerRequest request);
+
+    Mono<ServerResponse> findById(ServerRequest request);
+
+    Mono<ServerResponse> save(ServerRequest request);
+
+    Mono<ServerResponse> delete(ServerRequest request);
+}
@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.mappers;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.entities.Cinema;
+
+public class CinemaMapper implements DtoMapper<Cinema, CinemaDTO> {
+
+    @Override
+    public CinemaDTO map(Cinema cinema) {
+        if (cinema == null) {
+            return null;
+        }
+        return new CinemaDTO(cinema.getId(), cinema.getNom());
+    }
+}
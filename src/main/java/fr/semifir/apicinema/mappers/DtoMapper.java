@@ -0,0 +1,11 @@
+package fr.semifir.apicinema.mappers;
+
+/**
+ * Transforme une entité en son DTO
+ * @param <E> entité
+ * @param <D> DTO
+ */
+public interface DtoMapper<E, D> {
+
+    D map(E entity);
+}
@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.mappers;
+
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.entities.Film;
+
+public class FilmMapper implements DtoMapper<Film, FilmDTO> {
+
+    @Override
+    public FilmDTO map(Film film) {
+        if (film == null) {
+            return null;
+        }
+        return new FilmDTO(film.getId(), film.getNom(), film.getDuree(), film.getSeance());
+    }
+}
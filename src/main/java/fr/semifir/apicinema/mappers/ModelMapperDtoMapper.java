@@ -0,0 +1,23 @@
+package fr.semifir.apicinema.mappers;
+
+import org.modelmapper.ModelMapper;
+
+/**
+ * Mapping par réflexion avec ModelMapper, gardé en repli
+ * (apicinema.mapping.strategy=modelmapper)
+ */
+public class ModelMapperDtoMapper<E, D> implements DtoMapper<E, D> {
+
+    private final ModelMapper mapper;
+    private final Class<D> dtoClass;
+
+    public ModelMapperDtoMapper(ModelMapper mapper, Class<D> dtoClass) {
+        this.mapper = mapper;
+        this.dtoClass = dtoClass;
+    }
+
+    @Override
+    public D map(E entity) {
+        return this.mapper.map(entity, this.dtoClass);
+    }
+}
@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.mappers;
+
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.entities.Salle;
+
+public class SalleMapper implements DtoMapper<Salle, SalleDTO> {
+
+    @Override
+    public SalleDTO map(Salle salle) {
+        if (salle == null) {
+            return null;
+        }
+        return new SalleDTO(salle.getId(), salle.getNumDeSalle(), salle.getNbrPlace(), salle.getCinema());
+    }
+}
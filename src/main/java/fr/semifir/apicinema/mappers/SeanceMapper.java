@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.mappers;
+
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Seance;
+
+public class SeanceMapper implements DtoMapper<Seance, SeanceDTO> {
+
+    @Override
+    public SeanceDTO map(Seance seance) {
+        if (seance == null) {
+            return null;
+        }
+        return new SeanceDTO(seance.getId(), seance.getDate(), seance.getSalle());
+    }
+}
@@ -0,0 +1,97 @@
+package fr.semifir.apicinema.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Compte les documents renvoyés par chaque méthode de repository (résumé apicinema.repository.documents,
+ * tags repository, method). La durée, le nombre d'appels et les erreurs sont déjà mesurés par
+ * Spring Boot (spring.data.repository.invocations) ; seules les listes, pages, Optional et entités
+ * sont comptées, les flux réactifs et les méthodes à Consumer ne le sont pas.
+ */
+public class RepositoryDocumentsPostProcessor implements BeanPostProcessor {
+
+    public static final String METRIC = "apicinema.repository.documents";
+
+    private final Supplier<MeterRegistry> registry;
+
+    public RepositoryDocumentsPostProcessor(Supplier<MeterRegistry> registry) {
+        this.registry = SingletonSupplier.of(registry);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                            proxyFactory.addAdvice(new DocumentsInterceptor(this.registry, information))
+                    )
+            );
+        }
+        return bean;
+    }
+
+    private static class DocumentsInterceptor implements MethodInterceptor {
+
+        private final Supplier<MeterRegistry> registry;
+        private final RepositoryInformation information;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        DocumentsInterceptor(Supplier<MeterRegistry> registry, RepositoryInformation information) {
+            this.registry = registry;
+            this.information = information;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            long documents = this.documents(result);
+            if (documents >= 0) {
+                this.summary(invocation.getMethod()).record(documents);
+            }
+            return result;
+        }
+
+        /**
+         * @return le nombre de documents du résultat, -1 s'il ne contient pas d'entités
+         */
+        private long documents(Object result) {
+            if (result instanceof Slice) {
+                return ((Slice<?>) result).getNumberOfElements();
+            }
+            if (result instanceof Collection) {
+                return ((Collection<?>) result).size();
+            }
+            if (result instanceof Optional) {
+                return ((Optional<?>) result).isPresent() ? 1 : 0;
+            }
+            return this.information.getDomainType().isInstance(result) ? 1 : -1;
+        }
+
+        private DistributionSummary summary(Method method) {
+            DistributionSummary summary = this.summaries.get(method);
+            if (summary != null) {
+                return summary;
+            }
+            return this.summaries.computeIfAbsent(method, key -> DistributionSummary.builder(METRIC)
+                    .baseUnit("documents")
+                    .tag("repository", this.information.getRepositoryInterface().getSimpleName())
+                    .tag("method", key.getName())
+                    .register(this.registry.get()));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package fr.semifir.apicinema.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Chronomètre chaque méthode publique des services listés (timer apicinema.service.calls,
+ * tags service, method, exception). L'intercepteur rejoint le proxy déjà posé par @Cacheable
+ * quand il existe, et garde un Timer par méthode pour ne pas le rechercher à chaque appel.
+ */
+public class ServiceTimingPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public static final String METRIC = "apicinema.service.calls";
+
+    public ServiceTimingPostProcessor(List<Class<?>> services, Supplier<MeterRegistry> registry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && services.contains(method.getDeclaringClass());
+            }
+        };
+        pointcut.setClassFilter(services::contains);
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(registry));
+        this.setBeforeExistingAdvisors(true);
+        this.setProxyTargetClass(true);
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+
+        private static final String NONE = "none";
+
+        private final Supplier<MeterRegistry> registry;
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(Supplier<MeterRegistry> registry) {
+            this.registry = SingletonSupplier.of(registry);
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                this.timer(invocation.getMethod()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                this.timer(invocation.getMethod(), e.getClass().getSimpleName())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer timer(Method method) {
+            Timer timer = this.timers.get(method);
+            return timer != null ? timer : this.timers.computeIfAbsent(method, key -> this.timer(key, NONE));
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder(METRIC)
+                    .tag("service", method.getDeclaringClass().getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(this.registry.get());
+        }
+    }
+}
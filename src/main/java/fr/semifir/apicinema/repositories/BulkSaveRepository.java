@@ -0,0 +1,18 @@
+package fr.semifir.apicinema.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écriture groupée (bulk write non ordonné) commune à tous les repositories
+ */
+public interface BulkSaveRepository<T> {
+
+    /**
+     * Insère les entités sans id (l'id est généré et renseigné sur l'entité)
+     * et remplace ou crée celles qui en ont un, en un seul aller-retour
+     * @param entities
+     * @return les erreurs par position dans la liste, vide si tout est écrit
+     */
+    Map<Integer, String> bulkSave(List<T> entities);
+}
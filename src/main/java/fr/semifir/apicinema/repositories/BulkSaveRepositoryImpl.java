@@ -0,0 +1,61 @@
+package fr.semifir.apicinema.repositories;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BulkSaveRepositoryImpl<T> implements BulkSaveRepository<T> {
+
+    private final MongoOperations template;
+
+    public BulkSaveRepositoryImpl(MongoOperations template) {
+        this.template = template;
+    }
+
+    @Override
+    public Map<Integer, String> bulkSave(List<T> entities) {
+        if (entities.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Class<?> type = entities.get(0).getClass();
+        MongoPersistentEntity<?> persistentEntity = this.template.getConverter()
+                .getMappingContext()
+                .getRequiredPersistentEntity(type);
+        MongoPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        BulkOperations bulk = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        for (T entity : entities) {
+            PersistentPropertyAccessor<T> accessor = persistentEntity.getPropertyAccessor(entity);
+            Object id = accessor.getProperty(idProperty);
+            if (id == null) {
+                accessor.setProperty(idProperty, new ObjectId().toHexString());
+                bulk.insert(entity);
+            } else {
+                bulk.replaceOne(
+                        Query.query(Criteria.where("_id").is(id)),
+                        entity,
+                        FindAndReplaceOptions.options().upsert()
+                );
+            }
+        }
+        try {
+            bulk.execute();
+            return Collections.emptyMap();
+        } catch (BulkOperationException e) {
+            Map<Integer, String> errors = new HashMap<>();
+            e.getErrors().forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Reservation;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Supprime un document et tout ce qui le référence (cinema -> salles -> seances -> films,
+ * plus l'état des places des séances) avec un deleteMany par collection, au lieu d'un delete par document.
+ * Les ids de chaque niveau sont lus d'abord, puis les niveaux sont supprimés en partant des feuilles :
+ * une suppression interrompue laisse le parent en place, jamais de DBRef orphelin, et se termine en la rejouant.
+ */
+public class CascadeDeleter {
+
+    private static final String ID = "_id";
+
+    // Chaîne des références, chaque entité pointe vers la précédente par le champ donné
+    private static final List<Class<?>> CHAIN = List.of(Cinema.class, Salle.class, Seance.class, Film.class);
+    private static final Map<Class<?>, String> PARENT = Map.of(
+            Salle.class, "cinema",
+            Seance.class, "salle",
+            Film.class, "seance"
+    );
+
+    private final MongoOperations template;
+
+    public CascadeDeleter(MongoOperations template) {
+        this.template = template;
+    }
+
+    /**
+     * @param root entité supprimée (Cinema, Salle, Seance ou Film)
+     * @param id
+     * @return documents supprimés par collection, en partant de root ; vide si le document n'existe pas
+     */
+    public Map<String, Long> delete(Class<?> root, String id) {
+        Object rootId = this.template.getConverter().convertId(id, ObjectId.class);
+        if (!this.template.exists(Query.query(Criteria.where(ID).is(rootId)), this.collection(root))) {
+            return Collections.emptyMap();
+        }
+        List<Class<?>> levels = CHAIN.subList(CHAIN.indexOf(root), CHAIN.size());
+        // Ids de chaque niveau qui a des enfants ; le dernier est supprimé par sa référence au parent
+        List<List<Object>> ids = new ArrayList<>();
+        ids.add(List.of(rootId));
+        for (int level = 1; level < levels.size() - 1; level++) {
+            ids.add(this.referencing(levels.get(level), ids.get(level - 1)));
+        }
+        Map<String, Long> deleted = new LinkedHashMap<>();
+        for (int level = levels.size() - 1; level >= 0; level--) {
+            Class<?> type = levels.get(level);
+            if (type == Seance.class) {
+                // L'état des places a l'id de sa séance
+                deleted.put(this.collection(Reservation.class), this.deleteMany(ID, ids.get(level), Reservation.class));
+            }
+            deleted.put(this.collection(type), level < ids.size()
+                    ? this.deleteMany(ID, ids.get(level), type)
+                    : this.deleteMany(PARENT.get(type) + ".$id", ids.get(level - 1), type));
+        }
+        // Du document supprimé vers ses dépendants
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        List<String> collections = new ArrayList<>(deleted.keySet());
+        Collections.reverse(collections);
+        collections.forEach(collection -> ordered.put(collection, deleted.get(collection)));
+        return ordered;
+    }
+
+    /**
+     * Ids des documents de type qui référencent un des parents
+     */
+    private List<Object> referencing(Class<?> type, List<Object> parentIds) {
+        if (parentIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Query query = Query.query(Criteria.where(PARENT.get(type) + ".$id").in(parentIds));
+        query.fields().include(ID);
+        List<Object> ids = new ArrayList<>();
+        this.template.find(query, Document.class, this.collection(type)).forEach(document -> ids.add(document.get(ID)));
+        return ids;
+    }
+
+    /**
+     * Un deleteMany des documents dont le champ vaut une des valeurs, sans passer par le mapping de l'entité
+     */
+    private long deleteMany(String field, List<Object> values, Class<?> type) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        return this.template.remove(Query.query(Criteria.where(field).in(values)), this.collection(type)).getDeletedCount();
+    }
+
+    private String collection(Class<?> type) {
+        return this.template.getCollectionName(type);
+    }
+}
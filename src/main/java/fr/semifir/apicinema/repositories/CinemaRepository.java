@@ -1,6 +1,14 @@
 package fr.semifir.apicinema.repositories;
 
 import fr.semifir.apicinema.entities.Cinema;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CinemaRepository extends MongoRepository<Cinema, String> { }
+import java.util.List;
+
+public interface CinemaRepository extends MongoRepository<Cinema, String>, CinemaRepositoryCustom, BulkSaveRepository<Cinema>, ProjectionRepository<Cinema> {
+
+    List<Cinema> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Cinema> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+}
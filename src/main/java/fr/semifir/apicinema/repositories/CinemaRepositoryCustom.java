@@ -0,0 +1,13 @@
+package fr.semifir.apicinema.repositories;
+
+import java.util.Map;
+
+public interface CinemaRepositoryCustom {
+
+    /**
+     * Supprime le cinéma, ses salles, leurs séances et leurs films, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection, vide si le cinéma n'existe pas
+     */
+    Map<String, Long> deleteCascade(String id);
+}
@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Cinema;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.Map;
+
+public class CinemaRepositoryCustomImpl implements CinemaRepositoryCustom {
+
+    private final CascadeDeleter deleter;
+
+    public CinemaRepositoryCustomImpl(MongoOperations template) {
+        this.deleter = new CascadeDeleter(template);
+    }
+
+    @Override
+    public Map<String, Long> deleteCascade(String id) {
+        return this.deleter.delete(Cinema.class, id);
+    }
+}
@@ -0,0 +1,34 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Film;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lectures des films avec séance, salle et cinéma résolus par lots (nombre de requêtes constant)
+ */
+public interface FilmRepositoryCustom {
+
+    List<Film> findAllResolved();
+
+    List<Film> findPageResolved(String after, int limit);
+
+    void forEachResolved(int batchSize, Consumer<Film> consumer);
+
+    /**
+     * Films projetés dans les séances données
+     * @param seanceIds
+     * @return
+     */
+    List<Film> findBySeancesResolved(Collection<String> seanceIds);
+
+    /**
+     * Supprime le film (rien ne le référence)
+     * @param id
+     * @return documents supprimés par collection, vide si le film n'existe pas
+     */
+    Map<String, Long> deleteCascade(String id);
+}
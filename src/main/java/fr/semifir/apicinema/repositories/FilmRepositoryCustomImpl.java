@@ -0,0 +1,55 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Film;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class FilmRepositoryCustomImpl implements FilmRepositoryCustom {
+
+    private final ReferenceBatchLoader loader;
+    private final CascadeDeleter deleter;
+
+    public FilmRepositoryCustomImpl(MongoOperations template) {
+        this.loader = new ReferenceBatchLoader(template);
+        this.deleter = new CascadeDeleter(template);
+    }
+
+    @Override
+    public List<Film> findAllResolved() {
+        return this.loader.films(this.loader.findDocuments(new Query(), Film.class));
+    }
+
+    @Override
+    public List<Film> findPageResolved(String after, int limit) {
+        return this.loader.films(this.loader.findDocuments(this.loader.pageQuery(after, limit), Film.class));
+    }
+
+    @Override
+    public void forEachResolved(int batchSize, Consumer<Film> consumer) {
+        this.loader.forEachBatch(Film.class, batchSize, documents -> this.loader.films(documents).forEach(consumer));
+    }
+
+    @Override
+    public List<Film> findBySeancesResolved(Collection<String> seanceIds) {
+        if (seanceIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> ids = new ArrayList<>(seanceIds.size());
+        seanceIds.forEach(id -> ids.add(this.loader.convertId(id)));
+        Query query = Query.query(Criteria.where("seance.$id").in(ids));
+        return this.loader.films(this.loader.findDocuments(query, Film.class));
+    }
+
+    @Override
+    public Map<String, Long> deleteCascade(String id) {
+        return this.deleter.delete(Film.class, id);
+    }
+}
@@ -0,0 +1,21 @@
+package fr.semifir.apicinema.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lectures partielles communes à tous les repositories : seuls les champs demandés sont lus,
+ * les références (@DBRef) ne sont pas résolues et ne portent que leur id
+ */
+public interface ProjectionRepository<T> {
+
+    /**
+     * Lit une page d'entités triées par id, réduites aux propriétés demandées (et l'id)
+     * @param type classe de l'entité
+     * @param properties noms des propriétés de l'entité à lire
+     * @param after id du dernier élément de la page précédente, null pour commencer au début
+     * @param limit 0 pour tout lire
+     * @return
+     */
+    List<T> findProjected(Class<T> type, Collection<String> properties, String after, int limit);
+}
@@ -0,0 +1,75 @@
+package fr.semifir.apicinema.repositories;
+
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ProjectionRepositoryImpl<T> implements ProjectionRepository<T> {
+
+    private final MongoOperations template;
+    private final MongoConverter converter;
+    private final ReferenceBatchLoader loader;
+
+    public ProjectionRepositoryImpl(MongoOperations template) {
+        this.template = template;
+        this.converter = template.getConverter();
+        this.loader = new ReferenceBatchLoader(template);
+    }
+
+    @Override
+    public List<T> findProjected(Class<T> type, Collection<String> properties, String after, int limit) {
+        MongoPersistentEntity<?> entity = this.converter.getMappingContext().getRequiredPersistentEntity(type);
+        Query query = this.loader.pageQuery(after, limit);
+        // Sans champ inclus, Mongo renverrait le document entier
+        query.fields().include(entity.getRequiredIdProperty().getFieldName());
+        properties.forEach(property -> query.fields().include(entity.getRequiredPersistentProperty(property).getFieldName()));
+        List<T> entities = new ArrayList<>();
+        for (Document document : this.loader.findDocuments(query, type)) {
+            entities.add(this.read(entity, type, document));
+        }
+        return entities;
+    }
+
+    /**
+     * Convertit le document sans ses DBRef, pour que le converter ne les résolve pas,
+     * puis pose à leur place une entité ne portant que l'id référencé
+     */
+    private T read(MongoPersistentEntity<?> entity, Class<T> type, Document document) {
+        Document copy = new Document(document);
+        List<MongoPersistentProperty> references = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        for (MongoPersistentProperty property : entity) {
+            if (property.isDbReference() && copy.get(property.getFieldName()) instanceof DBRef) {
+                references.add(property);
+                ids.add(((DBRef) copy.remove(property.getFieldName())).getId());
+            }
+        }
+        T result = this.converter.read(type, copy);
+        PersistentPropertyAccessor<T> accessor = entity.getPropertyAccessor(result);
+        for (int i = 0; i < references.size(); i++) {
+            accessor.setProperty(references.get(i), this.reference(references.get(i).getType(), ids.get(i)));
+        }
+        return accessor.getBean();
+    }
+
+    private Object reference(Class<?> type, Object id) {
+        MongoPersistentEntity<?> entity = this.converter.getMappingContext().getRequiredPersistentEntity(type);
+        MongoPersistentProperty idProperty = entity.getRequiredIdProperty();
+        Object reference = BeanUtils.instantiateClass(type);
+        entity.getPropertyAccessor(reference).setProperty(
+                idProperty,
+                this.converter.getConversionService().convert(id, idProperty.getType())
+        );
+        return reference;
+    }
+}
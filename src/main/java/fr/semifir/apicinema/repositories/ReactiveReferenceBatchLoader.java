@@ -0,0 +1,114 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Équivalent réactif de ReferenceBatchLoader : le driver réactif ne résout pas les @DBRef,
+ * on les résout donc par lots de batchSize documents, une requête $in par niveau.
+ * Les lots sont demandés au fil de la consommation, la backpressure remonte jusqu'au curseur Mongo.
+ */
+public class ReactiveReferenceBatchLoader {
+
+    private static final String ID = "_id";
+
+    private final ReactiveMongoOperations template;
+    private final MongoConverter converter;
+
+    public ReactiveReferenceBatchLoader(ReactiveMongoOperations template) {
+        this.template = template;
+        this.converter = template.getConverter();
+    }
+
+    /**
+     * Requête d'un document par son id
+     * @param id
+     * @return
+     */
+    public Query byIdQuery(String id) {
+        return Query.query(Criteria.where(ID).is(this.converter.convertId(id, ObjectId.class)));
+    }
+
+    /**
+     * Lit des documents bruts d'une collection
+     * @param query
+     * @param entityClass classe de l'entité dont on lit la collection
+     * @return
+     */
+    public Flux<Document> findDocuments(Query query, Class<?> entityClass) {
+        return this.template.find(query, Document.class, this.template.getCollectionName(entityClass));
+    }
+
+    public Flux<Film> films(Flux<Document> documents, int batchSize) {
+        return documents.buffer(batchSize).concatMap(this::films).flatMapIterable(films -> films);
+    }
+
+    public Flux<Seance> seances(Flux<Document> documents, int batchSize) {
+        return documents.buffer(batchSize).concatMap(this::seances).flatMapIterable(seances -> seances);
+    }
+
+    public Flux<Salle> salles(Flux<Document> documents, int batchSize) {
+        return documents.buffer(batchSize).concatMap(this::salles).flatMapIterable(salles -> salles);
+    }
+
+    private Mono<List<Film>> films(List<Document> documents) {
+        return this.seancesById(ReferenceBatchLoader.referencedIds(documents, "seance")).map(seances ->
+                ReferenceBatchLoader.read(this.converter, documents, Film.class, "seance", seances, Film::setSeance)
+        );
+    }
+
+    private Mono<List<Seance>> seances(List<Document> documents) {
+        return this.sallesById(ReferenceBatchLoader.referencedIds(documents, "salle")).map(salles ->
+                ReferenceBatchLoader.read(this.converter, documents, Seance.class, "salle", salles, Seance::setSalle)
+        );
+    }
+
+    private Mono<List<Salle>> salles(List<Document> documents) {
+        return this.cinemasById(ReferenceBatchLoader.referencedIds(documents, "cinema")).map(cinemas ->
+                ReferenceBatchLoader.read(this.converter, documents, Salle.class, "cinema", cinemas, Salle::setCinema)
+        );
+    }
+
+    private Mono<Map<Object, Seance>> seancesById(Set<Object> ids) {
+        return this.findByIds(ids, Seance.class).flatMap(documents ->
+                this.seances(documents).map(seances -> ReferenceBatchLoader.byId(documents, seances))
+        );
+    }
+
+    private Mono<Map<Object, Salle>> sallesById(Set<Object> ids) {
+        return this.findByIds(ids, Salle.class).flatMap(documents ->
+                this.salles(documents).map(salles -> ReferenceBatchLoader.byId(documents, salles))
+        );
+    }
+
+    private Mono<Map<Object, Cinema>> cinemasById(Set<Object> ids) {
+        return this.findByIds(ids, Cinema.class).map(documents -> {
+            List<Cinema> cinemas = new ArrayList<>(documents.size());
+            documents.forEach(document -> cinemas.add(this.converter.read(Cinema.class, document)));
+            return ReferenceBatchLoader.byId(documents, cinemas);
+        });
+    }
+
+    private Mono<List<Document>> findByIds(Set<Object> ids, Class<?> entityClass) {
+        if (ids.isEmpty()) {
+            return Mono.just(Collections.emptyList());
+        }
+        return this.findDocuments(Query.query(Criteria.where(ID).in(ids)), entityClass).collectList();
+    }
+}
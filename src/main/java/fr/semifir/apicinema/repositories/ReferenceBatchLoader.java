@@ -0,0 +1,181 @@
+package fr.semifir.apicinema.repositories;
+
+import com.mongodb.DBRef;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Résout les @DBRef d'une liste de documents par lots : une requête $in par niveau
+ * (film -> seance -> salle -> cinema) au lieu d'une requête par document.
+ * Les documents sont lus bruts puis convertis sans leur champ de référence,
+ * pour que le converter ne déclenche pas la résolution unitaire des DBRef.
+ */
+public class ReferenceBatchLoader {
+
+    private static final String ID = "_id";
+
+    private final MongoOperations template;
+    private final MongoConverter converter;
+
+    public ReferenceBatchLoader(MongoOperations template) {
+        this.template = template;
+        this.converter = template.getConverter();
+    }
+
+    /**
+     * Convertit l'id reçu dans l'API (String) vers son type en base (ObjectId si valide)
+     * @param id
+     * @return
+     */
+    public Object convertId(String id) {
+        return this.converter.convertId(id, ObjectId.class);
+    }
+
+    /**
+     * Requête d'une page triée par id, commençant strictement après le curseur "after"
+     * @param after
+     * @param limit
+     * @return
+     */
+    public Query pageQuery(String after, int limit) {
+        Criteria criteria = after == null ? new Criteria() : Criteria.where(ID).gt(this.convertId(after));
+        return Query.query(criteria).with(Sort.by(ID)).limit(limit);
+    }
+
+    /**
+     * Parcourt toute une collection avec un curseur et passe les documents par lots de batchSize
+     * @param entityClass
+     * @param batchSize
+     * @param batch
+     */
+    public void forEachBatch(Class<?> entityClass, int batchSize, Consumer<List<Document>> batch) {
+        Query query = new Query().with(Sort.by(ID)).cursorBatchSize(batchSize);
+        String collection = this.template.getCollectionName(entityClass);
+        try (CloseableIterator<Document> cursor = this.template.stream(query, Document.class, collection)) {
+            List<Document> documents = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                documents.add(cursor.next());
+                if (documents.size() == batchSize) {
+                    batch.accept(documents);
+                    documents = new ArrayList<>(batchSize);
+                }
+            }
+            if (!documents.isEmpty()) {
+                batch.accept(documents);
+            }
+        }
+    }
+
+    /**
+     * Lit des documents bruts d'une collection
+     * @param query
+     * @param entityClass classe de l'entité dont on lit la collection
+     * @return
+     */
+    public List<Document> findDocuments(Query query, Class<?> entityClass) {
+        return this.template.find(query, Document.class, this.template.getCollectionName(entityClass));
+    }
+
+    public List<Film> films(List<Document> documents) {
+        Map<Object, Seance> seances = this.seancesById(referencedIds(documents, "seance"));
+        return read(this.converter, documents, Film.class, "seance", seances, Film::setSeance);
+    }
+
+    public List<Seance> seances(List<Document> documents) {
+        Map<Object, Salle> salles = this.sallesById(referencedIds(documents, "salle"));
+        return read(this.converter, documents, Seance.class, "salle", salles, Seance::setSalle);
+    }
+
+    public List<Salle> salles(List<Document> documents) {
+        Map<Object, Cinema> cinemas = this.cinemasById(referencedIds(documents, "cinema"));
+        return read(this.converter, documents, Salle.class, "cinema", cinemas, Salle::setCinema);
+    }
+
+    private Map<Object, Seance> seancesById(Set<Object> ids) {
+        List<Document> documents = this.findByIds(ids, Seance.class);
+        return byId(documents, this.seances(documents));
+    }
+
+    private Map<Object, Salle> sallesById(Set<Object> ids) {
+        List<Document> documents = this.findByIds(ids, Salle.class);
+        return byId(documents, this.salles(documents));
+    }
+
+    private Map<Object, Cinema> cinemasById(Set<Object> ids) {
+        List<Document> documents = this.findByIds(ids, Cinema.class);
+        List<Cinema> cinemas = new ArrayList<>(documents.size());
+        documents.forEach(document -> cinemas.add(this.converter.read(Cinema.class, document)));
+        return byId(documents, cinemas);
+    }
+
+    private List<Document> findByIds(Set<Object> ids, Class<?> entityClass) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return this.findDocuments(Query.query(Criteria.where(ID).in(ids)), entityClass);
+    }
+
+    /**
+     * Convertit les documents sans leur champ de référence, puis y rattache l'entité référencée
+     */
+    static <T, R> List<T> read(
+            MongoConverter converter,
+            List<Document> documents,
+            Class<T> type,
+            String field,
+            Map<Object, R> references,
+            BiConsumer<T, R> setter
+    ) {
+        List<T> entities = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Document copy = new Document(document);
+            Object reference = copy.remove(field);
+            T entity = converter.read(type, copy);
+            if (reference instanceof DBRef) {
+                setter.accept(entity, references.get(((DBRef) reference).getId()));
+            }
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    static Set<Object> referencedIds(Collection<Document> documents, String field) {
+        Set<Object> ids = new LinkedHashSet<>();
+        documents.forEach(document -> {
+            Object reference = document.get(field);
+            if (reference instanceof DBRef) {
+                ids.add(((DBRef) reference).getId());
+            }
+        });
+        return ids;
+    }
+
+    static <T> Map<Object, T> byId(List<Document> documents, List<T> entities) {
+        Map<Object, T> byId = new HashMap<>(documents.size() * 2);
+        for (int i = 0; i < documents.size(); i++) {
+            byId.put(documents.get(i).get(ID), entities.get(i));
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,6 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Reservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ReservationRepository extends MongoRepository<Reservation, String>, ReservationRepositoryCustom { }
@@ -0,0 +1,39 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Reservation;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mises à jour conditionnelles et atomiques (un seul document par séance) des places
+ */
+public interface ReservationRepositoryCustom {
+
+    /**
+     * Crée l'état des places de la séance s'il n'existe pas encore
+     * @param seanceId
+     * @param nbrPlace
+     * @return l'état en base
+     */
+    Reservation init(String seanceId, int nbrPlace);
+
+    /**
+     * Bloque les places libres, ou dont le blocage a expiré (il est alors repris par ce jeton)
+     * @param heldAt date du blocage
+     * @param expiredBefore les blocages antérieurs ont expiré
+     * @return false si une des places est vendue ou bloquée depuis expiredBefore
+     */
+    boolean hold(String seanceId, List<Integer> seats, String token, Date heldAt, Date expiredBefore);
+
+    /**
+     * @param expiredBefore les blocages antérieurs ont expiré et ne peuvent plus être confirmés
+     * @return false si une des places n'est pas bloquée par ce jeton, ou plus depuis expiredBefore
+     */
+    boolean confirm(String seanceId, List<Integer> seats, String token, Date expiredBefore);
+
+    /**
+     * @return false si une des places n'est pas bloquée par ce jeton
+     */
+    boolean release(String seanceId, List<Integer> seats, String token);
+}
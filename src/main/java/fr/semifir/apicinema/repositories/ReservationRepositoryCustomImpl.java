@@ -0,0 +1,77 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Reservation;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+
+public class ReservationRepositoryCustomImpl implements ReservationRepositoryCustom {
+
+    private static final String HELD = "held.";
+    private static final String HELD_AT = "heldAt.";
+    private static final String SOLD = "sold";
+
+    private final MongoOperations template;
+
+    public ReservationRepositoryCustomImpl(MongoOperations template) {
+        this.template = template;
+    }
+
+    @Override
+    public Reservation init(String seanceId, int nbrPlace) {
+        return this.template.findAndModify(
+                Query.query(Criteria.where("_id").is(seanceId)),
+                new Update().setOnInsert("nbrPlace", nbrPlace),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Reservation.class
+        );
+    }
+
+    @Override
+    public boolean hold(String seanceId, List<Integer> seats, String token, Date heldAt, Date expiredBefore) {
+        Criteria criteria = Criteria.where("_id").is(seanceId).and(SOLD).nin(seats);
+        Update update = new Update();
+        for (Integer seat : seats) {
+            // Place libre (pas de date) ou bloquée avant expiredBefore : le blocage expiré est repris
+            criteria = criteria.and(HELD_AT + seat).not().gte(expiredBefore);
+            update.set(HELD + seat, token).set(HELD_AT + seat, heldAt);
+        }
+        return this.updated(criteria, update);
+    }
+
+    @Override
+    public boolean confirm(String seanceId, List<Integer> seats, String token, Date expiredBefore) {
+        Criteria criteria = heldBy(seanceId, seats, token);
+        Update update = new Update().addToSet(SOLD).each(seats.toArray());
+        for (Integer seat : seats) {
+            criteria = criteria.and(HELD_AT + seat).gte(expiredBefore);
+            update.unset(HELD + seat).unset(HELD_AT + seat);
+        }
+        return this.updated(criteria, update);
+    }
+
+    @Override
+    public boolean release(String seanceId, List<Integer> seats, String token) {
+        Criteria criteria = heldBy(seanceId, seats, token);
+        Update update = new Update();
+        seats.forEach(seat -> update.unset(HELD + seat).unset(HELD_AT + seat));
+        return this.updated(criteria, update);
+    }
+
+    private static Criteria heldBy(String seanceId, List<Integer> seats, String token) {
+        Criteria criteria = Criteria.where("_id").is(seanceId);
+        for (Integer seat : seats) {
+            criteria = criteria.and(HELD + seat).is(token);
+        }
+        return criteria;
+    }
+
+    private boolean updated(Criteria criteria, Update update) {
+        return this.template.updateFirst(Query.query(criteria), update, Reservation.class).getModifiedCount() == 1;
+    }
+}
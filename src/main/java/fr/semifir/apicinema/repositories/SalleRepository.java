@@ -1,6 +1,14 @@
 package fr.semifir.apicinema.repositories;
 
 import fr.semifir.apicinema.entities.Salle;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface SalleRepository extends MongoRepository<Salle, String> { }
+import java.util.List;
+
+public interface SalleRepository extends MongoRepository<Salle, String>, SalleRepositoryCustom, BulkSaveRepository<Salle>, ProjectionRepository<Salle> {
+
+    List<Salle> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Salle> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+}
@@ -0,0 +1,13 @@
+package fr.semifir.apicinema.repositories;
+
+import java.util.Map;
+
+public interface SalleRepositoryCustom {
+
+    /**
+     * Supprime la salle, ses séances et leurs films, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection, vide si la salle n'existe pas
+     */
+    Map<String, Long> deleteCascade(String id);
+}
@@ -0,0 +1,20 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Salle;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.Map;
+
+public class SalleRepositoryCustomImpl implements SalleRepositoryCustom {
+
+    private final CascadeDeleter deleter;
+
+    public SalleRepositoryCustomImpl(MongoOperations template) {
+        this.deleter = new CascadeDeleter(template);
+    }
+
+    @Override
+    public Map<String, Long> deleteCascade(String id) {
+        return this.deleter.delete(Salle.class, id);
+    }
+}
@@ -4,4 +4,4 @@ import fr.semifir.apicinema.entities.Salle;
 import fr.semifir.apicinema.entities.Seance;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface SeanceRepository extends MongoRepository<Seance, String> { }
+public interface SeanceRepository extends MongoRepository<Seance, String>, SeanceRepositoryCustom, BulkSaveRepository<Seance>, ProjectionRepository<Seance> { }
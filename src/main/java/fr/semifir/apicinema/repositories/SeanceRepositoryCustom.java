@@ -0,0 +1,48 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Seance;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lectures des séances avec salle et cinéma résolus par lots (nombre de requêtes constant)
+ */
+public interface SeanceRepositoryCustom {
+
+    List<Seance> findAllResolved();
+
+    List<Seance> findPageResolved(String after, int limit);
+
+    void forEachResolved(int batchSize, Consumer<Seance> consumer);
+
+    /**
+     * Séances d'un cinéma et/ou d'une salle entre from (inclus) et to (exclu), triées par date puis id
+     * @param cinemaId null pour ne pas filtrer par cinéma
+     * @param salleId null pour ne pas filtrer par salle
+     * @param from
+     * @param to
+     * @param after curseur "epochMillis_id" de la dernière séance lue, null pour commencer au début
+     * @param limit
+     * @return
+     */
+    List<Seance> search(String cinemaId, String salleId, Date from, Date to, String after, int limit);
+
+    /**
+     * Séances des salles d'un cinéma entre from (inclus) et to (exclu), triées par date puis id
+     * @param cinemaId
+     * @param from
+     * @param to
+     * @return
+     */
+    List<Seance> findByCinemaResolved(String cinemaId, Date from, Date to);
+
+    /**
+     * Supprime la séance, ses films et l'état de ses places, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection, vide si la séance n'existe pas
+     */
+    Map<String, Long> deleteCascade(String id);
+}
@@ -0,0 +1,115 @@
+package fr.semifir.apicinema.repositories;
+
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class SeanceRepositoryCustomImpl implements SeanceRepositoryCustom {
+
+    private final ReferenceBatchLoader loader;
+    private final CascadeDeleter deleter;
+
+    public SeanceRepositoryCustomImpl(MongoOperations template) {
+        this.loader = new ReferenceBatchLoader(template);
+        this.deleter = new CascadeDeleter(template);
+    }
+
+    @Override
+    public List<Seance> findAllResolved() {
+        return this.loader.seances(this.loader.findDocuments(new Query(), Seance.class));
+    }
+
+    @Override
+    public List<Seance> findPageResolved(String after, int limit) {
+        return this.loader.seances(this.loader.findDocuments(this.loader.pageQuery(after, limit), Seance.class));
+    }
+
+    @Override
+    public void forEachResolved(int batchSize, Consumer<Seance> consumer) {
+        this.loader.forEachBatch(Seance.class, batchSize, documents -> this.loader.seances(documents).forEach(consumer));
+    }
+
+    @Override
+    public List<Seance> search(String cinemaId, String salleId, Date from, Date to, String after, int limit) {
+        List<Object> salleIds = this.salleIds(cinemaId, salleId);
+        Criteria criteria = Criteria.where("date").gte(from).lt(to);
+        if (salleIds != null) {
+            if (salleIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            criteria = criteria.and("salle.$id").in(salleIds);
+        }
+        if (after != null) {
+            criteria = criteria.andOperator(afterCursor(after));
+        }
+        Query query = Query.query(criteria).with(Sort.by("date", "_id")).limit(limit);
+        return this.loader.seances(this.loader.findDocuments(query, Seance.class));
+    }
+
+    @Override
+    public List<Seance> findByCinemaResolved(String cinemaId, Date from, Date to) {
+        List<Object> salleIds = this.salleIds(cinemaId, null);
+        if (salleIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Query query = Query.query(Criteria.where("salle.$id").in(salleIds).and("date").gte(from).lt(to))
+                .with(Sort.by("date", "_id"));
+        return this.loader.seances(this.loader.findDocuments(query, Seance.class));
+    }
+
+    /**
+     * Ids des salles à filtrer, null si aucun filtre
+     */
+    private List<Object> salleIds(String cinemaId, String salleId) {
+        if (cinemaId == null) {
+            return salleId == null ? null : List.of(this.loader.convertId(salleId));
+        }
+        Query query = Query.query(Criteria.where("cinema.$id").is(this.loader.convertId(cinemaId)));
+        query.fields().include("_id");
+        List<Object> salleIds = new ArrayList<>();
+        for (Document salle : this.loader.findDocuments(query, Salle.class)) {
+            Object id = salle.get("_id");
+            if (salleId == null || salleId.equals(id.toString())) {
+                salleIds.add(id);
+            }
+        }
+        return salleIds;
+    }
+
+    /**
+     * Reprend strictement après la séance du curseur "epochMillis_id"
+     */
+    private Criteria afterCursor(String after) {
+        int separator = after.indexOf('_');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Curseur invalide : " + after);
+        }
+        Date date;
+        try {
+            date = new Date(Long.parseLong(after.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + after);
+        }
+        Object id = this.loader.convertId(after.substring(separator + 1));
+        return new Criteria().orOperator(
+                Criteria.where("date").gt(date),
+                Criteria.where("date").is(date).and("_id").gt(id)
+        );
+    }
+
+    @Override
+    public Map<String, Long> deleteCascade(String id) {
+        return this.deleter.delete(Seance.class, id);
+    }
+}
@@ -0,0 +1,6 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Cinema;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveCinemaRepository extends ReactiveMongoRepository<Cinema, String> { }
@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Film;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lectures réactives des films avec leurs références résolues par lots
+ */
+public interface ReactiveFilmRepositoryCustom {
+
+    Flux<Film> findAllResolved(int batchSize);
+
+    Mono<Film> findByIdResolved(String id);
+}
@@ -0,0 +1,29 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.repositories.ReactiveReferenceBatchLoader;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveFilmRepositoryCustomImpl implements ReactiveFilmRepositoryCustom {
+
+    private final ReactiveReferenceBatchLoader loader;
+
+    public ReactiveFilmRepositoryCustomImpl(ReactiveMongoOperations template) {
+        this.loader = new ReactiveReferenceBatchLoader(template);
+    }
+
+    @Override
+    public Flux<Film> findAllResolved(int batchSize) {
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(batchSize);
+        return this.loader.films(this.loader.findDocuments(query, Film.class), batchSize);
+    }
+
+    @Override
+    public Mono<Film> findByIdResolved(String id) {
+        return this.loader.films(this.loader.findDocuments(this.loader.byIdQuery(id), Film.class), 1).next();
+    }
+}
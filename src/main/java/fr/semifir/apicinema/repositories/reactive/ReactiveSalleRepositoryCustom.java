@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Salle;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lectures réactives des salles avec leurs références résolues par lots
+ */
+public interface ReactiveSalleRepositoryCustom {
+
+    Flux<Salle> findAllResolved(int batchSize);
+
+    Mono<Salle> findByIdResolved(String id);
+}
@@ -0,0 +1,29 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.repositories.ReactiveReferenceBatchLoader;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveSalleRepositoryCustomImpl implements ReactiveSalleRepositoryCustom {
+
+    private final ReactiveReferenceBatchLoader loader;
+
+    public ReactiveSalleRepositoryCustomImpl(ReactiveMongoOperations template) {
+        this.loader = new ReactiveReferenceBatchLoader(template);
+    }
+
+    @Override
+    public Flux<Salle> findAllResolved(int batchSize) {
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(batchSize);
+        return this.loader.salles(this.loader.findDocuments(query, Salle.class), batchSize);
+    }
+
+    @Override
+    public Mono<Salle> findByIdResolved(String id) {
+        return this.loader.salles(this.loader.findDocuments(this.loader.byIdQuery(id), Salle.class), 1).next();
+    }
+}
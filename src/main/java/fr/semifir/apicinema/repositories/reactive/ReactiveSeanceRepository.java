@@ -0,0 +1,6 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Seance;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveSeanceRepository extends ReactiveMongoRepository<Seance, String>, ReactiveSeanceRepositoryCustom { }
@@ -0,0 +1,15 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Seance;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lectures réactives des séances avec leurs références résolues par lots
+ */
+public interface ReactiveSeanceRepositoryCustom {
+
+    Flux<Seance> findAllResolved(int batchSize);
+
+    Mono<Seance> findByIdResolved(String id);
+}
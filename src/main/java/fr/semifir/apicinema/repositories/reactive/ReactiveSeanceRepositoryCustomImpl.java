@@ -0,0 +1,29 @@
+package fr.semifir.apicinema.repositories.reactive;
+
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.repositories.ReactiveReferenceBatchLoader;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveSeanceRepositoryCustomImpl implements ReactiveSeanceRepositoryCustom {
+
+    private final ReactiveReferenceBatchLoader loader;
+
+    public ReactiveSeanceRepositoryCustomImpl(ReactiveMongoOperations template) {
+        this.loader = new ReactiveReferenceBatchLoader(template);
+    }
+
+    @Override
+    public Flux<Seance> findAllResolved(int batchSize) {
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(batchSize);
+        return this.loader.seances(this.loader.findDocuments(query, Seance.class), batchSize);
+    }
+
+    @Override
+    public Mono<Seance> findByIdResolved(String id) {
+        return this.loader.seances(this.loader.findDocuments(this.loader.byIdQuery(id), Seance.class), 1).next();
+    }
+}
@@ -0,0 +1,48 @@
+package fr.semifir.apicinema.services;
+
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Découpe un import en lots de chunkSize écrits chacun en un bulk write,
+ * et produit un résultat par élément
+ */
+final class BulkImport {
+
+    private BulkImport() {
+    }
+
+    static <E> void saveAll(
+            Iterator<E> items,
+            int chunkSize,
+            Function<List<E>, Map<Integer, String>> writer,
+            Function<E, String> id,
+            Consumer<BulkResultDTO> results
+    ) {
+        long index = 0;
+        List<E> chunk = new ArrayList<>(chunkSize);
+        while (items.hasNext()) {
+            chunk.add(items.next());
+            if (chunk.size() == chunkSize || !items.hasNext()) {
+                Map<Integer, String> errors = writer.apply(chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    String error = errors.get(i);
+                    results.accept(new BulkResultDTO(
+                            index + i,
+                            id.apply(chunk.get(i)),
+                            error == null ? BulkResultDTO.OK : BulkResultDTO.ERROR,
+                            error
+                    ));
+                }
+                index += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+    }
+}
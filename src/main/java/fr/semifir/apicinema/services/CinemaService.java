@@ -1,27 +1,60 @@
 package fr.semifir.apicinema.services;
 
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.cinema.CinemaSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.events.EntityChangeEvent;
 import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.CinemaRepository;
-import org.modelmapper.ModelMapper;
-
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public class CinemaService implements ApplicationEventPublisherAware {
 
-public class CinemaService {
+    // Champs de CinemaSlimDTO proposés par fields=, avec la propriété de Cinema lue en base
+    private static final Projection SLIM = new Projection(Map.of("nom", "nom"));
 
     CinemaRepository repository;
-    ModelMapper mapper;
+    DtoMapper<Cinema, CinemaDTO> mapper;
+    int maxPageSize;
+    int bulkChunkSize;
+    // Remplacé par celui du contexte Spring ; sans contexte (benchmarks) les événements sont ignorés
+    ApplicationEventPublisher publisher = event -> { };
+    // File d'écriture différée, null sans apicinema.write-behind.enabled
+    WriteBehindQueue<Cinema> writeBehind;
 
     public CinemaService(
             CinemaRepository repository,
-            ModelMapper mapper
+            DtoMapper<Cinema, CinemaDTO> mapper,
+            int maxPageSize,
+            int bulkChunkSize
             ) {
         this.repository = repository;
         this.mapper = mapper;
+        this.maxPageSize = maxPageSize;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public void setWriteBehind(WriteBehindQueue<Cinema> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
     }
 
     /**
@@ -36,23 +69,69 @@ public class CinemaService {
         // J'utlise une lambda
         this.repository.findAll().forEach(cinema -> {
             // Je map l'entité Cinema en CinemaDTO
-            CinemaDTO cinemaDTO = mapper.map(cinema, CinemaDTO.class);
+            CinemaDTO cinemaDTO = mapper.map(cinema);
             // Je l'ajoute à mon tableau
             cinemaDTOS.add(cinemaDTO);
         });
         return cinemaDTOS;
     }
 
+    /**
+     * Retourne une page de cinémas triés par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @return PageDTO<CinemaDTO>
+     */
+    public PageDTO<CinemaDTO> findPage(String after, int size) {
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Cinema> cinemas = after == null
+                ? this.repository.findAllByOrderByIdAsc(Pagination.probe(limit))
+                : this.repository.findByIdGreaterThanOrderByIdAsc(after, Pagination.probe(limit));
+        return Pagination.toPage(cinemas, limit, Cinema::getId, mapper::map);
+    }
+
+    /**
+     * Retourne tous les cinémas en vue allégée, seuls les champs demandés sont lus en base
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return List<CinemaSlimDTO>
+     */
+    public List<CinemaSlimDTO> findAllSlim(String fields) {
+        Set<String> selected = SLIM.select(fields);
+        List<CinemaSlimDTO> cinemaDTOS = new ArrayList<>();
+        this.repository.findProjected(Cinema.class, SLIM.properties(selected), null, 0)
+                .forEach(cinema -> cinemaDTOS.add(slim(cinema)));
+        return cinemaDTOS;
+    }
+
+    /**
+     * Retourne une page de cinémas en vue allégée, triés par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return PageDTO<CinemaSlimDTO>
+     */
+    public PageDTO<CinemaSlimDTO> findPageSlim(String after, int size, String fields) {
+        Set<String> selected = SLIM.select(fields);
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Cinema> cinemas = this.repository.findProjected(Cinema.class, SLIM.properties(selected), after, limit + 1);
+        return Pagination.toPage(cinemas, limit, Cinema::getId, CinemaService::slim);
+    }
+
+    private static CinemaSlimDTO slim(Cinema cinema) {
+        return new CinemaSlimDTO(cinema.getId(), cinema.getNom());
+    }
+
     /**
      * Je récupère un cinema selon son ID
      * @param id
      * @return
      */
+    @Cacheable(cacheNames = "cinemas", key = "#id", sync = true)
     public Optional<CinemaDTO> findByID(String id) throws NotFoundException {
         Optional<Cinema> cinema = this.repository.findById(id);
         Optional<CinemaDTO> cinemaDTO;
         if (cinema.isPresent()) {
-           cinemaDTO = Optional.of(mapper.map(cinema.get(), CinemaDTO.class));
+           cinemaDTO = Optional.of(mapper.map(cinema.get()));
         } else {
             throw new NotFoundException("Le cinema n'a pas été trouvé");
         }
@@ -65,14 +144,63 @@ public class CinemaService {
      * @return
      */
     public CinemaDTO save(Cinema cinema) {
-        return mapper.map(this.repository.save(cinema), CinemaDTO.class);
+        if (this.writeBehind != null) {
+            return this.writeBehind.await(this.saveBehind(cinema));
+        }
+        Cinema saved = this.repository.save(cinema);
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.CINEMAS, saved.getId()));
+        return mapper.map(saved);
+    }
+
+    /**
+     * Met le cinéma dans la file d'écriture différée, écrit avec d'autres en un seul bulk write
+     * @param cinema
+     * @return complété quand Mongo a acquitté l'écriture
+     */
+    public CompletableFuture<CinemaDTO> saveBehind(Cinema cinema) {
+        if (this.writeBehind == null) {
+            return CompletableFuture.completedFuture(this.save(cinema));
+        }
+        return this.writeBehind.submit(cinema).thenApplyAsync(saved -> {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.CINEMAS, saved.getId()));
+            return mapper.map(saved);
+        }, this.writeBehind.getCallbacks());
+    }
+
+    /**
+     * Crée ou met à jour des cinémas en masse, par lots de bulkChunkSize écrits en un seul bulk write
+     * @param cinemas
+     * @param results reçoit le résultat de chaque élément, dans l'ordre reçu
+     */
+    public void saveAll(Iterator<Cinema> cinemas, Consumer<BulkResultDTO> results) {
+        try {
+            BulkImport.saveAll(cinemas, this.bulkChunkSize, this.repository::bulkSave, Cinema::getId, results);
+        } finally {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.CINEMAS, null));
+        }
     }
 
     /**
-     * Je supprime mon cinema
+     * Je supprime mon cinema, avec tout ce qui le référence
      * @param cinema
      */
     public void delete(Cinema cinema) {
-        this.repository.delete(cinema);
+        this.repository.deleteCascade(cinema.getId());
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.CINEMAS, cinema.getId()));
+    }
+
+    /**
+     * Supprime le cinéma, ses salles, leurs séances et leurs films, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection
+     * @throws NotFoundException
+     */
+    public Map<String, Long> deleteById(String id) throws NotFoundException {
+        Map<String, Long> deleted = this.repository.deleteCascade(id);
+        if (deleted.isEmpty()) {
+            throw new NotFoundException("Le cinema n'a pas été trouvé");
+        }
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.CINEMAS, id));
+        return deleted;
     }
 }
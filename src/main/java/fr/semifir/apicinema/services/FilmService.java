@@ -1,29 +1,71 @@
 package fr.semifir.apicinema.services;
 
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.film.FilmSlimDTO;
 import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Film;
 import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
 import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.FilmRepository;
 import fr.semifir.apicinema.repositories.SeanceRepository;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class FilmService {
+public class FilmService implements ApplicationEventPublisherAware {
+
+    // Champs de FilmSlimDTO proposés par fields=, avec la propriété de Film lue en base
+    private static final Projection SLIM = new Projection(Map.of("nom", "nom", "duree", "duree", "seanceId", "seance"));
 
     FilmRepository repository;
-    ModelMapper mapper;
+    DtoMapper<Film, FilmDTO> mapper;
+    int maxPageSize;
+    int bulkChunkSize;
+    // Remplacé par celui du contexte Spring ; sans contexte (benchmarks) les événements sont ignorés
+    ApplicationEventPublisher publisher = event -> { };
+    // File d'écriture différée, null sans apicinema.write-behind.enabled
+    WriteBehindQueue<Film> writeBehind;
+    // Refus des séances qui se chevauchent dans une salle, null avec apicinema.conflicts.enabled=false
+    SalleConflicts conflicts;
 
     public FilmService(
             FilmRepository repository,
-            ModelMapper mapper
+            DtoMapper<Film, FilmDTO> mapper,
+            int maxPageSize,
+            int bulkChunkSize
             ) {
         this.repository = repository;
         this.mapper = mapper;
+        this.maxPageSize = maxPageSize;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public void setWriteBehind(WriteBehindQueue<Film> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public void setConflicts(SalleConflicts conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
     }
 
     /**
@@ -32,23 +74,82 @@ public class FilmService {
      */
     public List<FilmDTO> findAll() {
         List<FilmDTO> filmDTOS = new ArrayList<>();
-        this.repository.findAll().forEach(film -> {
-            FilmDTO filmDTO = mapper.map(film, FilmDTO.class);
+        this.repository.findAllResolved().forEach(film -> {
+            FilmDTO filmDTO = mapper.map(film);
             filmDTOS.add(filmDTO);
         });
         return filmDTOS;
     }
 
+    /**
+     * Parcourt tous les films avec un curseur Mongo, par lots de maxPageSize dont les
+     * références sont résolues ensemble, et passe chaque DTO au consumer
+     * sans jamais construire la liste complète en mémoire
+     * @param consumer
+     */
+    public void streamAll(Consumer<FilmDTO> consumer) {
+        this.repository.forEachResolved(this.maxPageSize, film -> consumer.accept(mapper.map(film)));
+    }
+
+    /**
+     * Retourne une page de films triés par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @return PageDTO<FilmDTO>
+     */
+    public PageDTO<FilmDTO> findPage(String after, int size) {
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Film> films = this.repository.findPageResolved(after, limit + 1);
+        return Pagination.toPage(films, limit, Film::getId, mapper::map);
+    }
+
+    /**
+     * Retourne tous les films en vue allégée, seuls les champs demandés sont lus en base
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return List<FilmSlimDTO>
+     */
+    public List<FilmSlimDTO> findAllSlim(String fields) {
+        Set<String> selected = SLIM.select(fields);
+        List<FilmSlimDTO> filmDTOS = new ArrayList<>();
+        this.repository.findProjected(Film.class, SLIM.properties(selected), null, 0)
+                .forEach(film -> filmDTOS.add(slim(film)));
+        return filmDTOS;
+    }
+
+    /**
+     * Retourne une page de films en vue allégée, triés par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return PageDTO<FilmSlimDTO>
+     */
+    public PageDTO<FilmSlimDTO> findPageSlim(String after, int size, String fields) {
+        Set<String> selected = SLIM.select(fields);
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Film> films = this.repository.findProjected(Film.class, SLIM.properties(selected), after, limit + 1);
+        return Pagination.toPage(films, limit, Film::getId, FilmService::slim);
+    }
+
+    private static FilmSlimDTO slim(Film film) {
+        return new FilmSlimDTO(
+                film.getId(),
+                film.getNom(),
+                film.getDuree(),
+                film.getSeance() == null ? null : film.getSeance().getId()
+        );
+    }
+
     /**
      * Je récupère un film selon son ID
      * @param id
      * @return
      */
+    @Cacheable(cacheNames = "films", key = "#id", sync = true)
     public Optional<FilmDTO> findByID(String id) throws NotFoundException {
         Optional<Film> film = this.repository.findById(id);
         Optional<FilmDTO> seanceDTO;
         if (film.isPresent()) {
-           seanceDTO = Optional.of(mapper.map(film.get(), FilmDTO.class));
+           seanceDTO = Optional.of(mapper.map(film.get()));
         } else {
             throw new NotFoundException("Le film n'a pas été trouvé");
         }
@@ -59,16 +160,74 @@ public class FilmService {
      * Save & update un film
      * @param film
      * @return
+     * @throws ConflictException le film allonge sa séance sur la suivante de la salle
      */
     public FilmDTO save(Film film) {
-        return mapper.map(this.repository.save(film), FilmDTO.class);
+        if (this.conflicts != null) {
+            return this.conflicts.saveFilm(film, this::write, FilmDTO::getId);
+        }
+        return this.write(film);
+    }
+
+    private FilmDTO write(Film film) {
+        if (this.writeBehind != null) {
+            return this.writeBehind.await(this.saveBehind(film));
+        }
+        Film saved = this.repository.save(film);
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.FILMS, saved.getId()));
+        return mapper.map(saved);
     }
 
     /**
-     * Je supprime mon film
+     * Met le film dans la file d'écriture différée, écrit avec d'autres en un seul bulk write
+     * Seulement depuis save : le film est déjà vérifié par SalleConflicts
+     * @param film
+     * @return complété quand Mongo a acquitté l'écriture
+     */
+    private CompletableFuture<FilmDTO> saveBehind(Film film) {
+        return this.writeBehind.submit(film).thenApplyAsync(saved -> {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.FILMS, saved.getId()));
+            return mapper.map(saved);
+        }, this.writeBehind.getCallbacks());
+    }
+
+    /**
+     * Crée ou met à jour des films en masse, par lots de bulkChunkSize écrits en un seul bulk write
+     * @param films
+     * @param results reçoit le résultat de chaque élément, dans l'ordre reçu
+     */
+    public void saveAll(Iterator<Film> films, Consumer<BulkResultDTO> results) {
+        try {
+            Function<List<Film>, Map<Integer, String>> writer = this.conflicts == null
+                    ? this.repository::bulkSave
+                    : chunk -> this.conflicts.saveFilms(chunk, this.repository::bulkSave);
+            BulkImport.saveAll(films, this.bulkChunkSize, writer, Film::getId, results);
+        } finally {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.FILMS, null));
+        }
+    }
+
+    /**
+     * Je supprime mon film, avec tout ce qui le référence
      * @param film
      */
     public void delete(Film film) {
-        this.repository.delete(film);
+        this.repository.deleteCascade(film.getId());
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.FILMS, film.getId()));
+    }
+
+    /**
+     * Supprime le film, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection
+     * @throws NotFoundException
+     */
+    public Map<String, Long> deleteById(String id) throws NotFoundException {
+        Map<String, Long> deleted = this.repository.deleteCascade(id);
+        if (deleted.isEmpty()) {
+            throw new NotFoundException("Le film n'a pas été trouvé");
+        }
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.FILMS, id));
+        return deleted;
     }
 }
@@ -0,0 +1,54 @@
+package fr.semifir.apicinema.services;
+
+import fr.semifir.apicinema.dtos.page.PageDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Outils communs à la pagination par curseur (keyset sur l'_id) des services
+ */
+final class Pagination {
+
+    private Pagination() {
+    }
+
+    /**
+     * Borne la taille demandée entre 1 et la taille maximale configurée
+     * @param size
+     * @param maxPageSize
+     * @return
+     */
+    static int limit(int size, int maxPageSize) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    /**
+     * On demande une ligne de plus que la page pour savoir s'il en reste une suivante
+     * @param limit
+     * @return
+     */
+    static Pageable probe(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    /**
+     * Construit la page à partir des lignes lues (limit + 1 au maximum)
+     * @param rows
+     * @param limit
+     * @param id
+     * @param mapper
+     * @return
+     */
+    static <E, D> PageDTO<D> toPage(List<E> rows, int limit, Function<E, String> id, Function<E, D> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> page = hasNext ? rows.subList(0, limit) : rows;
+        List<D> content = new ArrayList<>(page.size());
+        page.forEach(row -> content.add(mapper.apply(row)));
+        String next = hasNext ? id.apply(page.get(page.size() - 1)) : null;
+        return new PageDTO<>(content, next);
+    }
+}
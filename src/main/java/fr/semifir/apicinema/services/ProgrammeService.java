@@ -0,0 +1,464 @@
+package fr.semifir.apicinema.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import fr.semifir.apicinema.dtos.programme.ProgrammeDTO;
+import fr.semifir.apicinema.dtos.programme.ProgrammeFilmDTO;
+import fr.semifir.apicinema.dtos.programme.ProgrammeSeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.repositories.FilmRepository;
+import fr.semifir.apicinema.repositories.SalleRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Programme de la semaine de chaque cinéma (séances du jour et des jours suivants, avec leur salle et leurs films),
+ * matérialisé en mémoire et déjà sérialisé en JSON : une lecture ne touche ni Mongo ni Jackson.
+ * La fenêtre avance chaque jour : un programme construit la veille est reconstruit à sa première lecture.
+ * Un programme est construit à la première demande, puis tenu à jour à chaque EntityChangeEvent :
+ * une séance ou un film modifié est relu seul et déplacé dans les programmes concernés,
+ * une salle, un cinéma ou une écriture en masse fait oublier les programmes touchés.
+ * Les programmes sont bornés en nombre et oubliés quand personne ne les lit.
+ * Mongo est lu sans verrou ; chaque programme est modifié sous le verrou de son cinéma. Une construction ou
+ * une mise à jour qui a croisé une autre écriture n'est pas gardée : le programme sera reconstruit.
+ */
+public class ProgrammeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProgrammeService.class);
+
+    public static final String COLLECTION = "programmes";
+
+    private static final Comparator<ProgrammeSeanceDTO> ORDER = Comparator
+            .comparing(ProgrammeSeanceDTO::getDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ProgrammeSeanceDTO::getId);
+
+    CinemaRepository cinemaRepository;
+    SalleRepository salleRepository;
+    SeanceRepository seanceRepository;
+    FilmRepository filmRepository;
+    ObjectMapper objectMapper;
+    // Copie des programmes dans la collection "programmes", null si désactivée
+    MongoOperations template;
+
+    ZoneId zone = ZoneId.systemDefault();
+    int days = 7;
+    Clock clock = Clock.systemUTC();
+    Cache<String, Programme> programmes = this.programmes(1_000, Duration.ofHours(1));
+    // Verrous des cinémas, un cinéma prend toujours le même
+    private final Object[] locks = new Object[64];
+    // Écritures vues par onChange : une lecture de Mongo qui en a croisé une peut être périmée
+    private final AtomicLong changes = new AtomicLong();
+
+    public ProgrammeService(
+            CinemaRepository cinemaRepository,
+            SalleRepository salleRepository,
+            SeanceRepository seanceRepository,
+            FilmRepository filmRepository,
+            ObjectMapper objectMapper,
+            MongoOperations template
+            ) {
+        this.cinemaRepository = cinemaRepository;
+        this.salleRepository = salleRepository;
+        this.seanceRepository = seanceRepository;
+        this.filmRepository = filmRepository;
+        this.objectMapper = objectMapper;
+        this.template = template;
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @param zone fuseau des jours du programme
+     * @param days jours couverts, aujourd'hui compris
+     */
+    public void setWindow(ZoneId zone, int days) {
+        this.zone = zone;
+        this.days = days;
+    }
+
+    /**
+     * @param maxProgrammes programmes gardés en mémoire
+     * @param idle un programme qui n'est pas lu pendant cette durée est oublié
+     */
+    public void setLimits(long maxProgrammes, Duration idle) {
+        this.programmes = this.programmes(maxProgrammes, idle);
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return programmes en mémoire
+     */
+    public long getProgrammes() {
+        return this.programmes.estimatedSize();
+    }
+
+    /**
+     * Je récupère le programme d'un cinéma, sérialisé en JSON
+     * @param cinemaId
+     * @return
+     */
+    public byte[] findProgramme(String cinemaId) throws NotFoundException {
+        Date from = this.today();
+        Programme programme = this.programmes.getIfPresent(cinemaId);
+        if (programme != null && programme.from.equals(from)) {
+            return programme.json;
+        }
+        long before = this.changes.get();
+        Programme built = this.build(cinemaId, from);
+        synchronized (this.lock(cinemaId)) {
+            this.programmes.put(cinemaId, built);
+            // Ajouté avant de relire le compteur : une écriture qui ne le voit pas encore dans onChange est ici
+            if (this.changes.get() == before) {
+                this.persist(built);
+            } else {
+                this.forget(cinemaId);
+            }
+        }
+        return built.json;
+    }
+
+    /**
+     * Répercute une écriture sur les programmes déjà construits.
+     * Passe avant CollectionVersions : un nouvel ETag ne doit jamais accompagner l'ancien programme.
+     * @param event
+     */
+    @EventListener
+    @Order(0)
+    public void onChange(EntityChangeEvent event) {
+        long change = this.changes.incrementAndGet();
+        if (this.programmes.asMap().isEmpty()) {
+            return;
+        }
+        try {
+            if (event.getId() == null) {
+                this.programmes.asMap().keySet().forEach(this::invalidate);
+                return;
+            }
+            switch (event.getCollection()) {
+                case EntityChangeEvent.CINEMAS:
+                    this.invalidate(event.getId());
+                    break;
+                case EntityChangeEvent.SALLES:
+                    this.onSalle(event.getId());
+                    break;
+                case EntityChangeEvent.SEANCES:
+                    this.onSeance(event.getId(), change);
+                    break;
+                case EntityChangeEvent.FILMS:
+                    this.onFilm(event.getId(), change);
+                    break;
+                default:
+            }
+        } catch (RuntimeException e) {
+            // Les programmes ne sont plus sûrs : ils seront reconstruits à la prochaine lecture
+            LOGGER.warn("Mise à jour des programmes impossible après {}, ils sont vidés", event, e);
+            this.programmes.asMap().keySet().forEach(this::invalidate);
+        }
+    }
+
+    /**
+     * Une salle peut changer de numéro ou de cinéma : ses programmes avant et après sont oubliés
+     */
+    private void onSalle(String salleId) {
+        Set<String> cinemas = new LinkedHashSet<>();
+        this.programmes.asMap().values().forEach(programme -> {
+            synchronized (this.lock(programme.cinemaId)) {
+                if (programme.seances.values().stream().anyMatch(seance -> salleId.equals(seance.getSalleId()))) {
+                    cinemas.add(programme.cinemaId);
+                }
+            }
+        });
+        this.salleRepository.findById(salleId)
+                .map(Salle::getCinema)
+                .map(Cinema::getId)
+                .ifPresent(cinemas::add);
+        cinemas.forEach(this::invalidate);
+    }
+
+    /**
+     * La séance est relue seule (avec ses films si elle entre dans un programme)
+     * et déplacée du programme où elle était vers celui de son cinéma
+     */
+    private void onSeance(String seanceId, long change) {
+        Optional<Seance> seance = this.seanceRepository.findById(seanceId);
+        String after = seance.map(ProgrammeService::cinemaId).orElse(null);
+        Set<String> cinemas = this.containing(programme -> programme.seances.containsKey(seanceId));
+        List<ProgrammeFilmDTO> films = null;
+        if (after != null && !cinemas.contains(after) && this.programmes.getIfPresent(after) != null) {
+            films = this.films(List.of(seanceId)).getOrDefault(seanceId, new ArrayList<>());
+        }
+        if (after != null) {
+            cinemas.add(after);
+        }
+        for (String cinemaId : cinemas) {
+            synchronized (this.lock(cinemaId)) {
+                Programme programme = this.programmes.getIfPresent(cinemaId);
+                if (programme == null) {
+                    continue;
+                }
+                ProgrammeSeanceDTO removed = programme.removeSeance(seanceId);
+                if (cinemaId.equals(after) && programme.covers(seance.get().getDate())) {
+                    List<ProgrammeFilmDTO> kept = removed != null ? removed.getFilms() : films;
+                    programme.addSeance(seance(seance.get(), kept != null ? kept : new ArrayList<>()));
+                }
+                this.update(programme, change);
+            }
+        }
+    }
+
+    /**
+     * Le film est relu seul, retiré de sa séance précédente et ajouté à sa séance actuelle
+     */
+    private void onFilm(String filmId, long change) {
+        Optional<Film> film = this.filmRepository.findById(filmId);
+        String seanceId = film.map(Film::getSeance).map(Seance::getId).orElse(null);
+        Set<String> cinemas = this.containing(programme -> programme.filmSeances.containsKey(filmId)
+                || (seanceId != null && programme.seances.containsKey(seanceId)));
+        for (String cinemaId : cinemas) {
+            synchronized (this.lock(cinemaId)) {
+                Programme programme = this.programmes.getIfPresent(cinemaId);
+                if (programme == null) {
+                    continue;
+                }
+                programme.removeFilm(filmId);
+                if (seanceId != null && programme.seances.containsKey(seanceId)) {
+                    programme.addFilm(seanceId, film(film.get()));
+                }
+                this.update(programme, change);
+            }
+        }
+    }
+
+    /**
+     * Sérialise le programme modifié, ou l'oublie si une autre écriture a eu lieu depuis la lecture de Mongo
+     */
+    private void update(Programme programme, long change) {
+        if (this.changes.get() != change) {
+            this.forget(programme.cinemaId);
+            return;
+        }
+        this.serialize(programme);
+        this.persist(programme);
+    }
+
+    /**
+     * Cinémas dont le programme en mémoire vérifie la condition
+     */
+    private Set<String> containing(Predicate<Programme> condition) {
+        Set<String> cinemas = new LinkedHashSet<>();
+        this.programmes.asMap().values().forEach(programme -> {
+            synchronized (this.lock(programme.cinemaId)) {
+                if (condition.test(programme)) {
+                    cinemas.add(programme.cinemaId);
+                }
+            }
+        });
+        return cinemas;
+    }
+
+    /**
+     * Lit le cinéma, ses séances de la fenêtre et leurs films en un nombre constant de requêtes, sans verrou
+     */
+    private Programme build(String cinemaId, Date from) throws NotFoundException {
+        Optional<Cinema> cinema = this.cinemaRepository.findById(cinemaId);
+        if (!cinema.isPresent()) {
+            throw new NotFoundException("Le cinema n'a pas été trouvé");
+        }
+        Programme programme = new Programme(cinemaId, cinema.get().getNom(), from, this.end(from));
+        List<Seance> seances = this.seanceRepository.findByCinemaResolved(cinemaId, programme.from, programme.to);
+        List<String> seanceIds = new ArrayList<>(seances.size());
+        seances.forEach(seance -> seanceIds.add(seance.getId()));
+        Map<String, List<ProgrammeFilmDTO>> films = this.films(seanceIds);
+        for (Seance seance : seances) {
+            programme.addSeance(seance(seance, films.getOrDefault(seance.getId(), new ArrayList<>())));
+        }
+        this.serialize(programme);
+        return programme;
+    }
+
+    /**
+     * Films des séances, par id de séance
+     */
+    private Map<String, List<ProgrammeFilmDTO>> films(Collection<String> seanceIds) {
+        Map<String, List<ProgrammeFilmDTO>> films = new HashMap<>();
+        if (seanceIds.isEmpty()) {
+            return films;
+        }
+        for (Film film : this.filmRepository.findBySeancesResolved(seanceIds)) {
+            films.computeIfAbsent(film.getSeance().getId(), id -> new ArrayList<>()).add(film(film));
+        }
+        return films;
+    }
+
+    private void invalidate(String cinemaId) {
+        synchronized (this.lock(cinemaId)) {
+            if (this.programmes.getIfPresent(cinemaId) != null) {
+                this.forget(cinemaId);
+            }
+        }
+    }
+
+    /**
+     * Oublie le programme et sa copie, sous le verrou du cinéma
+     */
+    private void forget(String cinemaId) {
+        this.programmes.invalidate(cinemaId);
+        this.unpersist(cinemaId);
+    }
+
+    private void serialize(Programme programme) {
+        List<ProgrammeSeanceDTO> seances = new ArrayList<>(programme.seances.values());
+        seances.sort(ORDER);
+        try {
+            programme.json = this.objectMapper.writeValueAsBytes(new ProgrammeDTO(programme.cinemaId, programme.nom, seances));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void persist(Programme programme) {
+        if (this.template != null) {
+            Document document = Document.parse(new String(programme.json, StandardCharsets.UTF_8));
+            document.put("_id", programme.cinemaId);
+            this.template.getCollection(COLLECTION)
+                    .replaceOne(Filters.eq("_id", programme.cinemaId), document, new ReplaceOptions().upsert(true));
+        }
+    }
+
+    private void unpersist(String cinemaId) {
+        if (this.template != null) {
+            this.template.getCollection(COLLECTION).deleteOne(Filters.eq("_id", cinemaId));
+        }
+    }
+
+    private Cache<String, Programme> programmes(long maxProgrammes, Duration idle) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxProgrammes)
+                .expireAfterAccess(idle)
+                // La copie d'un programme oublié n'est plus tenue à jour
+                .<String, Programme>removalListener((cinemaId, programme, cause) -> {
+                    if (cause.wasEvicted() && cinemaId != null) {
+                        synchronized (this.lock(cinemaId)) {
+                            if (this.programmes.getIfPresent(cinemaId) == null) {
+                                this.unpersist(cinemaId);
+                            }
+                        }
+                    }
+                })
+                .build();
+    }
+
+    private Object lock(String cinemaId) {
+        return this.locks[Math.floorMod(cinemaId.hashCode(), this.locks.length)];
+    }
+
+    private Date today() {
+        return Date.from(LocalDate.now(this.clock.withZone(this.zone)).atStartOfDay(this.zone).toInstant());
+    }
+
+    private Date end(Date from) {
+        return Date.from(from.toInstant().atZone(this.zone).toLocalDate().plusDays(this.days).atStartOfDay(this.zone).toInstant());
+    }
+
+    private static String cinemaId(Seance seance) {
+        Salle salle = seance.getSalle();
+        return salle == null || salle.getCinema() == null ? null : salle.getCinema().getId();
+    }
+
+    private static ProgrammeSeanceDTO seance(Seance seance, List<ProgrammeFilmDTO> films) {
+        Salle salle = seance.getSalle();
+        return new ProgrammeSeanceDTO(seance.getId(), seance.getDate(), salle.getId(), salle.getNumDeSalle(), films);
+    }
+
+    private static ProgrammeFilmDTO film(Film film) {
+        return new ProgrammeFilmDTO(film.getId(), film.getNom(), film.getDuree());
+    }
+
+    /**
+     * Programme d'un cinéma sur [from, to), modifié sous le verrou de son cinéma
+     */
+    static class Programme {
+        final String cinemaId;
+        final String nom;
+        final Date from;
+        final Date to;
+        final Map<String, ProgrammeSeanceDTO> seances = new HashMap<>();
+        // film -> séance du programme
+        final Map<String, String> filmSeances = new HashMap<>();
+        volatile byte[] json;
+
+        Programme(String cinemaId, String nom, Date from, Date to) {
+            this.cinemaId = cinemaId;
+            this.nom = nom;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean covers(Date date) {
+            return date != null && !date.before(this.from) && date.before(this.to);
+        }
+
+        void addSeance(ProgrammeSeanceDTO seance) {
+            this.seances.put(seance.getId(), seance);
+            seance.getFilms().forEach(film -> this.filmSeances.put(film.getId(), seance.getId()));
+        }
+
+        ProgrammeSeanceDTO removeSeance(String seanceId) {
+            ProgrammeSeanceDTO seance = this.seances.remove(seanceId);
+            if (seance != null) {
+                seance.getFilms().forEach(film -> this.filmSeances.remove(film.getId()));
+            }
+            return seance;
+        }
+
+        void addFilm(String seanceId, ProgrammeFilmDTO film) {
+            this.seances.get(seanceId).getFilms().add(film);
+            this.filmSeances.put(film.getId(), seanceId);
+        }
+
+        void removeFilm(String filmId) {
+            String seanceId = this.filmSeances.remove(filmId);
+            if (seanceId != null) {
+                this.seances.get(seanceId).getFilms().removeIf(film -> filmId.equals(film.getId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fr.semifir.apicinema.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Champs sélectionnables d'une vue allégée (paramètre fields=), avec la propriété de l'entité
+ * à lire en base pour chacun. L'id est toujours renvoyé.
+ */
+final class Projection {
+
+    static final String ID = "id";
+
+    private final Map<String, String> properties;
+
+    /**
+     * @param properties champ du DTO allégé -> propriété de l'entité
+     */
+    Projection(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return les champs demandés, id compris
+     * @throws IllegalArgumentException si un champ n'existe pas dans la vue
+     */
+    Set<String> select(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add(ID);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || ID.equals(name)) {
+                continue;
+            }
+            if (!this.properties.containsKey(name)) {
+                throw new IllegalArgumentException("Champ inconnu : " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    /**
+     * @param selected champs renvoyés par select
+     * @return les propriétés de l'entité à lire
+     */
+    List<String> properties(Set<String> selected) {
+        List<String> properties = new ArrayList<>(selected.size());
+        selected.forEach(field -> {
+            if (!ID.equals(field)) {
+                properties.add(this.properties.get(field));
+            }
+        });
+        return properties;
+    }
+}
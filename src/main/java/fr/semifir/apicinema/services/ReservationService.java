@@ -0,0 +1,282 @@
+package fr.semifir.apicinema.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import fr.semifir.apicinema.dtos.reservation.PlacesDTO;
+import fr.semifir.apicinema.dtos.reservation.ReservationDTO;
+import fr.semifir.apicinema.entities.Reservation;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.events.PlacesChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.repositories.ReservationRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Réservation des places d'une séance.
+ * Chaque séance a un plan des places en mémoire (SeatMap) qui rejette sans aller en base
+ * les demandes sur des places déjà prises ; l'état en base reste la référence et n'est modifié
+ * que par des mises à jour conditionnelles atomiques. Confirmer et libérer passent d'abord par la base,
+ * qui vérifie le jeton, puis reportent son résultat sur le plan. Le plan est relu en base quand elle
+ * le contredit, quand un autre nœud écrit (PlacesChangeEvent du ChangeFeed) et au plus tard après
+ * seatMapRefresh ; les plans sont bornés en nombre et oubliés quand ils ne servent plus.
+ * Un blocage expire après holdTtl : il ne peut plus être confirmé, et une autre réservation le reprend
+ * en base par la même mise à jour conditionnelle. Le plan qui contient un blocage expiré est relu
+ * au prochain accès, au plus une fois par seconde, les places expirées y sont libres.
+ */
+public class ReservationService implements ApplicationEventPublisherAware {
+
+    ReservationRepository repository;
+    SeanceRepository seanceRepository;
+    LoadingCache<String, SeatMap> seatMaps = seatMaps(10_000, Duration.ofHours(1), Duration.ofSeconds(10));
+    Duration holdTtl = Duration.ofMinutes(15);
+    Clock clock = Clock.systemUTC();
+    // Remplacé par celui du contexte Spring ; sans contexte les événements sont ignorés
+    ApplicationEventPublisher publisher = event -> { };
+
+    public ReservationService(
+            ReservationRepository repository,
+            SeanceRepository seanceRepository
+            ) {
+        this.repository = repository;
+        this.seanceRepository = seanceRepository;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * @param maxSeatMaps plans gardés en mémoire
+     * @param idle un plan inutilisé depuis cette durée est oublié
+     * @param refresh un plan chargé depuis plus longtemps est relu en base au prochain accès
+     */
+    public void setSeatMapLimits(long maxSeatMaps, Duration idle, Duration refresh) {
+        this.seatMaps = this.seatMaps(maxSeatMaps, idle, refresh);
+    }
+
+    /**
+     * @param holdTtl durée d'un blocage qui n'est ni confirmé ni libéré
+     */
+    public void setHoldTtl(Duration holdTtl) {
+        this.holdTtl = holdTtl;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return plans des places en mémoire
+     */
+    public long getSeatMaps() {
+        return this.seatMaps.estimatedSize();
+    }
+
+    /**
+     * Je récupère l'état des places d'une séance
+     * @param seanceId
+     * @return
+     */
+    public PlacesDTO findPlaces(String seanceId) throws NotFoundException {
+        SeatMap seatMap = this.seatMap(seanceId);
+        return new PlacesDTO(
+                seanceId,
+                seatMap.getNbrPlace(),
+                seatMap.count(SeatMap.FREE),
+                seatMap.count(SeatMap.HELD),
+                seatMap.count(SeatMap.SOLD)
+        );
+    }
+
+    /**
+     * Bloque des places, toutes ou aucune
+     * @param seanceId
+     * @param places
+     * @return la réservation avec le jeton à utiliser pour confirmer ou libérer
+     */
+    public ReservationDTO hold(String seanceId, List<Integer> places) throws NotFoundException, ConflictException {
+        int[] seats = seats(places);
+        SeatMap seatMap = this.seatMap(seanceId);
+        if (!seatMap.hold(seats)) {
+            throw new ConflictException("Une des places n'est plus disponible");
+        }
+        long now = this.clock.millis();
+        seatMap.expiresAt(now + this.holdTtl.toMillis());
+        String token = UUID.randomUUID().toString();
+        boolean held;
+        try {
+            held = this.repository.hold(seanceId, places, token, new Date(now), this.expiredBefore(now));
+        } catch (RuntimeException e) {
+            // Base injoignable : les places ne restent pas bloquées ici sans l'être en base
+            seatMap.release(seats);
+            throw e;
+        }
+        if (!held) {
+            // Prise entre-temps sur une autre instance : le plan est relu
+            seatMap.release(seats);
+            this.seatMaps.invalidate(seanceId);
+            throw new ConflictException("Une des places n'est plus disponible");
+        }
+        this.publisher.publishEvent(new PlacesChangeEvent(seanceId));
+        return new ReservationDTO(token, places);
+    }
+
+    /**
+     * Confirme (vend) des places bloquées par la réservation, même bloquées depuis un autre nœud
+     * @param seanceId
+     * @param reservation
+     * @return
+     */
+    public ReservationDTO confirm(String seanceId, ReservationDTO reservation) throws NotFoundException, ConflictException {
+        int[] seats = seats(reservation.getPlaces());
+        SeatMap seatMap = this.seatMap(seanceId);
+        // Le jeton n'est connu que de la base : rien ne change ici avant qu'elle l'ait vérifié
+        if (!this.repository.confirm(seanceId, reservation.getPlaces(), reservation.getToken(),
+                this.expiredBefore(this.clock.millis()))) {
+            this.seatMaps.invalidate(seanceId);
+            throw new ConflictException("Une des places n'est pas bloquée par cette réservation, ou le blocage a expiré");
+        }
+        seatMap.sold(seats);
+        this.publisher.publishEvent(new PlacesChangeEvent(seanceId));
+        return reservation;
+    }
+
+    /**
+     * Libère des places bloquées par la réservation, même bloquées depuis un autre nœud
+     * @param seanceId
+     * @param reservation
+     */
+    public void release(String seanceId, ReservationDTO reservation) throws NotFoundException, ConflictException {
+        int[] seats = seats(reservation.getPlaces());
+        SeatMap seatMap = this.seatMap(seanceId);
+        if (!this.repository.release(seanceId, reservation.getPlaces(), reservation.getToken())) {
+            this.seatMaps.invalidate(seanceId);
+            throw new ConflictException("Une des places n'est pas bloquée par cette réservation");
+        }
+        seatMap.freed(seats);
+        this.publisher.publishEvent(new PlacesChangeEvent(seanceId));
+    }
+
+    /**
+     * Places écrites par un nœud, lues dans le ChangeFeed : le plan gardé ici sera relu en base
+     * au prochain accès (les écritures de ce nœud reviennent aussi, le plan est alors relu sans rien changer)
+     * @param event
+     */
+    @EventListener
+    public void onPlaces(PlacesChangeEvent event) {
+        if (event.isFromChangeFeed()) {
+            this.seatMaps.invalidate(event.getSeanceId());
+        }
+    }
+
+    /**
+     * Oublie les plans des séances supprimées ou modifiées, rechargés depuis la base au prochain accès.
+     * Une écriture de salle ou de cinéma (nombre de places, suppression en cascade) les oublie tous
+     * @param event
+     */
+    @EventListener
+    public void onChange(EntityChangeEvent event) {
+        if (EntityChangeEvent.FILMS.equals(event.getCollection())) {
+            return;
+        }
+        if (EntityChangeEvent.SEANCES.equals(event.getCollection()) && event.getId() != null) {
+            this.seatMaps.invalidate(event.getId());
+        } else {
+            this.seatMaps.invalidateAll();
+        }
+    }
+
+    /**
+     * Plan des places de la séance, chargé depuis la base au premier accès,
+     * et relu quand un de ses blocages a expiré
+     */
+    private SeatMap seatMap(String seanceId) throws NotFoundException {
+        try {
+            SeatMap seatMap = this.seatMaps.get(seanceId);
+            if (seatMap.getNextExpiry() <= this.clock.millis()) {
+                this.seatMaps.asMap().remove(seanceId, seatMap);
+                seatMap = this.seatMaps.get(seanceId);
+            }
+            return seatMap;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NotFoundException) {
+                throw (NotFoundException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private LoadingCache<String, SeatMap> seatMaps(long maxSeatMaps, Duration idle, Duration refresh) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSeatMaps)
+                .expireAfterAccess(idle)
+                .refreshAfterWrite(refresh)
+                .build(this::load);
+    }
+
+    private SeatMap load(String seanceId) throws NotFoundException {
+        Seance seance = this.seanceRepository.findById(seanceId)
+                .orElseThrow(() -> new NotFoundException("La séance n'a pas été trouvée"));
+        if (seance.getSalle() == null) {
+            throw new NotFoundException("La salle de la séance n'a pas été trouvée");
+        }
+        int nbrPlace = seance.getSalle().getNbrPlace();
+        Reservation reservation = this.repository.init(seanceId, nbrPlace);
+        // Le plan suit la salle : les places gardées en base au-delà de son nombre de places sont ignorées
+        SeatMap loaded = new SeatMap(nbrPlace);
+        long now = this.clock.millis();
+        long ttl = this.holdTtl.toMillis();
+        Map<String, Date> heldAt = reservation.getHeldAt() != null ? reservation.getHeldAt() : Map.of();
+        if (reservation.getHeld() != null) {
+            reservation.getHeld().keySet().forEach(key -> {
+                int seat = Integer.parseInt(key);
+                Date at = heldAt.get(key);
+                // Sans date (bloquée avant l'expiration des blocages) ou expirée : la place est libre
+                if (at != null && at.getTime() + ttl > now && inside(seat, nbrPlace)) {
+                    loaded.hold(seat);
+                    // Au plus une relecture par seconde quand les blocages expirent les uns après les autres
+                    loaded.expiresAt(Math.max(at.getTime() + ttl, now + 1000));
+                }
+            });
+        }
+        if (reservation.getSold() != null) {
+            reservation.getSold().stream()
+                    .filter(seat -> inside(seat, nbrPlace))
+                    .forEach(loaded::sold);
+        }
+        return loaded;
+    }
+
+    private Date expiredBefore(long now) {
+        return new Date(now - this.holdTtl.toMillis());
+    }
+
+    private static boolean inside(int seat, int nbrPlace) {
+        return seat >= 1 && seat <= nbrPlace;
+    }
+
+    private static int[] seats(List<Integer> places) {
+        if (places == null || places.isEmpty()) {
+            throw new IllegalArgumentException("Aucune place demandée");
+        }
+        int[] seats = places.stream().mapToInt(Integer::intValue).toArray();
+        if (places.stream().distinct().count() != seats.length) {
+            throw new IllegalArgumentException("Une place est demandée plusieurs fois");
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,788 @@
+package fr.semifir.apicinema.services;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Refuse les séances qui se chevauchent dans une même salle.
+ * Une séance occupe sa salle de sa date à la fin de son film le plus long (Film.duree, en minutes),
+ * plus cleaningTime ; sans film, pendant defaultDuration. Les créneaux de chaque salle sont gardés
+ * triés par début : aucun ne dure plus que le plus long de la salle, ceux qui peuvent chevaucher
+ * [début, fin[ commencent donc dans [début - durée max, fin[ et se trouvent par dichotomie.
+ * Une salle est chargée à sa première écriture, hors des verrous de la map des salles. Une écriture
+ * vérifie et réserve son créneau sous le verrou de sa salle, puis écrit dans Mongo sans ce verrou :
+ * les écritures d'une même salle ne s'attendent pas (write-behind compris), chacune voit les créneaux
+ * réservés par les autres, et une écriture qui échoue rend le sien. Un lot d'import exclut toutes les autres.
+ * Les écritures des autres nœuds (change stream) sont relues en arrière-plan : deux nœuds qui
+ * écrivent au même instant dans la même salle ne se voient pas.
+ */
+public class SalleConflicts implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SalleConflicts.class);
+
+    private static final String ID = "_id";
+    // Clé d'un élément de lot sans id, remplacée par l'id après l'écriture
+    private static final String PENDING = "\u0000";
+    // Clé d'une séance sans id réservée par saveSeance, remplacée par l'id après l'écriture
+    private static final String WRITING = "\u0001";
+    private static final int IN_BATCH_SIZE = 1000;
+
+    MongoOperations template;
+    long defaultDurationMillis;
+    long cleaningMillis;
+
+    private final Map<String, Planning> plannings = new ConcurrentHashMap<>();
+    // Salle de chaque séance et séance de chaque film, pour les salles chargées
+    private final Map<String, String> seanceSalle = new ConcurrentHashMap<>();
+    private final Map<String, String> filmSeance = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Vrai pendant l'écriture d'une séance ou d'un film déjà enregistré ici : son événement est ignoré
+    private final ThreadLocal<Boolean> writing = ThreadLocal.withInitial(() -> false);
+    private final ExecutorService refresher;
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong writingKeys = new AtomicLong();
+
+    public SalleConflicts(MongoOperations template, long defaultDurationMillis, long cleaningMillis) {
+        this.template = template;
+        this.defaultDurationMillis = defaultDurationMillis;
+        this.cleaningMillis = cleaningMillis;
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("salle-conflicts-");
+        factory.setDaemon(true);
+        this.refresher = Executors.newSingleThreadExecutor(factory);
+    }
+
+    /**
+     * Vérifie la séance et réserve son créneau sous le verrou de sa salle, puis l'écrit avec writer
+     * sans ce verrou ; le créneau est rendu si l'écriture échoue
+     * @param seance
+     * @param writer écriture Mongo
+     * @param savedId id de la séance écrite
+     * @return ce que renvoie writer
+     * @throws ConflictException la séance chevauche une autre séance de sa salle
+     */
+    public <T> T saveSeance(Seance seance, Function<Seance, T> writer, Function<T, String> savedId) {
+        String salleId = salleId(seance);
+        if (salleId == null || seance.getDate() == null) {
+            return this.write(seance, writer);
+        }
+        // Le verrou partagé laisse passer les autres écritures ; il tient à l'écart le rechargement des salles
+        this.lock.readLock().lock();
+        try {
+            Planning planning = this.planning(salleId);
+            Map<String, Long> films = this.films(seance.getId());
+            String key = seance.getId() != null ? seance.getId() : WRITING + this.writingKeys.incrementAndGet();
+            Slot reserved = this.slot(key, seance.getDate().getTime(), films);
+            Slot replaced;
+            synchronized (planning) {
+                this.check(planning, reserved);
+                replaced = planning.put(reserved);
+            }
+            T saved;
+            try {
+                saved = this.write(seance, writer);
+            } catch (RuntimeException e) {
+                synchronized (planning) {
+                    // Sauf si une écriture suivante de la même séance l'a déjà remplacé
+                    if (planning.byId.get(key) == reserved) {
+                        planning.remove(key);
+                        if (replaced != null) {
+                            planning.put(replaced);
+                        }
+                    }
+                }
+                throw e;
+            }
+            String id = savedId.apply(saved);
+            synchronized (planning) {
+                if (planning.byId.get(key) == reserved) {
+                    planning.remove(key);
+                }
+                planning.put(this.slot(id, reserved.start, films));
+            }
+            String previous = this.seanceSalle.put(id, salleId);
+            if (previous != null && !previous.equals(salleId)) {
+                this.removeSeance(previous, id);
+            }
+            return saved;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vérifie que la durée du film tient dans le créneau de sa séance et l'y réserve, puis l'écrit
+     * avec writer sans le verrou de la salle ; la durée est retirée si l'écriture échoue
+     * @param film
+     * @param writer écriture Mongo
+     * @param savedId id du film écrit
+     * @return ce que renvoie writer
+     * @throws ConflictException la séance, allongée par le film, chevauche une autre séance de sa salle
+     */
+    public <T> T saveFilm(Film film, Function<Film, T> writer, Function<T, String> savedId) {
+        String seanceId = film.getSeance() == null ? null : film.getSeance().getId();
+        String salleId = seanceId == null ? null : this.salles(List.of(seanceId)).get(seanceId);
+        if (salleId == null) {
+            return this.write(film, writer);
+        }
+        this.lock.readLock().lock();
+        try {
+            Planning planning = this.planning(salleId);
+            String key = film.getId() != null ? film.getId() : WRITING + this.writingKeys.incrementAndGet();
+            Long before;
+            synchronized (planning) {
+                Slot slot = planning.byId.get(seanceId);
+                if (slot == null) {
+                    before = null;
+                    key = null;
+                } else {
+                    before = slot.films.get(key);
+                    Slot reserved = this.slot(seanceId, slot.start, withFilm(slot.films, key, duration(film)));
+                    this.check(planning, reserved);
+                    planning.put(reserved);
+                }
+            }
+            if (key == null) {
+                return this.write(film, writer);
+            }
+            T saved;
+            try {
+                saved = this.write(film, writer);
+            } catch (RuntimeException e) {
+                // Remet la durée d'avant, garde les films écrits entre-temps
+                this.replaceFilm(planning, seanceId, key, null, before);
+                throw e;
+            }
+            String id = savedId.apply(saved);
+            this.replaceFilm(planning, seanceId, key, id, duration(film));
+            String previous = this.filmSeance.put(id, seanceId);
+            if (previous != null && !previous.equals(seanceId)) {
+                this.removeFilm(previous, id);
+            }
+            return saved;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vérifie un lot de séances, contre les salles et contre les éléments précédents du lot,
+     * et n'écrit que celles sans conflit
+     * @param chunk
+     * @param writer bulk write, renvoie les erreurs par position dans la liste écrite
+     * @return erreurs par position dans chunk, conflits compris
+     */
+    public Map<Integer, String> saveSeances(List<Seance> chunk, Function<List<Seance>, Map<Integer, String>> writer) {
+        this.lock.writeLock().lock();
+        try {
+            Map<Integer, String> errors = new HashMap<>();
+            List<Seance> accepted = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            List<Slot> recorded = new ArrayList<>();
+            List<Slot> replaced = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Seance seance = chunk.get(i);
+                String salleId = salleId(seance);
+                Slot slot = null;
+                Slot previous = null;
+                if (salleId != null && seance.getDate() != null) {
+                    Planning planning = this.planning(salleId);
+                    String key = seance.getId() != null ? seance.getId() : PENDING + i;
+                    slot = this.slot(key, seance.getDate().getTime(), this.films(seance.getId()));
+                    Slot conflict = planning.overlap(slot);
+                    if (conflict != null) {
+                        this.rejected.increment();
+                        errors.put(i, message(conflict));
+                        continue;
+                    }
+                    // Visible des éléments suivants du lot
+                    previous = planning.put(slot);
+                }
+                accepted.add(seance);
+                positions.add(i);
+                recorded.add(slot);
+                replaced.add(previous);
+            }
+            Map<Integer, String> failed = writer.apply(accepted);
+            for (int k = 0; k < accepted.size(); k++) {
+                Slot slot = recorded.get(k);
+                String error = failed.get(k);
+                if (error != null) {
+                    errors.put(positions.get(k), error);
+                }
+                if (slot == null) {
+                    continue;
+                }
+                String salleId = salleId(accepted.get(k));
+                Planning planning = this.planning(salleId);
+                planning.remove(slot.seanceId);
+                if (error != null) {
+                    if (replaced.get(k) != null) {
+                        planning.put(replaced.get(k));
+                    }
+                    continue;
+                }
+                String id = accepted.get(k).getId();
+                planning.put(this.slot(id, slot.start, slot.films));
+                String previous = this.seanceSalle.put(id, salleId);
+                if (previous != null && !previous.equals(salleId)) {
+                    this.removeSeance(previous, id);
+                }
+            }
+            return errors;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vérifie un lot de films : chacun allonge au besoin le créneau de sa séance
+     * @param chunk
+     * @param writer bulk write, renvoie les erreurs par position dans la liste écrite
+     * @return erreurs par position dans chunk, conflits compris
+     */
+    public Map<Integer, String> saveFilms(List<Film> chunk, Function<List<Film>, Map<Integer, String>> writer) {
+        this.lock.writeLock().lock();
+        try {
+            List<String> seanceIds = new ArrayList<>();
+            chunk.forEach(film -> {
+                if (film.getSeance() != null && film.getSeance().getId() != null) {
+                    seanceIds.add(film.getSeance().getId());
+                }
+            });
+            Map<String, String> salles = this.salles(seanceIds);
+            Map<Integer, String> errors = new HashMap<>();
+            List<Film> accepted = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            List<Slot> replaced = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Film film = chunk.get(i);
+                String seanceId = film.getSeance() == null ? null : film.getSeance().getId();
+                String salleId = seanceId == null ? null : salles.get(seanceId);
+                Slot slot = salleId == null ? null : this.planning(salleId).byId.get(seanceId);
+                String key = null;
+                if (slot != null) {
+                    Planning planning = this.planning(salleId);
+                    key = film.getId() != null ? film.getId() : PENDING + i;
+                    Slot candidate = this.slot(seanceId, slot.start, withFilm(slot.films, key, duration(film)));
+                    Slot conflict = planning.overlap(candidate);
+                    if (conflict != null) {
+                        this.rejected.increment();
+                        errors.put(i, message(conflict));
+                        continue;
+                    }
+                    planning.put(candidate);
+                }
+                accepted.add(film);
+                positions.add(i);
+                keys.add(key);
+                replaced.add(slot);
+            }
+            Map<Integer, String> failed = writer.apply(accepted);
+            for (int k = 0; k < accepted.size(); k++) {
+                String error = failed.get(k);
+                if (error != null) {
+                    errors.put(positions.get(k), error);
+                }
+                String key = keys.get(k);
+                if (key == null) {
+                    continue;
+                }
+                Film film = accepted.get(k);
+                String seanceId = film.getSeance().getId();
+                Planning planning = this.planning(salles.get(seanceId));
+                Slot current = planning.byId.get(seanceId);
+                Map<String, Long> films = new HashMap<>(current.films);
+                films.remove(key);
+                if (error != null) {
+                    // Retire la durée essayée, garde les films écrits depuis par le même lot
+                    Long before = replaced.get(k).films.get(key);
+                    if (before != null) {
+                        films.put(key, before);
+                    }
+                    planning.put(this.slot(seanceId, current.start, films));
+                    continue;
+                }
+                planning.put(this.slot(seanceId, current.start, withFilm(films, film.getId(), duration(film))));
+                String previous = this.filmSeance.put(film.getId(), seanceId);
+                if (previous != null && !previous.equals(seanceId)) {
+                    this.removeFilm(previous, film.getId());
+                }
+            }
+            return errors;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Les écritures faites ici sont déjà enregistrées ; les autres (autres nœuds, suppressions,
+     * imports) sont relues en arrière-plan, et une écriture en masse vide l'index
+     * @param event
+     */
+    @EventListener
+    public void onChange(EntityChangeEvent event) {
+        if (this.writing.get()) {
+            return;
+        }
+        String id = event.getId();
+        switch (event.getCollection()) {
+            case EntityChangeEvent.SEANCES:
+                this.refresh(() -> {
+                    if (id == null) {
+                        this.clear();
+                    } else {
+                        this.refreshSeance(id);
+                    }
+                });
+                break;
+            case EntityChangeEvent.FILMS:
+                this.refresh(() -> {
+                    if (id == null) {
+                        this.clear();
+                    } else {
+                        this.refreshFilm(id);
+                    }
+                });
+                break;
+            case EntityChangeEvent.SALLES:
+                this.refresh(() -> {
+                    if (id == null) {
+                        this.clear();
+                    } else if (!this.exists(Salle.class, id)) {
+                        this.plannings.remove(id);
+                        this.seanceSalle.values().removeIf(id::equals);
+                    }
+                });
+                break;
+            case EntityChangeEvent.CINEMAS:
+                this.refresh(() -> {
+                    if (id == null || !this.exists(Cinema.class, id)) {
+                        this.clear();
+                    }
+                });
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Créneaux de la salle qui chevauchent [from, to[, chargés au besoin
+     * @param salleId
+     * @param from en ms
+     * @param to en ms
+     * @return {début, fin} de chaque créneau, triés par début, temps de nettoyage compris
+     */
+    public List<long[]> occupied(String salleId, long from, long to) {
+        List<long[]> occupied = new ArrayList<>();
+        this.lock.readLock().lock();
+        try {
+            Planning planning = this.planning(salleId);
+            synchronized (planning) {
+                Slot start = new Slot("", from - planning.maxLength, 0, Map.of());
+                Slot end = new Slot("", to, 0, Map.of());
+                for (Slot slot : planning.slots.subSet(start, true, end, false)) {
+                    if (slot.end > from) {
+                        occupied.add(new long[]{slot.start, slot.end});
+                    }
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return occupied;
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * @return salles chargées
+     */
+    public int getSalles() {
+        return this.plannings.size();
+    }
+
+    @Override
+    public void close() {
+        this.refresher.shutdownNow();
+    }
+
+    private <E, T> T write(E entity, Function<E, T> writer) {
+        this.writing.set(true);
+        try {
+            return writer.apply(entity);
+        } finally {
+            this.writing.set(false);
+        }
+    }
+
+    private void refresh(Runnable task) {
+        try {
+            this.refresher.execute(() -> {
+                this.lock.writeLock().lock();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Échec de la mise à jour des créneaux des salles", e);
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Arrêt en cours
+        }
+    }
+
+    private void clear() {
+        this.plannings.clear();
+        this.seanceSalle.clear();
+        this.filmSeance.clear();
+    }
+
+    private void check(Planning planning, Slot candidate) {
+        Slot conflict = planning.overlap(candidate);
+        if (conflict != null) {
+            this.rejected.increment();
+            throw new ConflictException(message(conflict));
+        }
+    }
+
+    /**
+     * Remplace dans le créneau de la séance la durée réservée sous key par celle du film id
+     * (id null : la réservation est seulement retirée), avec les autres films du créneau à cet instant
+     */
+    private void replaceFilm(Planning planning, String seanceId, String key, String id, Long duration) {
+        synchronized (planning) {
+            Slot current = planning.byId.get(seanceId);
+            if (current == null) {
+                return;
+            }
+            Map<String, Long> films = new HashMap<>(current.films);
+            films.remove(key);
+            if (id == null) {
+                if (duration != null) {
+                    films.put(key, duration);
+                }
+            } else {
+                films = withFilm(films, id, duration);
+            }
+            planning.put(this.slot(seanceId, current.start, films));
+        }
+    }
+
+    private static String message(Slot conflict) {
+        String seance = conflict.seanceId.startsWith(PENDING) ? "une séance précédente du lot"
+                : conflict.seanceId.startsWith(WRITING) ? "une séance en cours d'enregistrement"
+                : "la séance " + conflict.seanceId;
+        return "La salle est déjà occupée par " + seance
+                + " de " + Instant.ofEpochMilli(conflict.start) + " à " + Instant.ofEpochMilli(conflict.end);
+    }
+
+    private Slot slot(String seanceId, long start, Map<String, Long> films) {
+        long duration = films.values().stream().mapToLong(Long::longValue).max().orElse(this.defaultDurationMillis);
+        // Deux séances à la même heure se chevauchent toujours
+        return new Slot(seanceId, start, start + Math.max(1, duration + this.cleaningMillis), films);
+    }
+
+    private static Map<String, Long> withFilm(Map<String, Long> films, String filmId, Long duration) {
+        Map<String, Long> copy = new HashMap<>(films);
+        if (duration == null) {
+            copy.remove(filmId);
+        } else {
+            copy.put(filmId, duration);
+        }
+        return copy;
+    }
+
+    private static Long duration(Film film) {
+        return film.getDuree() == null ? null : Math.round(film.getDuree() * 60_000d);
+    }
+
+    private static String salleId(Seance seance) {
+        return seance.getSalle() == null ? null : seance.getSalle().getId();
+    }
+
+    /**
+     * Créneaux de la salle, chargés au premier accès. La lecture Mongo se fait hors de la map :
+     * deux premiers accès simultanés lisent tous les deux, le premier chargement enregistré est gardé.
+     * Appelé sous le verrou, partagé ou exclusif : aucun rechargement ne passe entre la lecture et l'enregistrement
+     */
+    private Planning planning(String salleId) {
+        Planning planning = this.plannings.get(salleId);
+        if (planning != null) {
+            return planning;
+        }
+        Planning loaded = this.load(salleId);
+        planning = this.plannings.putIfAbsent(salleId, loaded);
+        return planning != null ? planning : loaded;
+    }
+
+    /**
+     * Créneaux de la salle : ses séances, puis leurs films par lots de IN_BATCH_SIZE
+     */
+    private Planning load(String salleId) {
+        Map<String, Long> starts = new HashMap<>();
+        List<Object> ids = new ArrayList<>();
+        this.template.getCollection(this.template.getCollectionName(Seance.class))
+                .find(Filters.eq("salle.$id", this.toId(salleId)))
+                .projection(Projections.include("date"))
+                .forEach(seance -> {
+                    if (seance.getDate("date") != null) {
+                        starts.put(id(seance.get(ID)), seance.getDate("date").getTime());
+                        ids.add(seance.get(ID));
+                    }
+                });
+        Map<String, Map<String, Long>> films = this.readFilms(ids);
+        Planning planning = new Planning();
+        starts.forEach((id, start) -> {
+            Map<String, Long> seanceFilms = films.getOrDefault(id, Map.of());
+            planning.put(this.slot(id, start, seanceFilms));
+            this.seanceSalle.put(id, salleId);
+            seanceFilms.keySet().forEach(film -> this.filmSeance.put(film, id));
+        });
+        return planning;
+    }
+
+    /**
+     * Durées des films de la séance : celles du créneau si sa salle est chargée, sinon lues en base
+     */
+    private Map<String, Long> films(String seanceId) {
+        if (seanceId == null) {
+            return Map.of();
+        }
+        String salleId = this.seanceSalle.get(seanceId);
+        Planning planning = salleId == null ? null : this.plannings.get(salleId);
+        if (planning != null) {
+            synchronized (planning) {
+                Slot slot = planning.byId.get(seanceId);
+                if (slot != null) {
+                    return slot.films;
+                }
+            }
+        }
+        return this.readFilms(List.of(this.toId(seanceId))).getOrDefault(seanceId, Map.of());
+    }
+
+    private Map<String, Map<String, Long>> readFilms(List<Object> seanceIds) {
+        Map<String, Map<String, Long>> films = new HashMap<>();
+        for (int i = 0; i < seanceIds.size(); i += IN_BATCH_SIZE) {
+            this.template.getCollection(this.template.getCollectionName(Film.class))
+                    .find(Filters.in("seance.$id", seanceIds.subList(i, Math.min(i + IN_BATCH_SIZE, seanceIds.size()))))
+                    .projection(Projections.include("duree", "seance"))
+                    .forEach(film -> {
+                        Object duree = film.get("duree");
+                        String seanceId = refId(film.get("seance"));
+                        if (duree instanceof Number && seanceId != null) {
+                            films.computeIfAbsent(seanceId, id -> new HashMap<>())
+                                    .put(id(film.get(ID)), Math.round(((Number) duree).doubleValue() * 60_000d));
+                        }
+                    });
+        }
+        return films;
+    }
+
+    /**
+     * Salle de chaque séance, lue en base pour celles des salles pas encore chargées
+     */
+    private Map<String, String> salles(Collection<String> seanceIds) {
+        Map<String, String> salles = new HashMap<>();
+        List<Object> missing = new ArrayList<>();
+        for (String seanceId : seanceIds) {
+            String salleId = this.seanceSalle.get(seanceId);
+            if (salleId != null) {
+                salles.put(seanceId, salleId);
+            } else {
+                missing.add(this.toId(seanceId));
+            }
+        }
+        for (int i = 0; i < missing.size(); i += IN_BATCH_SIZE) {
+            this.template.getCollection(this.template.getCollectionName(Seance.class))
+                    .find(Filters.in(ID, missing.subList(i, Math.min(i + IN_BATCH_SIZE, missing.size()))))
+                    .projection(Projections.include("salle"))
+                    .forEach(seance -> {
+                        String salleId = refId(seance.get("salle"));
+                        if (salleId != null) {
+                            salles.put(id(seance.get(ID)), salleId);
+                        }
+                    });
+        }
+        return salles;
+    }
+
+    private void removeSeance(String salleId, String seanceId) {
+        Planning planning = this.plannings.get(salleId);
+        if (planning != null) {
+            synchronized (planning) {
+                planning.remove(seanceId);
+            }
+        }
+    }
+
+    private void removeFilm(String seanceId, String filmId) {
+        String salleId = this.seanceSalle.get(seanceId);
+        Planning planning = salleId == null ? null : this.plannings.get(salleId);
+        if (planning != null) {
+            synchronized (planning) {
+                Slot slot = planning.byId.get(seanceId);
+                if (slot != null && slot.films.containsKey(filmId)) {
+                    planning.put(this.slot(seanceId, slot.start, withFilm(slot.films, filmId, null)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Relit la séance et ses films ; sans effet si sa salle n'est pas chargée
+     */
+    private void refreshSeance(String id) {
+        String previous = this.seanceSalle.remove(id);
+        if (previous != null) {
+            this.removeSeance(previous, id);
+        }
+        Document seance = this.template.getCollection(this.template.getCollectionName(Seance.class))
+                .find(Filters.eq(ID, this.toId(id)))
+                .projection(Projections.include("date", "salle"))
+                .first();
+        String salleId = seance == null ? null : refId(seance.get("salle"));
+        Planning planning = salleId == null ? null : this.plannings.get(salleId);
+        if (planning == null || seance.getDate("date") == null) {
+            return;
+        }
+        Map<String, Long> films = this.readFilms(List.of(seance.get(ID))).getOrDefault(id, Map.of());
+        planning.put(this.slot(id, seance.getDate("date").getTime(), films));
+        this.seanceSalle.put(id, salleId);
+        films.keySet().forEach(film -> this.filmSeance.put(film, id));
+    }
+
+    private void refreshFilm(String id) {
+        String previous = this.filmSeance.remove(id);
+        Document film = this.template.getCollection(this.template.getCollectionName(Film.class))
+                .find(Filters.eq(ID, this.toId(id)))
+                .projection(Projections.include("seance"))
+                .first();
+        String seanceId = film == null ? null : refId(film.get("seance"));
+        if (previous != null) {
+            this.refreshSeance(previous);
+        }
+        if (seanceId != null && !seanceId.equals(previous)) {
+            this.refreshSeance(seanceId);
+        }
+    }
+
+    private boolean exists(Class<?> entity, String id) {
+        return this.template.getCollection(this.template.getCollectionName(entity))
+                .countDocuments(Filters.eq(ID, this.toId(id))) > 0;
+    }
+
+    private Object toId(String id) {
+        return this.template.getConverter().convertId(id, ObjectId.class);
+    }
+
+    private static String id(Object id) {
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+    }
+
+    private static String refId(Object reference) {
+        return reference instanceof DBRef ? id(((DBRef) reference).getId()) : null;
+    }
+
+    /**
+     * Occupation d'une salle par une séance, de start à end (exclu)
+     */
+    private static final class Slot {
+
+        static final Comparator<Slot> ORDER = Comparator.<Slot>comparingLong(slot -> slot.start)
+                .thenComparing(slot -> slot.seanceId);
+
+        final String seanceId;
+        final long start;
+        final long end;
+        // Durée de chaque film de la séance, en ms
+        final Map<String, Long> films;
+
+        Slot(String seanceId, long start, long end, Map<String, Long> films) {
+            this.seanceId = seanceId;
+            this.start = start;
+            this.end = end;
+            this.films = films;
+        }
+    }
+
+    /**
+     * Créneaux d'une salle triés par début, modifiés sous le verrou de l'objet ou le verrou exclusif
+     */
+    private static final class Planning {
+
+        final TreeSet<Slot> slots = new TreeSet<>(Slot.ORDER);
+        final Map<String, Slot> byId = new HashMap<>();
+        // Plus long créneau vu depuis le chargement, ne diminue pas
+        long maxLength;
+
+        /**
+         * @return le créneau remplacé, null pour une nouvelle séance
+         */
+        Slot put(Slot slot) {
+            Slot previous = this.remove(slot.seanceId);
+            this.slots.add(slot);
+            this.byId.put(slot.seanceId, slot);
+            this.maxLength = Math.max(this.maxLength, slot.end - slot.start);
+            return previous;
+        }
+
+        Slot remove(String seanceId) {
+            Slot previous = this.byId.remove(seanceId);
+            if (previous != null) {
+                this.slots.remove(previous);
+            }
+            return previous;
+        }
+
+        /**
+         * Premier créneau d'une autre séance qui chevauche candidate, null sinon
+         */
+        Slot overlap(Slot candidate) {
+            Slot from = new Slot("", candidate.start - this.maxLength, 0, Map.of());
+            Slot to = new Slot("", candidate.end, 0, Map.of());
+            for (Slot slot : this.slots.subSet(from, true, to, false)) {
+                if (slot.end > candidate.start && !slot.seanceId.equals(candidate.seanceId)) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,26 +1,64 @@
 package fr.semifir.apicinema.services;
 
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.salle.SalleSlimDTO;
 import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.events.EntityChangeEvent;
 import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.SalleRepository;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
-public class SalleService {
+public class SalleService implements ApplicationEventPublisherAware {
+
+    // Champs de SalleSlimDTO proposés par fields=, avec la propriété de Salle lue en base
+    private static final Projection SLIM = new Projection(Map.of(
+            "numDeSalle", "numDeSalle",
+            "nbrPlace", "nbrPlace",
+            "cinemaId", "cinema"
+    ));
 
     SalleRepository repository;
-    ModelMapper mapper;
+    DtoMapper<Salle, SalleDTO> mapper;
+    int maxPageSize;
+    int bulkChunkSize;
+    // Remplacé par celui du contexte Spring ; sans contexte (benchmarks) les événements sont ignorés
+    ApplicationEventPublisher publisher = event -> { };
+    // File d'écriture différée, null sans apicinema.write-behind.enabled
+    WriteBehindQueue<Salle> writeBehind;
 
     public SalleService(
             SalleRepository repository,
-            ModelMapper mapper
+            DtoMapper<Salle, SalleDTO> mapper,
+            int maxPageSize,
+            int bulkChunkSize
             ) {
         this.repository = repository;
         this.mapper = mapper;
+        this.maxPageSize = maxPageSize;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public void setWriteBehind(WriteBehindQueue<Salle> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
     }
 
     /**
@@ -30,22 +68,76 @@ public class SalleService {
     public List<SalleDTO> findAll() {
         List<SalleDTO> salleDTOS = new ArrayList<>();
         this.repository.findAll().forEach(salle -> {
-            SalleDTO salleDTO = mapper.map(salle, SalleDTO.class);
+            SalleDTO salleDTO = mapper.map(salle);
             salleDTOS.add(salleDTO);
         });
         return salleDTOS;
     }
 
+    /**
+     * Retourne une page de salles triées par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @return PageDTO<SalleDTO>
+     */
+    public PageDTO<SalleDTO> findPage(String after, int size) {
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Salle> salles = after == null
+                ? this.repository.findAllByOrderByIdAsc(Pagination.probe(limit))
+                : this.repository.findByIdGreaterThanOrderByIdAsc(after, Pagination.probe(limit));
+        return Pagination.toPage(salles, limit, Salle::getId, mapper::map);
+    }
+
+    /**
+     * Retourne toutes les salles en vue allégée, seuls les champs demandés sont lus en base
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return List<SalleSlimDTO>
+     */
+    public List<SalleSlimDTO> findAllSlim(String fields) {
+        Set<String> selected = SLIM.select(fields);
+        List<SalleSlimDTO> salleDTOS = new ArrayList<>();
+        this.repository.findProjected(Salle.class, SLIM.properties(selected), null, 0)
+                .forEach(salle -> salleDTOS.add(slim(salle, selected)));
+        return salleDTOS;
+    }
+
+    /**
+     * Retourne une page de salles en vue allégée, triées par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return PageDTO<SalleSlimDTO>
+     */
+    public PageDTO<SalleSlimDTO> findPageSlim(String after, int size, String fields) {
+        Set<String> selected = SLIM.select(fields);
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Salle> salles = this.repository.findProjected(Salle.class, SLIM.properties(selected), after, limit + 1);
+        return Pagination.toPage(salles, limit, Salle::getId, salle -> slim(salle, selected));
+    }
+
+    /**
+     * Les int non demandés ne sont pas lus en base : ils valent 0 et sont omis plutôt que renvoyés
+     */
+    private static SalleSlimDTO slim(Salle salle, Set<String> fields) {
+        return new SalleSlimDTO(
+                salle.getId(),
+                fields.contains("numDeSalle") ? salle.getNumDeSalle() : null,
+                fields.contains("nbrPlace") ? salle.getNbrPlace() : null,
+                salle.getCinema() == null ? null : salle.getCinema().getId()
+        );
+    }
+
     /**
      * Je récupère un salle selon son ID
      * @param id
      * @return
      */
+    @Cacheable(cacheNames = "salles", key = "#id", sync = true)
     public Optional<SalleDTO> findByID(String id) throws NotFoundException {
         Optional<Salle> salle = this.repository.findById(id);
         Optional<SalleDTO> salleDTO;
         if (salle.isPresent()) {
-           salleDTO = Optional.of(mapper.map(salle.get(), SalleDTO.class));
+           salleDTO = Optional.of(mapper.map(salle.get()));
         } else {
             throw new NotFoundException("Le salle n'a pas été trouvé");
         }
@@ -58,14 +150,63 @@ public class SalleService {
      * @return
      */
     public SalleDTO save(Salle salle) {
-        return mapper.map(this.repository.save(salle), SalleDTO.class);
+        if (this.writeBehind != null) {
+            return this.writeBehind.await(this.saveBehind(salle));
+        }
+        Salle saved = this.repository.save(salle);
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SALLES, saved.getId()));
+        return mapper.map(saved);
+    }
+
+    /**
+     * Met la salle dans la file d'écriture différée, écrite avec d'autres en un seul bulk write
+     * @param salle
+     * @return complété quand Mongo a acquitté l'écriture
+     */
+    public CompletableFuture<SalleDTO> saveBehind(Salle salle) {
+        if (this.writeBehind == null) {
+            return CompletableFuture.completedFuture(this.save(salle));
+        }
+        return this.writeBehind.submit(salle).thenApplyAsync(saved -> {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SALLES, saved.getId()));
+            return mapper.map(saved);
+        }, this.writeBehind.getCallbacks());
+    }
+
+    /**
+     * Crée ou met à jour des salles en masse, par lots de bulkChunkSize écrits en un seul bulk write
+     * @param salles
+     * @param results reçoit le résultat de chaque élément, dans l'ordre reçu
+     */
+    public void saveAll(Iterator<Salle> salles, Consumer<BulkResultDTO> results) {
+        try {
+            BulkImport.saveAll(salles, this.bulkChunkSize, this.repository::bulkSave, Salle::getId, results);
+        } finally {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SALLES, null));
+        }
     }
 
     /**
-     * Je supprime mon salle
+     * Je supprime mon salle, avec tout ce qui le référence
      * @param salle
      */
     public void delete(Salle salle) {
-        this.repository.delete(salle);
+        this.repository.deleteCascade(salle.getId());
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SALLES, salle.getId()));
+    }
+
+    /**
+     * Supprime la salle, ses séances et leurs films, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection
+     * @throws NotFoundException
+     */
+    public Map<String, Long> deleteById(String id) throws NotFoundException {
+        Map<String, Long> deleted = this.repository.deleteCascade(id);
+        if (deleted.isEmpty()) {
+            throw new NotFoundException("La salle n'a pas été trouvée");
+        }
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SALLES, id));
+        return deleted;
     }
 }
@@ -0,0 +1,587 @@
+package fr.semifir.apicinema.services;
+
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningFilmDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningRequestDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningResultDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningSeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Propose les séances d'un cinéma sur plusieurs jours, sans chevauchement, en maximisant les spectateurs attendus.
+ * La demande d'un film est répartie également entre les jours et entre les salles au prorata des places :
+ * chaque (salle, jour) se planifie seul. Une séance qui commence à l'heure h attire demande × affluence(h),
+ * la k-ième meilleure séance du même film dans la journée et la salle seulement repeatDecay^k de cela,
+ * et jamais plus que les places de la salle.
+ * Chaque (salle, jour) est résolu par constructions gloutonnes randomisées (GRASP) sur une grille de gridMillis :
+ * on place une à une les séances (film, heure de début) qui rapportent le plus tant qu'il reste de la place,
+ * et on garde la meilleure journée trouvée. Les séances déjà en base (SalleConflicts) bloquent leurs créneaux.
+ * Les (salle, jour) sont résolus en parallèle dans un ForkJoinPool, jusqu'à maxIterations chacun ou la fin du budget.
+ */
+public class SchedulePlanner implements AutoCloseable {
+
+    // Affluence relative selon l'heure de début, heure locale du cinéma
+    private static final double[] HOURLY = {
+            0.2, 0.1, 0.1, 0.1, 0.1, 0.1, 0.1, 0.1, 0.1, 0.2, 0.3, 0.3,
+            0.4, 0.4, 0.5, 0.5, 0.5, 0.7, 1.0, 1.0, 1.0, 1.0, 0.6, 0.3
+    };
+
+    MongoOperations template;
+    SalleConflicts conflicts;
+    FilmService filmService;
+    SeanceService seanceService;
+    ZoneId zone;
+    long gridMillis;
+    long cleaningMillis;
+    double repeatDecay;
+    int maxIterations;
+    Duration defaultBudget;
+    Duration maxBudget;
+
+    private final ForkJoinPool pool;
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private volatile long lastMillis;
+
+    public SchedulePlanner(
+            MongoOperations template,
+            SalleConflicts conflicts,
+            FilmService filmService,
+            SeanceService seanceService,
+            ZoneId zone,
+            long gridMillis,
+            long cleaningMillis,
+            double repeatDecay,
+            int maxIterations,
+            Duration defaultBudget,
+            Duration maxBudget,
+            int parallelism
+            ) {
+        this.template = template;
+        this.conflicts = conflicts;
+        this.filmService = filmService;
+        this.seanceService = seanceService;
+        this.zone = zone;
+        this.gridMillis = gridMillis;
+        this.cleaningMillis = cleaningMillis;
+        this.repeatDecay = repeatDecay;
+        this.maxIterations = maxIterations;
+        this.defaultBudget = defaultBudget;
+        this.maxBudget = maxBudget;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Calcule un planning sans rien écrire
+     * @param cinemaId
+     * @param request
+     * @return PlanningDTO
+     * @throws NotFoundException le cinéma n'existe pas
+     * @throws IllegalArgumentException demande incomplète ou horaires invalides
+     */
+    public PlanningDTO plan(String cinemaId, PlanningRequestDTO request) throws NotFoundException {
+        validate(request);
+        List<Salle> salles = this.salles(cinemaId);
+        long started = System.nanoTime();
+        Duration budget = request.getBudget() != null ? request.getBudget() : this.defaultBudget;
+        if (budget.compareTo(this.maxBudget) > 0) {
+            budget = this.maxBudget;
+        }
+        long deadline = started + budget.toNanos();
+
+        List<PlanningFilmDTO> films = request.getFilms();
+        int[] filmCells = new int[films.size()];
+        int[] slotCells = new int[films.size()];
+        int maxSlotCells = 0;
+        for (int f = 0; f < films.size(); f++) {
+            long duree = Math.round(films.get(f).getDuree() * 60_000d);
+            filmCells[f] = this.cells(duree);
+            slotCells[f] = Math.max(1, this.cells(duree + this.cleaningMillis));
+            maxSlotCells = Math.max(maxSlotCells, slotCells[f]);
+        }
+        long places = salles.stream().mapToLong(Salle::getNbrPlace).sum();
+        List<Problem> problems = new ArrayList<>();
+        for (Salle salle : salles) {
+            if (salle.getNbrPlace() <= 0) {
+                continue;
+            }
+            double[] demand = new double[films.size()];
+            for (int f = 0; f < films.size(); f++) {
+                demand[f] = films.get(f).getDemande() / request.getJours() * salle.getNbrPlace() / places;
+            }
+            for (int day = 0; day < request.getJours(); day++) {
+                long open = this.at(request, day, true);
+                long close = this.at(request, day, false);
+                int starts = (int) ((close - open) / this.gridMillis);
+                long horizon = open + (long) (starts + maxSlotCells) * this.gridMillis;
+                Problem problem = new Problem(salle, open, starts, starts + maxSlotCells, filmCells, slotCells, demand);
+                for (long[] slot : this.conflicts.occupied(salle.getId(), open, horizon)) {
+                    problem.block(this.cell(slot[0] - open, false), this.cell(slot[1] - open, true));
+                }
+                for (int s = 0; s < starts; s++) {
+                    int hour = Instant.ofEpochMilli(open + s * this.gridMillis).atZone(this.zone).getHour();
+                    problem.affluence[s] = HOURLY[hour];
+                }
+                problem.seed = salle.getId().hashCode() * 31L + day;
+                problems.add(problem);
+            }
+        }
+        if (!problems.isEmpty()) {
+            this.pool.invoke(new Solve(problems, 0, problems.size(), deadline));
+        }
+
+        List<PlanningSeanceDTO> seances = new ArrayList<>();
+        long iterations = 0;
+        boolean complet = true;
+        for (Problem problem : problems) {
+            iterations += problem.iterations;
+            complet &= problem.iterations >= this.maxIterations;
+            seances.addAll(problem.seances(films));
+        }
+        seances.sort(Comparator.comparing(PlanningSeanceDTO::getDate).thenComparingInt(PlanningSeanceDTO::getNumDeSalle));
+        this.lastMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        this.plans.increment();
+        return new PlanningDTO(
+                cinemaId,
+                new Date(this.at(request, 0, true)),
+                new Date(this.at(request, request.getJours() - 1, false)),
+                seances,
+                seances.stream().mapToDouble(PlanningSeanceDTO::getSpectateurs).sum(),
+                iterations,
+                this.lastMillis,
+                complet
+        );
+    }
+
+    /**
+     * Écrit un planning. Tous les créneaux sont d'abord vérifiés, avec la durée du film et le nettoyage,
+     * contre les séances en base et contre les séances précédentes du planning : rien n'est écrit pour
+     * une séance refusée. Les séances acceptées sont écrites en masse, puis leurs films : aucun film
+     * ne référence une séance absente. Un film refusé entre-temps (écriture concurrente) laisse sa séance sans film.
+     * @param cinemaId
+     * @param planning séances à créer, dans l'ordre du résultat
+     * @return un résultat par séance et par film, à la position de la séance dans le planning
+     * @throws NotFoundException le cinéma n'existe pas
+     * @throws IllegalArgumentException séance incomplète ou dans une salle d'un autre cinéma
+     */
+    public PlanningResultDTO apply(String cinemaId, PlanningDTO planning) throws NotFoundException {
+        Map<String, Salle> salles = new HashMap<>();
+        this.salles(cinemaId).forEach(salle -> salles.put(salle.getId(), salle));
+        List<PlanningSeanceDTO> proposed = planning.getSeances() == null ? List.of() : planning.getSeances();
+        for (PlanningSeanceDTO seance : proposed) {
+            if (!salles.containsKey(seance.getSalleId())) {
+                throw new IllegalArgumentException("La salle " + seance.getSalleId() + " n'est pas dans ce cinéma");
+            }
+            if (seance.getDate() == null || seance.getNom() == null || seance.getDuree() == null || seance.getDuree() <= 0) {
+                throw new IllegalArgumentException("Une séance du planning n'a pas de date ou de film");
+            }
+        }
+        BulkResultDTO[] seanceResults = new BulkResultDTO[proposed.size()];
+        BulkResultDTO[] filmResults = new BulkResultDTO[proposed.size()];
+        Map<Integer, String> refused = this.check(proposed);
+        List<Seance> seances = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < proposed.size(); i++) {
+            String error = refused.get(i);
+            if (error != null) {
+                seanceResults[i] = new BulkResultDTO(i, null, BulkResultDTO.ERROR, error);
+                filmResults[i] = new BulkResultDTO(i, null, BulkResultDTO.ERROR, "Séance refusée");
+                continue;
+            }
+            PlanningSeanceDTO seance = proposed.get(i);
+            seances.add(new Seance(new ObjectId().toHexString(), seance.getDate(), salles.get(seance.getSalleId())));
+            positions.add(i);
+        }
+        List<Integer> filmPositions = new ArrayList<>();
+        this.seanceService.saveAll(seances.iterator(), result -> {
+            Seance written = seances.get((int) result.getIndex());
+            int position = positions.get((int) result.getIndex());
+            result.setIndex(position);
+            seanceResults[position] = result;
+            if (BulkResultDTO.OK.equals(result.getStatus())) {
+                PlanningSeanceDTO seance = proposed.get(position);
+                films.add(new Film(null, seance.getNom(), seance.getDuree(), written));
+                filmPositions.add(position);
+            } else {
+                filmResults[position] = new BulkResultDTO(position, null, BulkResultDTO.ERROR, "Séance refusée");
+            }
+        });
+        this.filmService.saveAll(films.iterator(), result -> {
+            int position = filmPositions.get((int) result.getIndex());
+            result.setIndex(position);
+            filmResults[position] = result;
+            if (BulkResultDTO.OK.equals(result.getStatus())) {
+                this.created.increment();
+            }
+        });
+        return new PlanningResultDTO(Arrays.asList(seanceResults), Arrays.asList(filmResults));
+    }
+
+    /**
+     * Créneaux du planning qui chevauchent une séance en base ou une séance précédente du planning
+     * @return message d'erreur par position dans le planning
+     */
+    private Map<Integer, String> check(List<PlanningSeanceDTO> proposed) {
+        Map<String, List<Integer>> bySalle = new HashMap<>();
+        for (int i = 0; i < proposed.size(); i++) {
+            bySalle.computeIfAbsent(proposed.get(i).getSalleId(), salle -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, String> refused = new HashMap<>();
+        bySalle.forEach((salleId, indexes) -> {
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (int i : indexes) {
+                from = Math.min(from, proposed.get(i).getDate().getTime());
+                to = Math.max(to, this.end(proposed.get(i)));
+            }
+            List<long[]> occupied = this.conflicts.occupied(salleId, from, to);
+            List<long[]> planned = new ArrayList<>();
+            for (int i : indexes) {
+                long start = proposed.get(i).getDate().getTime();
+                long end = this.end(proposed.get(i));
+                long[] conflict = overlap(occupied, start, end);
+                if (conflict != null) {
+                    refused.put(i, "La salle est déjà occupée de " + Instant.ofEpochMilli(conflict[0])
+                            + " à " + Instant.ofEpochMilli(conflict[1]));
+                } else if (overlap(planned, start, end) != null) {
+                    refused.put(i, "La salle est déjà occupée par une séance précédente du planning");
+                } else {
+                    planned.add(new long[]{start, end});
+                }
+            }
+        });
+        return refused;
+    }
+
+    private static long[] overlap(List<long[]> slots, long start, long end) {
+        for (long[] slot : slots) {
+            if (slot[0] < end && slot[1] > start) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private long end(PlanningSeanceDTO seance) {
+        long duration = Math.round(seance.getDuree() * 60_000d) + this.cleaningMillis;
+        return seance.getDate().getTime() + Math.max(1, duration);
+    }
+
+    public long getPlans() {
+        return this.plans.sum();
+    }
+
+    public long getCreated() {
+        return this.created.sum();
+    }
+
+    public long getLastMillis() {
+        return this.lastMillis;
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    private static void validate(PlanningRequestDTO request) {
+        if (request.getDebut() == null || request.getJours() <= 0 || request.getJours() > 31) {
+            throw new IllegalArgumentException("debut est obligatoire, jours entre 1 et 31");
+        }
+        if (request.getOuverture() == null || request.getFermeture() == null
+                || !request.getFermeture().isAfter(request.getOuverture())) {
+            throw new IllegalArgumentException("La fermeture doit suivre l'ouverture, le même jour");
+        }
+        if (request.getFilms() == null || request.getFilms().isEmpty()) {
+            throw new IllegalArgumentException("Aucun film à programmer");
+        }
+        for (PlanningFilmDTO film : request.getFilms()) {
+            if (film.getNom() == null || film.getDuree() == null || film.getDuree() <= 0 || film.getDemande() < 0) {
+                throw new IllegalArgumentException("Chaque film a un nom, une durée positive et une demande");
+            }
+        }
+    }
+
+    private List<Salle> salles(String cinemaId) throws NotFoundException {
+        if (cinemaId == null || this.template.findById(cinemaId, Cinema.class) == null) {
+            throw new NotFoundException("Le cinema n'a pas été trouvé");
+        }
+        Object id = this.template.getConverter().convertId(cinemaId, ObjectId.class);
+        List<Salle> salles = new ArrayList<>(this.template.find(Query.query(Criteria.where("cinema.$id").is(id)), Salle.class));
+        salles.sort(Comparator.comparingInt(Salle::getNumDeSalle).thenComparing(Salle::getId));
+        return salles;
+    }
+
+    private long at(PlanningRequestDTO request, int day, boolean opening) {
+        ZonedDateTime time = request.getDebut().plusDays(day)
+                .atTime(opening ? request.getOuverture() : request.getFermeture())
+                .atZone(this.zone);
+        return time.toInstant().toEpochMilli();
+    }
+
+    private int cells(long millis) {
+        return (int) ((millis + this.gridMillis - 1) / this.gridMillis);
+    }
+
+    private int cell(long millis, boolean end) {
+        return (int) (end ? Math.floorDiv(millis + this.gridMillis - 1, this.gridMillis) : Math.floorDiv(millis, this.gridMillis));
+    }
+
+    private static void insert(double[] potentials, int count, double potential) {
+        int i = count;
+        while (i > 0 && potentials[i - 1] < potential) {
+            potentials[i] = potentials[i - 1];
+            i--;
+        }
+        potentials[i] = potential;
+    }
+
+    /**
+     * Résout une moitié des (salle, jour) et laisse l'autre aux autres threads du pool
+     */
+    private final class Solve extends RecursiveAction {
+
+        final List<Problem> problems;
+        final int from;
+        final int to;
+        final long deadline;
+
+        Solve(List<Problem> problems, int from, int to, long deadline) {
+            this.problems = problems;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                this.problems.get(this.from).solve(this.deadline);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new Solve(this.problems, this.from, middle, this.deadline),
+                    new Solve(this.problems, middle, this.to, this.deadline)
+            );
+        }
+    }
+
+    /**
+     * Journée d'une salle, en cases de gridMillis depuis l'ouverture : un film commence dans [0, starts[
+     * et finit avant la fermeture, son créneau (nettoyage compris) ne touche aucune case bloquée
+     */
+    private final class Problem {
+
+        final Salle salle;
+        final long open;
+        final int starts;
+        final int[] filmCells;
+        final int[] slotCells;
+        final double[] demand;
+        final double[] affluence;
+        // blocked[i] : cases bloquées avant i
+        final int[] blocked;
+        long seed;
+
+        int[] bestStarts = new int[0];
+        int[] bestFilms = new int[0];
+        double bestValue;
+        long iterations;
+
+        Problem(Salle salle, long open, int starts, int cells, int[] filmCells, int[] slotCells, double[] demand) {
+            this.salle = salle;
+            this.open = open;
+            this.starts = starts;
+            this.filmCells = filmCells;
+            this.slotCells = slotCells;
+            this.demand = demand;
+            this.affluence = new double[starts];
+            this.blocked = new int[cells + 1];
+        }
+
+        void block(int from, int to) {
+            int cells = this.blocked.length - 1;
+            for (int i = Math.max(0, from); i < Math.min(cells, to); i++) {
+                this.blocked[i + 1] = 1;
+            }
+        }
+
+        void solve(long deadline) {
+            for (int i = 1; i < this.blocked.length; i++) {
+                this.blocked[i] += this.blocked[i - 1];
+            }
+            SplittableRandom random = new SplittableRandom(this.seed);
+            do {
+                this.construct(random);
+                this.iterations++;
+            } while (this.iterations < SchedulePlanner.this.maxIterations && System.nanoTime() < deadline);
+        }
+
+        /**
+         * Une journée gloutonne : tant qu'une séance rapporte, on en place une, tirée parmi les meilleures
+         * (film, heure) de la journée. Le score est le gain divisé par la durée occupée à une puissance tirée
+         * pour la construction (0 : gain seul, 1 : gain par case), un peu plus haut pour une séance collée
+         * à un créneau occupé, qui ne laisse pas de trou
+         */
+        private void construct(SplittableRandom random) {
+            int films = this.demand.length;
+            int cells = this.blocked.length - 1;
+            double alpha = random.nextDouble() * 0.3;
+            double exponent = random.nextDouble();
+            double[] divisors = new double[films];
+            for (int f = 0; f < films; f++) {
+                divisors[f] = Math.pow(this.slotCells[f], exponent);
+            }
+            boolean[] taken = new boolean[cells];
+            for (int i = 0; i < cells; i++) {
+                taken[i] = this.blocked[i + 1] != this.blocked[i];
+            }
+            // free[i] : cases libres consécutives à partir de i
+            int[] free = new int[cells + 1];
+            double[] scores = new double[this.starts * films];
+            double[][] potentials = new double[films][this.starts];
+            int[] counts = new int[films];
+            int[] starts = new int[this.starts];
+            int[] chosen = new int[this.starts];
+            int size = 0;
+            double total = 0;
+            while (true) {
+                for (int i = cells - 1; i >= 0; i--) {
+                    free[i] = taken[i] ? 0 : free[i + 1] + 1;
+                }
+                double best = 0;
+                double worst = Double.MAX_VALUE;
+                for (int t = 0; t < this.starts; t++) {
+                    boolean edge = t == 0 || taken[t - 1];
+                    for (int f = 0; f < films; f++) {
+                        int index = t * films + f;
+                        scores[index] = -1;
+                        if (t + this.filmCells[f] > this.starts || free[t] < this.slotCells[f]) {
+                            continue;
+                        }
+                        double gain = this.gain(potentials[f], counts[f], this.demand[f] * this.affluence[t]);
+                        if (gain <= 0) {
+                            continue;
+                        }
+                        double score = gain / divisors[f];
+                        if (edge || free[t] == this.slotCells[f]) {
+                            score *= 1.01;
+                        }
+                        scores[index] = score;
+                        best = Math.max(best, score);
+                        worst = Math.min(worst, score);
+                    }
+                }
+                if (best <= 0) {
+                    break;
+                }
+                double threshold = best - alpha * (best - worst);
+                int candidates = 0;
+                for (double score : scores) {
+                    if (score >= threshold) {
+                        candidates++;
+                    }
+                }
+                int pick = random.nextInt(candidates);
+                int index = 0;
+                while (scores[index] < threshold || pick-- > 0) {
+                    index++;
+                }
+                int t = index / films;
+                int film = index % films;
+                double potential = this.demand[film] * this.affluence[t];
+                total += this.gain(potentials[film], counts[film], potential);
+                insert(potentials[film], counts[film]++, potential);
+                Arrays.fill(taken, t, t + this.slotCells[film], true);
+                starts[size] = t;
+                chosen[size++] = film;
+            }
+            if (total > this.bestValue || this.bestStarts.length == 0) {
+                this.bestValue = total;
+                this.bestStarts = Arrays.copyOf(starts, size);
+                this.bestFilms = Arrays.copyOf(chosen, size);
+            }
+        }
+
+        /**
+         * Spectateurs ajoutés par une séance de ce potentiel aux séances du film, triées par potentiel décroissant
+         */
+        private double gain(double[] potentials, int count, double potential) {
+            double before = 0;
+            double after = 0;
+            double factor = 1;
+            int k = 0;
+            boolean placed = false;
+            for (int i = 0; i <= count; i++) {
+                double current;
+                if (!placed && (i == count || potential > potentials[k])) {
+                    current = potential;
+                    placed = true;
+                } else {
+                    current = potentials[k++];
+                }
+                after += Math.min(this.salle.getNbrPlace(), current * factor);
+                factor *= SchedulePlanner.this.repeatDecay;
+            }
+            factor = 1;
+            for (int i = 0; i < count; i++) {
+                before += Math.min(this.salle.getNbrPlace(), potentials[i] * factor);
+                factor *= SchedulePlanner.this.repeatDecay;
+            }
+            return after - before;
+        }
+
+        List<PlanningSeanceDTO> seances(List<PlanningFilmDTO> films) {
+            Integer[] order = new Integer[this.bestStarts.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // Le rang d'une séance parmi celles de son film donne sa part de la demande
+            Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -this.affluence[this.bestStarts[i]]));
+            int[] ranks = new int[films.size()];
+            List<PlanningSeanceDTO> seances = new ArrayList<>();
+            for (int i : order) {
+                int film = this.bestFilms[i];
+                double potential = this.demand[film] * this.affluence[this.bestStarts[i]];
+                double spectateurs = Math.min(this.salle.getNbrPlace(),
+                        potential * Math.pow(SchedulePlanner.this.repeatDecay, ranks[film]++));
+                seances.add(new PlanningSeanceDTO(
+                        new Date(this.open + this.bestStarts[i] * SchedulePlanner.this.gridMillis),
+                        this.salle.getId(),
+                        this.salle.getNumDeSalle(),
+                        films.get(film).getNom(),
+                        films.get(film).getDuree(),
+                        spectateurs
+                ));
+            }
+            return seances;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package fr.semifir.apicinema.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.seance.SeanceEventDTO;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.events.PlacesChangeEvent;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flux des changements de séances et de places, poussé aux abonnés (SSE) ou rendu aux long-polls.
+ * Les écritures sont regroupées et lues toutes les flushInterval, hors du thread de la requête qui écrit ;
+ * chaque changement est sérialisé une fois, numéroté et gardé dans un historique borné pour les reprises.
+ * Chaque abonné a un tampon borné vidé par un pool d'envoi, qui n'écrit que si la connexion est prête
+ * (écritures non bloquantes) : un client lent n'occupe pas de thread d'envoi. Un abonné dont le tampon
+ * est plein, ou dont la connexion n'accepte plus rien depuis un heartbeat, est décroché : il se reconnecte
+ * avec Last-Event-ID et reprend depuis l'historique, ou reçoit un reset.
+ * La numérotation est propre au nœud et repart de zéro au démarrage : les ids contiennent un identifiant
+ * de démarrage, un id émis par un autre nœud ou une exécution précédente donne un reset.
+ * Les lectures du flush ont leur thread, le scheduler ne fait que les heartbeats et la détection des décrochages.
+ */
+public class SeanceFeed implements AutoCloseable {
+
+    public static final String SEANCE = "seance";
+    public static final String PLACES = "places";
+    // Changement en masse (import, salle, cinéma, suppression en cascade) : le client relit GET /seances
+    public static final String RESET = "reset";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeanceFeed.class);
+
+    SeanceService seanceService;
+    ReservationService reservationService;
+    ObjectMapper objectMapper;
+    int bufferSize;
+    int historySize;
+    int maxSubscribers;
+    long heartbeatNanos;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<List<SeanceEventDTO>>> waiters = ConcurrentHashMap.newKeySet();
+    // Protégés par this : la numérotation et l'ordre d'arrivée dans les tampons vont ensemble
+    private final ArrayDeque<SeanceEventDTO> history = new ArrayDeque<>();
+    private long sequence;
+    private final String node = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+
+    // Écritures reçues depuis le dernier flush
+    private final Set<String> changedSeances = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedPlaces = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reset = new AtomicBoolean();
+
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService senders;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param bufferSize événements en attente d'envoi par abonné, au-delà il est décroché
+     * @param historySize derniers événements gardés pour les reprises
+     * @param senderThreads threads qui écrivent sur les connexions des abonnés
+     * @param flushIntervalMillis regroupement des écritures avant publication
+     * @param heartbeatMillis commentaire SSE envoyé aux abonnés pour garder la connexion ouverte
+     */
+    public SeanceFeed(
+            SeanceService seanceService,
+            ReservationService reservationService,
+            ObjectMapper objectMapper,
+            int bufferSize,
+            int historySize,
+            int maxSubscribers,
+            int senderThreads,
+            long flushIntervalMillis,
+            long heartbeatMillis
+    ) {
+        this.seanceService = seanceService;
+        this.reservationService = reservationService;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.senders = Executors.newFixedThreadPool(senderThreads, daemon("seance-feed-send-"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("seance-feed-"));
+        // Un flush lent (Mongo) ne retarde ni les heartbeats ni le décrochage des connexions bloquées
+        this.flusher = Executors.newSingleThreadScheduledExecutor(daemon("seance-feed-flush-"));
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Abonne un client
+     * @param lastEventId dernier événement reçu par le client, null pour partir de maintenant
+     * @param sink connexion du client
+     * @return l'abonnement, à annuler quand la connexion se termine
+     * @throws RejectedExecutionException maxSubscribers atteint
+     */
+    public synchronized Subscriber subscribe(String lastEventId, Sink sink) {
+        if (this.subscribers.size() >= this.maxSubscribers) {
+            throw new RejectedExecutionException("Trop d'abonnés au flux des séances");
+        }
+        Subscriber subscriber = new Subscriber(sink);
+        if (lastEventId != null) {
+            List<SeanceEventDTO> missed = this.since(lastEventId);
+            if (missed.size() > this.bufferSize) {
+                missed = List.of(this.resetEvent());
+            }
+            missed.forEach(subscriber.buffer::offer);
+        }
+        this.subscribers.add(subscriber);
+        // Premier envoi tout de suite : les en-têtes partent et le client sait qu'il est abonné
+        subscriber.heartbeat = true;
+        subscriber.schedule();
+        return subscriber;
+    }
+
+    /**
+     * Long-poll : les événements après after, dès qu'il y en a
+     * @param after dernier événement reçu par le client, null pour attendre le prochain
+     * @return complété avec au plus bufferSize événements, ou un reset si after est sorti de l'historique
+     * ou n'a pas été émis par ce démarrage du nœud
+     */
+    public synchronized CompletableFuture<List<SeanceEventDTO>> poll(String after) {
+        // Sous le même verrou que publish : rien n'est publié entre la lecture de la position et l'attente
+        List<SeanceEventDTO> missed = after != null ? this.since(after) : List.of();
+        if (!missed.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    missed.size() > this.bufferSize ? new ArrayList<>(missed.subList(0, this.bufferSize)) : missed
+            );
+        }
+        CompletableFuture<List<SeanceEventDTO>> waiter = new CompletableFuture<>();
+        this.waiters.add(waiter);
+        // Complété par un événement ou par l'appelant à l'expiration
+        waiter.whenComplete((events, error) -> this.waiters.remove(waiter));
+        return waiter;
+    }
+
+    public int getSubscribers() {
+        return this.subscribers.size();
+    }
+
+    public int getWaiters() {
+        return this.waiters.size();
+    }
+
+    public long getPublished() {
+        return this.published.sum();
+    }
+
+    /**
+     * @return abonnés décrochés, tampon plein ou connexion bloquée
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Note l'écriture, publiée au prochain flush
+     * @param event
+     */
+    @EventListener
+    public void onChange(EntityChangeEvent event) {
+        switch (event.getCollection()) {
+            case EntityChangeEvent.SEANCES:
+                if (event.getId() != null) {
+                    this.changedSeances.add(event.getId());
+                } else {
+                    this.reset.set(true);
+                }
+                break;
+            case EntityChangeEvent.SALLES:
+            case EntityChangeEvent.CINEMAS:
+                // Embarqués dans chaque SeanceDTO, et nbrPlace des salles
+                this.reset.set(true);
+                break;
+            default:
+        }
+    }
+
+    @EventListener
+    public void onPlaces(PlacesChangeEvent event) {
+        this.changedPlaces.add(event.getSeanceId());
+    }
+
+    /**
+     * Décroche les abonnés et termine les long-polls
+     */
+    @Override
+    public void close() {
+        this.flusher.shutdownNow();
+        this.scheduler.shutdownNow();
+        this.subscribers.forEach(Subscriber::cancel);
+        this.waiters.forEach(waiter -> waiter.complete(List.of()));
+        this.senders.shutdown();
+        try {
+            this.senders.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publie les écritures reçues depuis le dernier passage : un reset remplace les séances modifiées,
+     * puis une séance (ou sa suppression) par id et un état des places par séance
+     */
+    private void flush() {
+        try {
+            if (this.reset.getAndSet(false)) {
+                this.changedSeances.clear();
+                this.publish(RESET, "{}");
+            }
+            for (String id : drain(this.changedSeances)) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("action", "saved");
+                data.put("id", id);
+                try {
+                    data.put("seance", this.seanceService.findByID(id).get());
+                } catch (NotFoundException e) {
+                    data.put("action", "deleted");
+                }
+                this.publish(SEANCE, this.json(data));
+            }
+            for (String id : drain(this.changedPlaces)) {
+                try {
+                    this.publish(PLACES, this.json(this.reservationService.findPlaces(id)));
+                } catch (NotFoundException e) {
+                    // Séance supprimée entre-temps, l'événement seance le dit déjà
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Échec de la publication du flux des séances", e);
+        }
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        this.subscribers.forEach(subscriber -> {
+            long stalledSince = subscriber.stalledSince;
+            if (stalledSince != 0 && now - stalledSince >= this.heartbeatNanos) {
+                // La connexion n'a rien accepté depuis un heartbeat : le client ne lit plus
+                this.dropped.increment();
+                subscriber.cancel();
+                return;
+            }
+            subscriber.heartbeat = true;
+            subscriber.schedule();
+        });
+    }
+
+    private synchronized void publish(String type, String data) {
+        SeanceEventDTO event = this.event(++this.sequence, type, data);
+        this.history.addLast(event);
+        if (this.history.size() > this.historySize) {
+            this.history.removeFirst();
+        }
+        this.published.increment();
+        this.subscribers.forEach(subscriber -> subscriber.offer(event));
+        List<SeanceEventDTO> events = List.of(event);
+        this.waiters.forEach(waiter -> waiter.complete(events));
+    }
+
+    /**
+     * Événements publiés après lastEventId, ou un reset si une partie est sortie de l'historique,
+     * ou si l'id vient d'un autre nœud, d'un démarrage précédent ou d'une numérotation inconnue
+     */
+    private List<SeanceEventDTO> since(String lastEventId) {
+        long after = this.sequenceOf(lastEventId);
+        if (after == this.sequence) {
+            return List.of();
+        }
+        if (after < 0 || after > this.sequence
+                || this.history.isEmpty() || after < this.history.getFirst().getSequence() - 1) {
+            return List.of(this.resetEvent());
+        }
+        List<SeanceEventDTO> events = new ArrayList<>();
+        this.history.descendingIterator().forEachRemaining(event -> {
+            if (event.getSequence() > after) {
+                events.add(0, event);
+            }
+        });
+        return events;
+    }
+
+    /**
+     * @return numéro de l'événement s'il a été émis par ce démarrage du nœud, -1 sinon
+     */
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !this.node.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reset à la position courante : le client relit GET /seances et reprend depuis cet id
+     */
+    private SeanceEventDTO resetEvent() {
+        return this.event(this.sequence, RESET, "{}");
+    }
+
+    private SeanceEventDTO event(long sequence, String type, String data) {
+        return new SeanceEventDTO(this.node + "-" + sequence, type, data, sequence);
+    }
+
+    private String json(Object data) {
+        try {
+            return this.objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> drain(Set<String> ids) {
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> iterator = ids.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static CustomizableThreadFactory daemon(String prefix) {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Connexion d'un abonné, appelée par un seul thread d'envoi à la fois ; aucune méthode ne bloque
+     */
+    public interface Sink {
+
+        /**
+         * @return la connexion accepte une écriture ; sinon elle appelle Subscriber.resume() quand elle le redevient
+         */
+        boolean ready();
+
+        /**
+         * Écrit les événements, appelé seulement quand ready()
+         */
+        void send(List<SeanceEventDTO> events) throws IOException;
+
+        /**
+         * Message vide qui garde la connexion ouverte à travers les proxys
+         */
+        void heartbeat() throws IOException;
+
+        /**
+         * Termine la connexion, sans exception
+         */
+        void close();
+    }
+
+    public final class Subscriber {
+
+        private final Sink sink;
+        private final BlockingQueue<SeanceEventDTO> buffer = new ArrayBlockingQueue<>(SeanceFeed.this.bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean heartbeat;
+        private volatile boolean closed;
+        // Connexion prête de nouveau depuis le dernier passage
+        private volatile boolean resumed;
+        // Début de l'attente d'une connexion qui n'accepte plus d'écriture, 0 si elle est prête
+        private volatile long stalledSince;
+
+        private Subscriber(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Se désabonne ; la connexion est fermée par le pool d'envoi
+         */
+        public void cancel() {
+            this.closed = true;
+            SeanceFeed.this.subscribers.remove(this);
+            this.schedule();
+        }
+
+        /**
+         * La connexion accepte de nouveau des écritures
+         */
+        public void resume() {
+            this.resumed = true;
+            this.schedule();
+        }
+
+        private void offer(SeanceEventDTO event) {
+            if (this.buffer.offer(event)) {
+                this.schedule();
+            } else {
+                // Client trop lent : il reprendra avec Last-Event-ID
+                SeanceFeed.this.dropped.increment();
+                this.cancel();
+            }
+        }
+
+        private void schedule() {
+            if (!this.scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                SeanceFeed.this.senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Pool arrêté, close() ferme les connexions
+                this.scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            List<SeanceEventDTO> batch = new ArrayList<>();
+            try {
+                boolean ready;
+                do {
+                    this.resumed = false;
+                    if (this.closed) {
+                        this.sink.close();
+                        return;
+                    }
+                    ready = this.sink.ready();
+                    if (!ready) {
+                        // Rien n'est écrit : le tampon attend resume(), ou se remplit jusqu'au décrochage
+                        if (this.stalledSince == 0) {
+                            this.stalledSince = System.nanoTime();
+                        }
+                    } else {
+                        this.stalledSince = 0;
+                        this.buffer.drainTo(batch);
+                        if (!batch.isEmpty()) {
+                            this.heartbeat = false;
+                            this.sink.send(batch);
+                            batch.clear();
+                        } else if (this.heartbeat) {
+                            this.heartbeat = false;
+                            this.sink.heartbeat();
+                        }
+                    }
+                    this.scheduled.set(false);
+                    // Un offer ou un resume arrivé pendant ce passage a pu trouver scheduled encore à true
+                } while ((this.closed || this.resumed || ready && (!this.buffer.isEmpty() || this.heartbeat))
+                        && this.scheduled.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                // Connexion fermée par le client
+                this.closed = true;
+                SeanceFeed.this.subscribers.remove(this);
+                this.sink.close();
+                this.scheduled.set(false);
+            }
+        }
+    }
+}
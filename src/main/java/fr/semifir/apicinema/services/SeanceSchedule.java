@@ -0,0 +1,762 @@
+package fr.semifir.apicinema.services;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import fr.semifir.apicinema.dtos.seance.ShowingDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ScheduleLoadingException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index en mémoire des séances par date, pour les recherches de disponibilité
+ * ("les séances des 3 prochaines heures dans tous les cinémas") sans requête Mongo.
+ * Les séances sont chargées au démarrage dans des tableaux primitifs triés par date, avec pour chaque
+ * salle ses positions dans le même ordre : une recherche est une dichotomie suivie d'un parcours.
+ * Les écritures sont appliquées par un thread dédié, quelques ms après l'événement : la séance écrite
+ * va dans une petite table triée à côté des tableaux et son ancienne position est masquée ; les tableaux
+ * sont reconstruits quand ces deux ensembles dépassent compactionThreshold.
+ */
+public class SeanceSchedule implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeanceSchedule.class);
+
+    private static final String ID = "_id";
+    private static final int BATCH_SIZE = 10_000;
+    private static final int[] NONE = new int[0];
+
+    MongoOperations template;
+    int compactionThreshold;
+    int maxResults;
+
+    private volatile Snapshot snapshot;
+    private volatile long loadMillis;
+    private final ExecutorService worker;
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+
+    public SeanceSchedule(MongoOperations template, int compactionThreshold, int maxResults) {
+        this.template = template;
+        this.compactionThreshold = compactionThreshold;
+        this.maxResults = maxResults;
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("seance-schedule-");
+        factory.setDaemon(true);
+        this.worker = Executors.newSingleThreadExecutor(factory);
+    }
+
+    /**
+     * Chargement au démarrage, sur le thread de l'index : les recherches répondent 503 jusque-là
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        this.reload();
+    }
+
+    /**
+     * Lit toutes les séances et remplace l'index, dans le thread appelant
+     */
+    public void load() {
+        long start = System.nanoTime();
+        Map<String, String> salleCinema = new HashMap<>();
+        this.template.getCollection(this.template.getCollectionName(Salle.class))
+                .find()
+                .projection(Projections.include("cinema"))
+                .batchSize(BATCH_SIZE)
+                .forEach(salle -> salleCinema.put(id(salle.get(ID)), refId(salle.get("cinema"))));
+        Builder builder = new Builder(salleCinema);
+        this.template.getCollection(this.template.getCollectionName(Seance.class))
+                .find()
+                .projection(Projections.include("date", "salle"))
+                .batchSize(BATCH_SIZE)
+                .forEach(seance -> builder.add(seance.getDate("date"), refId(seance.get("salle")), seance.get(ID)));
+        this.snapshot = builder.build();
+        this.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        LOGGER.info(
+                "Index des séances chargé : {} séances, {} salles en {} ms, environ {} Ko",
+                this.snapshot.size(), salleCinema.size(), this.loadMillis, this.snapshot.footprint() / 1024
+        );
+    }
+
+    /**
+     * @return false tant que le premier chargement n'est pas terminé
+     */
+    public boolean isLoaded() {
+        return this.snapshot != null;
+    }
+
+    public int getSize() {
+        Snapshot current = this.snapshot;
+        return current == null ? 0 : current.size();
+    }
+
+    /**
+     * @return estimation de la mémoire occupée par l'index, en octets
+     */
+    public long getFootprintBytes() {
+        Snapshot current = this.snapshot;
+        return current == null ? 0 : current.footprint();
+    }
+
+    /**
+     * @return durée du dernier chargement complet, en ms
+     */
+    public long getLoadMillis() {
+        return this.loadMillis;
+    }
+
+    /**
+     * Séances de [from, to[, triées par date
+     * @param cinemaId null pour tous les cinémas
+     * @param salleId null pour toutes les salles
+     * @param from
+     * @param to
+     * @param limit nombre maximal de séances renvoyées, borné à maxResults
+     * @return
+     * @throws ScheduleLoadingException index pas encore chargé
+     */
+    public List<ShowingDTO> find(String cinemaId, String salleId, Date from, Date to, int limit) {
+        Snapshot current = this.snapshot;
+        if (current == null) {
+            throw new ScheduleLoadingException("Index des séances en cours de chargement");
+        }
+        return current.find(cinemaId, salleId, from.getTime(), to.getTime(), Pagination.limit(limit, this.maxResults));
+    }
+
+    /**
+     * Une séance écrite est relue seule ; une salle ou un cinéma supprimé retire ses séances ;
+     * une écriture en masse recharge tout
+     * @param event
+     */
+    @EventListener
+    public void onChange(EntityChangeEvent event) {
+        String id = event.getId();
+        if (EntityChangeEvent.FILMS.equals(event.getCollection())) {
+            return;
+        }
+        if (id == null) {
+            this.reload();
+            return;
+        }
+        switch (event.getCollection()) {
+            case EntityChangeEvent.SEANCES:
+                this.execute(() -> this.updateSeance(id));
+                break;
+            case EntityChangeEvent.SALLES:
+                this.execute(() -> this.updateSalle(id));
+                break;
+            case EntityChangeEvent.CINEMAS:
+                this.execute(() -> this.updateCinema(id));
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void close() {
+        this.worker.shutdownNow();
+    }
+
+    private void reload() {
+        // Une seule relecture en attente, quel que soit le nombre d'écritures en masse
+        if (this.reloadRequested.compareAndSet(false, true)) {
+            this.execute(() -> {
+                this.reloadRequested.set(false);
+                this.load();
+            });
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            this.worker.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Échec de la mise à jour de l'index des séances", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Index fermé
+        }
+    }
+
+    private void updateSeance(String id) {
+        Snapshot current = this.snapshot;
+        if (current == null) {
+            return;
+        }
+        current.remove(id);
+        Document seance = this.template.getCollection(this.template.getCollectionName(Seance.class))
+                .find(Filters.eq(ID, this.template.getConverter().convertId(id, ObjectId.class)))
+                .projection(Projections.include("date", "salle"))
+                .first();
+        if (seance != null) {
+            String salleId = refId(seance.get("salle"));
+            if (seance.getDate("date") != null && salleId != null) {
+                current.add(new Showing(seance.getDate("date").getTime(), id, salleId, this.cinemaOf(current, salleId)));
+            }
+        }
+        this.compactIfNeeded(current);
+    }
+
+    private void updateSalle(String id) {
+        Snapshot current = this.snapshot;
+        if (current == null) {
+            return;
+        }
+        Document salle = this.template.getCollection(this.template.getCollectionName(Salle.class))
+                .find(Filters.eq(ID, this.template.getConverter().convertId(id, ObjectId.class)))
+                .projection(Projections.include("cinema"))
+                .first();
+        if (salle == null) {
+            // Supprimée avec ses séances
+            current.removeSalle(id);
+            this.compactIfNeeded(current);
+        } else if (current.knowsSalle(id) && !Objects.equals(current.cinemaOf(id), refId(salle.get("cinema")))) {
+            // Salle passée dans un autre cinéma
+            this.reload();
+        }
+    }
+
+    private void updateCinema(String id) {
+        Snapshot current = this.snapshot;
+        if (current == null || !current.knowsCinema(id)) {
+            return;
+        }
+        boolean exists = this.template.getCollection(this.template.getCollectionName(Cinema.class))
+                .countDocuments(Filters.eq(ID, this.template.getConverter().convertId(id, ObjectId.class))) > 0;
+        if (!exists) {
+            current.removeCinema(id);
+            this.compactIfNeeded(current);
+        }
+    }
+
+    private String cinemaOf(Snapshot current, String salleId) {
+        if (current.knowsSalle(salleId)) {
+            return current.cinemaOf(salleId);
+        }
+        Document salle = this.template.getCollection(this.template.getCollectionName(Salle.class))
+                .find(Filters.eq(ID, this.template.getConverter().convertId(salleId, ObjectId.class)))
+                .projection(Projections.include("cinema"))
+                .first();
+        return salle == null ? null : refId(salle.get("cinema"));
+    }
+
+    private void compactIfNeeded(Snapshot current) {
+        if (current.pending() > this.compactionThreshold && this.snapshot == current) {
+            this.snapshot = current.compact();
+        }
+    }
+
+    private static String id(Object id) {
+        if (id == null) {
+            return null;
+        }
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : id.toString();
+    }
+
+    private static String refId(Object reference) {
+        return reference instanceof DBRef ? id(((DBRef) reference).getId()) : null;
+    }
+
+    /**
+     * Séance écrite depuis la construction des tableaux
+     */
+    private static final class Showing {
+
+        static final Comparator<Showing> ORDER = Comparator.<Showing>comparingLong(showing -> showing.time)
+                .thenComparing(showing -> showing.id);
+
+        final long time;
+        final String id;
+        final String salleId;
+        final String cinemaId;
+
+        Showing(long time, String id, String salleId, String cinemaId) {
+            this.time = time;
+            this.id = id;
+            this.salleId = salleId;
+            this.cinemaId = cinemaId;
+        }
+
+        ShowingDTO toDTO() {
+            return new ShowingDTO(this.id, new Date(this.time), this.salleId, this.cinemaId);
+        }
+    }
+
+    /**
+     * Tableaux immuables triés par date, plus les écritures reçues depuis leur construction
+     * (modifiées par le seul thread de l'index, lues par tous)
+     */
+    private static final class Snapshot {
+
+        // Par position, dans l'ordre des dates ; les ObjectId sont gardés en 8 + 4 octets
+        final long[] times;
+        final int[] salles;
+        final long[] idHigh;
+        final int[] idLow;
+        // Ids qui ne sont pas des ObjectId, par position et dans l'autre sens
+        final Map<Integer, String> otherIds;
+        final Map<String, Integer> otherPositions;
+        // Table à adressage ouvert ObjectId -> position + 1 (0 : case vide), remplie au plus à moitié
+        final int[] byId;
+        // Positions regroupées par salle, chaque groupe dans l'ordre des dates
+        final int[] bySalle;
+        final int[] salleStart;
+        final String[] salleIds;
+        final String[] salleCinema;
+        final Map<String, Integer> salleIndex;
+        final Map<String, int[]> cinemaSalles;
+
+        final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+        final ConcurrentSkipListSet<Showing> added = new ConcurrentSkipListSet<>(Showing.ORDER);
+        final Map<String, Showing> addedById = new ConcurrentHashMap<>();
+
+        Snapshot(
+                long[] times, int[] salles, long[] idHigh, int[] idLow, Map<Integer, String> otherIds,
+                int[] bySalle, int[] salleStart, String[] salleIds, String[] salleCinema
+        ) {
+            this.times = times;
+            this.salles = salles;
+            this.idHigh = idHigh;
+            this.idLow = idLow;
+            this.otherIds = otherIds;
+            this.bySalle = bySalle;
+            this.salleStart = salleStart;
+            this.salleIds = salleIds;
+            this.salleCinema = salleCinema;
+            this.otherPositions = new HashMap<>();
+            otherIds.forEach((position, id) -> this.otherPositions.put(id, position));
+            int capacity = 2;
+            while (capacity < 2 * times.length) {
+                capacity <<= 1;
+            }
+            this.byId = new int[capacity];
+            for (int position = 0; position < times.length; position++) {
+                if (!otherIds.containsKey(position)) {
+                    int slot = slot(idHigh[position], idLow[position], capacity - 1);
+                    while (this.byId[slot] != 0) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    this.byId[slot] = position + 1;
+                }
+            }
+            this.salleIndex = new HashMap<>();
+            Map<String, List<Integer>> cinemas = new HashMap<>();
+            for (int salle = 0; salle < salleIds.length; salle++) {
+                this.salleIndex.put(salleIds[salle], salle);
+                if (salleCinema[salle] != null) {
+                    cinemas.computeIfAbsent(salleCinema[salle], cinema -> new ArrayList<>()).add(salle);
+                }
+            }
+            this.cinemaSalles = new HashMap<>();
+            cinemas.forEach((cinema, list) -> this.cinemaSalles.put(cinema, list.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        private static int slot(long high, int low, int mask) {
+            long hash = (high ^ low) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        int size() {
+            return this.times.length - this.removed.size() + this.added.size();
+        }
+
+        int pending() {
+            return this.removed.size() + this.added.size();
+        }
+
+        long footprint() {
+            long arrays = (long) this.times.length * (8 + 4 + 8 + 4 + 4)
+                    + this.byId.length * 4L + this.salleStart.length * 4L;
+            // Estimations : chaîne d'id et entrée de map, Showing dans la skip list, Integer dans le set
+            long salles = this.salleIds.length * 160L;
+            long others = this.otherIds.size() * 200L;
+            long pending = this.added.size() * 250L + this.removed.size() * 60L;
+            return arrays + salles + others + pending;
+        }
+
+        boolean knowsSalle(String salleId) {
+            return this.salleIndex.containsKey(salleId);
+        }
+
+        boolean knowsCinema(String cinemaId) {
+            return this.cinemaSalles.containsKey(cinemaId)
+                    || this.added.stream().anyMatch(showing -> cinemaId.equals(showing.cinemaId));
+        }
+
+        String cinemaOf(String salleId) {
+            Integer salle = this.salleIndex.get(salleId);
+            return salle == null ? null : this.salleCinema[salle];
+        }
+
+        void add(Showing showing) {
+            this.added.add(showing);
+            this.addedById.put(showing.id, showing);
+        }
+
+        /**
+         * Masque la séance : sa position dans les tableaux, retrouvée par byId ou otherPositions,
+         * et son entrée ajoutée
+         */
+        void remove(String id) {
+            Showing showing = this.addedById.remove(id);
+            if (showing != null) {
+                this.added.remove(showing);
+            }
+            if (ObjectId.isValid(id)) {
+                ByteBuffer bytes = ByteBuffer.wrap(new ObjectId(id).toByteArray());
+                long high = bytes.getLong();
+                int low = bytes.getInt();
+                int mask = this.byId.length - 1;
+                for (int slot = slot(high, low, mask); this.byId[slot] != 0; slot = (slot + 1) & mask) {
+                    int position = this.byId[slot] - 1;
+                    if (this.idHigh[position] == high && this.idLow[position] == low) {
+                        this.removed.add(position);
+                    }
+                }
+            } else {
+                Integer position = this.otherPositions.get(id);
+                if (position != null) {
+                    this.removed.add(position);
+                }
+            }
+        }
+
+        void removeSalle(String salleId) {
+            Integer salle = this.salleIndex.get(salleId);
+            if (salle != null) {
+                for (int k = this.salleStart[salle]; k < this.salleStart[salle + 1]; k++) {
+                    this.removed.add(this.bySalle[k]);
+                }
+            }
+            this.added.removeIf(showing -> {
+                if (salleId.equals(showing.salleId)) {
+                    this.addedById.remove(showing.id);
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        void removeCinema(String cinemaId) {
+            List<String> salles = new ArrayList<>();
+            for (int salle : this.cinemaSalles.getOrDefault(cinemaId, NONE)) {
+                salles.add(this.salleIds[salle]);
+            }
+            this.added.forEach(showing -> {
+                if (cinemaId.equals(showing.cinemaId)) {
+                    salles.add(showing.salleId);
+                }
+            });
+            salles.forEach(this::removeSalle);
+        }
+
+        List<ShowingDTO> find(String cinemaId, String salleId, long from, long to, int limit) {
+            // Des positions masquées peuvent être sautées : on en lit d'autant plus
+            int max = limit + this.removed.size();
+            int[] positions;
+            if (salleId != null) {
+                Integer salle = this.salleIndex.get(salleId);
+                positions = salle == null || (cinemaId != null && !cinemaId.equals(this.salleCinema[salle]))
+                        ? NONE
+                        : this.inSalle(salle, from, to, max);
+            } else if (cinemaId != null) {
+                positions = this.inCinema(cinemaId, from, to, max);
+            } else {
+                int start = lowerBound(this.times, from);
+                int end = Math.min(lowerBound(this.times, to), start + max);
+                positions = new int[Math.max(0, end - start)];
+                Arrays.setAll(positions, i -> start + i);
+            }
+            List<Showing> added = new ArrayList<>();
+            for (Showing showing : this.added.subSet(new Showing(from, "", null, null), new Showing(to, "", null, null))) {
+                if ((salleId == null || salleId.equals(showing.salleId)) && (cinemaId == null || cinemaId.equals(showing.cinemaId))) {
+                    added.add(showing);
+                    if (added.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            // Fusion des deux listes triées par date
+            List<ShowingDTO> showings = new ArrayList<>(Math.min(limit, positions.length + added.size()));
+            int i = 0;
+            int j = 0;
+            while (showings.size() < limit && (i < positions.length || j < added.size())) {
+                if (i < positions.length && this.removed.contains(positions[i])) {
+                    i++;
+                } else if (j >= added.size() || (i < positions.length && this.times[positions[i]] <= added.get(j).time)) {
+                    showings.add(this.toDTO(positions[i++]));
+                } else {
+                    showings.add(added.get(j++).toDTO());
+                }
+            }
+            return showings;
+        }
+
+        /**
+         * Positions de la salle dans [from, to[, au plus max
+         */
+        private int[] inSalle(int salle, long from, long to, int max) {
+            int start = this.salleStart[salle];
+            int end = this.salleStart[salle + 1];
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.times[this.bySalle[middle]] < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int count = 0;
+            while (low + count < end && count < max && this.times[this.bySalle[low + count]] < to) {
+                count++;
+            }
+            return Arrays.copyOfRange(this.bySalle, low, low + count);
+        }
+
+        /**
+         * Positions des salles du cinéma : les positions suivent l'ordre des dates, un tri suffit à fusionner
+         */
+        private int[] inCinema(String cinemaId, long from, long to, int max) {
+            int[] salles = this.cinemaSalles.getOrDefault(cinemaId, NONE);
+            int[][] parts = new int[salles.length][];
+            int total = 0;
+            for (int k = 0; k < salles.length; k++) {
+                parts[k] = this.inSalle(salles[k], from, to, max);
+                total += parts[k].length;
+            }
+            int[] positions = new int[total];
+            int offset = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, positions, offset, part.length);
+                offset += part.length;
+            }
+            Arrays.sort(positions);
+            return positions.length > max ? Arrays.copyOf(positions, max) : positions;
+        }
+
+        private ShowingDTO toDTO(int position) {
+            String other = this.otherIds.get(position);
+            String id = other != null
+                    ? other
+                    : new ObjectId(ByteBuffer.allocate(12).putLong(this.idHigh[position]).putInt(this.idLow[position]).array()).toHexString();
+            String salleId = this.salleIds[this.salles[position]];
+            return new ShowingDTO(id, new Date(this.times[position]), salleId, this.salleCinema[this.salles[position]]);
+        }
+
+        /**
+         * Nouveaux tableaux sans les positions masquées, avec les séances ajoutées
+         */
+        Snapshot compact() {
+            Map<String, String> salleCinema = new HashMap<>();
+            for (int salle = 0; salle < this.salleIds.length; salle++) {
+                salleCinema.put(this.salleIds[salle], this.salleCinema[salle]);
+            }
+            this.added.forEach(showing -> salleCinema.putIfAbsent(showing.salleId, showing.cinemaId));
+            Builder builder = new Builder(salleCinema);
+            for (int position = 0; position < this.times.length; position++) {
+                if (!this.removed.contains(position)) {
+                    String other = this.otherIds.get(position);
+                    builder.add(this.times[position], this.salleIds[this.salles[position]], other, this.idHigh[position], this.idLow[position]);
+                }
+            }
+            this.added.forEach(showing -> builder.add(new Date(showing.time), showing.salleId, showing.id));
+            return builder.build();
+        }
+
+        private static int lowerBound(long[] values, long value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Accumule les séances dans des tableaux extensibles puis les trie
+     */
+    private static final class Builder {
+
+        private final Map<String, String> salleCinema;
+        private final Map<String, Integer> salleIndex = new HashMap<>();
+        private final List<String> salleIds = new ArrayList<>();
+        private final Map<Integer, String> otherIds = new HashMap<>();
+        private long[] times = new long[1024];
+        private int[] salles = new int[1024];
+        private long[] idHigh = new long[1024];
+        private int[] idLow = new int[1024];
+        private int size;
+
+        Builder(Map<String, String> salleCinema) {
+            this.salleCinema = salleCinema;
+            // Toutes les salles connues, même sans séance : leur cinéma sert aux séances ajoutées ensuite
+            salleCinema.keySet().forEach(this::salle);
+        }
+
+        /**
+         * @param date ignorée si null, comme une séance sans salle
+         * @param salleId
+         * @param id ObjectId ou String
+         */
+        void add(Date date, String salleId, Object id) {
+            if (date == null || salleId == null || id == null) {
+                return;
+            }
+            String hex = id instanceof ObjectId ? ((ObjectId) id).toHexString() : id.toString();
+            if (ObjectId.isValid(hex)) {
+                ByteBuffer bytes = ByteBuffer.wrap(new ObjectId(hex).toByteArray());
+                this.add(date.getTime(), salleId, null, bytes.getLong(), bytes.getInt());
+            } else {
+                this.add(date.getTime(), salleId, hex, 0, 0);
+            }
+        }
+
+        void add(long time, String salleId, String otherId, long high, int low) {
+            if (salleId == null) {
+                return;
+            }
+            if (this.size == this.times.length) {
+                int capacity = this.size * 2;
+                this.times = Arrays.copyOf(this.times, capacity);
+                this.salles = Arrays.copyOf(this.salles, capacity);
+                this.idHigh = Arrays.copyOf(this.idHigh, capacity);
+                this.idLow = Arrays.copyOf(this.idLow, capacity);
+            }
+            this.times[this.size] = time;
+            this.salles[this.size] = this.salle(salleId);
+            this.idHigh[this.size] = high;
+            this.idLow[this.size] = low;
+            if (otherId != null) {
+                this.otherIds.put(this.size, otherId);
+            }
+            this.size++;
+        }
+
+        private int salle(String salleId) {
+            return this.salleIndex.computeIfAbsent(salleId, id -> {
+                this.salleIds.add(id);
+                return this.salleIds.size() - 1;
+            });
+        }
+
+        Snapshot build() {
+            int n = this.size;
+            int[] order = this.sortByTime();
+            long[] sortedTimes = new long[n];
+            int[] sortedSalles = new int[n];
+            long[] sortedHigh = new long[n];
+            int[] sortedLow = new int[n];
+            Map<Integer, String> sortedOthers = new HashMap<>();
+            for (int position = 0; position < n; position++) {
+                int source = order[position];
+                sortedTimes[position] = this.times[source];
+                sortedSalles[position] = this.salles[source];
+                sortedHigh[position] = this.idHigh[source];
+                sortedLow[position] = this.idLow[source];
+                if (!this.otherIds.isEmpty() && this.otherIds.containsKey(source)) {
+                    sortedOthers.put(position, this.otherIds.get(source));
+                }
+            }
+            // Regroupement par salle : clé salle * n + position, les positions gardent l'ordre des dates
+            int salleCount = this.salleIds.size();
+            long[] keys = new long[n];
+            for (int position = 0; position < n; position++) {
+                keys[position] = (long) sortedSalles[position] * n + position;
+            }
+            Arrays.parallelSort(keys);
+            int[] bySalle = new int[n];
+            int[] salleStart = new int[salleCount + 1];
+            for (int k = 0; k < n; k++) {
+                bySalle[k] = (int) (keys[k] % n);
+                salleStart[sortedSalles[bySalle[k]] + 1]++;
+            }
+            for (int salle = 0; salle < salleCount; salle++) {
+                salleStart[salle + 1] += salleStart[salle];
+            }
+            String[] salleIdArray = this.salleIds.toArray(new String[0]);
+            String[] salleCinemaArray = new String[salleCount];
+            for (int salle = 0; salle < salleCount; salle++) {
+                salleCinemaArray[salle] = this.salleCinema.get(salleIdArray[salle]);
+            }
+            return new Snapshot(
+                    sortedTimes, sortedSalles, sortedHigh, sortedLow, sortedOthers,
+                    bySalle, salleStart, salleIdArray, salleCinemaArray
+            );
+        }
+
+        /**
+         * Ordre des positions par date : date relative et position tiennent dans un long pour
+         * un tri primitif, sinon (dates étalées sur des siècles) tri d'objets
+         */
+        private int[] sortByTime() {
+            int n = this.size;
+            int[] order = new int[n];
+            if (n == 0) {
+                return order;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                min = Math.min(min, this.times[i]);
+                max = Math.max(max, this.times[i]);
+            }
+            int bits = 64 - Long.numberOfLeadingZeros(n);
+            if (max - min >= 0 && max - min < 1L << (63 - bits)) {
+                long[] keys = new long[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = (this.times[i] - min) << bits | i;
+                }
+                Arrays.parallelSort(keys);
+                long mask = (1L << bits) - 1;
+                for (int i = 0; i < n; i++) {
+                    order[i] = (int) (keys[i] & mask);
+                }
+            } else {
+                Integer[] boxed = new Integer[n];
+                Arrays.setAll(boxed, i -> i);
+                long[] values = this.times;
+                Arrays.sort(boxed, Comparator.comparingLong(i -> values[i]));
+                for (int i = 0; i < n; i++) {
+                    order[i] = boxed[i];
+                }
+            }
+            return order;
+        }
+    }
+}
@@ -1,26 +1,69 @@
 package fr.semifir.apicinema.services;
 
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceSlimDTO;
 import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
 import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.mappers.DtoMapper;
 import fr.semifir.apicinema.repositories.SeanceRepository;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class SeanceService {
+public class SeanceService implements ApplicationEventPublisherAware {
+
+    // Champs de SeanceSlimDTO proposés par fields=, avec la propriété de Seance lue en base
+    private static final Projection SLIM = new Projection(Map.of("date", "date", "salleId", "salle"));
 
     SeanceRepository repository;
-    ModelMapper mapper;
+    DtoMapper<Seance, SeanceDTO> mapper;
+    int maxPageSize;
+    int bulkChunkSize;
+    // Remplacé par celui du contexte Spring ; sans contexte (benchmarks) les événements sont ignorés
+    ApplicationEventPublisher publisher = event -> { };
+    // File d'écriture différée, null sans apicinema.write-behind.enabled
+    WriteBehindQueue<Seance> writeBehind;
+    // Refus des séances qui se chevauchent dans une salle, null avec apicinema.conflicts.enabled=false
+    SalleConflicts conflicts;
 
     public SeanceService(
             SeanceRepository repository,
-            ModelMapper mapper
+            DtoMapper<Seance, SeanceDTO> mapper,
+            int maxPageSize,
+            int bulkChunkSize
             ) {
         this.repository = repository;
         this.mapper = mapper;
+        this.maxPageSize = maxPageSize;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public void setWriteBehind(WriteBehindQueue<Seance> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public void setConflicts(SalleConflicts conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
     }
 
     /**
@@ -29,23 +72,101 @@ public class SeanceService {
      */
     public List<SeanceDTO> findAll() {
         List<SeanceDTO> seanceDTOS = new ArrayList<>();
-        this.repository.findAll().forEach(seance -> {
-            SeanceDTO seanceDTO = mapper.map(seance, SeanceDTO.class);
+        this.repository.findAllResolved().forEach(seance -> {
+            SeanceDTO seanceDTO = mapper.map(seance);
             seanceDTOS.add(seanceDTO);
         });
         return seanceDTOS;
     }
 
+    /**
+     * Parcourt toutes les séances avec un curseur Mongo, par lots de maxPageSize dont les
+     * références sont résolues ensemble, et passe chaque DTO au consumer
+     * sans jamais construire la liste complète en mémoire
+     * @param consumer
+     */
+    public void streamAll(Consumer<SeanceDTO> consumer) {
+        this.repository.forEachResolved(this.maxPageSize, seance -> consumer.accept(mapper.map(seance)));
+    }
+
+    /**
+     * Retourne une page de séances triées par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @return PageDTO<SeanceDTO>
+     */
+    public PageDTO<SeanceDTO> findPage(String after, int size) {
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Seance> seances = this.repository.findPageResolved(after, limit + 1);
+        return Pagination.toPage(seances, limit, Seance::getId, mapper::map);
+    }
+
+    /**
+     * Recherche les séances d'un cinéma et/ou d'une salle sur une plage de dates, paginée par curseur
+     * @param cinemaId null pour tous les cinémas
+     * @param salleId null pour toutes les salles
+     * @param from début de la plage (inclus)
+     * @param to fin de la plage (exclue)
+     * @param after curseur "next" de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @return PageDTO<SeanceDTO>
+     */
+    public PageDTO<SeanceDTO> search(String cinemaId, String salleId, Date from, Date to, String after, int size) {
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Seance> seances = this.repository.search(cinemaId, salleId, from, to, after, limit + 1);
+        return Pagination.toPage(seances, limit, SeanceService::searchCursor, mapper::map);
+    }
+
+    private static String searchCursor(Seance seance) {
+        return seance.getDate().getTime() + "_" + seance.getId();
+    }
+
+    /**
+     * Retourne toutes les séances en vue allégée, seuls les champs demandés sont lus en base
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return List<SeanceSlimDTO>
+     */
+    public List<SeanceSlimDTO> findAllSlim(String fields) {
+        Set<String> selected = SLIM.select(fields);
+        List<SeanceSlimDTO> seanceDTOS = new ArrayList<>();
+        this.repository.findProjected(Seance.class, SLIM.properties(selected), null, 0)
+                .forEach(seance -> seanceDTOS.add(slim(seance)));
+        return seanceDTOS;
+    }
+
+    /**
+     * Retourne une page de séances en vue allégée, triées par id, à partir du curseur "after"
+     * @param after id du dernier élément de la page précédente, null pour la première page
+     * @param size taille demandée, bornée par maxPageSize
+     * @param fields champs séparés par des virgules, vide pour les ids seuls
+     * @return PageDTO<SeanceSlimDTO>
+     */
+    public PageDTO<SeanceSlimDTO> findPageSlim(String after, int size, String fields) {
+        Set<String> selected = SLIM.select(fields);
+        int limit = Pagination.limit(size, this.maxPageSize);
+        List<Seance> seances = this.repository.findProjected(Seance.class, SLIM.properties(selected), after, limit + 1);
+        return Pagination.toPage(seances, limit, Seance::getId, SeanceService::slim);
+    }
+
+    private static SeanceSlimDTO slim(Seance seance) {
+        return new SeanceSlimDTO(
+                seance.getId(),
+                seance.getDate(),
+                seance.getSalle() == null ? null : seance.getSalle().getId()
+        );
+    }
+
     /**
      * Je récupère un seance selon son ID
      * @param id
      * @return
      */
+    @Cacheable(cacheNames = "seances", key = "#id", sync = true)
     public Optional<SeanceDTO> findByID(String id) throws NotFoundException {
         Optional<Seance> seance = this.repository.findById(id);
         Optional<SeanceDTO> seanceDTO;
         if (seance.isPresent()) {
-           seanceDTO = Optional.of(mapper.map(seance.get(), SeanceDTO.class));
+           seanceDTO = Optional.of(mapper.map(seance.get()));
         } else {
             throw new NotFoundException("Le seance n'a pas été trouvé");
         }
@@ -56,16 +177,74 @@ public class SeanceService {
      * Save & update un seance
      * @param seance
      * @return
+     * @throws ConflictException la séance chevauche une autre séance de sa salle
      */
     public SeanceDTO save(Seance seance) {
-        return mapper.map(this.repository.save(seance), SeanceDTO.class);
+        if (this.conflicts != null) {
+            return this.conflicts.saveSeance(seance, this::write, SeanceDTO::getId);
+        }
+        return this.write(seance);
+    }
+
+    private SeanceDTO write(Seance seance) {
+        if (this.writeBehind != null) {
+            return this.writeBehind.await(this.saveBehind(seance));
+        }
+        Seance saved = this.repository.save(seance);
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SEANCES, saved.getId()));
+        return mapper.map(saved);
+    }
+
+    /**
+     * Met la séance dans la file d'écriture différée, écrite avec d'autres en un seul bulk write
+     * Seulement depuis save : la séance est déjà vérifiée par SalleConflicts
+     * @param seance
+     * @return complété quand Mongo a acquitté l'écriture
+     */
+    private CompletableFuture<SeanceDTO> saveBehind(Seance seance) {
+        return this.writeBehind.submit(seance).thenApplyAsync(saved -> {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SEANCES, saved.getId()));
+            return mapper.map(saved);
+        }, this.writeBehind.getCallbacks());
+    }
+
+    /**
+     * Crée ou met à jour des séances en masse, par lots de bulkChunkSize écrits en un seul bulk write
+     * @param seances
+     * @param results reçoit le résultat de chaque élément, dans l'ordre reçu
+     */
+    public void saveAll(Iterator<Seance> seances, Consumer<BulkResultDTO> results) {
+        try {
+            Function<List<Seance>, Map<Integer, String>> writer = this.conflicts == null
+                    ? this.repository::bulkSave
+                    : chunk -> this.conflicts.saveSeances(chunk, this.repository::bulkSave);
+            BulkImport.saveAll(seances, this.bulkChunkSize, writer, Seance::getId, results);
+        } finally {
+            this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SEANCES, null));
+        }
     }
 
     /**
-     * Je supprime mon seance
+     * Je supprime mon seance, avec tout ce qui le référence
      * @param seance
      */
     public void delete(Seance seance) {
-        this.repository.delete(seance);
+        this.repository.deleteCascade(seance.getId());
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SEANCES, seance.getId()));
+    }
+
+    /**
+     * Supprime la séance, ses films et l'état de ses places, un deleteMany par collection
+     * @param id
+     * @return documents supprimés par collection
+     * @throws NotFoundException
+     */
+    public Map<String, Long> deleteById(String id) throws NotFoundException {
+        Map<String, Long> deleted = this.repository.deleteCascade(id);
+        if (deleted.isEmpty()) {
+            throw new NotFoundException("La séance n'a pas été trouvée");
+        }
+        this.publisher.publishEvent(new EntityChangeEvent(EntityChangeEvent.SEANCES, id));
+        return deleted;
     }
 }
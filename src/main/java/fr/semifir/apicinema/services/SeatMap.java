@@ -0,0 +1,183 @@
+package fr.semifir.apicinema.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Plan des places d'une séance en mémoire, sans verrou :
+ * 2 bits par place (libre, bloquée, vendue) dans un tableau de long, modifiés par CAS.
+ * Deux réservations ne se gênent que si leurs places tombent dans le même mot de 32 places.
+ * Les places sont numérotées de 1 à nbrPlace.
+ */
+public class SeatMap {
+
+    public static final int FREE = 0;
+    public static final int HELD = 1;
+    public static final int SOLD = 2;
+
+    private static final int SEATS_PER_WORD = 32;
+    private static final long STATE_MASK = 3L;
+
+    private final int nbrPlace;
+    private final AtomicLongArray words;
+    private final AtomicInteger[] counts = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+    // Expiration du plus ancien blocage connu (epoch millis), Long.MAX_VALUE sans blocage
+    private final AtomicLong nextExpiry = new AtomicLong(Long.MAX_VALUE);
+
+    public SeatMap(int nbrPlace) {
+        this.nbrPlace = nbrPlace;
+        this.words = new AtomicLongArray((nbrPlace + SEATS_PER_WORD - 1) / SEATS_PER_WORD);
+        this.counts[FREE].set(nbrPlace);
+    }
+
+    public int getNbrPlace() {
+        return this.nbrPlace;
+    }
+
+    public int count(int state) {
+        return this.counts[state].get();
+    }
+
+    /**
+     * @return date (epoch millis) à partir de laquelle un des blocages du plan peut avoir expiré
+     */
+    public long getNextExpiry() {
+        return this.nextExpiry.get();
+    }
+
+    /**
+     * Note l'expiration d'un blocage, si elle est plus proche que celles déjà connues
+     * @param expiry epoch millis
+     */
+    public void expiresAt(long expiry) {
+        this.nextExpiry.accumulateAndGet(expiry, Math::min);
+    }
+
+    public int state(int seat) {
+        this.checkSeat(seat);
+        int index = seat - 1;
+        return (int) ((this.words.get(index / SEATS_PER_WORD) >>> shift(index)) & STATE_MASK);
+    }
+
+    /**
+     * Bloque toutes les places ou aucune
+     * @param seats
+     * @return false si une des places n'était pas libre
+     */
+    public boolean hold(int... seats) {
+        return this.transitionAll(seats, FREE, HELD);
+    }
+
+    /**
+     * Passe des places bloquées en vendues, toutes ou aucune
+     * @param seats
+     * @return false si une des places n'était pas bloquée
+     */
+    public boolean confirm(int... seats) {
+        return this.transitionAll(seats, HELD, SOLD);
+    }
+
+    /**
+     * Libère des places bloquées, toutes ou aucune
+     * @param seats
+     * @return false si une des places n'était pas bloquée
+     */
+    public boolean release(int... seats) {
+        return this.transitionAll(seats, HELD, FREE);
+    }
+
+    /**
+     * Annule une confirmation (places vendues -> bloquées), utilisé quand la persistance échoue
+     * @param seats
+     * @return
+     */
+    public boolean unconfirm(int... seats) {
+        return this.transitionAll(seats, SOLD, HELD);
+    }
+
+    /**
+     * Marque des places vendues en base, quel que soit leur état ici (bloquées depuis un autre nœud)
+     * @param seats
+     */
+    public void sold(int... seats) {
+        this.force(seats, SOLD);
+    }
+
+    /**
+     * Marque des places libérées en base, quel que soit leur état ici
+     * @param seats
+     */
+    public void freed(int... seats) {
+        this.force(seats, FREE);
+    }
+
+    private void force(int[] seats, int to) {
+        for (int seat : seats) {
+            this.checkSeat(seat);
+        }
+        for (int seat : seats) {
+            int index = seat - 1;
+            int word = index / SEATS_PER_WORD;
+            int shift = shift(index);
+            long mask = STATE_MASK << shift;
+            while (true) {
+                long current = this.words.get(word);
+                int from = (int) ((current & mask) >>> shift);
+                if (from == to) {
+                    break;
+                }
+                if (this.words.compareAndSet(word, current, (current & ~mask) | ((long) to << shift))) {
+                    this.counts[from].decrementAndGet();
+                    this.counts[to].incrementAndGet();
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean transitionAll(int[] seats, int from, int to) {
+        for (int seat : seats) {
+            this.checkSeat(seat);
+        }
+        for (int i = 0; i < seats.length; i++) {
+            if (!this.transition(seats[i], from, to)) {
+                // On remet dans leur état les places déjà modifiées
+                for (int j = 0; j < i; j++) {
+                    this.transition(seats[j], to, from);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean transition(int seat, int from, int to) {
+        int index = seat - 1;
+        int word = index / SEATS_PER_WORD;
+        int shift = shift(index);
+        long mask = STATE_MASK << shift;
+        while (true) {
+            long current = this.words.get(word);
+            if (((current & mask) >>> shift) != from) {
+                return false;
+            }
+            long next = (current & ~mask) | ((long) to << shift);
+            if (this.words.compareAndSet(word, current, next)) {
+                this.counts[from].decrementAndGet();
+                this.counts[to].incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private static int shift(int index) {
+        return (index % SEATS_PER_WORD) * 2;
+    }
+
+    private void checkSeat(int seat) {
+        if (seat < 1 || seat > this.nbrPlace) {
+            throw new IllegalArgumentException("La place " + seat + " n'existe pas");
+        }
+    }
+}
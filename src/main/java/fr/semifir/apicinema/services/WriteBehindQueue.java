@@ -0,0 +1,266 @@
+package fr.semifir.apicinema.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Écriture différée (write-behind) : les save() sont mis dans une file bornée et un thread les écrit
+ * en bulk write, dès que batchSize éléments attendent ou flushInterval après le premier.
+ * Chaque élément reçoit un future complété quand Mongo a acquitté son lot (ou en erreur).
+ * File pleine : submit() attend offerTimeout puis refuse l'élément (RejectedExecutionException).
+ * Les futures sont complétés sur le thread d'écriture : la suite (événements, mapping) passe par callbacks
+ */
+public class WriteBehindQueue<E> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    // Attente maximale du thread d'écriture avant de revérifier la fermeture
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final String name;
+    private final Function<List<E>, Map<Integer, String>> writer;
+    private final Function<E, String> id;
+    private final BlockingQueue<Pending<E>> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Executor callbacks;
+    private final long awaitTimeoutNanos;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name nom de la collection, pour le thread et les messages
+     * @param writer écriture d'un lot, renvoie les erreurs par position (BulkSaveRepository::bulkSave)
+     * @param id id d'un élément, null pour une création
+     * @param callbacks exécute la suite des futures, hors du thread d'écriture
+     * @param awaitTimeoutNanos attente maximale de await()
+     */
+    public WriteBehindQueue(
+            String name,
+            Function<List<E>, Map<Integer, String>> writer,
+            Function<E, String> id,
+            int capacity,
+            int batchSize,
+            long flushIntervalNanos,
+            long offerTimeoutNanos,
+            Executor callbacks,
+            long awaitTimeoutNanos
+    ) {
+        this.name = name;
+        this.writer = writer;
+        this.id = id;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.offerTimeoutNanos = offerTimeoutNanos;
+        this.callbacks = callbacks;
+        this.awaitTimeoutNanos = awaitTimeoutNanos;
+        this.flusher = new Thread(this::run, "write-behind-" + name);
+        this.flusher.start();
+    }
+
+    /**
+     * Met l'élément en file
+     * @param entity
+     * @return complété avec l'élément (id renseigné) quand son lot est écrit
+     * @throws RejectedExecutionException file toujours pleine après offerTimeout, ou fermée
+     */
+    public CompletableFuture<E> submit(E entity) {
+        if (this.closed) {
+            throw new RejectedExecutionException("File d'écriture " + this.name + " fermée");
+        }
+        Pending<E> pending = new Pending<>(entity);
+        try {
+            if (!this.queue.offer(pending, this.offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                this.rejected.increment();
+                throw new RejectedExecutionException("File d'écriture " + this.name + " pleine");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Attente interrompue sur la file d'écriture " + this.name);
+        }
+        // Fermée pendant offer() : si l'élément est encore en file, ni le thread ni close() ne le verront
+        if (this.closed && this.queue.remove(pending)) {
+            throw new RejectedExecutionException("File d'écriture " + this.name + " fermée");
+        }
+        return pending.future;
+    }
+
+    /**
+     * Attend l'acquittement d'une écriture différée au plus awaitTimeout,
+     * l'erreur d'écriture est relancée telle quelle
+     * @param future
+     * @return le résultat du future
+     * @throws QueryTimeoutException pas d'acquittement à temps, l'écriture peut encore avoir lieu
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(this.awaitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Écriture différée " + this.name + " non acquittée à temps");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Attente interrompue sur la file d'écriture " + this.name);
+        }
+    }
+
+    /**
+     * @return exécuteur de la suite des futures (thenApplyAsync), pour ne pas retarder les lots suivants
+     */
+    public Executor getCallbacks() {
+        return this.callbacks;
+    }
+
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    public long getBatches() {
+        return this.batches.sum();
+    }
+
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Refuse les nouveaux éléments et écrit ceux déjà en file avant de rendre la main
+     */
+    @Override
+    public void close() throws InterruptedException {
+        this.closed = true;
+        this.flusher.join();
+        // Éléments arrivés entre le dernier passage du thread et la fermeture
+        List<Pending<E>> rest = new ArrayList<>();
+        this.queue.drainTo(rest);
+        this.flush(rest);
+    }
+
+    private void run() {
+        List<Pending<E>> batch = new ArrayList<>(this.batchSize);
+        try {
+            while (!this.closed || !this.queue.isEmpty()) {
+                Pending<E> first = this.queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + this.flushIntervalNanos;
+                while (batch.size() < this.batchSize) {
+                    this.queue.drainTo(batch, this.batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() == this.batchSize || wait <= 0 || this.closed) {
+                        break;
+                    }
+                    Pending<E> next = this.queue.poll(
+                            Math.min(wait, TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS)), TimeUnit.NANOSECONDS
+                    );
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                this.flush(batch);
+                batch = new ArrayList<>(this.batchSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Écrit le lot en un ou plusieurs bulk writes : le bulk write n'étant pas ordonné,
+     * deux écritures du même document dans un lot sont séparées pour garder la dernière
+     */
+    private void flush(List<Pending<E>> batch) {
+        Set<String> ids = new HashSet<>();
+        int from = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            String entityId = this.id.apply(batch.get(i).entity);
+            if (entityId != null && !ids.add(entityId)) {
+                this.write(batch.subList(from, i));
+                ids.clear();
+                ids.add(entityId);
+                from = i;
+            }
+        }
+        this.write(batch.subList(from, batch.size()));
+    }
+
+    private void write(List<Pending<E>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<E> entities = new ArrayList<>(batch.size());
+        batch.forEach(pending -> entities.add(pending.entity));
+        Map<Integer, String> errors;
+        try {
+            errors = this.writer.apply(entities);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Échec de l'écriture d'un lot de {} {}", batch.size(), this.name, e);
+            this.failed.add(batch.size());
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+        this.batches.increment();
+        this.written.add(batch.size() - errors.size());
+        this.failed.add(errors.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Pending<E> pending = batch.get(i);
+            String error = errors.get(i);
+            if (error == null) {
+                pending.future.complete(pending.entity);
+            } else {
+                pending.future.completeExceptionally(new DataIntegrityViolationException(error));
+            }
+        }
+    }
+
+    private static final class Pending<E> {
+
+        final E entity;
+        final CompletableFuture<E> future = new CompletableFuture<>();
+
+        Pending(E entity) {
+            this.entity = entity;
+        }
+    }
+}
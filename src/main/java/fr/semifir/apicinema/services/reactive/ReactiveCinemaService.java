@@ -0,0 +1,57 @@
+package fr.semifir.apicinema.services.reactive;
+
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.repositories.reactive.ReactiveCinemaRepository;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveCinemaService {
+
+    ReactiveCinemaRepository repository;
+    DtoMapper<Cinema, CinemaDTO> mapper;
+
+    public ReactiveCinemaService(
+            ReactiveCinemaRepository repository,
+            DtoMapper<Cinema, CinemaDTO> mapper
+            ) {
+        this.repository = repository;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Retourne les cinémas triés par id, au fil de l'eau
+     * @return Flux<CinemaDTO>
+     */
+    public Flux<CinemaDTO> findAll() {
+        return this.repository.findAll(Sort.by("_id")).map(mapper::map);
+    }
+
+    /**
+     * Je récupère un cinéma selon son ID
+     * @param id
+     * @return vide si le cinéma n'existe pas
+     */
+    public Mono<CinemaDTO> findByID(String id) {
+        return this.repository.findById(id).map(mapper::map);
+    }
+
+    /**
+     * Save & update un cinéma
+     * @param cinema
+     * @return
+     */
+    public Mono<CinemaDTO> save(Cinema cinema) {
+        return this.repository.save(cinema).map(mapper::map);
+    }
+
+    /**
+     * Je supprime mon cinéma
+     * @param cinema
+     */
+    public Mono<Void> delete(Cinema cinema) {
+        return this.repository.delete(cinema);
+    }
+}
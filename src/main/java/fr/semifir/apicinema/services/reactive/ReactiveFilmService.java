@@ -0,0 +1,60 @@
+package fr.semifir.apicinema.services.reactive;
+
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.repositories.reactive.ReactiveFilmRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveFilmService {
+
+    ReactiveFilmRepository repository;
+    DtoMapper<Film, FilmDTO> mapper;
+    int batchSize;
+
+    public ReactiveFilmService(
+            ReactiveFilmRepository repository,
+            DtoMapper<Film, FilmDTO> mapper,
+            int batchSize
+            ) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Retourne les films triés par id, au fil de l'eau
+     * Les références sont résolues par lots de batchSize, au rythme où le client consomme
+     * @return Flux<FilmDTO>
+     */
+    public Flux<FilmDTO> findAll() {
+        return this.repository.findAllResolved(this.batchSize).map(mapper::map);
+    }
+
+    /**
+     * Je récupère un film selon son ID
+     * @param id
+     * @return vide si le film n'existe pas
+     */
+    public Mono<FilmDTO> findByID(String id) {
+        return this.repository.findByIdResolved(id).map(mapper::map);
+    }
+
+    /**
+     * Save & update un film
+     * @param film
+     * @return
+     */
+    public Mono<FilmDTO> save(Film film) {
+        return this.repository.save(film).map(mapper::map);
+    }
+
+    /**
+     * Je supprime mon film
+     * @param film
+     */
+    public Mono<Void> delete(Film film) {
+        return this.repository.delete(film);
+    }
+}
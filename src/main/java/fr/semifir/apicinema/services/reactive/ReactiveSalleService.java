@@ -0,0 +1,60 @@
+package fr.semifir.apicinema.services.reactive;
+
+import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.repositories.reactive.ReactiveSalleRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveSalleService {
+
+    ReactiveSalleRepository repository;
+    DtoMapper<Salle, SalleDTO> mapper;
+    int batchSize;
+
+    public ReactiveSalleService(
+            ReactiveSalleRepository repository,
+            DtoMapper<Salle, SalleDTO> mapper,
+            int batchSize
+            ) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Retourne les salles triés par id, au fil de l'eau
+     * Les références sont résolues par lots de batchSize, au rythme où le client consomme
+     * @return Flux<SalleDTO>
+     */
+    public Flux<SalleDTO> findAll() {
+        return this.repository.findAllResolved(this.batchSize).map(mapper::map);
+    }
+
+    /**
+     * Je récupère un salle selon son ID
+     * @param id
+     * @return vide si le salle n'existe pas
+     */
+    public Mono<SalleDTO> findByID(String id) {
+        return this.repository.findByIdResolved(id).map(mapper::map);
+    }
+
+    /**
+     * Save & update un salle
+     * @param salle
+     * @return
+     */
+    public Mono<SalleDTO> save(Salle salle) {
+        return this.repository.save(salle).map(mapper::map);
+    }
+
+    /**
+     * Je supprime mon salle
+     * @param salle
+     */
+    public Mono<Void> delete(Salle salle) {
+        return this.repository.delete(salle);
+    }
+}
@@ -0,0 +1,60 @@
+package fr.semifir.apicinema.services.reactive;
+
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.mappers.DtoMapper;
+import fr.semifir.apicinema.repositories.reactive.ReactiveSeanceRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveSeanceService {
+
+    ReactiveSeanceRepository repository;
+    DtoMapper<Seance, SeanceDTO> mapper;
+    int batchSize;
+
+    public ReactiveSeanceService(
+            ReactiveSeanceRepository repository,
+            DtoMapper<Seance, SeanceDTO> mapper,
+            int batchSize
+            ) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Retourne les séances triés par id, au fil de l'eau
+     * Les références sont résolues par lots de batchSize, au rythme où le client consomme
+     * @return Flux<SeanceDTO>
+     */
+    public Flux<SeanceDTO> findAll() {
+        return this.repository.findAllResolved(this.batchSize).map(mapper::map);
+    }
+
+    /**
+     * Je récupère un séance selon son ID
+     * @param id
+     * @return vide si le séance n'existe pas
+     */
+    public Mono<SeanceDTO> findByID(String id) {
+        return this.repository.findByIdResolved(id).map(mapper::map);
+    }
+
+    /**
+     * Save & update un séance
+     * @param seance
+     * @return
+     */
+    public Mono<SeanceDTO> save(Seance seance) {
+        return this.repository.save(seance).map(mapper::map);
+    }
+
+    /**
+     * Je supprime mon séance
+     * @param seance
+     */
+    public Mono<Void> delete(Seance seance) {
+        return this.repository.delete(seance);
+    }
+}
@@ -0,0 +1,52 @@
+package fr.semifir.apicinema.tracing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Requêtes Mongo envoyées pendant une requête HTTP ou un span : nombre d'allers-retours,
+ * temps passé dans Mongo, octets envoyés et reçus, et détail par commande et collection
+ * ("find salles" : 3 montre par exemple trois résolutions de DBRef une par une)
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class MongoStats {
+
+    private int commands;
+    private long nanos;
+    private long bytesSent;
+    private long bytesReceived;
+    private final Map<String, Integer> byCollection = new LinkedHashMap<>();
+
+    void started(String command, long bytes) {
+        this.commands++;
+        this.bytesSent += bytes;
+        this.byCollection.merge(command, 1, Integer::sum);
+    }
+
+    void finished(long elapsedNanos, long bytes) {
+        this.nanos += elapsedNanos;
+        this.bytesReceived += bytes;
+    }
+
+    public int getCommands() {
+        return this.commands;
+    }
+
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public Map<String, Integer> getByCollection() {
+        return this.byCollection;
+    }
+}
@@ -0,0 +1,27 @@
+package fr.semifir.apicinema.tracing;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Trace chaque appel de repository dans un span "Repository.méthode", qui compte les requêtes
+ * Mongo qu'il envoie : la lecture elle-même et la résolution des DBRef
+ */
+public class RepositorySpanPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, information) -> {
+                        String repository = information.getRepositoryInterface().getSimpleName();
+                        proxyFactory.addAdvice(new SpanInterceptor(
+                                Span.REPOSITORY,
+                                method -> repository + "." + method.getName()
+                        ));
+                    })
+            );
+        }
+        return bean;
+    }
+}
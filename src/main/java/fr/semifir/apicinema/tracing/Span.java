@@ -0,0 +1,118 @@
+package fr.semifir.apicinema.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Étape d'une requête : contrôleur, service, repository, mapping ou sérialisation.
+ * Les appels successifs d'une même méthode sous le même parent (le mapping de chaque
+ * élément d'une liste) sont cumulés dans un seul span, dont count donne le nombre d'appels
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"spanId", "parentSpanId", "kind", "name", "startOffsetNanos", "durationNanos", "count", "error", "mongo"})
+public class Span {
+
+    public static final String HTTP = "http";
+    public static final String CONTROLLER = "controller";
+    public static final String SERVICE = "service";
+    public static final String REPOSITORY = "repository";
+    public static final String MAPPING = "mapping";
+    public static final String SERIALIZATION = "serialization";
+
+    private final int spanId;
+    private final Span parent;
+    private final String kind;
+    private final String name;
+    private final long startOffsetNanos;
+    private long durationNanos;
+    private int count;
+    private String error;
+    private MongoStats mongo;
+    // Début de l'appel en cours, relatif au début de la trace
+    private long openedAt;
+    // Enfants par nom, pour cumuler les appels répétés
+    private Map<String, Span> children;
+
+    Span(int spanId, Span parent, String kind, String name, long startOffsetNanos) {
+        this.spanId = spanId;
+        this.parent = parent;
+        this.kind = kind;
+        this.name = name;
+        this.startOffsetNanos = startOffsetNanos;
+    }
+
+    void open(long offsetNanos) {
+        this.openedAt = offsetNanos;
+        this.count++;
+    }
+
+    void close(long offsetNanos, Throwable error) {
+        this.durationNanos += offsetNanos - this.openedAt;
+        if (error != null) {
+            this.error = error.getClass().getSimpleName();
+        }
+    }
+
+    MongoStats mongo() {
+        if (this.mongo == null) {
+            this.mongo = new MongoStats();
+        }
+        return this.mongo;
+    }
+
+    Span child(String name) {
+        return this.children == null ? null : this.children.get(name);
+    }
+
+    void addChild(Span child) {
+        if (this.children == null) {
+            this.children = new HashMap<>();
+        }
+        this.children.put(child.name, child);
+    }
+
+    public int getSpanId() {
+        return this.spanId;
+    }
+
+    public Integer getParentSpanId() {
+        return this.parent == null ? null : this.parent.spanId;
+    }
+
+    @JsonIgnore
+    public Span getParent() {
+        return this.parent;
+    }
+
+    public String getKind() {
+        return this.kind;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getStartOffsetNanos() {
+        return this.startOffsetNanos;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    public MongoStats getMongo() {
+        return this.mongo;
+    }
+}
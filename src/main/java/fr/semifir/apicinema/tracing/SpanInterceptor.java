@@ -0,0 +1,47 @@
+package fr.semifir.apicinema.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Ouvre un span autour de chaque appel fait pendant une requête tracée ; hors requête
+ * l'appel passe directement. Le nom de chaque méthode est calculé une seule fois
+ */
+class SpanInterceptor implements MethodInterceptor {
+
+    private final String kind;
+    private final Function<Method, String> naming;
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    SpanInterceptor(String kind, Function<Method, String> naming) {
+        this.kind = kind;
+        this.naming = naming;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Trace trace = Tracing.current();
+        if (trace == null) {
+            return invocation.proceed();
+        }
+        Span span = trace.open(this.kind, this.name(invocation.getMethod()));
+        try {
+            Object result = invocation.proceed();
+            trace.close(span, null);
+            return result;
+        } catch (Throwable e) {
+            trace.close(span, e);
+            throw e;
+        }
+    }
+
+    private String name(Method method) {
+        String name = this.names.get(method);
+        return name != null ? name : this.names.computeIfAbsent(method, this.naming);
+    }
+}
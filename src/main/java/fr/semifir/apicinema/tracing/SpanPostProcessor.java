@@ -0,0 +1,33 @@
+package fr.semifir.apicinema.tracing;
+
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Predicate;
+
+/**
+ * Trace les méthodes publiques des beans dont la classe est retenue (services, mappers),
+ * dans des spans "Classe.méthode" du type donné. Comme ServiceTimingPostProcessor,
+ * l'intercepteur rejoint le proxy déjà posé sur le bean quand il existe
+ */
+public class SpanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public SpanPostProcessor(String kind, Predicate<Class<?>> classes) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(classes::test);
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new SpanInterceptor(
+                kind,
+                method -> method.getDeclaringClass().getSimpleName() + "." + method.getName()
+        ));
+        this.setBeforeExistingAdvisors(true);
+        this.setProxyTargetClass(true);
+    }
+}
@@ -0,0 +1,238 @@
+package fr.semifir.apicinema.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trace d'une requête HTTP : arbre des spans et requêtes Mongo, attribuées au span ouvert
+ * au moment où elles partent. Une trace n'est utilisée que par un thread à la fois
+ * (un dispatch après l'autre pour une requête asynchrone) et n'est donc pas synchronisée
+ */
+@JsonPropertyOrder({"traceId", "name", "startTimeUnixNano", "durationNanos", "status", "mongo", "droppedSpans", "spans"})
+public class Trace {
+
+    /**
+     * Attribut de la requête HTTP qui porte sa trace
+     */
+    public static final String ATTRIBUTE = Trace.class.getName();
+
+    // Au-delà, les nouveaux appels ne sont plus tracés (leurs requêtes Mongo restent comptées)
+    static final int MAX_SPANS = 1000;
+
+    private static final List<String> KINDS = List.of(
+            Span.CONTROLLER, Span.SERVICE, Span.REPOSITORY, Span.MAPPING, Span.SERIALIZATION
+    );
+
+    private final String traceId;
+    private final long startTimeUnixNano;
+    private final long startNanos;
+    private final Span root;
+    private final List<Span> spans = new ArrayList<>();
+    private final Deque<Span> opened = new ArrayDeque<>();
+    private final MongoStats mongo = new MongoStats();
+    // Span de la requête Mongo en cours, qui reçoit aussi sa réponse
+    private Span command;
+    private int droppedSpans;
+    private int status;
+    private boolean measureBytes;
+
+    public Trace(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceId = String.format("%016x%016x", random.nextLong(), random.nextLong());
+        this.startTimeUnixNano = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.startNanos = System.nanoTime();
+        this.root = new Span(0, null, Span.HTTP, name, 0);
+        this.root.open(0);
+        this.spans.add(this.root);
+        this.opened.push(this.root);
+    }
+
+    /**
+     * J'ouvre un span sous le span en cours, ou je reprends celui du même nom s'il y a déjà été appelé
+     * @param kind
+     * @param name
+     * @return le span ouvert, null si la trace a atteint MAX_SPANS
+     */
+    public Span open(String kind, String name) {
+        Span parent = this.opened.peek();
+        if (parent == null) {
+            return null;
+        }
+        long now = this.offset();
+        Span span = parent.child(name);
+        if (span == null) {
+            if (this.spans.size() >= MAX_SPANS) {
+                this.droppedSpans++;
+                return null;
+            }
+            span = new Span(this.spans.size(), parent, kind, name, now);
+            parent.addChild(span);
+            this.spans.add(span);
+        }
+        span.open(now);
+        this.opened.push(span);
+        return span;
+    }
+
+    /**
+     * Je ferme le span, et ceux ouverts sous lui qui ne l'auraient pas été
+     * @param span
+     * @param error exception levée par l'appel, null s'il a réussi
+     */
+    public void close(Span span, Throwable error) {
+        if (span == null || !this.opened.contains(span)) {
+            return;
+        }
+        long now = this.offset();
+        Span closed;
+        do {
+            closed = this.opened.pop();
+            closed.close(now, closed == span ? error : null);
+        } while (closed != span);
+    }
+
+    /**
+     * Je termine la trace avec le statut de la réponse
+     * @param status
+     */
+    public void finish(int status) {
+        this.status = status;
+        this.close(this.root, null);
+    }
+
+    void commandStarted(String command, long bytes) {
+        this.mongo.started(command, bytes);
+        this.command = this.opened.peek();
+        if (this.command != null && this.command != this.root) {
+            this.command.mongo().started(command, bytes);
+        }
+    }
+
+    void commandFinished(long elapsedNanos, long bytes) {
+        this.mongo.finished(elapsedNanos, bytes);
+        if (this.command != null && this.command != this.root) {
+            this.command.mongo().finished(elapsedNanos, bytes);
+        }
+        this.command = null;
+    }
+
+    /**
+     * Temps passé dans les spans d'un type, sans compter deux fois ceux imbriqués dans un span du même type
+     * @param kind
+     * @return durée en nanosecondes
+     */
+    public long total(String kind) {
+        long total = 0;
+        for (Span span : this.spans) {
+            if (span.getKind().equals(kind) && !this.nestedInSameKind(span)) {
+                total += span.getDurationNanos();
+            }
+        }
+        return total;
+    }
+
+    private boolean nestedInSameKind(Span span) {
+        for (Span parent = span.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.getKind().equals(span.getKind())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Résumé sur une ligne, renvoyé dans l'en-tête X-Trace des requêtes de debug
+     * @return "id=...; total=12.40ms; controller=...; mongo=3 commands 1.10ms 412B/3104B (find seances:1, ...)"
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder("id=").append(this.traceId)
+                .append("; total=").append(millis(this.getDurationNanos()));
+        for (String kind : KINDS) {
+            summary.append("; ").append(kind).append('=').append(millis(this.total(kind)));
+        }
+        summary.append("; mongo=").append(this.mongo.getCommands()).append(" commands ")
+                .append(millis(this.mongo.getNanos())).append(' ')
+                .append(this.mongo.getBytesSent()).append("B/")
+                .append(this.mongo.getBytesReceived()).append('B');
+        if (!this.mongo.getByCollection().isEmpty()) {
+            StringBuilder commands = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : this.mongo.getByCollection().entrySet()) {
+                commands.append(commands.length() == 0 ? "" : ", ").append(entry.getKey()).append(':').append(entry.getValue());
+            }
+            summary.append(" (").append(commands).append(')');
+        }
+        if (this.droppedSpans > 0) {
+            summary.append("; droppedSpans=").append(this.droppedSpans);
+        }
+        return summary.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+    }
+
+    private long offset() {
+        return System.nanoTime() - this.startNanos;
+    }
+
+    public String getTraceId() {
+        return this.traceId;
+    }
+
+    public String getName() {
+        return this.root.getName();
+    }
+
+    public long getStartTimeUnixNano() {
+        return this.startTimeUnixNano;
+    }
+
+    public long getDurationNanos() {
+        return this.root.getDurationNanos();
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    public MongoStats getMongo() {
+        return this.mongo;
+    }
+
+    public int getDroppedSpans() {
+        return this.droppedSpans;
+    }
+
+    /**
+     * @return les spans sous la racine HTTP, dans leur ordre d'ouverture
+     */
+    public List<Span> getSpans() {
+        return this.spans.subList(1, this.spans.size());
+    }
+
+    /**
+     * @return les commandes Mongo sont réencodées pour compter leurs octets (trace de debug ou échantillonnée)
+     */
+    @JsonIgnore
+    public boolean isMeasureBytes() {
+        return this.measureBytes;
+    }
+
+    public void setMeasureBytes(boolean measureBytes) {
+        this.measureBytes = measureBytes;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return this.opened.isEmpty();
+    }
+}
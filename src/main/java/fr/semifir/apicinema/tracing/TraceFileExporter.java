@@ -0,0 +1,91 @@
+package fr.semifir.apicinema.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exporte les traces dans un fichier, une trace JSON par ligne (traceId, durées en nanosecondes,
+ * spans avec parentSpanId et requêtes Mongo), à la manière d'un collecteur OTLP local.
+ * L'écriture se fait sur un thread dédié derrière une file bornée : quand le disque ne suit pas,
+ * les traces sont abandonnées et comptées plutôt que de ralentir les requêtes
+ */
+public class TraceFileExporter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceFileExporter.class);
+
+    private final ObjectWriter writer;
+    private final BufferedWriter output;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public TraceFileExporter(Path file, ObjectMapper objectMapper, int queueCapacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.writer = objectMapper.writerFor(Trace.class);
+        this.output = Files.newBufferedWriter(
+                file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+        );
+        this.executor = new ThreadPoolExecutor(
+                1, 1,
+                0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("trace-export-"),
+                (task, executor) -> this.dropped.incrementAndGet()
+        );
+    }
+
+    /**
+     * J'ajoute une trace terminée à la file d'écriture
+     * @param trace
+     */
+    public void export(Trace trace) {
+        this.executor.execute(() -> this.write(trace));
+    }
+
+    /**
+     * @return le nombre de traces abandonnées parce que la file était pleine
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    private void write(Trace trace) {
+        try {
+            this.output.write(this.writer.writeValueAsString(trace));
+            this.output.newLine();
+            // On ne vide le tampon qu'une fois la file écoulée
+            if (this.executor.getQueue().isEmpty()) {
+                this.output.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Impossible d'exporter la trace {}", trace.getTraceId(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.output.close();
+    }
+}
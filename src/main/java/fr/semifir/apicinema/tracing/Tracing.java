@@ -0,0 +1,27 @@
+package fr.semifir.apicinema.tracing;
+
+/**
+ * Trace de la requête traitée par le thread courant, posée par TracingFilter à chaque dispatch
+ */
+public final class Tracing {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private Tracing() {
+    }
+
+    /**
+     * @return la trace du thread courant, null hors d'une requête tracée
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    static void attach(Trace trace) {
+        CURRENT.set(trace);
+    }
+
+    static void detach() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,69 @@
+package fr.semifir.apicinema.tracing;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compte les allers-retours Mongo et leurs octets dans la trace du thread courant.
+ * Le driver synchrone appelle ses listeners sur le thread qui envoie la commande, la trace est
+ * donc celle de la requête HTTP qui l'a déclenchée. Hors requête tracée rien n'est mesuré, et les
+ * documents ne sont réencodés pour en connaître la taille que pour les traces de debug ou échantillonnées
+ */
+public class TracingCommandListener implements CommandListener {
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        Trace trace = Tracing.current();
+        if (trace == null) {
+            return;
+        }
+        BsonValue collection = event.getCommand().get(event.getCommandName());
+        String command = collection != null && collection.isString()
+                ? event.getCommandName() + " " + collection.asString().getValue()
+                : event.getCommandName();
+        trace.commandStarted(command, size(trace, event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Trace trace = Tracing.current();
+        if (trace != null) {
+            trace.commandFinished(event.getElapsedTime(TimeUnit.NANOSECONDS), size(trace, event.getResponse()));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Trace trace = Tracing.current();
+        if (trace != null) {
+            trace.commandFinished(event.getElapsedTime(TimeUnit.NANOSECONDS), 0);
+        }
+    }
+
+    /**
+     * Taille encodée, gratuite pour un document déjà brut
+     * @return 0 si la trace ne mesure pas les octets et qu'il faudrait réencoder
+     */
+    private static long size(Trace trace, BsonDocument document) {
+        if (document == null) {
+            return 0;
+        }
+        if (document instanceof RawBsonDocument) {
+            return ((RawBsonDocument) document).getByteBuffer().remaining();
+        }
+        if (!trace.isMeasureBytes()) {
+            return 0;
+        }
+        return new RawBsonDocument(document, CODEC).getByteBuffer().remaining();
+    }
+}
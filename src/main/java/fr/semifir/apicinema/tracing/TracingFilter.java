@@ -0,0 +1,117 @@
+package fr.semifir.apicinema.tracing;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace chaque requête HTTP, du filtre jusqu'à la dernière requête Mongo.
+ * L'id de la trace est renvoyé dans X-Trace-Id. Une requête qui porte l'en-tête X-Debug-Trace
+ * reçoit en plus son résumé dans X-Trace : sa réponse est gardée en mémoire le temps de le calculer,
+ * puisqu'il doit inclure la sérialisation. Les traces lentes, échantillonnées ou de debug sont exportées ;
+ * seules les deux dernières mesurent les octets échangés avec Mongo, qui demandent de réencoder les commandes.
+ * Une requête asynchrone garde sa trace d'un dispatch à l'autre et n'est terminée qu'au dernier
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String DEBUG_HEADER = "X-Debug-Trace";
+    public static final String TRACE_HEADER = "X-Trace";
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final String DEBUG_ATTRIBUTE = TracingFilter.class.getName() + ".debug";
+
+    private final TraceFileExporter exporter;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final boolean debugHeader;
+
+    /**
+     * @param exporter export des traces, null pour ne rien exporter
+     * @param sampleRate part des requêtes exportées
+     * @param slowThresholdNanos les requêtes plus longues sont toujours exportées
+     * @param debugHeader accepte l'en-tête X-Debug-Trace
+     */
+    public TracingFilter(TraceFileExporter exporter, double sampleRate, long slowThresholdNanos, boolean debugHeader) {
+        this.exporter = exporter;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.debugHeader = debugHeader;
+    }
+
+    /**
+     * L'actuator, et le flux des séances dont les connexions durent des minutes
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/actuator") || path.startsWith("/seances/events");
+    }
+
+    /**
+     * Une requête passée en asynchrone (DeferredResult) est terminée au dispatch asynchrone qui suit
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Trace trace = (Trace) request.getAttribute(Trace.ATTRIBUTE);
+        HttpServletResponse traced = response;
+        if (trace == null) {
+            trace = new Trace(request.getMethod() + " " + request.getRequestURI());
+            request.setAttribute(Trace.ATTRIBUTE, trace);
+            response.setHeader(TRACE_ID_HEADER, trace.getTraceId());
+            ContentCachingResponseWrapper debug = this.debugHeader && request.getHeader(DEBUG_HEADER) != null
+                    ? new ContentCachingResponseWrapper(response)
+                    : null;
+            request.setAttribute(DEBUG_ATTRIBUTE, debug != null);
+            trace.setMeasureBytes(debug != null || ThreadLocalRandom.current().nextDouble() < this.sampleRate);
+            traced = debug != null ? debug : response;
+        }
+        Tracing.attach(trace);
+        try {
+            chain.doFilter(request, traced);
+        } catch (ServletException | IOException | RuntimeException e) {
+            trace.finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            this.export(trace);
+            throw e;
+        } finally {
+            Tracing.detach();
+        }
+        if (!request.isAsyncStarted()) {
+            this.finish(trace, traced, Boolean.TRUE.equals(request.getAttribute(DEBUG_ATTRIBUTE)));
+        }
+    }
+
+    private void finish(Trace trace, HttpServletResponse response, boolean debug) throws IOException {
+        trace.finish(response.getStatus());
+        ContentCachingResponseWrapper buffered = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (debug && buffered != null) {
+            buffered.setHeader(TRACE_HEADER, trace.summary());
+            buffered.copyBodyToResponse();
+        }
+        this.export(trace);
+    }
+
+    /**
+     * Les traces de debug ou échantillonnées sont celles qui mesurent les octets (measureBytes)
+     */
+    private void export(Trace trace) {
+        if (this.exporter == null) {
+            return;
+        }
+        if (trace.isMeasureBytes() || trace.getDurationNanos() >= this.slowThresholdNanos) {
+            this.exporter.export(trace);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package fr.semifir.apicinema.tracing;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Ouvre le span du contrôleur, qui couvre aussi l'écriture de la réponse
+ */
+public class TracingHandlerInterceptor implements HandlerInterceptor {
+
+    private static final String SPAN = TracingHandlerInterceptor.class.getName() + ".span";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Trace trace = (Trace) request.getAttribute(Trace.ATTRIBUTE);
+        if (trace == null) {
+            return true;
+        }
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            request.setAttribute(SPAN, trace.open(
+                    Span.CONTROLLER,
+                    method.getBeanType().getSimpleName() + "." + method.getMethod().getName()
+            ));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Trace trace = (Trace) request.getAttribute(Trace.ATTRIBUTE);
+        if (trace == null) {
+            return;
+        }
+        trace.close((Span) request.getAttribute(SPAN), ex);
+    }
+}
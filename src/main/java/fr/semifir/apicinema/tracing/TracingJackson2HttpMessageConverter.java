@@ -0,0 +1,50 @@
+package fr.semifir.apicinema.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.regex.Pattern;
+
+/**
+ * Convertisseur JSON de Spring Boot, dont l'écriture des réponses est tracée dans un span de sérialisation
+ */
+public class TracingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final Pattern PACKAGE = Pattern.compile("[\\w$]+\\.");
+
+    public TracingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Trace trace = Tracing.current();
+        if (trace == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        Span span = trace.open(Span.SERIALIZATION, name(object, type));
+        try {
+            super.writeInternal(object, type, outputMessage);
+            trace.close(span, null);
+        } catch (IOException | RuntimeException e) {
+            trace.close(span, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return le type déclaré sans ses packages ("List<SeanceDTO>"), à défaut la classe de l'objet
+     */
+    private static String name(Object object, Type type) {
+        if (type != null) {
+            return PACKAGE.matcher(type.getTypeName()).replaceAll("");
+        }
+        return object == null ? "null" : object.getClass().getSimpleName();
+    }
+}
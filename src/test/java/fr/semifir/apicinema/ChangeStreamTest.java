@@ -0,0 +1,130 @@
+package fr.semifir.apicinema;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import fr.semifir.apicinema.events.CacheInvalidationListener;
+import fr.semifir.apicinema.events.ChangeFeedRelay;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.events.InMemoryChangeFeed;
+import fr.semifir.apicinema.events.MongoChangeStream;
+import fr.semifir.apicinema.events.PlacesChangeEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ChangeStreamTest {
+
+    private static final Map<String, String> COLLECTIONS = Map.of(
+            "cinema", EntityChangeEvent.CINEMAS,
+            "salle", EntityChangeEvent.SALLES,
+            "seance", EntityChangeEvent.SEANCES,
+            "film", EntityChangeEvent.FILMS
+    );
+
+    private static ChangeStreamDocument<Document> change(OperationType type, String collection, BsonDocument documentKey) {
+        BsonDocument namespace = collection == null
+                ? null
+                : new BsonDocument("db", new BsonString("cinema")).append("coll", new BsonString(collection));
+        return new ChangeStreamDocument<>(
+                type, new BsonDocument(), namespace, null, null, documentKey, null, null, null, null
+        );
+    }
+
+    @Test
+    public void testWriteGivesOneEventWithTheDocumentId() {
+        ObjectId id = new ObjectId();
+        List<EntityChangeEvent> events = MongoChangeStream.toEvents(
+                change(OperationType.UPDATE, "salle", new BsonDocument("_id", new BsonObjectId(id))),
+                COLLECTIONS
+        );
+
+        Assertions.assertEquals(List.of(new EntityChangeEvent(EntityChangeEvent.SALLES, id.toHexString())), events);
+    }
+
+    @Test
+    public void testDropInvalidatesTheWholeCollection() {
+        List<EntityChangeEvent> events = MongoChangeStream.toEvents(change(OperationType.DROP, "film", null), COLLECTIONS);
+
+        Assertions.assertEquals(List.of(new EntityChangeEvent(EntityChangeEvent.FILMS, null)), events);
+    }
+
+    @Test
+    public void testInvalidateInvalidatesEveryCollection() {
+        List<EntityChangeEvent> events = MongoChangeStream.toEvents(change(OperationType.INVALIDATE, null, null), COLLECTIONS);
+
+        Assertions.assertEquals(4, events.size());
+        events.forEach(event -> Assertions.assertNull(event.getId()));
+    }
+
+    @Test
+    public void testUnwatchedCollectionIsIgnored() {
+        List<EntityChangeEvent> events = MongoChangeStream.toEvents(
+                change(OperationType.INSERT, "changeStreamTokens", new BsonDocument("_id", new BsonString("node"))),
+                COLLECTIONS
+        );
+
+        Assertions.assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Une écriture d'un autre nœud passe par les mêmes listeners qu'une écriture locale
+     */
+    @Test
+    public void testRemoteWriteInvalidatesLocalCaches() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(
+                EntityChangeEvent.CINEMAS, EntityChangeEvent.SALLES
+        );
+        cacheManager.getCache(EntityChangeEvent.CINEMAS).put("c1", "cinema 1");
+        cacheManager.getCache(EntityChangeEvent.CINEMAS).put("c2", "cinema 2");
+        cacheManager.getCache(EntityChangeEvent.SALLES).put("s1", "salle 1");
+        CacheInvalidationListener invalidation = new CacheInvalidationListener(cacheManager);
+        CollectionVersions versions = new CollectionVersions();
+        String etag = versions.etag(EntityChangeEvent.SALLES);
+        InMemoryChangeFeed feed = new InMemoryChangeFeed();
+        ChangeFeedRelay relay = new ChangeFeedRelay(feed, event -> {
+            invalidation.onChange((EntityChangeEvent) event);
+            versions.onChange((EntityChangeEvent) event);
+        });
+
+        feed.publish(new EntityChangeEvent(EntityChangeEvent.CINEMAS, "c1"));
+        Assertions.assertNotNull(cacheManager.getCache(EntityChangeEvent.CINEMAS).get("c1"));
+
+        relay.start();
+        feed.publish(new EntityChangeEvent(EntityChangeEvent.CINEMAS, "c1"));
+
+        Assertions.assertNull(cacheManager.getCache(EntityChangeEvent.CINEMAS).get("c1"));
+        Assertions.assertNotNull(cacheManager.getCache(EntityChangeEvent.CINEMAS).get("c2"));
+        Assertions.assertNull(cacheManager.getCache(EntityChangeEvent.SALLES).get("s1"));
+        Assertions.assertNotEquals(etag, versions.etag(EntityChangeEvent.SALLES));
+
+        relay.stop();
+        Assertions.assertFalse(relay.isRunning());
+    }
+
+    /**
+     * Places bloquées ou vendues sur un autre nœud : les abonnés du flux reçoivent l'état des places
+     */
+    @Test
+    public void testRemoteReservationIsRepublishedAsPlacesChange() {
+        List<Object> published = new ArrayList<>();
+        InMemoryChangeFeed feed = new InMemoryChangeFeed();
+        ChangeFeedRelay relay = new ChangeFeedRelay(feed, published::add);
+        relay.start();
+
+        feed.publish(new EntityChangeEvent(EntityChangeEvent.RESERVATIONS, "s1"));
+        feed.publish(new EntityChangeEvent(EntityChangeEvent.RESERVATIONS, null));
+
+        Assertions.assertEquals(List.of(new PlacesChangeEvent("s1", true)), published);
+        relay.stop();
+    }
+}
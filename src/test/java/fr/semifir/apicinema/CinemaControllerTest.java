@@ -1,8 +1,13 @@
 package fr.semifir.apicinema;
 
 import fr.semifir.apicinema.controllers.CinemaController;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.cinema.CinemaSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.CinemaService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -18,7 +23,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -36,6 +44,9 @@ public class CinemaControllerTest {
     @MockBean
     CinemaService service;
 
+    @MockBean
+    CollectionVersions versions;
+
     /**
      * On teste la route nous permettant de récupérer tous les cinémas
      *
@@ -154,6 +165,77 @@ public class CinemaControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * On supprime un cinéma par son id, avec ses salles, séances et films, 404 si l'id est inconnu
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeleteCinemaById() throws Exception {
+        BDDMockito.given(service.deleteById("1")).willReturn(Map.of("cinema", 1L, "salle", 2L, "film", 6L));
+        BDDMockito.given(service.deleteById("2")).willThrow(NotFoundException.class);
+
+        this.mockMvc.perform(delete("/cinemas/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cinema").value(1))
+                .andExpect(jsonPath("$.salle").value(2))
+                .andExpect(jsonPath("$.film").value(6));
+        this.mockMvc.perform(delete("/cinemas/2"))
+                .andExpect(status().isNotFound());
+    }
+
+
+    /**
+     * On vérifie l'import en masse : un résultat par élément, dans l'ordre, erreurs comprises
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSaveAllCinemas() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            results.accept(new BulkResultDTO(0, "1", BulkResultDTO.OK, null));
+            results.accept(new BulkResultDTO(1, "1", BulkResultDTO.ERROR, "duplicate key"));
+            return null;
+        }).given(service).saveAll(any(), any());
+
+        Gson json = new GsonBuilder().create();
+        String body = json.toJson(List.of(this.cinemaDTO(), this.cinemaDTOUpdate()));
+        this.mockMvc.perform(post("/cinemas/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(BulkResultDTO.OK))
+                .andExpect(jsonPath("$[1].status").value(BulkResultDTO.ERROR))
+                .andExpect(jsonPath("$[1].error").value("duplicate key"));
+    }
+
+    @Test
+    public void testFindAllCinemasSlim() throws Exception {
+        BDDMockito.given(service.findAllSlim("id"))
+                .willReturn(List.of(new CinemaSlimDTO("1", null)));
+
+        this.mockMvc.perform(get("/cinemas").param("fields", "id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"))
+                .andExpect(jsonPath("$[0].nom").doesNotExist());
+    }
+
+    /**
+     * On vérifie la pagination par curseur : la page demandée et le curseur suivant
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFindPageCinemas() throws Exception {
+        BDDMockito.given(service.findPage(null, 1))
+                .willReturn(new PageDTO<>(List.of(this.cinemaDTO()), "1"));
+
+        this.mockMvc.perform(get("/cinemas/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("1"));
+    }
 
     //Création d'un cinéma fictif pour la mise en place de nos méthodes en lien avec la création
     private CinemaDTO cinemaDTO() {
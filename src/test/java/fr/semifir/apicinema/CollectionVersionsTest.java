@@ -0,0 +1,76 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class CollectionVersionsTest {
+
+    private final CollectionVersions versions = new CollectionVersions();
+
+    @Test
+    public void testFirstRequestGetsETag() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertFalse(this.check(null, response));
+        Assertions.assertEquals(this.versions.etag(EntityChangeEvent.CINEMAS), response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void testUnchangedCollectionIsNotModified() {
+        String etag = this.versions.etag(EntityChangeEvent.CINEMAS);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertTrue(this.check(etag, response));
+        Assertions.assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void testSaveChangesETag() {
+        String etag = this.versions.etag(EntityChangeEvent.CINEMAS);
+
+        this.versions.onChange(new EntityChangeEvent(EntityChangeEvent.CINEMAS, "1"));
+
+        Assertions.assertFalse(this.check(etag, new MockHttpServletResponse()));
+    }
+
+    /**
+     * Une séance embarque sa salle et son cinéma : modifier un cinéma change la version des séances,
+     * modifier une séance ne change pas celle des cinémas
+     */
+    @Test
+    public void testChangePropagatesToDependents() {
+        String seances = this.versions.etag(EntityChangeEvent.SEANCES);
+
+        this.versions.onChange(new EntityChangeEvent(EntityChangeEvent.CINEMAS, "1"));
+        Assertions.assertNotEquals(seances, this.versions.etag(EntityChangeEvent.SEANCES));
+
+        String cinemas = this.versions.etag(EntityChangeEvent.CINEMAS);
+        this.versions.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "1"));
+        Assertions.assertEquals(cinemas, this.versions.etag(EntityChangeEvent.CINEMAS));
+    }
+
+    /**
+     * Un ETag émis par un autre nœud (ou avant un redémarrage) n'est jamais validé
+     */
+    @Test
+    public void testETagFromAnotherNodeIsModified() {
+        String etag = new CollectionVersions().etag(EntityChangeEvent.CINEMAS);
+
+        Assertions.assertFalse(this.check(etag, new MockHttpServletResponse()));
+    }
+
+    private boolean check(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cinemas");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return this.versions.checkNotModified(new ServletWebRequest(request, response), EntityChangeEvent.CINEMAS);
+    }
+}
@@ -3,9 +3,14 @@ package fr.semifir.apicinema;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import fr.semifir.apicinema.controllers.FilmController;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.dtos.film.FilmSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Film;
 import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.FilmService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -17,10 +22,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,6 +45,9 @@ public class FilmControllerTest {
     @MockBean
     FilmService service;
 
+    @MockBean
+    CollectionVersions versions;
+
     @Test
     public void testFindAllFilms() throws Exception {
         this.mockMvc.perform(get("/films"))
@@ -126,6 +139,109 @@ public class FilmControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * On supprime un film par son id, 404 si l'id est inconnu
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeleteFilmById() throws Exception {
+        BDDMockito.given(service.deleteById("1")).willReturn(Map.of("film", 1L));
+        BDDMockito.given(service.deleteById("2")).willThrow(NotFoundException.class);
+
+        this.mockMvc.perform(delete("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.film").value(1));
+        this.mockMvc.perform(delete("/films/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testStreamAllFilms() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<FilmDTO> consumer = invocation.getArgument(0);
+            consumer.accept(this.filmDTO());
+            consumer.accept(this.filmDTOUpdate());
+            return null;
+        }).given(service).streamAll(any());
+
+        MvcResult result = this.mockMvc.perform(get("/films").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(2, lines.length);
+    }
+
+    @Test
+    public void testSaveAllFilms() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            results.accept(new BulkResultDTO(0, "1", BulkResultDTO.OK, null));
+            results.accept(new BulkResultDTO(1, "1", BulkResultDTO.ERROR, "duplicate key"));
+            return null;
+        }).given(service).saveAll(any(), any());
+
+        Gson json = new GsonBuilder().create();
+        String body = json.toJson(List.of(this.filmDTO(), this.filmDTOUpdate()));
+        this.mockMvc.perform(post("/films/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(BulkResultDTO.OK))
+                .andExpect(jsonPath("$[1].status").value(BulkResultDTO.ERROR))
+                .andExpect(jsonPath("$[1].error").value("duplicate key"));
+    }
+
+    @Test
+    public void testSaveAllFilmsNdjson() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Iterator<Film> films = invocation.getArgument(0);
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            long index = 0;
+            while (films.hasNext()) {
+                results.accept(new BulkResultDTO(index++, films.next().getId(), BulkResultDTO.OK, null));
+            }
+            return null;
+        }).given(service).saveAll(any(), any());
+
+        Gson json = new GsonBuilder().create();
+        String body = json.toJson(this.filmDTO()) + "\n" + json.toJson(this.filmDTOUpdate()) + "\n";
+        MvcResult result = this.mockMvc.perform(post("/films/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(2, lines.length);
+    }
+
+    @Test
+    public void testFindAllFilmsSlim() throws Exception {
+        BDDMockito.given(service.findAllSlim("nom,seanceId"))
+                .willReturn(List.of(new FilmSlimDTO("1", "Dune", null, "2")));
+
+        this.mockMvc.perform(get("/films").param("fields", "nom,seanceId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nom").value("Dune"))
+                .andExpect(jsonPath("$[0].seanceId").value("2"))
+                .andExpect(jsonPath("$[0].duree").doesNotExist());
+    }
+
+    @Test
+    public void testFindPageFilms() throws Exception {
+        BDDMockito.given(service.findPage(null, 1))
+                .willReturn(new PageDTO<>(List.of(this.filmDTO()), "1"));
+
+        this.mockMvc.perform(get("/films/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("1"));
+    }
+
     private FilmDTO filmDTO() {
         Seance seance = new Seance();
         return new FilmDTO(
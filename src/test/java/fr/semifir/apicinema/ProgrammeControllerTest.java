@@ -0,0 +1,54 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.controllers.ProgrammeController;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.ProgrammeService;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ProgrammeController.class)
+public class ProgrammeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    ProgrammeService service;
+
+    @MockBean
+    CollectionVersions versions;
+
+    @Test
+    public void testFindProgramme() throws Exception {
+        String programme = "{\"cinemaId\":\"1\",\"nom\":\"Pathé\",\"seances\":[]}";
+        BDDMockito.given(service.findProgramme("1"))
+                .willReturn(programme.getBytes(StandardCharsets.UTF_8));
+
+        this.mockMvc.perform(get("/cinemas/1/programme"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.nom").value("Pathé"));
+    }
+
+    @Test
+    public void testFindProgrammeWrongCinema() throws Exception {
+        BDDMockito.given(service.findProgramme("1"))
+                .willThrow(new NotFoundException("Le cinema n'a pas été trouvé"));
+
+        this.mockMvc.perform(get("/cinemas/1/programme"))
+                .andExpect(status().isNotFound());
+    }
+}
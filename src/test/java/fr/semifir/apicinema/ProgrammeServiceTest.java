@@ -0,0 +1,213 @@
+package fr.semifir.apicinema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.repositories.CinemaRepository;
+import fr.semifir.apicinema.repositories.FilmRepository;
+import fr.semifir.apicinema.repositories.SalleRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.ProgrammeService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class ProgrammeServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CinemaRepository cinemaRepository = Mockito.mock(CinemaRepository.class);
+    private final SalleRepository salleRepository = Mockito.mock(SalleRepository.class);
+    private final SeanceRepository seanceRepository = Mockito.mock(SeanceRepository.class);
+    private final FilmRepository filmRepository = Mockito.mock(FilmRepository.class);
+    private final Cinema cinema = new Cinema("c1", "Pathé");
+    private final Salle salle = new Salle("sa1", 1, 90, cinema);
+    private final Seance seance = new Seance("s1", new Date(1700000000000L), salle);
+    private ProgrammeService service;
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(cinemaRepository.findById("c1")).willReturn(Optional.of(cinema));
+        BDDMockito.given(seanceRepository.findByCinemaResolved(eq("c1"), any(), any())).willReturn(List.of(seance));
+        BDDMockito.given(filmRepository.findBySeancesResolved(any()))
+                .willReturn(List.of(new Film("f1", "Dune", 155f, seance)));
+        this.service = new ProgrammeService(
+                cinemaRepository, salleRepository, seanceRepository, filmRepository, objectMapper, null
+        );
+        this.service.setWindow(ZoneOffset.UTC, 7);
+        this.service.setClock(Clock.fixed(seance.getDate().toInstant().minus(Duration.ofHours(1)), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testFindProgramme() throws Exception {
+        JsonNode programme = this.programme("c1");
+
+        Assertions.assertEquals("Pathé", programme.get("nom").asText());
+        Assertions.assertEquals(1, programme.get("seances").get(0).get("numDeSalle").asInt());
+        Assertions.assertEquals("Dune", programme.get("seances").get(0).get("films").get(0).get("nom").asText());
+    }
+
+    @Test
+    public void testFindProgrammeWrongCinema() {
+        Assertions.assertThrows(NotFoundException.class, () -> this.service.findProgramme("c2"));
+    }
+
+    /**
+     * Un film modifié est relu seul, sans reconstruire le programme
+     */
+    @Test
+    public void testFilmUpdatedIncrementally() throws Exception {
+        this.service.findProgramme("c1");
+        BDDMockito.given(filmRepository.findById("f1"))
+                .willReturn(Optional.of(new Film("f1", "Dune, deuxième partie", 166f, seance)));
+
+        this.service.onChange(new EntityChangeEvent(EntityChangeEvent.FILMS, "f1"));
+
+        JsonNode films = this.programme("c1").get("seances").get(0).get("films");
+        Assertions.assertEquals(1, films.size());
+        Assertions.assertEquals("Dune, deuxième partie", films.get(0).get("nom").asText());
+        Mockito.verify(seanceRepository, Mockito.times(1)).findByCinemaResolved(eq("c1"), any(), any());
+    }
+
+    @Test
+    public void testSeanceDeleted() throws Exception {
+        this.service.findProgramme("c1");
+        BDDMockito.given(seanceRepository.findById("s1")).willReturn(Optional.empty());
+
+        this.service.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+
+        Assertions.assertEquals(0, this.programme("c1").get("seances").size());
+    }
+
+    /**
+     * Une séance déplacée dans un autre cinéma emporte ses films
+     */
+    @Test
+    public void testSeanceMovedToAnotherCinema() throws Exception {
+        Cinema other = new Cinema("c2", "Gaumont");
+        BDDMockito.given(cinemaRepository.findById("c2")).willReturn(Optional.of(other));
+        BDDMockito.given(seanceRepository.findByCinemaResolved(eq("c2"), any(), any())).willReturn(List.of());
+        this.service.findProgramme("c1");
+        this.service.findProgramme("c2");
+        Seance moved = new Seance("s1", seance.getDate(), new Salle("sa2", 3, 120, other));
+        BDDMockito.given(seanceRepository.findById("s1")).willReturn(Optional.of(moved));
+
+        this.service.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+
+        Assertions.assertEquals(0, this.programme("c1").get("seances").size());
+        JsonNode seances = this.programme("c2").get("seances");
+        Assertions.assertEquals(3, seances.get(0).get("numDeSalle").asInt());
+        Assertions.assertEquals("Dune", seances.get(0).get("films").get(0).get("nom").asText());
+    }
+
+    /**
+     * Une séance déplacée hors de la semaine quitte le programme
+     */
+    @Test
+    public void testSeanceMovedOutOfWindow() throws Exception {
+        this.service.findProgramme("c1");
+        Date later = Date.from(seance.getDate().toInstant().plus(Duration.ofDays(10)));
+        BDDMockito.given(seanceRepository.findById("s1")).willReturn(Optional.of(new Seance("s1", later, salle)));
+
+        this.service.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+
+        Assertions.assertEquals(0, this.programme("c1").get("seances").size());
+    }
+
+    /**
+     * Le lendemain, le programme est relu sur la nouvelle semaine
+     */
+    @Test
+    public void testWindowRollsForward() throws Exception {
+        this.service.findProgramme("c1");
+        this.service.findProgramme("c1");
+        Date today = Date.from(seance.getDate().toInstant().atZone(ZoneOffset.UTC).toLocalDate().atStartOfDay(ZoneOffset.UTC).toInstant());
+        Mockito.verify(seanceRepository, Mockito.times(1)).findByCinemaResolved(
+                "c1", today, Date.from(today.toInstant().plus(Duration.ofDays(7))));
+
+        this.service.setClock(Clock.offset(Clock.fixed(seance.getDate().toInstant(), ZoneOffset.UTC), Duration.ofDays(1)));
+        this.service.findProgramme("c1");
+
+        Date tomorrow = Date.from(today.toInstant().plus(Duration.ofDays(1)));
+        Mockito.verify(seanceRepository, Mockito.times(1)).findByCinemaResolved(
+                "c1", tomorrow, Date.from(tomorrow.toInstant().plus(Duration.ofDays(7))));
+    }
+
+    @Test
+    public void testProgrammesAreBounded() throws Exception {
+        this.service.setLimits(1, Duration.ofHours(1));
+        Cinema other = new Cinema("c2", "Gaumont");
+        BDDMockito.given(cinemaRepository.findById("c2")).willReturn(Optional.of(other));
+        BDDMockito.given(seanceRepository.findByCinemaResolved(eq("c2"), any(), any())).willReturn(List.of());
+
+        this.service.findProgramme("c1");
+        this.service.findProgramme("c2");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.service.getProgrammes() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, this.service.getProgrammes());
+    }
+
+    /**
+     * Une construction lit Mongo sans verrou : les écritures passent pendant ce temps, et le programme
+     * qu'elles ont pu rendre périmé n'est pas gardé
+     */
+    @Test
+    public void testWritesAreNotBlockedByBuild() throws Exception {
+        this.service.findProgramme("c1");
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Cinema other = new Cinema("c2", "Gaumont");
+        BDDMockito.given(cinemaRepository.findById("c2")).willReturn(Optional.of(other));
+        BDDMockito.given(seanceRepository.findByCinemaResolved(eq("c2"), any(), any())).willAnswer(invocation -> {
+            reading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        BDDMockito.given(filmRepository.findById("f1"))
+                .willReturn(Optional.of(new Film("f1", "Dune, deuxième partie", 166f, seance)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> build = executor.submit(() -> this.service.findProgramme("c2"));
+            Assertions.assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            this.service.onChange(new EntityChangeEvent(EntityChangeEvent.FILMS, "f1"));
+            Assertions.assertEquals("Dune, deuxième partie",
+                    this.programme("c1").get("seances").get(0).get("films").get(0).get("nom").asText());
+
+            release.countDown();
+            build.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        this.service.findProgramme("c2");
+        Mockito.verify(seanceRepository, Mockito.times(2)).findByCinemaResolved(eq("c2"), any(), any());
+    }
+
+    private JsonNode programme(String cinemaId) throws Exception {
+        return this.objectMapper.readTree(this.service.findProgramme(cinemaId));
+    }
+}
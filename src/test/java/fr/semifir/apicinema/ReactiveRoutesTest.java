@@ -0,0 +1,105 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.configurations.ReactiveConfiguration;
+import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
+import fr.semifir.apicinema.dtos.film.FilmDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.services.reactive.ReactiveCinemaService;
+import fr.semifir.apicinema.services.reactive.ReactiveFilmService;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Routes WebFlux du profil "reactive", testées sans serveur avec des services mockés
+ */
+public class ReactiveRoutesTest {
+
+    private final ReactiveConfiguration configuration = new ReactiveConfiguration();
+
+    private final ReactiveCinemaService cinemaService = Mockito.mock(ReactiveCinemaService.class);
+    private final ReactiveFilmService filmService = Mockito.mock(ReactiveFilmService.class);
+
+    private final WebTestClient cinemas = WebTestClient
+            .bindToRouterFunction(configuration.cinemaRoutes(cinemaService))
+            .build();
+    private final WebTestClient films = WebTestClient
+            .bindToRouterFunction(configuration.filmRoutes(filmService))
+            .build();
+
+    @Test
+    public void testFindAllCinemas() {
+        BDDMockito.given(cinemaService.findAll())
+                .willReturn(Flux.just(this.cinemaDTO()));
+
+        this.cinemas.get().uri("/cinemas").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].nom").isEqualTo("Kinepolis");
+    }
+
+    @Test
+    public void testWrongCinemaOrWrongId() {
+        BDDMockito.given(cinemaService.findByID("1"))
+                .willReturn(Mono.empty());
+
+        this.cinemas.get().uri("/cinemas/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testOneCinema() {
+        BDDMockito.given(cinemaService.findByID("1"))
+                .willReturn(Mono.just(this.cinemaDTO()));
+
+        this.cinemas.get().uri("/cinemas/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CinemaDTO.class).isEqualTo(this.cinemaDTO());
+    }
+
+    @Test
+    public void testSaveCinema() {
+        BDDMockito.given(cinemaService.save(any(Cinema.class)))
+                .willReturn(Mono.just(this.cinemaDTO()));
+
+        this.cinemas.post().uri("/cinemas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Cinema(null, "Kinepolis"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1");
+    }
+
+    @Test
+    public void testStreamAllFilms() {
+        BDDMockito.given(filmService.findAll())
+                .willReturn(Flux.just(
+                        new FilmDTO("1", "Idiocracy", 124F, new Seance()),
+                        new FilmDTO("2", "Brazil", 142F, new Seance())
+                ));
+
+        this.films.get().uri("/films").accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(FilmDTO.class).hasSize(2);
+    }
+
+    private CinemaDTO cinemaDTO() {
+        return new CinemaDTO(
+                "1",
+                "Kinepolis"
+        );
+    }
+}
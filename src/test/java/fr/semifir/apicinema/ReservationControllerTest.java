@@ -0,0 +1,103 @@
+package fr.semifir.apicinema;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import fr.semifir.apicinema.controllers.ReservationController;
+import fr.semifir.apicinema.dtos.reservation.PlacesDTO;
+import fr.semifir.apicinema.dtos.reservation.ReservationDTO;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.ReservationService;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ReservationController.class)
+public class ReservationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    ReservationService service;
+
+    @Test
+    public void testFindPlaces() throws Exception {
+        BDDMockito.given(service.findPlaces("1"))
+                .willReturn(new PlacesDTO("1", 90, 85, 2, 3));
+
+        this.mockMvc.perform(get("/seances/1/places"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.disponibles").value(85));
+    }
+
+    @Test
+    public void testFindPlacesWrongSeance() throws Exception {
+        BDDMockito.given(service.findPlaces("1"))
+                .willThrow(new NotFoundException("La séance n'a pas été trouvée"));
+
+        this.mockMvc.perform(get("/seances/1/places"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testHold() throws Exception {
+        BDDMockito.given(service.hold("1", List.of(4, 5)))
+                .willReturn(new ReservationDTO("jeton", List.of(4, 5)));
+
+        this.mockMvc.perform(post("/seances/1/places/hold")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.body(new ReservationDTO(null, List.of(4, 5)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("jeton"));
+    }
+
+    @Test
+    public void testHoldTakenSeats() throws Exception {
+        BDDMockito.given(service.hold("1", List.of(4, 5)))
+                .willThrow(new ConflictException("Une des places n'est plus disponible"));
+
+        this.mockMvc.perform(post("/seances/1/places/hold")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.body(new ReservationDTO(null, List.of(4, 5)))))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testConfirm() throws Exception {
+        ReservationDTO reservation = new ReservationDTO("jeton", List.of(4, 5));
+        BDDMockito.given(service.confirm(eq("1"), any(ReservationDTO.class)))
+                .willReturn(reservation);
+
+        this.mockMvc.perform(post("/seances/1/places/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.body(reservation)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        this.mockMvc.perform(post("/seances/1/places/release")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.body(new ReservationDTO("jeton", List.of(4, 5)))))
+                .andExpect(status().isOk());
+    }
+
+    private String body(ReservationDTO reservation) {
+        Gson json = new GsonBuilder().create();
+        return json.toJson(reservation);
+    }
+}
@@ -0,0 +1,314 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.dtos.reservation.PlacesDTO;
+import fr.semifir.apicinema.dtos.reservation.ReservationDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Reservation;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.PlacesChangeEvent;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import fr.semifir.apicinema.repositories.ReservationRepository;
+import fr.semifir.apicinema.repositories.SeanceRepository;
+import fr.semifir.apicinema.services.ReservationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Deux instances du service (deux nœuds) partagent la même base, simulée en mémoire
+ */
+public class ReservationServiceTest {
+
+    private final ReservationRepository repository = Mockito.mock(ReservationRepository.class);
+    private final SeanceRepository seanceRepository = Mockito.mock(SeanceRepository.class);
+    private final Salle salle = new Salle("sa1", 1, 10, new Cinema("c1", "Pathé"));
+    // seanceId -> état des places, chaque opération est atomique comme la mise à jour conditionnelle Mongo
+    private final Map<String, Reservation> db = new HashMap<>();
+    private ReservationService a;
+    private ReservationService b;
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(seanceRepository.findById(anyString()))
+                .willAnswer(invocation -> Optional.of(new Seance(invocation.getArgument(0), new Date(), salle)));
+        BDDMockito.given(repository.init(anyString(), anyInt())).willAnswer(invocation -> {
+            synchronized (db) {
+                Reservation reservation = db.computeIfAbsent(invocation.getArgument(0),
+                        id -> new Reservation(id, invocation.getArgument(1), new HashMap<>(), new HashMap<>(), new ArrayList<>()));
+                return new Reservation(reservation.getId(), reservation.getNbrPlace(), new HashMap<>(reservation.getHeld()),
+                        new HashMap<>(reservation.getHeldAt()), new ArrayList<>(reservation.getSold()));
+            }
+        });
+        BDDMockito.given(repository.hold(anyString(), anyList(), anyString(), any(), any())).willAnswer(invocation -> {
+            synchronized (db) {
+                Reservation reservation = db.get(invocation.getArgument(0));
+                List<Integer> seats = invocation.getArgument(1);
+                Date expiredBefore = invocation.getArgument(4);
+                if (seats.stream().anyMatch(seat -> heldSince(reservation, seat, expiredBefore) || reservation.getSold().contains(seat))) {
+                    return false;
+                }
+                seats.forEach(seat -> {
+                    reservation.getHeld().put(seat.toString(), invocation.getArgument(2));
+                    reservation.getHeldAt().put(seat.toString(), invocation.getArgument(3));
+                });
+                return true;
+            }
+        });
+        BDDMockito.given(repository.confirm(anyString(), anyList(), anyString(), any())).willAnswer(invocation -> {
+            synchronized (db) {
+                Reservation reservation = db.get(invocation.getArgument(0));
+                List<Integer> seats = invocation.getArgument(1);
+                Date expiredBefore = invocation.getArgument(3);
+                if (!heldBy(reservation, seats, invocation.getArgument(2))
+                        || !seats.stream().allMatch(seat -> heldSince(reservation, seat, expiredBefore))) {
+                    return false;
+                }
+                seats.forEach(seat -> {
+                    reservation.getHeld().remove(seat.toString());
+                    reservation.getHeldAt().remove(seat.toString());
+                });
+                reservation.getSold().addAll(seats);
+                return true;
+            }
+        });
+        BDDMockito.given(repository.release(anyString(), anyList(), anyString())).willAnswer(invocation -> {
+            synchronized (db) {
+                Reservation reservation = db.get(invocation.getArgument(0));
+                List<Integer> seats = invocation.getArgument(1);
+                if (!heldBy(reservation, seats, invocation.getArgument(2))) {
+                    return false;
+                }
+                seats.forEach(seat -> {
+                    reservation.getHeld().remove(seat.toString());
+                    reservation.getHeldAt().remove(seat.toString());
+                });
+                return true;
+            }
+        });
+        this.a = new ReservationService(repository, seanceRepository);
+        this.b = new ReservationService(repository, seanceRepository);
+    }
+
+    @Test
+    public void testHoldOnOneNodeIsConfirmedOnAnother() throws Exception {
+        b.findPlaces("s1");
+        ReservationDTO reservation = a.hold("s1", List.of(1, 2));
+
+        b.confirm("s1", reservation);
+
+        PlacesDTO places = b.findPlaces("s1");
+        Assertions.assertEquals(2, places.getVendues());
+        Assertions.assertEquals(0, places.getBloquees());
+        Assertions.assertEquals(List.of(1, 2), db.get("s1").getSold());
+    }
+
+    @Test
+    public void testHoldOnOneNodeIsReleasedOnAnother() throws Exception {
+        b.findPlaces("s1");
+        ReservationDTO reservation = a.hold("s1", List.of(1, 2));
+
+        b.release("s1", reservation);
+
+        Assertions.assertEquals(10, b.findPlaces("s1").getDisponibles());
+        Assertions.assertTrue(db.get("s1").getHeld().isEmpty());
+        // La nouvelle réservation passe sur le nœud qui a libéré
+        Assertions.assertNotNull(b.hold("s1", List.of(1, 2)));
+    }
+
+    @Test
+    public void testChangeFeedLetsOtherNodeSeeRelease() throws Exception {
+        ReservationDTO reservation = a.hold("s1", List.of(3));
+        Assertions.assertThrows(ConflictException.class, () -> b.hold("s1", List.of(3)));
+
+        b.release("s1", reservation);
+        // A a encore la place bloquée jusqu'à ce que le ChangeFeed lui apporte l'écriture de B
+        Assertions.assertThrows(ConflictException.class, () -> a.hold("s1", List.of(3)));
+        a.onPlaces(new PlacesChangeEvent("s1", true));
+
+        Assertions.assertNotNull(a.hold("s1", List.of(3)));
+    }
+
+    @Test
+    public void testLocalEventDoesNotReload() throws Exception {
+        a.findPlaces("s1");
+        a.onPlaces(new PlacesChangeEvent("s1"));
+
+        Mockito.verify(repository, Mockito.times(1)).init("s1", 10);
+    }
+
+    @Test
+    public void testStalePlanIsReloadedAfterRefresh() throws Exception {
+        a.setSeatMapLimits(100, Duration.ofHours(1), Duration.ofMillis(50));
+        ReservationDTO reservation = a.hold("s1", List.of(4));
+        b.release("s1", reservation);
+
+        Thread.sleep(100);
+        // Le premier accès après le délai relit la base en arrière-plan
+        a.findPlaces("s1");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (a.findPlaces("s1").getBloquees() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, a.findPlaces("s1").getBloquees());
+    }
+
+    @Test
+    public void testWrongTokenNeverShowsSeatsSold() throws Exception {
+        a.hold("s1", List.of(5, 6));
+        ReservationDTO forged = new ReservationDTO("pas-le-bon-jeton", List.of(5, 6));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger soldSeen = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> reader = executor.submit(() -> {
+                while (running.get()) {
+                    soldSeen.accumulateAndGet(a.findPlaces("s1").getVendues(), Math::max);
+                }
+                return null;
+            });
+            for (int i = 0; i < 200; i++) {
+                Assertions.assertThrows(ConflictException.class, () -> a.confirm("s1", forged));
+            }
+            running.set(false);
+            reader.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(0, soldSeen.get());
+        Assertions.assertEquals(2, a.findPlaces("s1").getBloquees());
+        Assertions.assertTrue(db.get("s1").getSold().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentHoldsOnTwoNodesHaveOneWinner() throws Exception {
+        a.findPlaces("s1");
+        b.findPlaces("s1");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<Integer> seats = List.of(1 + round % 10);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<ReservationDTO>> attempts = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    ReservationService node = i % 2 == 0 ? a : b;
+                    attempts.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            return node.hold("s1", seats);
+                        } catch (ConflictException e) {
+                            return null;
+                        }
+                    }));
+                }
+                start.countDown();
+                List<ReservationDTO> winners = new ArrayList<>();
+                for (Future<ReservationDTO> attempt : attempts) {
+                    if (attempt.get() != null) {
+                        winners.add(attempt.get());
+                    }
+                }
+                Assertions.assertEquals(1, winners.size());
+                // Le gagnant libère depuis l'autre nœud pour le tour suivant
+                (round % 2 == 0 ? b : a).release("s1", winners.get(0));
+                a.onPlaces(new PlacesChangeEvent("s1", true));
+                b.onPlaces(new PlacesChangeEvent("s1", true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertTrue(db.get("s1").getHeld().isEmpty());
+    }
+
+    @Test
+    public void testSeatMapsAreBounded() throws Exception {
+        a.setSeatMapLimits(50, Duration.ofHours(1), Duration.ofHours(1));
+        for (int i = 0; i < 500; i++) {
+            a.findPlaces("s" + i);
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (a.getSeatMaps() > 50 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(a.getSeatMaps() <= 50);
+    }
+
+    /**
+     * Une place bloquée depuis plus de quinze minutes sans être confirmée est de nouveau libre
+     */
+    @Test
+    public void testExpiredHoldIsTakenOver() throws Exception {
+        ReservationDTO expired = a.hold("s1", List.of(7, 8));
+        Assertions.assertThrows(ConflictException.class, () -> b.hold("s1", List.of(8)));
+
+        Clock later = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(16));
+        a.setClock(later);
+        b.setClock(later);
+        // Le plan de B contient un blocage expiré : il est relu, la place y est libre, la base la reprend
+        ReservationDTO taken = b.hold("s1", List.of(8));
+
+        Assertions.assertEquals(taken.getToken(), db.get("s1").getHeld().get("8"));
+        Assertions.assertThrows(ConflictException.class, () -> a.confirm("s1", expired));
+        Assertions.assertEquals(9, a.findPlaces("s1").getDisponibles());
+        b.confirm("s1", taken);
+        Assertions.assertEquals(List.of(8), db.get("s1").getSold());
+    }
+
+    @Test
+    public void testFailedWriteReleasesLocalSeats() throws Exception {
+        a.findPlaces("s1");
+        BDDMockito.given(repository.hold(anyString(), anyList(), anyString(), any(), any()))
+                .willThrow(new IllegalStateException("Mongo injoignable"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> a.hold("s1", List.of(1, 2)));
+
+        Assertions.assertEquals(10, a.findPlaces("s1").getDisponibles());
+    }
+
+    /**
+     * La salle a perdu des places depuis les réservations : le plan suit la salle
+     */
+    @Test
+    public void testSeatsBeyondSalleAreIgnored() throws Exception {
+        db.put("s1", new Reservation("s1", 20, new HashMap<>(Map.of("15", "t")), new HashMap<>(Map.of("15", new Date())),
+                new ArrayList<>(List.of(3, 12))));
+
+        PlacesDTO places = a.findPlaces("s1");
+
+        Assertions.assertEquals(10, places.getNbrPlace());
+        Assertions.assertEquals(1, places.getVendues());
+        Assertions.assertEquals(0, places.getBloquees());
+    }
+
+    private static boolean heldSince(Reservation reservation, Integer seat, Date expiredBefore) {
+        Date heldAt = reservation.getHeldAt().get(seat.toString());
+        return heldAt != null && !heldAt.before(expiredBefore);
+    }
+
+    private static boolean heldBy(Reservation reservation, List<Integer> seats, String token) {
+        return seats.stream().allMatch(seat -> token.equals(reservation.getHeld().get(seat.toString())));
+    }
+}
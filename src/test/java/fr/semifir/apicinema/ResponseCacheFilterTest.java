@@ -0,0 +1,92 @@
+package fr.semifir.apicinema;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.filters.ResponseCacheFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class ResponseCacheFilterTest {
+
+    private static final String BODY = "[{\"id\":\"1\",\"nom\":\"Pathé\"}]";
+
+    private final CollectionVersions versions = new CollectionVersions();
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(
+            Caffeine.newBuilder().build(), versions, 1024, true
+    );
+    private final AtomicInteger calls = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> {
+        this.calls.incrementAndGet();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    public void testSecondRequestServedFromCache() throws Exception {
+        MockHttpServletResponse first = this.get("/cinemas");
+        MockHttpServletResponse second = this.get("/cinemas");
+
+        Assertions.assertEquals(1, this.calls.get());
+        Assertions.assertEquals(BODY, first.getContentAsString(StandardCharsets.UTF_8));
+        Assertions.assertEquals(BODY, second.getContentAsString(StandardCharsets.UTF_8));
+        Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE, second.getContentType());
+        Assertions.assertEquals(this.versions.etag(EntityChangeEvent.CINEMAS), second.getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Une écriture sur la collection, ou sur une collection embarquée, rend l'entrée obsolète
+     */
+    @Test
+    public void testWriteInvalidatesEntry() throws Exception {
+        this.get("/salles/1");
+        this.versions.onChange(new EntityChangeEvent(EntityChangeEvent.CINEMAS, "1"));
+        this.get("/salles/1");
+
+        Assertions.assertEquals(2, this.calls.get());
+    }
+
+    @Test
+    public void testGzipServedWhenAccepted() throws Exception {
+        this.get("/films");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filter.doFilter(request, response, this.chain);
+
+        Assertions.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        Assertions.assertEquals(BODY, new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOtherRequestsNotCached() throws Exception {
+        this.get("/seances/1/places");
+        this.get("/seances/1/places");
+        MockHttpServletRequest ndjson = new MockHttpServletRequest("GET", "/seances");
+        ndjson.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE);
+        this.filter.doFilter(ndjson, new MockHttpServletResponse(), (request, response) -> {
+            this.calls.incrementAndGet();
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        });
+        this.get("/seances");
+
+        Assertions.assertEquals(4, this.calls.get());
+    }
+
+    private MockHttpServletResponse get(String uri) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filter.doFilter(new MockHttpServletRequest("GET", uri), response, this.chain);
+        return response;
+    }
+}
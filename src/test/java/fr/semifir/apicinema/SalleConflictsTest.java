@@ -0,0 +1,310 @@
+package fr.semifir.apicinema;
+
+import com.mongodb.DBRef;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.exceptions.ConflictException;
+import fr.semifir.apicinema.services.SalleConflicts;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class SalleConflictsTest {
+
+    private static final long T0 = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    private final MongoOperations template = Mockito.mock(MongoOperations.class);
+    private final Map<Object, Document> seances = new LinkedHashMap<>();
+    private final Map<Object, Document> films = new LinkedHashMap<>();
+    private final Salle salle = new Salle(new ObjectId().toHexString(), 1, 100, null);
+    private final Salle autreSalle = new Salle(new ObjectId().toHexString(), 2, 100, null);
+    private final List<Seance> written = new ArrayList<>();
+    private SalleConflicts conflicts;
+
+    @BeforeEach
+    public void setUp() {
+        MongoConverter converter = Mockito.mock(MongoConverter.class);
+        BDDMockito.given(converter.convertId(ArgumentMatchers.any(), ArgumentMatchers.eq(ObjectId.class)))
+                .willAnswer(invocation -> new ObjectId(invocation.<String>getArgument(0)));
+        BDDMockito.given(template.getConverter()).willReturn(converter);
+        this.collection(Seance.class, "seance", this.seances);
+        this.collection(Film.class, "film", this.films);
+        this.conflicts = new SalleConflicts(template, 0, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.conflicts.close();
+    }
+
+    @Test
+    public void seanceOverlappingTheLongestFilmIsRejected() {
+        Seance existante = this.existing(10 * 60, this.salle);
+        this.film(existante, 100F);
+        this.film(existante, 120F);
+
+        ConflictException conflict = Assertions.assertThrows(
+                ConflictException.class,
+                () -> this.save(new Seance(null, at(11 * 60 + 59), this.salle))
+        );
+        Assertions.assertTrue(conflict.getMessage().contains(existante.getId()));
+        Assertions.assertEquals(List.of(), this.written);
+        Assertions.assertEquals(1, this.conflicts.getRejected());
+
+        // Pile à la fin du film, ou dans une autre salle
+        this.save(new Seance(null, at(12 * 60), this.salle));
+        this.save(new Seance(null, at(11 * 60), this.autreSalle));
+        Assertions.assertEquals(2, this.written.size());
+    }
+
+    @Test
+    public void seancesWithoutFilmOnlyConflictAtTheSameTime() {
+        Seance existante = this.existing(10 * 60, this.salle);
+
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(10 * 60), this.salle)));
+        this.save(new Seance(null, at(10 * 60 + 1), this.salle));
+        // Une séance ne se chevauche pas elle-même
+        this.save(new Seance(existante.getId(), at(10 * 60), this.salle));
+        Assertions.assertEquals(2, this.written.size());
+    }
+
+    @Test
+    public void savedSeancesAreCheckedWithoutReloading() {
+        Seance premiere = this.save(new Seance(null, at(10 * 60), this.salle));
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(10 * 60), this.salle)));
+
+        // Déplacée : son ancien créneau est libéré
+        this.save(new Seance(premiere.getId(), at(14 * 60), this.salle));
+        this.save(new Seance(null, at(10 * 60), this.salle));
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(14 * 60), this.salle)));
+    }
+
+    @Test
+    public void filmLongerThanTheGapIsRejected() {
+        Seance premiere = this.existing(10 * 60, this.salle);
+        this.existing(11 * 60 + 30, this.salle);
+
+        Film tropLong = new Film(null, "Trop long", 95F, premiere);
+        Assertions.assertThrows(ConflictException.class, () -> this.conflicts.saveFilm(tropLong, film -> film, Film::getId));
+
+        Film film = new Film(null, "Court", 85F, premiere);
+        this.conflicts.saveFilm(film, saved -> {
+            saved.setId(new ObjectId().toHexString());
+            return saved;
+        }, Film::getId);
+        // La séance dure maintenant 85 minutes
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(11 * 60 + 20), this.salle)));
+    }
+
+    @Test
+    public void cleaningTimeIsAddedAfterEachSeance() {
+        this.conflicts.close();
+        this.conflicts = new SalleConflicts(template, 0, 15 * MINUTE);
+        Seance existante = this.existing(10 * 60, this.salle);
+        this.film(existante, 90F);
+
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(11 * 60 + 40), this.salle)));
+        this.save(new Seance(null, at(11 * 60 + 45), this.salle));
+    }
+
+    @Test
+    public void bulkReportsConflictsWithTheSalleAndWithinTheChunk() {
+        Seance existante = this.existing(10 * 60, this.salle);
+        this.film(existante, 60F);
+        List<Seance> chunk = List.of(
+                new Seance(null, at(10 * 60 + 30), this.salle),
+                new Seance(null, at(14 * 60), this.salle),
+                new Seance(null, at(14 * 60), this.salle),
+                new Seance(null, at(14 * 60), this.autreSalle)
+        );
+        List<Seance> writtenChunk = new ArrayList<>();
+
+        Map<Integer, String> errors = this.conflicts.saveSeances(chunk, accepted -> {
+            accepted.forEach(seance -> seance.setId(new ObjectId().toHexString()));
+            writtenChunk.addAll(accepted);
+            return Map.of();
+        });
+
+        Assertions.assertEquals(List.of(0, 2), errors.keySet().stream().sorted().collect(Collectors.toList()));
+        Assertions.assertTrue(errors.get(0).contains(existante.getId()));
+        Assertions.assertTrue(errors.get(2).contains("lot"));
+        Assertions.assertEquals(List.of(chunk.get(1), chunk.get(3)), writtenChunk);
+        // Les séances du lot comptent pour les écritures suivantes
+        Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(14 * 60), this.autreSalle)));
+    }
+
+    @Test
+    public void failedBulkItemsFreeTheirSlot() {
+        List<Seance> chunk = List.of(new Seance(null, at(10 * 60), this.salle));
+
+        Map<Integer, String> errors = this.conflicts.saveSeances(chunk, accepted -> Map.of(0, "E11000"));
+
+        Assertions.assertEquals(Map.of(0, "E11000"), errors);
+        this.save(new Seance(null, at(10 * 60), this.salle));
+    }
+
+    /**
+     * Une écriture lente (write-behind) ne bloque pas les autres écritures de la salle, qui voient son créneau
+     */
+    @Test
+    public void slowWriteDoesNotHoldTheSalle() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Seance> slow = executor.submit(() -> this.conflicts.saveSeance(new Seance(null, at(10 * 60), this.salle), saved -> {
+                writing.countDown();
+                try {
+                    flushed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                saved.setId(new ObjectId().toHexString());
+                return saved;
+            }, Seance::getId));
+            Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            ConflictException conflict = Assertions.assertThrows(
+                    ConflictException.class,
+                    () -> this.save(new Seance(null, at(10 * 60), this.salle))
+            );
+            Assertions.assertTrue(conflict.getMessage().contains("en cours"));
+            this.save(new Seance(null, at(12 * 60), this.salle));
+            Assertions.assertFalse(slow.isDone());
+
+            flushed.countDown();
+            Seance saved = slow.get(5, TimeUnit.SECONDS);
+            conflict = Assertions.assertThrows(ConflictException.class, () -> this.save(new Seance(null, at(10 * 60), this.salle)));
+            Assertions.assertTrue(conflict.getMessage().contains(saved.getId()));
+        } finally {
+            flushed.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedWriteFreesItsSlot() {
+        Seance premiere = this.existing(10 * 60, this.salle);
+        Assertions.assertThrows(IllegalStateException.class, () -> this.conflicts.saveSeance(
+                new Seance(null, at(14 * 60), this.salle),
+                seance -> {
+                    throw new IllegalStateException("Mongo injoignable");
+                },
+                Seance::getId
+        ));
+        Film film = new Film(new ObjectId().toHexString(), "Long", 300F, premiere);
+        Assertions.assertThrows(IllegalStateException.class, () -> this.conflicts.saveFilm(
+                film,
+                saved -> {
+                    throw new IllegalStateException("Mongo injoignable");
+                },
+                Film::getId
+        ));
+
+        this.save(new Seance(null, at(14 * 60), this.salle));
+        this.save(new Seance(null, at(10 * 60 + 1), this.salle));
+    }
+
+    private Seance save(Seance seance) {
+        return this.conflicts.saveSeance(seance, saved -> {
+            if (saved.getId() == null) {
+                saved.setId(new ObjectId().toHexString());
+            }
+            this.written.add(saved);
+            return saved;
+        }, Seance::getId);
+    }
+
+    private static Date at(int minutes) {
+        return new Date(T0 + minutes * MINUTE);
+    }
+
+    private Seance existing(int minutes, Salle salle) {
+        ObjectId id = new ObjectId();
+        this.seances.put(id, new Document("_id", id)
+                .append("date", at(minutes))
+                .append("salle", new DBRef("salle", new ObjectId(salle.getId()))));
+        return new Seance(id.toHexString(), at(minutes), salle);
+    }
+
+    private void film(Seance seance, Float duree) {
+        ObjectId id = new ObjectId();
+        this.films.put(id, new Document("_id", id)
+                .append("duree", duree.doubleValue())
+                .append("seance", new DBRef("seance", new ObjectId(seance.getId()))));
+    }
+
+    /**
+     * Collection Mongo simulée : find(filtre) accepte les égalités et les $in,
+     * sur l'_id ou l'id d'une DBRef ("salle.$id")
+     */
+    @SuppressWarnings("unchecked")
+    private void collection(Class<?> entity, String name, Map<Object, Document> documents) {
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        BDDMockito.given(template.getCollectionName(entity)).willReturn(name);
+        BDDMockito.given(template.getCollection(name)).willReturn(collection);
+        BDDMockito.given(collection.find(ArgumentMatchers.any(Bson.class))).willAnswer(invocation -> {
+            BsonDocument filter = invocation.<Bson>getArgument(0)
+                    .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+            return iterable(documents.values().stream()
+                    .filter(document -> matches(document, filter))
+                    .collect(Collectors.toList()));
+        });
+    }
+
+    private static boolean matches(Document document, BsonDocument filter) {
+        for (Map.Entry<String, BsonValue> condition : filter.entrySet()) {
+            String field = condition.getKey();
+            Object value = field.endsWith(".$id")
+                    ? ((DBRef) document.get(field.substring(0, field.length() - 4))).getId()
+                    : document.get(field);
+            BsonValue expected = condition.getValue();
+            List<BsonValue> accepted = expected.isDocument() ? expected.asDocument().getArray("$in").getValues() : List.of(expected);
+            if (accepted.stream().noneMatch(candidate -> candidate.asObjectId().getValue().equals(value))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> iterable(List<Document> documents) {
+        FindIterable<Document> iterable = Mockito.mock(FindIterable.class);
+        BDDMockito.given(iterable.projection(ArgumentMatchers.any())).willReturn(iterable);
+        BDDMockito.given(iterable.first()).willReturn(documents.isEmpty() ? null : documents.get(0));
+        Mockito.doAnswer(invocation -> {
+            documents.forEach(invocation.<Consumer<Document>>getArgument(0));
+            return null;
+        }).when(iterable).forEach(ArgumentMatchers.any());
+        return iterable;
+    }
+}
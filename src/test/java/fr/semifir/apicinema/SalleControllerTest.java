@@ -2,10 +2,15 @@ package fr.semifir.apicinema;
 
 import fr.semifir.apicinema.controllers.CinemaController;
 import fr.semifir.apicinema.controllers.SalleController;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.cinema.CinemaDTO;
 import fr.semifir.apicinema.dtos.salle.SalleDTO;
+import fr.semifir.apicinema.dtos.salle.SalleSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Cinema;
 import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.CinemaService;
 import fr.semifir.apicinema.services.SalleService;
 import org.junit.jupiter.api.Assertions;
@@ -22,7 +27,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -40,6 +48,9 @@ public class SalleControllerTest {
     @MockBean
     SalleService service;
 
+    @MockBean
+    CollectionVersions versions;
+
     @Test
     public void testFindAllCinemas() throws Exception {
         this.mockMvc.perform(get("/salles"))
@@ -130,6 +141,68 @@ public class SalleControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * On supprime une salle par son id, avec ses séances et leurs films, 404 si l'id est inconnu
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeleteSalleById() throws Exception {
+        BDDMockito.given(service.deleteById("1")).willReturn(Map.of("salle", 1L, "seance", 3L, "film", 3L));
+        BDDMockito.given(service.deleteById("2")).willThrow(NotFoundException.class);
+
+        this.mockMvc.perform(delete("/salles/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.salle").value(1))
+                .andExpect(jsonPath("$.seance").value(3))
+                .andExpect(jsonPath("$.film").value(3));
+        this.mockMvc.perform(delete("/salles/2"))
+                .andExpect(status().isNotFound());
+    }
+
+
+    @Test
+    public void testSaveAllSalles() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            results.accept(new BulkResultDTO(0, "1", BulkResultDTO.OK, null));
+            results.accept(new BulkResultDTO(1, "1", BulkResultDTO.ERROR, "duplicate key"));
+            return null;
+        }).given(service).saveAll(any(), any());
+
+        Gson json = new GsonBuilder().create();
+        String body = json.toJson(List.of(this.salleDTO(), this.salleDTOUpdate()));
+        this.mockMvc.perform(post("/salles/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(BulkResultDTO.OK))
+                .andExpect(jsonPath("$[1].status").value(BulkResultDTO.ERROR))
+                .andExpect(jsonPath("$[1].error").value("duplicate key"));
+    }
+
+    @Test
+    public void testFindAllSallesSlim() throws Exception {
+        BDDMockito.given(service.findAllSlim("nbrPlace,cinemaId"))
+                .willReturn(List.of(new SalleSlimDTO("1", null, 90, "2")));
+
+        this.mockMvc.perform(get("/salles").param("fields", "nbrPlace,cinemaId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nbrPlace").value(90))
+                .andExpect(jsonPath("$[0].cinemaId").value("2"))
+                .andExpect(jsonPath("$[0].numDeSalle").doesNotExist());
+    }
+
+    @Test
+    public void testFindPageSalles() throws Exception {
+        BDDMockito.given(service.findPage(null, 1))
+                .willReturn(new PageDTO<>(List.of(this.salleDTO()), "1"));
+
+        this.mockMvc.perform(get("/salles/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("1"));
+    }
 
     private SalleDTO salleDTO() {
         Cinema cinema = new Cinema();
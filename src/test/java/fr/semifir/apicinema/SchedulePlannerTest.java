@@ -0,0 +1,242 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningFilmDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningRequestDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningResultDTO;
+import fr.semifir.apicinema.dtos.planning.PlanningSeanceDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Film;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.FilmService;
+import fr.semifir.apicinema.services.SalleConflicts;
+import fr.semifir.apicinema.services.SchedulePlanner;
+import fr.semifir.apicinema.services.SeanceService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class SchedulePlannerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final LocalDate DEBUT = LocalDate.of(2026, 10, 19);
+    private static final long MINUTE = 60_000L;
+
+    private final MongoOperations template = Mockito.mock(MongoOperations.class);
+    private final SalleConflicts conflicts = Mockito.mock(SalleConflicts.class);
+    private final FilmService filmService = Mockito.mock(FilmService.class);
+    private final SeanceService seanceService = Mockito.mock(SeanceService.class);
+    private final Cinema cinema = new Cinema(new ObjectId().toHexString(), "Le Rex");
+    private final Salle grande = new Salle(new ObjectId().toHexString(), 1, 300, cinema);
+    private final Salle petite = new Salle(new ObjectId().toHexString(), 2, 50, cinema);
+    private SchedulePlanner planner;
+
+    @BeforeEach
+    public void setUp() {
+        MongoConverter converter = Mockito.mock(MongoConverter.class);
+        BDDMockito.given(converter.convertId(ArgumentMatchers.any(), ArgumentMatchers.eq(ObjectId.class)))
+                .willAnswer(invocation -> new ObjectId(invocation.<String>getArgument(0)));
+        BDDMockito.given(template.getConverter()).willReturn(converter);
+        BDDMockito.given(template.findById(cinema.getId(), Cinema.class)).willReturn(cinema);
+        BDDMockito.given(template.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(Salle.class)))
+                .willReturn(List.of(petite, grande));
+        BDDMockito.given(conflicts.occupied(ArgumentMatchers.anyString(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .willReturn(List.of());
+        this.planner = this.planner(15 * MINUTE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.planner.close();
+    }
+
+    @Test
+    public void seancesDoNotOverlapAndFitOpeningHours() throws NotFoundException {
+        PlanningDTO planning = this.planner.plan(cinema.getId(), this.request(3));
+
+        Assertions.assertTrue(planning.isComplet());
+        Assertions.assertFalse(planning.getSeances().isEmpty());
+        for (Salle salle : List.of(grande, petite)) {
+            List<PlanningSeanceDTO> seances = this.inSalle(planning, salle);
+            for (int i = 0; i < seances.size(); i++) {
+                PlanningSeanceDTO seance = seances.get(i);
+                ZonedDateTime start = seance.getDate().toInstant().atZone(ZONE);
+                long end = seance.getDate().getTime() + Math.round(seance.getDuree() * MINUTE);
+                Assertions.assertFalse(start.toLocalTime().isBefore(LocalTime.of(10, 0)));
+                Assertions.assertFalse(end > start.toLocalDate().atTime(23, 30).atZone(ZONE).toInstant().toEpochMilli());
+                Assertions.assertTrue(seance.getSpectateurs() <= salle.getNbrPlace());
+                if (i > 0) {
+                    PlanningSeanceDTO previous = seances.get(i - 1);
+                    // Film, puis 15 minutes de nettoyage
+                    long free = previous.getDate().getTime() + Math.round(previous.getDuree() * MINUTE) + 15 * MINUTE;
+                    Assertions.assertTrue(free <= seance.getDate().getTime());
+                }
+            }
+        }
+        double total = planning.getSeances().stream().mapToDouble(PlanningSeanceDTO::getSpectateurs).sum();
+        Assertions.assertEquals(total, planning.getSpectateurs(), 1e-6);
+    }
+
+    @Test
+    public void mostDemandedFilmFillsTheMostSeats() throws NotFoundException {
+        PlanningDTO planning = this.planner.plan(cinema.getId(), this.request(1));
+
+        Map<String, Double> spectateurs = planning.getSeances().stream().collect(Collectors.groupingBy(
+                PlanningSeanceDTO::getNom, Collectors.summingDouble(PlanningSeanceDTO::getSpectateurs)));
+        Assertions.assertTrue(spectateurs.get("Succès") > spectateurs.getOrDefault("Court", 0d));
+        Assertions.assertTrue(spectateurs.getOrDefault("Court", 0d) > spectateurs.getOrDefault("Confidentiel", 0d));
+        // "Succès" enchaîné dès l'ouverture dans les deux salles : 980 + 163 spectateurs
+        Assertions.assertTrue(planning.getSpectateurs() > 1143, String.valueOf(planning.getSpectateurs()));
+    }
+
+    @Test
+    public void existingSeancesBlockTheirSlot() throws NotFoundException {
+        long open = DEBUT.atTime(10, 0).atZone(ZONE).toInstant().toEpochMilli();
+        long[] occupied = {open + 8 * 60 * MINUTE, open + 11 * 60 * MINUTE};
+        BDDMockito.given(conflicts.occupied(ArgumentMatchers.eq(grande.getId()), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .willReturn(List.of(occupied));
+
+        PlanningDTO planning = this.planner.plan(cinema.getId(), this.request(1));
+
+        for (PlanningSeanceDTO seance : this.inSalle(planning, grande)) {
+            long start = seance.getDate().getTime();
+            long end = start + Math.round(seance.getDuree() * MINUTE) + 15 * MINUTE;
+            Assertions.assertTrue(end <= occupied[0] || start >= occupied[1], seance.toString());
+        }
+        Assertions.assertFalse(this.inSalle(planning, grande).isEmpty());
+    }
+
+    @Test
+    public void sameRequestGivesTheSamePlanning() throws NotFoundException {
+        PlanningDTO first = this.planner.plan(cinema.getId(), this.request(2));
+        PlanningDTO second = this.planner.plan(cinema.getId(), this.request(2));
+
+        Assertions.assertEquals(first.getSeances(), second.getSeances());
+    }
+
+    @Test
+    public void invalidRequestsAreRefused() {
+        PlanningRequestDTO sansFilm = this.request(1);
+        sansFilm.setFilms(List.of());
+        PlanningRequestDTO horaires = this.request(1);
+        horaires.setFermeture(LocalTime.of(9, 0));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.planner.plan(cinema.getId(), sansFilm));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.planner.plan(cinema.getId(), horaires));
+        Assertions.assertThrows(NotFoundException.class, () -> this.planner.plan(new ObjectId().toHexString(), this.request(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void applyChecksEverySlotThenWritesSeancesBeforeTheirFilms() throws NotFoundException {
+        long soir = DEBUT.atTime(20, 0).atZone(ZONE).toInstant().toEpochMilli();
+        long[] occupied = {soir - 6 * 60 * MINUTE, soir - 4 * 60 * MINUTE};
+        BDDMockito.given(conflicts.occupied(ArgumentMatchers.eq(petite.getId()), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .willReturn(List.of(occupied));
+        PlanningDTO planning = new PlanningDTO(cinema.getId(), new Date(soir), new Date(soir), List.of(
+                new PlanningSeanceDTO(new Date(soir), grande.getId(), 1, "Succès", 120F, 300),
+                // Chevauche la précédente du planning, nettoyage compris
+                new PlanningSeanceDTO(new Date(soir + 130 * MINUTE), grande.getId(), 1, "Court", 85F, 100),
+                // Chevauche une séance en base
+                new PlanningSeanceDTO(new Date(occupied[0] + 60 * MINUTE), petite.getId(), 2, "Court", 85F, 20),
+                new PlanningSeanceDTO(new Date(soir), petite.getId(), 2, "Succès", 120F, 50)
+        ), 470, 0, 0, true);
+        List<Seance> seances = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            Iterator<Seance> iterator = invocation.getArgument(0);
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            iterator.forEachRemaining(seances::add);
+            results.accept(new BulkResultDTO(0, seances.get(0).getId(), BulkResultDTO.OK, null));
+            // Écriture concurrente dans la petite salle
+            results.accept(new BulkResultDTO(1, seances.get(1).getId(), BulkResultDTO.ERROR, "La salle est déjà occupée"));
+            return null;
+        }).when(seanceService).saveAll(ArgumentMatchers.any(Iterator.class), ArgumentMatchers.any(Consumer.class));
+        Mockito.doAnswer(invocation -> {
+            Iterator<Film> iterator = invocation.getArgument(0);
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            long index = 0;
+            while (iterator.hasNext()) {
+                Film film = iterator.next();
+                film.setId(new ObjectId().toHexString());
+                films.add(film);
+                results.accept(new BulkResultDTO(index++, film.getId(), BulkResultDTO.OK, null));
+            }
+            return null;
+        }).when(filmService).saveAll(ArgumentMatchers.any(Iterator.class), ArgumentMatchers.any(Consumer.class));
+
+        PlanningResultDTO result = this.planner.apply(cinema.getId(), planning);
+
+        InOrder order = Mockito.inOrder(seanceService, filmService);
+        order.verify(seanceService).saveAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+        order.verify(filmService).saveAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+        Assertions.assertEquals(List.of(grande, petite), seances.stream().map(Seance::getSalle).collect(Collectors.toList()));
+        Assertions.assertEquals(1, films.size());
+        Assertions.assertSame(seances.get(0), films.get(0).getSeance());
+        Assertions.assertEquals(
+                List.of(BulkResultDTO.OK, BulkResultDTO.ERROR, BulkResultDTO.ERROR, BulkResultDTO.ERROR),
+                result.getSeances().stream().map(BulkResultDTO::getStatus).collect(Collectors.toList()));
+        Assertions.assertEquals(
+                List.of(0L, 1L, 2L, 3L),
+                result.getFilms().stream().map(BulkResultDTO::getIndex).collect(Collectors.toList()));
+        Assertions.assertEquals(films.get(0).getId(), result.getFilms().get(0).getId());
+        Assertions.assertTrue(result.getSeances().get(1).getError().contains("planning"));
+        Mockito.verify(filmService, Mockito.never()).deleteById(ArgumentMatchers.any());
+        Assertions.assertEquals(1, this.planner.getCreated());
+
+        PlanningDTO autreCinema = new PlanningDTO(cinema.getId(), new Date(soir), new Date(soir), List.of(
+                new PlanningSeanceDTO(new Date(soir), new ObjectId().toHexString(), 1, "Succès", 120F, 300)
+        ), 300, 0, 0, true);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.planner.apply(cinema.getId(), autreCinema));
+    }
+
+    private SchedulePlanner planner(long cleaningMillis) {
+        return new SchedulePlanner(
+                template, conflicts, filmService, seanceService, ZONE,
+                5 * MINUTE, cleaningMillis, 0.5, 200, Duration.ofSeconds(30), Duration.ofSeconds(30), 2
+        );
+    }
+
+    private PlanningRequestDTO request(int jours) {
+        PlanningRequestDTO request = new PlanningRequestDTO();
+        request.setDebut(DEBUT);
+        request.setJours(jours);
+        request.setFilms(List.of(
+                new PlanningFilmDTO("Succès", 120F, 2000 * jours),
+                new PlanningFilmDTO("Court", 85F, 300 * jours),
+                new PlanningFilmDTO("Confidentiel", 100F, 20 * jours)
+        ));
+        return request;
+    }
+
+    private List<PlanningSeanceDTO> inSalle(PlanningDTO planning, Salle salle) {
+        return planning.getSeances().stream()
+                .filter(seance -> salle.getId().equals(seance.getSalleId()))
+                .collect(Collectors.toList());
+    }
+}
@@ -3,10 +3,15 @@ package fr.semifir.apicinema;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import fr.semifir.apicinema.controllers.SeanceController;
+import fr.semifir.apicinema.dtos.bulk.BulkResultDTO;
 import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceSlimDTO;
+import fr.semifir.apicinema.dtos.page.PageDTO;
 import fr.semifir.apicinema.entities.Cinema;
 import fr.semifir.apicinema.entities.Salle;
 import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.CollectionVersions;
+import fr.semifir.apicinema.exceptions.NotFoundException;
 import fr.semifir.apicinema.services.SeanceService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -19,10 +24,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,6 +49,9 @@ public class SeanceControllerTest {
     @MockBean
     SeanceService service;
 
+    @MockBean
+    CollectionVersions versions;
+
     @Test
     public void testFindAllSeances() throws Exception {
         this.mockMvc.perform(get("/seances"))
@@ -124,6 +139,115 @@ public class SeanceControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * On supprime une séance par son id, avec ses films et l'état de ses places, 404 si l'id est inconnu
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeleteSeanceById() throws Exception {
+        BDDMockito.given(service.deleteById("1")).willReturn(Map.of("seance", 1L, "reservation", 1L, "film", 2L));
+        BDDMockito.given(service.deleteById("2")).willThrow(NotFoundException.class);
+
+        this.mockMvc.perform(delete("/seances/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seance").value(1))
+                .andExpect(jsonPath("$.reservation").value(1))
+                .andExpect(jsonPath("$.film").value(2));
+        this.mockMvc.perform(delete("/seances/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testStreamAllSeances() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<SeanceDTO> consumer = invocation.getArgument(0);
+            consumer.accept(this.seanceDTO());
+            consumer.accept(this.seanceDTOUpdate());
+            return null;
+        }).given(service).streamAll(any());
+
+        MvcResult result = this.mockMvc.perform(get("/seances").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(2, lines.length);
+    }
+
+    @Test
+    public void testSaveAllSeances() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BulkResultDTO> results = invocation.getArgument(1);
+            results.accept(new BulkResultDTO(0, "1", BulkResultDTO.OK, null));
+            results.accept(new BulkResultDTO(1, "1", BulkResultDTO.ERROR, "duplicate key"));
+            return null;
+        }).given(service).saveAll(any(), any());
+
+        Gson json = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create();
+        String body = json.toJson(List.of(this.seanceDTO(), this.seanceDTOUpdate()));
+        this.mockMvc.perform(post("/seances/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(BulkResultDTO.OK))
+                .andExpect(jsonPath("$[1].status").value(BulkResultDTO.ERROR))
+                .andExpect(jsonPath("$[1].error").value("duplicate key"));
+    }
+
+    @Test
+    public void testFindPageSeancesSlim() throws Exception {
+        BDDMockito.given(service.findPageSlim(null, 1, "salleId"))
+                .willReturn(new PageDTO<>(List.of(new SeanceSlimDTO("1", null, "2")), "1"));
+
+        this.mockMvc.perform(get("/seances/page").param("size", "1").param("fields", "salleId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].salleId").value("2"))
+                .andExpect(jsonPath("$.content[0].salle").doesNotExist())
+                .andExpect(jsonPath("$.next").value("1"));
+    }
+
+    @Test
+    public void testFindAllSeancesUnknownField() throws Exception {
+        BDDMockito.given(service.findAllSlim("salle"))
+                .willThrow(new IllegalArgumentException("Champ inconnu : salle"));
+
+        this.mockMvc.perform(get("/seances").param("fields", "salle"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testFindPageSeances() throws Exception {
+        BDDMockito.given(service.findPage(null, 1))
+                .willReturn(new PageDTO<>(List.of(this.seanceDTO()), "1"));
+
+        this.mockMvc.perform(get("/seances/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("1"));
+    }
+
+    @Test
+    public void testSearchSeances() throws Exception {
+        BDDMockito.given(service.search(eq("1"), isNull(), any(Date.class), any(Date.class), isNull(), anyInt()))
+                .willReturn(new PageDTO<>(List.of(this.seanceDTO()), null));
+
+        this.mockMvc.perform(get("/seances/search")
+                        .param("cinema", "1")
+                        .param("from", "2021-12-22T00:00:00.000Z")
+                        .param("to", "2021-12-29T00:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("1"))
+                .andExpect(jsonPath("$.next").isEmpty());
+    }
+
+    @Test
+    public void testSearchSeancesWithoutDateRange() throws Exception {
+        this.mockMvc.perform(get("/seances/search").param("cinema", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
     private SeanceDTO seanceDTO() {
         Date date = new Date();
         Salle salle = new Salle("1",1,90,new Cinema());
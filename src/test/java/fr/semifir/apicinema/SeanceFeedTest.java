@@ -0,0 +1,308 @@
+package fr.semifir.apicinema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.semifir.apicinema.dtos.reservation.PlacesDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceDTO;
+import fr.semifir.apicinema.dtos.seance.SeanceEventDTO;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.events.PlacesChangeEvent;
+import fr.semifir.apicinema.exceptions.NotFoundException;
+import fr.semifir.apicinema.services.ReservationService;
+import fr.semifir.apicinema.services.SeanceFeed;
+import fr.semifir.apicinema.services.SeanceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SeanceFeedTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SeanceService seanceService = Mockito.mock(SeanceService.class);
+    private final ReservationService reservationService = Mockito.mock(ReservationService.class);
+    private SeanceFeed feed;
+
+    /**
+     * Connexion de test : garde les événements reçus
+     */
+    private static class RecordingSink implements SeanceFeed.Sink {
+
+        final BlockingQueue<SeanceEventDTO> events = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public boolean ready() {
+            return true;
+        }
+
+        @Override
+        public void send(List<SeanceEventDTO> batch) {
+            this.events.addAll(batch);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            this.closed.countDown();
+        }
+
+        SeanceEventDTO next() throws InterruptedException {
+            SeanceEventDTO event = this.events.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(event);
+            return event;
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        BDDMockito.given(seanceService.findByID("s1"))
+                .willReturn(Optional.of(new SeanceDTO("s1", new Date(1700000000000L), null)));
+        BDDMockito.given(seanceService.findByID("s2")).willThrow(new NotFoundException("absente"));
+        BDDMockito.given(reservationService.findPlaces("s1")).willReturn(new PlacesDTO("s1", 90, 88, 2, 0));
+        this.feed = new SeanceFeed(seanceService, reservationService, objectMapper, 4, 8, 10, 2, 10, 60_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.feed.close();
+    }
+
+    @Test
+    public void testSubscriberReceivesSeanceAndPlacesChanges() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        this.feed.subscribe(null, sink);
+
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s2"));
+        this.feed.onPlaces(new PlacesChangeEvent("s1"));
+
+        List<SeanceEventDTO> events = List.of(sink.next(), sink.next(), sink.next());
+        List<String> actions = new ArrayList<>();
+        for (SeanceEventDTO event : events.subList(0, 2)) {
+            Assertions.assertEquals(SeanceFeed.SEANCE, event.getType());
+            JsonNode data = this.objectMapper.readTree(event.getData());
+            actions.add(data.get("id").asText() + ":" + data.get("action").asText());
+        }
+        Assertions.assertTrue(actions.containsAll(List.of("s1:saved", "s2:deleted")));
+        Assertions.assertEquals(SeanceFeed.PLACES, events.get(2).getType());
+        Assertions.assertEquals(88, this.objectMapper.readTree(events.get(2).getData()).get("disponibles").asInt());
+        Assertions.assertTrue(events.get(0).getSequence() < events.get(1).getSequence());
+    }
+
+    /**
+     * Plusieurs écritures d'une séance entre deux flush ne donnent qu'un événement
+     */
+    @Test
+    public void testWritesAreCoalesced() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        this.feed.subscribe(null, sink);
+
+        for (int i = 0; i < 10; i++) {
+            this.feed.onPlaces(new PlacesChangeEvent("s1"));
+        }
+        sink.next();
+        Thread.sleep(100);
+
+        Assertions.assertTrue(sink.events.isEmpty());
+        Mockito.verify(reservationService, Mockito.times(1)).findPlaces("s1");
+    }
+
+    @Test
+    public void testSalleChangeResetsSubscribers() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        this.feed.subscribe(null, sink);
+
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SALLES, "sa1"));
+
+        Assertions.assertEquals(SeanceFeed.RESET, sink.next().getType());
+        Thread.sleep(100);
+        Assertions.assertTrue(sink.events.isEmpty());
+    }
+
+    @Test
+    public void testSlowSubscriberIsDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink blocked = new RecordingSink() {
+            @Override
+            public void send(List<SeanceEventDTO> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RecordingSink fast = new RecordingSink();
+        this.feed.subscribe(null, blocked);
+        this.feed.subscribe(null, fast);
+
+        // Un événement par flush : le premier bloque l'envoi, les suivants remplissent le tampon de 4
+        for (int i = 0; i < 7; i++) {
+            this.feed.onPlaces(new PlacesChangeEvent("s1"));
+            fast.next();
+        }
+        release.countDown();
+
+        Assertions.assertTrue(blocked.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, this.feed.getDropped());
+        Assertions.assertEquals(1, this.feed.getSubscribers());
+    }
+
+    /**
+     * Un seul thread d'envoi : une connexion qui n'accepte plus rien ne le bloque pas, elle reprend sur resume()
+     */
+    @Test
+    public void testStalledConnectionDoesNotHoldSenders() throws Exception {
+        this.feed.close();
+        this.feed = new SeanceFeed(seanceService, reservationService, objectMapper, 4, 8, 10, 1, 10, 60_000);
+        AtomicBoolean writable = new AtomicBoolean();
+        RecordingSink stalled = new RecordingSink() {
+            @Override
+            public boolean ready() {
+                return writable.get();
+            }
+        };
+        RecordingSink fast = new RecordingSink();
+        SeanceFeed.Subscriber subscriber = this.feed.subscribe(null, stalled);
+        this.feed.subscribe(null, fast);
+
+        this.feed.onPlaces(new PlacesChangeEvent("s1"));
+        Assertions.assertEquals(SeanceFeed.PLACES, fast.next().getType());
+        Assertions.assertTrue(stalled.events.isEmpty());
+
+        writable.set(true);
+        subscriber.resume();
+        Assertions.assertEquals(SeanceFeed.PLACES, stalled.next().getType());
+    }
+
+    @Test
+    public void testConnectionStalledForAHeartbeatIsDropped() throws Exception {
+        this.feed.close();
+        this.feed = new SeanceFeed(seanceService, reservationService, objectMapper, 4, 8, 10, 1, 10, 50);
+        RecordingSink stalled = new RecordingSink() {
+            @Override
+            public boolean ready() {
+                return false;
+            }
+        };
+        this.feed.subscribe(null, stalled);
+
+        Assertions.assertTrue(stalled.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, this.feed.getDropped());
+        Assertions.assertEquals(0, this.feed.getSubscribers());
+    }
+
+    @Test
+    public void testResumeReplaysMissedEventsOrResets() throws Exception {
+        List<String> ids = this.publishPlaces(3);
+
+        RecordingSink resumed = new RecordingSink();
+        this.feed.subscribe(ids.get(0), resumed);
+        Assertions.assertEquals(ids.get(1), resumed.next().getId());
+        Assertions.assertEquals(ids.get(2), resumed.next().getId());
+
+        // Historique de 8 : l'événement 1 en est sorti
+        this.publishPlaces(8);
+        RecordingSink late = new RecordingSink();
+        this.feed.subscribe(ids.get(0), late);
+        Assertions.assertEquals(SeanceFeed.RESET, late.next().getType());
+    }
+
+    /**
+     * Après un redémarrage, ou sur un autre nœud, la numérotation repart de zéro :
+     * un id plus grand que le dernier événement ne doit pas faire attendre le client sans rien lui dire
+     */
+    @Test
+    public void testIdFromAnotherRunResets() throws Exception {
+        List<String> ids = this.publishPlaces(3);
+        this.feed.close();
+        this.feed = new SeanceFeed(seanceService, reservationService, objectMapper, 4, 8, 10, 2, 10, 60_000);
+
+        List<SeanceEventDTO> polled = this.feed.poll(ids.get(2)).get(1, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, polled.size());
+        Assertions.assertEquals(SeanceFeed.RESET, polled.get(0).getType());
+        // Le client reprend depuis l'id du reset, sans en recevoir d'autre
+        Assertions.assertFalse(this.feed.poll(polled.get(0).getId()).isDone());
+
+        RecordingSink resumed = new RecordingSink();
+        this.feed.subscribe(ids.get(2), resumed);
+        Assertions.assertEquals(SeanceFeed.RESET, resumed.next().getType());
+
+        Assertions.assertEquals(SeanceFeed.RESET, this.feed.poll("inconnu").get(1, TimeUnit.SECONDS).get(0).getType());
+    }
+
+    @Test
+    public void testPollWaitsForNextEvent() throws Exception {
+        CompletableFuture<List<SeanceEventDTO>> poll = this.feed.poll(null);
+        Assertions.assertFalse(poll.isDone());
+
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s1"));
+
+        List<SeanceEventDTO> events = poll.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(0, this.feed.getWaiters());
+        String id = events.get(0).getId();
+        String start = id.substring(0, id.lastIndexOf('-') + 1) + "0";
+        Assertions.assertEquals(events, this.feed.poll(start).get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Les lectures Mongo du flush ne retardent pas le décrochage des connexions bloquées
+     */
+    @Test
+    public void testSlowFlushDoesNotDelayHeartbeats() throws Exception {
+        this.feed.close();
+        this.feed = new SeanceFeed(seanceService, reservationService, objectMapper, 4, 8, 10, 1, 10, 50);
+        CountDownLatch loaded = new CountDownLatch(1);
+        BDDMockito.given(seanceService.findByID("s3")).willAnswer(invocation -> {
+            loaded.await(5, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+        RecordingSink stalled = new RecordingSink() {
+            @Override
+            public boolean ready() {
+                return false;
+            }
+        };
+        this.feed.subscribe(null, stalled);
+
+        this.feed.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, "s3"));
+        try {
+            Assertions.assertTrue(stalled.closed.await(2, TimeUnit.SECONDS));
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    /**
+     * Publie count états des places, un par flush
+     * @return les ids des événements
+     */
+    private List<String> publishPlaces(int count) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<List<SeanceEventDTO>> next = this.feed.poll(null);
+            this.feed.onPlaces(new PlacesChangeEvent("s1"));
+            ids.add(next.get(5, TimeUnit.SECONDS).get(0).getId());
+        }
+        return ids;
+    }
+}
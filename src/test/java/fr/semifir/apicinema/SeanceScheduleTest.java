@@ -0,0 +1,308 @@
+package fr.semifir.apicinema;
+
+import com.mongodb.DBRef;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import fr.semifir.apicinema.dtos.seance.ShowingDTO;
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.entities.Salle;
+import fr.semifir.apicinema.entities.Seance;
+import fr.semifir.apicinema.events.EntityChangeEvent;
+import fr.semifir.apicinema.exceptions.ScheduleLoadingException;
+import fr.semifir.apicinema.services.SeanceSchedule;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class SeanceScheduleTest {
+
+    private static final long T0 = 1700000000000L;
+    private static final long HOUR = 3_600_000L;
+
+    private final MongoOperations template = Mockito.mock(MongoOperations.class);
+    private final Map<Object, Document> cinemas = new LinkedHashMap<>();
+    private final Map<Object, Document> salles = new LinkedHashMap<>();
+    private final Map<Object, Document> seances = new LinkedHashMap<>();
+    private final ObjectId cinema1 = new ObjectId();
+    private final ObjectId cinema2 = new ObjectId();
+    private final ObjectId salle1 = new ObjectId();
+    private final ObjectId salle2 = new ObjectId();
+    private final ObjectId salle3 = new ObjectId();
+    private SeanceSchedule schedule;
+
+    @BeforeEach
+    public void setUp() {
+        MongoConverter converter = Mockito.mock(MongoConverter.class);
+        BDDMockito.given(converter.convertId(ArgumentMatchers.any(), ArgumentMatchers.eq(ObjectId.class)))
+                .willAnswer(invocation -> {
+                    String id = invocation.getArgument(0);
+                    return ObjectId.isValid(id) ? new ObjectId(id) : id;
+                });
+        BDDMockito.given(template.getConverter()).willReturn(converter);
+        this.collection(Cinema.class, "cinema", this.cinemas);
+        this.collection(Salle.class, "salle", this.salles);
+        this.collection(Seance.class, "seance", this.seances);
+
+        this.cinemas.put(cinema1, new Document("_id", cinema1));
+        this.cinemas.put(cinema2, new Document("_id", cinema2));
+        this.salle(salle1, cinema1);
+        this.salle(salle2, cinema1);
+        this.salle(salle3, cinema2);
+        this.schedule = new SeanceSchedule(template, 100, 50);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.schedule.close();
+    }
+
+    @Test
+    public void findBeforeLoadIsRejected() {
+        Assertions.assertFalse(this.schedule.isLoaded());
+        Assertions.assertThrows(ScheduleLoadingException.class, () -> this.find(null, null, 0, 10, 10));
+    }
+
+    @Test
+    public void findReturnsShowingsInRangeSortedByDate() {
+        ObjectId late = this.seance(3, salle3);
+        ObjectId early = this.seance(1, salle1);
+        ObjectId middle = this.seance(2, salle2);
+        this.seance(5, salle1);
+        this.schedule.load();
+
+        List<ShowingDTO> showings = this.find(null, null, 1, 5, 10);
+
+        // to exclu
+        Assertions.assertEquals(ids(early, middle, late), ids(showings));
+        Assertions.assertEquals(new Date(T0 + HOUR), showings.get(0).getDate());
+        Assertions.assertEquals(salle1.toHexString(), showings.get(0).getSalleId());
+        Assertions.assertEquals(cinema1.toHexString(), showings.get(0).getCinemaId());
+        Assertions.assertEquals(ids(early, middle), ids(this.find(null, null, 0, 24, 2)));
+        Assertions.assertEquals(4, this.schedule.getSize());
+        Assertions.assertTrue(this.schedule.getFootprintBytes() > 0);
+    }
+
+    @Test
+    public void findFiltersBySalleAndCinema() {
+        ObjectId a = this.seance(1, salle1);
+        ObjectId b = this.seance(2, salle3);
+        ObjectId c = this.seance(3, salle2);
+        ObjectId d = this.seance(4, salle1);
+        this.schedule.load();
+
+        Assertions.assertEquals(ids(a, d), ids(this.find(null, salle1, 0, 24, 10)));
+        Assertions.assertEquals(ids(a, c, d), ids(this.find(cinema1, null, 0, 24, 10)));
+        Assertions.assertEquals(ids(a, c), ids(this.find(cinema1, null, 0, 24, 2)));
+        Assertions.assertEquals(ids(b), ids(this.find(cinema2, null, 0, 24, 10)));
+        // Salle d'un autre cinéma
+        Assertions.assertEquals(List.of(), this.find(cinema2, salle1, 0, 24, 10));
+        Assertions.assertEquals(List.of(), this.find(null, new ObjectId(), 0, 24, 10));
+    }
+
+    @Test
+    public void writesAreAppliedWithoutReload() {
+        ObjectId moved = this.seance(1, salle1);
+        ObjectId deleted = this.seance(2, salle2);
+        ObjectId kept = this.seance(3, salle3);
+        this.schedule.load();
+
+        this.seances.put(moved, seanceDocument(moved, 4, salle1));
+        this.seances.remove(deleted);
+        ObjectId added = this.seance(0, salle2);
+        this.publish(EntityChangeEvent.SEANCES, moved, deleted, added);
+
+        this.await(() -> this.find(null, null, 0, 24, 10).size() == 3 && ids(added, kept, moved).equals(ids(this.find(null, null, 0, 24, 10))));
+        Assertions.assertEquals(ids(added), ids(this.find(cinema1, null, 0, 2, 10)));
+        Assertions.assertEquals(3, this.schedule.getSize());
+    }
+
+    @Test
+    public void deletesFindTheirPositionAmongManyShowings() {
+        this.schedule.close();
+        this.schedule = new SeanceSchedule(template, 10_000, 50);
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ids.add(this.seance(i % 24, salle1));
+        }
+        this.schedule.load();
+
+        List<ObjectId> deleted = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += 2) {
+            this.seances.remove(ids.get(i));
+            deleted.add(ids.get(i));
+        }
+        this.publish(EntityChangeEvent.SEANCES, deleted.toArray(new ObjectId[0]));
+
+        this.await(() -> this.schedule.getSize() == 1000);
+        Assertions.assertTrue(this.find(null, null, 0, 24, 50).stream()
+                .noneMatch(showing -> deleted.contains(new ObjectId(showing.getId()))));
+    }
+
+    @Test
+    public void compactionKeepsResults() {
+        this.schedule.close();
+        this.schedule = new SeanceSchedule(template, 1, 50);
+        List<ObjectId> ids = new ArrayList<>();
+        for (int hour = 0; hour < 10; hour++) {
+            ids.add(this.seance(hour, hour % 2 == 0 ? salle1 : salle3));
+        }
+        this.schedule.load();
+
+        // Chaque écriture dépasse le seuil : les tableaux sont reconstruits
+        this.seances.put(ids.get(0), seanceDocument(ids.get(0), 20, salle2));
+        this.seances.remove(ids.get(1));
+        this.publish(EntityChangeEvent.SEANCES, ids.get(0), ids.get(1));
+
+        List<Object> expected = new ArrayList<>(ids(ids.subList(2, 10).toArray(new ObjectId[0])));
+        expected.add(ids.get(0).toHexString());
+        this.await(() -> expected.equals(ids(this.find(null, null, 0, 24, 50))));
+        Assertions.assertEquals(ids(ids.get(0)), ids(this.find(null, salle2, 0, 24, 50)));
+        Assertions.assertEquals(9, this.schedule.getSize());
+    }
+
+    @Test
+    public void deletedSalleAndCinemaRemoveTheirShowings() {
+        ObjectId a = this.seance(1, salle1);
+        this.seance(2, salle2);
+        ObjectId c = this.seance(3, salle3);
+        this.schedule.load();
+
+        this.salles.remove(salle2);
+        this.publish(EntityChangeEvent.SALLES, salle2);
+        this.await(() -> ids(a, c).equals(ids(this.find(null, null, 0, 24, 10))));
+
+        this.cinemas.remove(cinema2);
+        this.publish(EntityChangeEvent.CINEMAS, cinema2);
+        this.await(() -> ids(a).equals(ids(this.find(null, null, 0, 24, 10))));
+    }
+
+    @Test
+    public void bulkWriteReloads() {
+        this.seance(1, salle1);
+        this.schedule.load();
+
+        this.seance(2, salle1);
+        this.seances.put("ancienne-1", new Document("_id", "ancienne-1")
+                .append("date", new Date(T0 + 3 * HOUR))
+                .append("salle", new DBRef("salle", salle3)));
+        this.schedule.onChange(new EntityChangeEvent(EntityChangeEvent.SEANCES, null));
+
+        this.await(() -> this.schedule.getSize() == 3);
+        // Id qui n'est pas un ObjectId
+        Assertions.assertEquals(List.of("ancienne-1"), ids(this.find(cinema2, null, 0, 24, 10)));
+    }
+
+    private List<ShowingDTO> find(Object cinema, Object salle, int fromHour, int toHour, int limit) {
+        return this.schedule.find(
+                cinema == null ? null : cinema.toString(),
+                salle == null ? null : salle.toString(),
+                new Date(T0 + fromHour * HOUR),
+                new Date(T0 + toHour * HOUR),
+                limit
+        );
+    }
+
+    private void publish(String collection, ObjectId... ids) {
+        for (ObjectId id : ids) {
+            this.schedule.onChange(new EntityChangeEvent(collection, id.toHexString()));
+        }
+    }
+
+    /**
+     * Les écritures sont appliquées par le thread de l'index
+     */
+    private void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Index pas à jour");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assertions.fail(e);
+            }
+        }
+    }
+
+    private ObjectId seance(int hour, ObjectId salle) {
+        ObjectId id = new ObjectId();
+        this.seances.put(id, seanceDocument(id, hour, salle));
+        return id;
+    }
+
+    private void salle(ObjectId id, ObjectId cinema) {
+        this.salles.put(id, new Document("_id", id).append("cinema", new DBRef("cinema", cinema)));
+    }
+
+    private static Document seanceDocument(ObjectId id, int hour, ObjectId salle) {
+        return new Document("_id", id).append("date", new Date(T0 + hour * HOUR)).append("salle", new DBRef("salle", salle));
+    }
+
+    private static List<Object> ids(ObjectId... ids) {
+        List<Object> hex = new ArrayList<>();
+        for (ObjectId id : ids) {
+            hex.add(id.toHexString());
+        }
+        return hex;
+    }
+
+    private static List<Object> ids(List<ShowingDTO> showings) {
+        return showings.stream().map(ShowingDTO::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Collection Mongo simulée : find() parcourt les documents, find(eq("_id", id)) en lit un
+     */
+    @SuppressWarnings("unchecked")
+    private void collection(Class<?> entity, String name, Map<Object, Document> documents) {
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        BDDMockito.given(template.getCollectionName(entity)).willReturn(name);
+        BDDMockito.given(template.getCollection(name)).willReturn(collection);
+        BDDMockito.given(collection.find()).willAnswer(invocation -> iterable(new ArrayList<>(documents.values())));
+        BDDMockito.given(collection.find(ArgumentMatchers.any(Bson.class))).willAnswer(invocation -> {
+            Document document = documents.get(id(invocation.getArgument(0)));
+            return iterable(document == null ? List.of() : List.of(document));
+        });
+        BDDMockito.given(collection.countDocuments(ArgumentMatchers.any(Bson.class)))
+                .willAnswer(invocation -> documents.containsKey(id(invocation.getArgument(0))) ? 1L : 0L);
+    }
+
+    private static Object id(Bson filter) {
+        BsonValue id = filter.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue() : id.asString().getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> iterable(List<Document> documents) {
+        FindIterable<Document> iterable = Mockito.mock(FindIterable.class);
+        BDDMockito.given(iterable.projection(ArgumentMatchers.any())).willReturn(iterable);
+        BDDMockito.given(iterable.batchSize(ArgumentMatchers.anyInt())).willReturn(iterable);
+        BDDMockito.given(iterable.first()).willReturn(documents.isEmpty() ? null : documents.get(0));
+        Mockito.doAnswer(invocation -> {
+            documents.forEach(invocation.<Consumer<Document>>getArgument(0));
+            return null;
+        }).when(iterable).forEach(ArgumentMatchers.any());
+        return iterable;
+    }
+}
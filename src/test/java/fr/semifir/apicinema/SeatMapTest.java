@@ -0,0 +1,86 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.services.SeatMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SeatMapTest {
+
+    @Test
+    public void testHoldConfirmRelease() {
+        SeatMap seatMap = new SeatMap(90);
+
+        Assertions.assertTrue(seatMap.hold(1, 2, 3));
+        Assertions.assertTrue(seatMap.confirm(1, 2));
+        Assertions.assertTrue(seatMap.release(3));
+
+        Assertions.assertEquals(SeatMap.SOLD, seatMap.state(1));
+        Assertions.assertEquals(SeatMap.FREE, seatMap.state(3));
+        Assertions.assertEquals(88, seatMap.count(SeatMap.FREE));
+        Assertions.assertEquals(2, seatMap.count(SeatMap.SOLD));
+    }
+
+    /**
+     * Une demande qui chevauche des places prises ne bloque aucune place
+     */
+    @Test
+    public void testHoldIsAllOrNothing() {
+        SeatMap seatMap = new SeatMap(90);
+        Assertions.assertTrue(seatMap.hold(40));
+
+        Assertions.assertFalse(seatMap.hold(38, 39, 40, 41));
+        Assertions.assertEquals(SeatMap.FREE, seatMap.state(38));
+        Assertions.assertEquals(SeatMap.FREE, seatMap.state(39));
+        Assertions.assertEquals(89, seatMap.count(SeatMap.FREE));
+    }
+
+    @Test
+    public void testUnknownSeat() {
+        SeatMap seatMap = new SeatMap(90);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> seatMap.hold(91));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> seatMap.hold(0));
+    }
+
+    /**
+     * Plusieurs threads se disputent les mêmes places : chaque place n'est bloquée qu'une fois
+     */
+    @Test
+    public void testNoOverbookingUnderContention() throws Exception {
+        int nbrPlace = 300;
+        int threads = 8;
+        SeatMap seatMap = new SeatMap(nbrPlace);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int held = 0;
+                for (int seat = 1; seat < nbrPlace; seat += 2) {
+                    if (seatMap.hold(seat, seat + 1)) {
+                        held += 2;
+                    }
+                }
+                return held;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(nbrPlace, total);
+        Assertions.assertEquals(nbrPlace, seatMap.count(SeatMap.HELD));
+        Assertions.assertEquals(0, seatMap.count(SeatMap.FREE));
+    }
+}
@@ -0,0 +1,135 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.tracing.Span;
+import fr.semifir.apicinema.tracing.Trace;
+import fr.semifir.apicinema.tracing.TracingFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class TracingTest {
+
+    /**
+     * Les appels répétés d'une même méthode sous le même parent sont cumulés dans un span
+     */
+    @Test
+    public void testRepeatedCallsShareSpan() {
+        Trace trace = new Trace("GET /films");
+        Span service = trace.open(Span.SERVICE, "FilmService.findAll");
+        for (int i = 0; i < 3; i++) {
+            trace.close(trace.open(Span.MAPPING, "FilmMapper.map"), null);
+        }
+        trace.close(service, null);
+        trace.finish(200);
+
+        Assertions.assertEquals(2, trace.getSpans().size());
+        Span mapping = trace.getSpans().get(1);
+        Assertions.assertEquals(3, mapping.getCount());
+        Assertions.assertEquals(service.getSpanId(), mapping.getParentSpanId());
+        Assertions.assertTrue(trace.isFinished());
+    }
+
+    /**
+     * Un span fermé sur une exception garde son type, et ferme ceux restés ouverts sous lui
+     */
+    @Test
+    public void testCloseOnError() {
+        Trace trace = new Trace("GET /seances/1");
+        Span service = trace.open(Span.SERVICE, "SeanceService.findByID");
+        Span repository = trace.open(Span.REPOSITORY, "SeanceRepository.findById");
+        Span nested = trace.open(Span.SERVICE, "SalleService.findByID");
+        trace.close(service, new IllegalStateException());
+        trace.finish(500);
+
+        Assertions.assertEquals("IllegalStateException", service.getError());
+        Assertions.assertNull(repository.getError());
+        Assertions.assertEquals(service.getDurationNanos(), trace.total(Span.SERVICE));
+        Assertions.assertTrue(nested.getDurationNanos() <= repository.getDurationNanos());
+    }
+
+    @Test
+    public void testDebugHeader() throws Exception {
+        TracingFilter filter = new TracingFilter(null, 0, Long.MAX_VALUE, true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cinemas");
+        request.addHeader(TracingFilter.DEBUG_HEADER, "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+                res.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        String traceId = response.getHeader(TracingFilter.TRACE_ID_HEADER);
+        Assertions.assertNotNull(traceId);
+        Assertions.assertTrue(response.getHeader(TracingFilter.TRACE_HEADER).startsWith("id=" + traceId + "; total="));
+        Assertions.assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    public void testNoSummaryWithoutDebugHeader() throws Exception {
+        TracingFilter filter = new TracingFilter(null, 0, Long.MAX_VALUE, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cinemas"), response, new MockFilterChain());
+
+        Assertions.assertNotNull(response.getHeader(TracingFilter.TRACE_ID_HEADER));
+        Assertions.assertNull(response.getHeader(TracingFilter.TRACE_HEADER));
+    }
+
+    /**
+     * Requête asynchrone (DeferredResult) : le corps et X-Trace sont écrits au dispatch asynchrone
+     */
+    @Test
+    public void testDebugHeaderOnAsyncRequest() throws Exception {
+        TracingFilter filter = new TracingFilter(null, 0, Long.MAX_VALUE, true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cinemas");
+        request.setAsyncSupported(true);
+        request.addHeader(TracingFilter.DEBUG_HEADER, "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletResponse[] traced = new ServletResponse[1];
+
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                req.startAsync(req, res);
+                traced[0] = res;
+            }
+        });
+        Assertions.assertNull(response.getHeader(TracingFilter.TRACE_HEADER));
+
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(request, traced[0], (req, res) -> res.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertTrue(response.getHeader(TracingFilter.TRACE_HEADER).startsWith("id=" + response.getHeader(TracingFilter.TRACE_ID_HEADER)));
+        Assertions.assertEquals("[]", response.getContentAsString());
+    }
+
+    /**
+     * Seules les traces de debug ou échantillonnées réencodent les commandes Mongo pour leur taille
+     */
+    @Test
+    public void testBytesMeasuredOnlyForDebugOrSampledTraces() throws Exception {
+        MockHttpServletRequest debug = new MockHttpServletRequest("GET", "/cinemas");
+        debug.addHeader(TracingFilter.DEBUG_HEADER, "1");
+
+        Assertions.assertTrue(this.trace(new TracingFilter(null, 0, Long.MAX_VALUE, true), debug).isMeasureBytes());
+        Assertions.assertTrue(this.trace(new TracingFilter(null, 1, Long.MAX_VALUE, true), new MockHttpServletRequest("GET", "/cinemas")).isMeasureBytes());
+        Assertions.assertFalse(this.trace(new TracingFilter(null, 0, Long.MAX_VALUE, true), new MockHttpServletRequest("GET", "/cinemas")).isMeasureBytes());
+    }
+
+    private Trace trace(TracingFilter filter, MockHttpServletRequest request) throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return (Trace) request.getAttribute(Trace.ATTRIBUTE);
+    }
+}
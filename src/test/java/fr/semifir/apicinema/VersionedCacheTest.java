@@ -0,0 +1,61 @@
+package fr.semifir.apicinema;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.semifir.apicinema.events.VersionedCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VersionedCacheTest {
+
+    private final VersionedCache cache = new VersionedCache("cinemas", Caffeine.newBuilder().maximumSize(100).build());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testLoadedValueIsCached() {
+        Assertions.assertEquals("v1", this.cache.get("c1", () -> this.load("v1")));
+        Assertions.assertEquals("v1", this.cache.get("c1", () -> this.load("v2")));
+        Assertions.assertEquals(1, this.loads.get());
+    }
+
+    /**
+     * La lecture commence avant le save, l'évincement passe pendant la lecture :
+     * l'ancien document ne doit pas revenir dans le cache
+     */
+    @Test
+    public void testLoadStartedBeforeEvictIsNotCached() {
+        String stale = this.cache.get("c1", () -> {
+            this.cache.evict("c1");
+            return this.load("ancien");
+        });
+
+        Assertions.assertEquals("ancien", stale);
+        Assertions.assertEquals("nouveau", this.cache.get("c1", () -> this.load("nouveau")));
+        Assertions.assertEquals(2, this.loads.get());
+    }
+
+    @Test
+    public void testLoadStartedBeforeClearIsNotCached() {
+        this.cache.get("c2", () -> this.load("c2"));
+        this.cache.get("c1", () -> {
+            this.cache.clear();
+            return this.load("ancien");
+        });
+
+        Assertions.assertNull(this.cache.get("c1"));
+        Assertions.assertNull(this.cache.get("c2"));
+    }
+
+    @Test
+    public void testMissingDocumentIsCachedAsNull() {
+        Assertions.assertNull(this.cache.get("c1", () -> this.load(null)));
+        Assertions.assertNull(this.cache.get("c1", () -> this.load("v1")));
+        Assertions.assertEquals(1, this.loads.get());
+    }
+
+    private String load(String value) {
+        this.loads.incrementAndGet();
+        return value;
+    }
+}
@@ -0,0 +1,198 @@
+package fr.semifir.apicinema;
+
+import fr.semifir.apicinema.entities.Cinema;
+import fr.semifir.apicinema.services.WriteBehindQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class WriteBehindQueueTest {
+
+    // Lots reçus par le faux bulkSave, dans l'ordre d'écriture
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final Function<List<Cinema>, Map<Integer, String>> writer = cinemas -> {
+        List<String> noms = new ArrayList<>();
+        cinemas.forEach(cinema -> {
+            if (cinema.getId() == null) {
+                cinema.setId("id-" + cinema.getNom());
+            }
+            noms.add(cinema.getNom());
+        });
+        this.batches.add(noms);
+        return Collections.emptyMap();
+    };
+
+    private final ExecutorService callbacks = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        this.callbacks.shutdown();
+    }
+
+    private WriteBehindQueue<Cinema> queue(Function<List<Cinema>, Map<Integer, String>> writer, int capacity, int batchSize) {
+        return new WriteBehindQueue<>(
+                "cinemas", writer, Cinema::getId, capacity, batchSize,
+                TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100),
+                this.callbacks, TimeUnit.SECONDS.toNanos(5)
+        );
+    }
+
+    @Test
+    public void testSubmitsAreCoalescedIntoOneBulkWrite() throws Exception {
+        WriteBehindQueue<Cinema> queue = this.queue(this.writer, 100, 10);
+        List<CompletableFuture<Cinema>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(queue.submit(new Cinema(null, "c" + i)));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals("id-c" + i, futures.get(i).get(5, TimeUnit.SECONDS).getId());
+        }
+        Assertions.assertEquals(List.of(List.of("c0", "c1", "c2", "c3", "c4")), this.batches);
+        Assertions.assertEquals(1, queue.getBatches());
+        Assertions.assertEquals(5, queue.getWritten());
+        queue.close();
+    }
+
+    @Test
+    public void testBatchSizeSplitsBulkWrites() throws Exception {
+        WriteBehindQueue<Cinema> queue = this.queue(this.writer, 100, 2);
+        List<CompletableFuture<Cinema>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(queue.submit(new Cinema(null, "c" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        this.batches.forEach(batch -> Assertions.assertTrue(batch.size() <= 2));
+        Assertions.assertEquals(5, this.batches.stream().mapToInt(List::size).sum());
+        queue.close();
+    }
+
+    /**
+     * Le bulk write n'est pas ordonné : deux versions d'un même document partent dans deux lots
+     */
+    @Test
+    public void testSameDocumentTwiceIsWrittenInOrder() throws Exception {
+        WriteBehindQueue<Cinema> queue = this.queue(this.writer, 100, 10);
+        CompletableFuture<Cinema> first = queue.submit(new Cinema("c1", "avant"));
+        queue.submit(new Cinema("c2", "autre"));
+        CompletableFuture<Cinema> second = queue.submit(new Cinema("c1", "après"));
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(List.of(List.of("avant", "autre"), List.of("après")), this.batches);
+        queue.close();
+    }
+
+    @Test
+    public void testFailedElementCompletesExceptionally() throws Exception {
+        WriteBehindQueue<Cinema> queue = this.queue(cinemas -> Map.of(1, "E11000 duplicate key"), 100, 10);
+        CompletableFuture<Cinema> ok = queue.submit(new Cinema("c1", "ok"));
+        CompletableFuture<Cinema> ko = queue.submit(new Cinema("c2", "ko"));
+
+        Assertions.assertEquals("ok", ok.get(5, TimeUnit.SECONDS).getNom());
+        DataIntegrityViolationException error = Assertions.assertThrows(
+                DataIntegrityViolationException.class,
+                () -> queue.await(ko)
+        );
+        Assertions.assertEquals("E11000 duplicate key", error.getMessage());
+        Assertions.assertEquals(1, queue.getFailed());
+        queue.close();
+    }
+
+    /**
+     * File pleine pendant qu'un lot est bloqué dans Mongo : submit() refuse au lieu d'empiler
+     */
+    @Test
+    public void testFullQueueRejects() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindQueue<Cinema> queue = this.queue(cinemas -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this.writer.apply(cinemas);
+        }, 2, 1);
+        CompletableFuture<Cinema> blocked = queue.submit(new Cinema(null, "c0"));
+        Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        queue.submit(new Cinema(null, "c1"));
+        queue.submit(new Cinema(null, "c2"));
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> queue.submit(new Cinema(null, "c3")));
+        Assertions.assertEquals(1, queue.getRejected());
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        queue.close();
+        Assertions.assertEquals(3, queue.getWritten());
+    }
+
+    @Test
+    public void testCloseWritesPendingElements() throws Exception {
+        WriteBehindQueue<Cinema> queue = new WriteBehindQueue<>(
+                "cinemas", this.writer, Cinema::getId, 100, 10,
+                TimeUnit.SECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(100),
+                this.callbacks, TimeUnit.SECONDS.toNanos(5)
+        );
+        CompletableFuture<Cinema> pending = queue.submit(new Cinema(null, "c0"));
+        queue.close();
+
+        Assertions.assertTrue(pending.isDone());
+        Assertions.assertEquals("id-c0", pending.get().getId());
+        Assertions.assertThrows(RejectedExecutionException.class, () -> queue.submit(new Cinema(null, "c1")));
+    }
+
+    /**
+     * Lot bloqué dans Mongo : await() rend la main après awaitTimeout au lieu d'attendre indéfiniment
+     */
+    @Test
+    public void testAwaitIsBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindQueue<Cinema> queue = new WriteBehindQueue<>(
+                "cinemas", cinemas -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return this.writer.apply(cinemas);
+                }, Cinema::getId, 100, 10,
+                TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(100),
+                this.callbacks, TimeUnit.MILLISECONDS.toNanos(100)
+        );
+        CompletableFuture<Cinema> blocked = queue.submit(new Cinema(null, "c0"));
+
+        Assertions.assertThrows(QueryTimeoutException.class, () -> queue.await(blocked));
+        release.countDown();
+        Assertions.assertEquals("id-c0", queue.await(blocked).getId());
+        queue.close();
+    }
+
+    @Test
+    public void testCallbacksRunOutsideTheFlusher() throws Exception {
+        WriteBehindQueue<Cinema> queue = this.queue(this.writer, 100, 10);
+        String thread = queue.await(queue.submit(new Cinema(null, "c0"))
+                .thenApplyAsync(cinema -> Thread.currentThread().getName(), queue.getCallbacks()));
+
+        Assertions.assertFalse(thread.startsWith("write-behind-"));
+        queue.close();
+    }
+}